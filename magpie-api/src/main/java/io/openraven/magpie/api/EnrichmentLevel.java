@@ -0,0 +1,63 @@
+/*-
+ * #%L
+ * magpie-api
+ * %%
+ * Copyright (C) 2021 Open Raven Inc
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+
+
+package io.openraven.magpie.api;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * How much a discovery plugin gathers beyond a resource's inventory and configuration. Origin plugins let it be set
+ * globally and per service, so frequent inventory scans and deep daily scans can share one pipeline.
+ */
+public enum EnrichmentLevel {
+  /**
+   * Inventory and configuration only. Skips metrics (sizes, usage), backup history, reports that must be generated
+   * first, and per-resource lookups of sub-resources that are discovered as resources of their own.
+   */
+  LITE,
+  /**
+   * Everything the plugin knows how to discover. This is the default.
+   */
+  FULL;
+
+  public boolean isFull() {
+    return this == FULL;
+  }
+
+  @JsonCreator
+  public static EnrichmentLevel of(String value) {
+    return value == null ? null : valueOf(value.trim().toUpperCase(Locale.ROOT));
+  }
+
+  /**
+   * @return the level configured for the service, matched case-insensitively, or the default level if it has none
+   */
+  public static EnrichmentLevel forService(String service, EnrichmentLevel defaultLevel, Map<String, EnrichmentLevel> serviceLevels) {
+    return serviceLevels.entrySet().stream()
+      .filter(entry -> entry.getKey().equalsIgnoreCase(service) && entry.getValue() != null)
+      .map(Map.Entry::getValue)
+      .findFirst()
+      .orElse(defaultLevel);
+  }
+}
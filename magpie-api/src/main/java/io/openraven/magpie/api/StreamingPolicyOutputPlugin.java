@@ -0,0 +1,118 @@
+/*-
+ * #%L
+ * Magpie API
+ * %%
+ * Copyright (C) 2021 Open Raven Inc
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package io.openraven.magpie.api;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A {@link PolicyOutputPlugin} that receives the analysis results piece by piece instead of as one tree, so reports
+ * can be written as the rows arrive and never hold every violation at once.
+ *
+ * Callbacks arrive in this order: {@link #beginReport(ObjectNode)} once, then for every policy
+ * {@link #beginPolicy(ObjectNode)}, its violations, its ignored rules and {@link #endPolicy(ObjectNode)}, and finally
+ * {@link #endReport()}.  Violations and ignored rules reference their policy and rule by id ({@code policyId},
+ * {@code ruleId}: the {@code id} of the policy or rule, or its {@code refId} when it has none); the policy and rule
+ * definitions are sent once, in the header.
+ *
+ * @param <T> The configuration object class, see {@link MagpiePlugin}
+ */
+public interface StreamingPolicyOutputPlugin<T> extends PolicyOutputPlugin<T> {
+
+  /**
+   * @param header {@code scanMetadata}, the analyzed {@code policies} with their {@code rules}, and the total
+   *               {@code violationCount} and {@code ignoredRuleCount}
+   */
+  void beginReport(ObjectNode header);
+
+  /**
+   * @param policy the policy as sent in the header without its rules, plus its {@code violationCount} and
+   *               {@code ignoredRuleCount}
+   */
+  default void beginPolicy(ObjectNode policy) {
+  }
+
+  /**
+   * @param violation {@code policyId}, {@code ruleId}, {@code assetId}, {@code error} and {@code evaluatedAt}
+   */
+  void violation(ObjectNode violation);
+
+  /**
+   * @param ignoredRule {@code policyId}, {@code ruleId} and {@code ignoredReason}
+   */
+  void ignoredRule(ObjectNode ignoredRule);
+
+  default void endPolicy(ObjectNode policy) {
+  }
+
+  void endReport();
+
+  /**
+   * Replays a complete results tree through the streaming callbacks.
+   */
+  @Override
+  default void generateReport(ObjectNode results) {
+    final var violations = groupByPolicy(results.path("violations"));
+    final var ignoredRules = groupByPolicy(results.path("ignoredRules"));
+
+    final var header = results.objectNode();
+    header.set("scanMetadata", results.path("scanMetadata"));
+    header.set("policies", results.path("policies"));
+    header.put("violationCount", results.path("violations").size());
+    header.put("ignoredRuleCount", results.path("ignoredRules").size());
+    beginReport(header);
+
+    results.path("policies").forEach(policyNode -> {
+      final var id = referenceOf(policyNode);
+      final var policyViolations = violations.getOrDefault(id, List.of());
+      final var policyIgnoredRules = ignoredRules.getOrDefault(id, List.of());
+
+      final var policy = ((ObjectNode) policyNode).deepCopy();
+      policy.remove("rules");
+      policy.put("violationCount", policyViolations.size());
+      policy.put("ignoredRuleCount", policyIgnoredRules.size());
+
+      beginPolicy(policy);
+      policyViolations.forEach(this::violation);
+      policyIgnoredRules.forEach(this::ignoredRule);
+      endPolicy(policy);
+    });
+    endReport();
+  }
+
+  /**
+   * @return the id a policy or rule definition is referenced by: its {@code id}, or its {@code refId} if it has none
+   */
+  static String referenceOf(JsonNode definition) {
+    final var id = definition.path("id");
+    return id.isNull() || id.isMissingNode() ? definition.path("refId").asText(null) : id.asText();
+  }
+
+  private static Map<String, List<ObjectNode>> groupByPolicy(JsonNode entries) {
+    final var byPolicy = new LinkedHashMap<String, List<ObjectNode>>();
+    entries.forEach(entry -> byPolicy.computeIfAbsent(entry.path("policyId").asText(null), k -> new ArrayList<>()).add((ObjectNode) entry));
+    return byPolicy;
+  }
+}
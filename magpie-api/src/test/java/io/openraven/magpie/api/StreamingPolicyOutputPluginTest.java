@@ -0,0 +1,135 @@
+/*-
+ * #%L
+ * Magpie API
+ * %%
+ * Copyright (C) 2021 Open Raven Inc
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package io.openraven.magpie.api;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class StreamingPolicyOutputPluginTest {
+
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+
+  @Test
+  public void testReplaysResultsPolicyByPolicy() throws Exception {
+    final var plugin = new RecordingPlugin();
+    plugin.generateReport((ObjectNode) MAPPER.readTree("{" +
+      "\"scanMetadata\": {\"duration\": 95}," +
+      "\"policies\": [" +
+      "  {\"id\": \"p1\", \"refId\": \"first\", \"rules\": [{\"id\": \"r1\"}, {\"id\": null, \"refId\": \"r2\"}]}," +
+      "  {\"id\": null, \"refId\": \"second\", \"rules\": [{\"refId\": \"r3\"}]}," +
+      "  {\"id\": \"p3\", \"rules\": []}]," +
+      "\"violations\": [" +
+      "  {\"policyId\": \"second\", \"ruleId\": \"r3\", \"assetId\": \"a\"}," +
+      "  {\"policyId\": \"p1\", \"ruleId\": \"r1\", \"assetId\": \"b\"}," +
+      "  {\"policyId\": \"p1\", \"ruleId\": \"r1\", \"assetId\": \"c\"}]," +
+      "\"ignoredRules\": [{\"policyId\": \"p1\", \"ruleId\": \"r2\", \"ignoredReason\": \"DISABLED\"}]}"));
+
+    // Policies in the order listed, each with its own violations in order, then its ignored rules
+    assertEquals(List.of(
+      "beginReport 3 violations, 1 ignored rules, 3 policies",
+      "beginPolicy p1 2 violations, 1 ignored rules",
+      "violation p1/r1 b",
+      "violation p1/r1 c",
+      "ignoredRule p1/r2",
+      "endPolicy p1",
+      "beginPolicy second 1 violations, 0 ignored rules",
+      "violation second/r3 a",
+      "endPolicy second",
+      "beginPolicy p3 0 violations, 0 ignored rules",
+      "endPolicy p3",
+      "endReport"), plugin.calls);
+    assertEquals(95, plugin.header.at("/scanMetadata/duration").asInt());
+    // Rules are only sent in the header
+    assertEquals(2, plugin.header.at("/policies/0/rules").size());
+    plugin.policies.forEach(policy -> assertFalse(policy.has("rules")));
+  }
+
+  @Test
+  public void testReferencesById() throws Exception {
+    assertEquals("p1", StreamingPolicyOutputPlugin.referenceOf(MAPPER.readTree("{\"id\": \"p1\", \"refId\": \"first\"}")));
+    assertEquals("first", StreamingPolicyOutputPlugin.referenceOf(MAPPER.readTree("{\"id\": null, \"refId\": \"first\"}")));
+    assertEquals("first", StreamingPolicyOutputPlugin.referenceOf(MAPPER.readTree("{\"refId\": \"first\"}")));
+    assertNull(StreamingPolicyOutputPlugin.referenceOf(MAPPER.readTree("{}")));
+  }
+
+  private static class RecordingPlugin implements StreamingPolicyOutputPlugin<Void> {
+    private final List<String> calls = new ArrayList<>();
+    private final List<ObjectNode> policies = new ArrayList<>();
+    private ObjectNode header;
+
+    @Override
+    public void beginReport(ObjectNode header) {
+      this.header = header;
+      calls.add("beginReport " + header.get("violationCount") + " violations, " + header.get("ignoredRuleCount") +
+        " ignored rules, " + header.get("policies").size() + " policies");
+    }
+
+    @Override
+    public void beginPolicy(ObjectNode policy) {
+      policies.add(policy);
+      calls.add("beginPolicy " + StreamingPolicyOutputPlugin.referenceOf(policy) + " " + policy.get("violationCount") +
+        " violations, " + policy.get("ignoredRuleCount") + " ignored rules");
+    }
+
+    @Override
+    public void violation(ObjectNode violation) {
+      calls.add("violation " + violation.get("policyId").asText() + "/" + violation.get("ruleId").asText() + " " +
+        violation.get("assetId").asText());
+    }
+
+    @Override
+    public void ignoredRule(ObjectNode ignoredRule) {
+      calls.add("ignoredRule " + ignoredRule.get("policyId").asText() + "/" + ignoredRule.get("ruleId").asText());
+    }
+
+    @Override
+    public void endPolicy(ObjectNode policy) {
+      calls.add("endPolicy " + StreamingPolicyOutputPlugin.referenceOf(policy));
+    }
+
+    @Override
+    public void endReport() {
+      calls.add("endReport");
+    }
+
+    @Override
+    public String id() {
+      return "recording";
+    }
+
+    @Override
+    public void init(Void config, Logger logger) {
+    }
+
+    @Override
+    public Class<Void> configType() {
+      return null;
+    }
+  }
+}
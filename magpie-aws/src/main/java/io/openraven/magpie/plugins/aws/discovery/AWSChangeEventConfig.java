@@ -0,0 +1,56 @@
+/*
+ * Copyright 2021 Open Raven Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.openraven.magpie.plugins.aws.discovery;
+
+import java.util.Map;
+
+/**
+ * Configuration of {@link AWSChangeEventPlugin}. Credentials, services, regions and enrichment are configured as for
+ * {@link AWSDiscoveryPlugin}; the events are read from a file, a Kafka topic or both.
+ */
+public class AWSChangeEventConfig extends AWSDiscoveryConfig {
+
+  private String path;
+  private Map<String, Object> kafka = Map.of();
+
+  /**
+   * @return
+   * Optional file of change events, read to the end once per session. The events may be line-delimited JSON, a JSON
+   * array or a CloudTrail log file; a named pipe works as well.
+   */
+  public String getPath() {
+    return path;
+  }
+
+  public void setPath(String path) {
+    this.path = path;
+  }
+
+  /**
+   * @return
+   * Optional Kafka consumer properties, including the 'topic' to consume change events from and the 'group.id' whose
+   * committed offsets mark the events already consumed. Each session consumes the events available when it joins.
+   */
+  public Map<String, Object> getKafka() {
+    return kafka;
+  }
+
+  public void setKafka(Map<String, Object> kafka) {
+    this.kafka = kafka == null ? Map.of() : kafka;
+  }
+}
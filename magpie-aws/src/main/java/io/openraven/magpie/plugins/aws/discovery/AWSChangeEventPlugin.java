@@ -0,0 +1,240 @@
+/*
+ * Copyright 2021 Open Raven Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.openraven.magpie.plugins.aws.discovery;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import io.openraven.magpie.api.Emitter;
+import io.openraven.magpie.api.OriginPlugin;
+import io.openraven.magpie.api.Session;
+import io.openraven.magpie.plugins.aws.discovery.services.AWSDiscovery;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.common.KafkaException;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.slf4j.Logger;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.sts.StsClient;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import static io.openraven.magpie.plugins.aws.discovery.AWSDiscoveryPlugin.DISCOVERY_LIST;
+import static io.openraven.magpie.plugins.aws.discovery.AWSDiscoveryPlugin.MAPPER;
+
+/**
+ * Keeps the inventory fresh between full scans by rediscovering only the resources named by change events, through
+ * {@link AWSDiscovery#discoverResource}. Each resource is rediscovered once per session however many events name it.
+ * Resources of services that can't rediscover single resources are left to the next full scan.
+ */
+public class AWSChangeEventPlugin implements OriginPlugin<AWSChangeEventConfig> {
+
+  public final static String ID = "magpie.aws.events";
+
+  private static final Duration POLL_TIMEOUT = Duration.ofSeconds(1);
+  // Joining the consumer group or fetching records taking longer than this ends the session's consumption of the topic
+  private static final Duration IDLE_TIMEOUT = Duration.ofSeconds(30);
+
+  private final Function<Map<String, Object>, org.apache.kafka.clients.consumer.Consumer<String, String>> consumers;
+  private Logger logger;
+  private AWSChangeEventConfig config;
+  private String localAccount;
+
+  public AWSChangeEventPlugin() {
+    this(KafkaConsumer::new);
+  }
+
+  AWSChangeEventPlugin(Function<Map<String, Object>, org.apache.kafka.clients.consumer.Consumer<String, String>> consumers) {
+    this.consumers = consumers;
+  }
+
+  @Override
+  public void discover(Session session, Emitter emitter) {
+    final var changed = changedResources();
+    logger.info("Rediscovering {} changed resources", changed.size());
+
+    final var services = DISCOVERY_LIST.stream().filter(s -> isEnabled(s.service())).collect(Collectors.toList());
+    changed.forEach(resource -> {
+      try {
+        rediscover(session, emitter, services, resource);
+      } catch (Exception ex) {
+        logger.error("Rediscovery error for {} - {}", resource.arn, ex.getMessage());
+        logger.debug("Details", ex);
+      }
+    });
+  }
+
+  private void rediscover(Session session, Emitter emitter, List<AWSDiscovery> services, ChangeEvents.ChangedResource resource) {
+    final var region = Region.of(Objects.requireNonNullElse(resource.region, Region.US_EAST_1.id()));
+    if (!isRegionEnabled(region.id())) {
+      logger.debug("Skipping {}, {} is not enabled", resource.arn, region);
+      return;
+    }
+
+    final var account = resource.account == null ? localAccount() : resource.account;
+    final var clientCreator = clientCreatorFor(account, region);
+    if (clientCreator == null) {
+      logger.warn("Skipping {}, no assumed role is configured for account {}", resource.arn, account);
+      return;
+    }
+
+    final var rediscovered = services.stream().anyMatch(service -> service.discoverResource(MAPPER, session, region,
+      resource.arn, emitter, logger, account, clientCreator, config.enrichmentFor(service.service())));
+    if (!rediscovered) {
+      logger.debug("{} can't be rediscovered on its own, leaving it to the next full scan", resource.arn);
+    }
+  }
+
+  private MagpieAWSClientCreator clientCreatorFor(String account, Region region) {
+    final var role = config.getAssumedRoles().stream().filter(r -> ClientCreators.accountOf(r).equals(account)).findFirst();
+    if (role.isPresent()) {
+      return ClientCreators.assumeRoleCreator(region, role.get(), config.getExternalId(), config.getProxyRoleConfig());
+    }
+    return account.equals(localAccount()) ? ClientCreators.localClientCreator(region) : null;
+  }
+
+  private String localAccount() {
+    if (localAccount == null) {
+      try (final var client = StsClient.create()) {
+        localAccount = client.getCallerIdentity().account();
+      }
+    }
+    return localAccount;
+  }
+
+  /**
+   * @return the resources named by the events available to this session, each once, in the order first named
+   */
+  Collection<ChangeEvents.ChangedResource> changedResources() {
+    final var changed = new LinkedHashMap<String, ChangeEvents.ChangedResource>();
+    readEvents(event -> ChangeEvents.resourcesOf(event).forEach(resource -> changed.put(resource.arn, resource)));
+    return changed.values();
+  }
+
+  private void readEvents(Consumer<JsonNode> onEvent) {
+    if (config.getPath() != null) {
+      final var path = Path.of(config.getPath().replace("~", System.getProperty("user.home")));
+      try (final var reader = Files.newBufferedReader(path);
+           final var events = MAPPER.readerFor(JsonNode.class).<JsonNode>readValues(reader)) {
+        events.forEachRemaining(onEvent);
+      } catch (IOException ex) {
+        logger.error("Unable to read change events from {}: {}", path, ex.getMessage());
+      }
+    }
+
+    if (!config.getKafka().isEmpty()) {
+      final var properties = new HashMap<>(config.getKafka());
+      final var topic = properties.remove("topic");
+      if (topic == null) {
+        logger.error("Kafka 'topic' value must be set to consume change events");
+        return;
+      }
+      if (properties.get(ConsumerConfig.GROUP_ID_CONFIG) == null) {
+        logger.error("Kafka 'group.id' value must be set to consume change events");
+        return;
+      }
+      properties.putIfAbsent(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class.getName());
+      properties.putIfAbsent(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class.getName());
+      try (final var consumer = consumers.apply(properties)) {
+        readTopic(consumer, topic.toString(), onEvent);
+      } catch (KafkaException ex) {
+        logger.error("Unable to read change events from {}: {}", topic, ex.getMessage());
+        logger.debug("Details", ex);
+      }
+    }
+  }
+
+  /**
+   * Reads the topic up to the end offsets its partitions had when they were assigned; later events are left to the
+   * next session. Polls return nothing while the consumer is still joining its group, which takes a few seconds, so
+   * an empty poll alone doesn't end the read.
+   */
+  private void readTopic(org.apache.kafka.clients.consumer.Consumer<String, String> consumer, String topic, Consumer<JsonNode> onEvent) {
+    consumer.subscribe(List.of(topic));
+    final var endOffsets = new HashMap<TopicPartition, Long>();
+    var deadline = Instant.now().plus(IDLE_TIMEOUT);
+    while (Instant.now().isBefore(deadline)) {
+      final var records = consumer.poll(POLL_TIMEOUT);
+      if (!records.isEmpty()) {
+        deadline = Instant.now().plus(IDLE_TIMEOUT);
+      }
+      records.forEach(record -> readRecord(record, onEvent));
+
+      final var assignment = consumer.assignment();
+      if (assignment.isEmpty()) {
+        continue;
+      }
+      // Partitions may be reassigned while reading; each one is read up to its end offset when first assigned
+      final var unknown = assignment.stream().filter(p -> !endOffsets.containsKey(p)).collect(Collectors.toList());
+      if (!unknown.isEmpty()) {
+        endOffsets.putAll(consumer.endOffsets(unknown));
+      }
+      if (assignment.stream().allMatch(p -> consumer.position(p) >= endOffsets.get(p))) {
+        return;
+      }
+    }
+    logger.warn("Stopped reading change events from {}, nothing was received for {}", topic, IDLE_TIMEOUT);
+  }
+
+  private void readRecord(ConsumerRecord<String, String> record, Consumer<JsonNode> onEvent) {
+    try {
+      onEvent.accept(MAPPER.readTree(record.value()));
+    } catch (IOException ex) {
+      logger.warn("Skipping unreadable change event at offset {}: {}", record.offset(), ex.getMessage());
+    }
+  }
+
+  private boolean isEnabled(String svc) {
+    return config.getServices().isEmpty() || config.getServices().stream().anyMatch(configuredService -> configuredService.equalsIgnoreCase(svc));
+  }
+
+  private boolean isRegionEnabled(String region) {
+    return (config.getRegions().isEmpty() || config.getRegions().contains(region)) &&
+      config.getIgnoredRegions().stream().noneMatch(pattern -> Pattern.matches(pattern, region));
+  }
+
+  @Override
+  public String id() {
+    return ID;
+  }
+
+  @Override
+  public void init(AWSChangeEventConfig config, Logger logger) {
+    this.logger = logger;
+    this.config = config;
+  }
+
+  @Override
+  public Class<AWSChangeEventConfig> configType() {
+    return AWSChangeEventConfig.class;
+  }
+}
@@ -16,7 +16,10 @@
 
 package io.openraven.magpie.plugins.aws.discovery;
 
+import io.openraven.magpie.api.EnrichmentLevel;
+
 import java.util.List;
+import java.util.Map;
 
 public class AWSDiscoveryConfig {
 
@@ -41,12 +44,37 @@ public class AWSDiscoveryConfig {
     }
   }
 
+  public static class ConfigAggregatorConfig {
+    String name;
+    String region = "us-east-1";
+
+    public String getName() {
+      return name;
+    }
+
+    public void setName(String name) {
+      this.name = name;
+    }
+
+    public String getRegion() {
+      return region;
+    }
+
+    public void setRegion(String region) {
+      this.region = region;
+    }
+  }
+
   private List<String> assumedRoles = List.of();
   private List<String> services = List.of();
   private List<String> regions = List.of();
   private List<String> ignoredRegions = List.of();
   private String externalId;
   private ProxyRoleConfig proxyRoleConfig;
+  private EnrichmentLevel enrichment = EnrichmentLevel.FULL;
+  private Map<String, EnrichmentLevel> serviceEnrichment = Map.of();
+  private String policyDocumentCache;
+  private ConfigAggregatorConfig configAggregator;
 
 
     /**
@@ -101,4 +129,61 @@ public class AWSDiscoveryConfig {
   public void setProxyRoleConfig(ProxyRoleConfig proxyRoleConfig) {
     this.proxyRoleConfig = proxyRoleConfig;
   }
+
+  /**
+   * @return
+   * The enrichment level of every service without an entry in {@link #getServiceEnrichment()}. Defaults to FULL; LITE
+   * skips CloudWatch sizes and metrics, backup job history, the IAM credential report and per-resource sub-resource
+   * lookups.
+   */
+  public EnrichmentLevel getEnrichment() {
+    return enrichment;
+  }
+
+  public void setEnrichment(EnrichmentLevel enrichment) {
+    this.enrichment = enrichment == null ? EnrichmentLevel.FULL : enrichment;
+  }
+
+  /**
+   * @return
+   * Enrichment levels of individual services, keyed by service name (e.g. s3, rds), overriding {@link #getEnrichment()}.
+   */
+  public Map<String, EnrichmentLevel> getServiceEnrichment() {
+    return serviceEnrichment;
+  }
+
+  public void setServiceEnrichment(Map<String, EnrichmentLevel> serviceEnrichment) {
+    this.serviceEnrichment = serviceEnrichment == null ? Map.of() : serviceEnrichment;
+  }
+
+  /**
+   * @return
+   * Optional path of a file keeping IAM policy documents between scans, so that unchanged policy versions are not
+   * fetched again. Documents are cached for the duration of a scan either way.
+   */
+  public String getPolicyDocumentCache() {
+    return policyDocumentCache;
+  }
+
+  public void setPolicyDocumentCache(String policyDocumentCache) {
+    this.policyDocumentCache = policyDocumentCache;
+  }
+
+  /**
+   * @return
+   * Optional AWS Config aggregator, queried with the local credentials, from which the resources of the services whose
+   * describe output Config records are read in bulk for the accounts discovered, in the regions it returns resources
+   * for. Other services, accounts and regions are discovered as usual.
+   */
+  public ConfigAggregatorConfig getConfigAggregator() {
+    return configAggregator;
+  }
+
+  public void setConfigAggregator(ConfigAggregatorConfig configAggregator) {
+    this.configAggregator = configAggregator;
+  }
+
+  public EnrichmentLevel enrichmentFor(String service) {
+    return EnrichmentLevel.forService(service, enrichment, serviceEnrichment);
+  }
 }
@@ -27,8 +27,13 @@ import org.slf4j.Logger;
 import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.sts.StsClient;
 
+import java.nio.file.Path;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
@@ -39,7 +44,7 @@ public class AWSDiscoveryPlugin implements OriginPlugin<AWSDiscoveryConfig> {
     .configure(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS, false)
     .findAndRegisterModules();
 
-  private static final List<AWSDiscovery> DISCOVERY_LIST = List.of(
+  static final List<AWSDiscovery> DISCOVERY_LIST = List.of(
     new AthenaDiscovery(),
     new BatchDiscovery(),
     new CassandraDiscovery(),
@@ -91,18 +96,76 @@ public class AWSDiscoveryPlugin implements OriginPlugin<AWSDiscoveryConfig> {
 
   @Override
   public void discover(Session session, Emitter emitter) {
+    final var policyDocumentCache = Optional.ofNullable(config.getPolicyDocumentCache())
+      .map(path -> Path.of(path.replace("~", System.getProperty("user.home"))));
+    policyDocumentCache.ifPresent(path -> PolicyDocumentCache.getInstance().load(path, logger));
+    try {
+      discoverAccounts(session, emitter, discoverThroughConfigAggregator(session, emitter));
+    } finally {
+      policyDocumentCache.ifPresent(path -> PolicyDocumentCache.getInstance().save(path, logger));
+      PolicyDocumentCache.getInstance().retainUsed();
+    }
+  }
+
+  private ConfigAggregatorDiscovery.Coverage discoverThroughConfigAggregator(Session session, Emitter emitter) {
+    final var aggregator = config.getConfigAggregator();
+    if (aggregator == null || aggregator.getName() == null) {
+      return ConfigAggregatorDiscovery.Coverage.NONE;
+    }
+    final var enabledPlugins = DISCOVERY_LIST.stream()
+      .filter(p -> isEnabled(p.service()))
+      .collect(Collectors.toList());
+    final var clientCreator = ClientCreators.localClientCreator(Region.of(aggregator.getRegion()));
+    return new ConfigAggregatorDiscovery(aggregator.getName(), clientCreator, logger)
+      .discover(MAPPER, session, emitter, enabledPlugins, discoveredAccounts(), config::enrichmentFor,
+        region -> isDiscoveryEnabledIn(region) && isAllowedRegion(region));
+  }
+
+  // The accounts discovery runs in, by account id, with their client creators
+  private Map<String, Function<Region, MagpieAWSClientCreator>> discoveredAccounts() {
+    final var accounts = new HashMap<String, Function<Region, MagpieAWSClientCreator>>();
+    if (config.getAssumedRoles() == null || config.getAssumedRoles().isEmpty()) {
+      try (final var client = StsClient.create()) {
+        accounts.put(client.getCallerIdentity().account(), ClientCreators::localClientCreator);
+      } catch (Exception ex) {
+        logger.warn("Couldn't identify the local account, it won't be read from the Config aggregator: {}", ex.getMessage());
+        logger.debug("Details", ex);
+      }
+    } else {
+      config.getAssumedRoles().forEach(role -> {
+        final Function<Region, MagpieAWSClientCreator> clientCreator =
+          region -> ClientCreators.assumeRoleCreator(region, role, config.getExternalId(), config.getProxyRoleConfig());
+        try (final var client = clientCreator.apply(Region.US_EAST_1).apply(StsClient.builder()).build()) {
+          accounts.putIfAbsent(client.getCallerIdentity().account(), clientCreator);
+        } catch (Exception ex) {
+          logger.warn("Couldn't identify the account of role {}, it won't be read from the Config aggregator: {}", role, ex.getMessage());
+          logger.debug("Details", ex);
+        }
+      });
+    }
+    return accounts;
+  }
 
-    final var enabledPlugins = DISCOVERY_LIST.stream().filter(p -> isEnabled(p.service())).collect(Collectors.toList());
+  private void discoverAccounts(Session session, Emitter emitter, ConfigAggregatorDiscovery.Coverage coverage) {
+
+    final var enabledPlugins = DISCOVERY_LIST.stream()
+      .filter(p -> isEnabled(p.service()))
+      .collect(Collectors.toList());
 
     if (config.getAssumedRoles() == null || config.getAssumedRoles().isEmpty()) {
       try(final var client = StsClient.create()) {
         final var account = client.getCallerIdentity().account();
+        final var disabledRegions = OptInRegions.disabledRegions(session, account, ClientCreators.localClientCreator(Region.US_EAST_1), logger);
         enabledPlugins.forEach(plugin -> {
-          final var regions = getRegionsForDiscovery(plugin);
+          final var regions = getRegionsForDiscovery(plugin, disabledRegions);
           regions.forEach(region -> {
+            if (coverage.covers(plugin.service(), account, region.id())) {
+              logger.debug("{} in {} was discovered through the Config aggregator", plugin.fullService(), region);
+              return;
+            }
             try {
               final var clientCreator = ClientCreators.localClientCreator(region);
-              plugin.discoverWrapper(MAPPER, session, region, emitter, logger, account, clientCreator);
+              plugin.discoverWrapper(MAPPER, session, region, emitter, logger, account, clientCreator, config.enrichmentFor(plugin.service()));
             } catch (Exception ex) {
               logger.error("Discovery error  in {} - {}", region.id(), ex.getMessage());
               logger.debug("Details", ex);
@@ -112,14 +175,20 @@ public class AWSDiscoveryPlugin implements OriginPlugin<AWSDiscoveryConfig> {
       }
     } else {
       config.getAssumedRoles().forEach(role -> {
+        final var disabledRegions = OptInRegions.disabledRegions(session, role,
+          ClientCreators.assumeRoleCreator(Region.US_EAST_1, role, config.getExternalId(), config.getProxyRoleConfig()), logger);
         enabledPlugins.forEach(plugin -> {
-          final var regions = getRegionsForDiscovery(plugin);
+          final var regions = getRegionsForDiscovery(plugin, disabledRegions);
           regions.forEach(region -> {
             final var clientCreator = ClientCreators.assumeRoleCreator(region, role, config.getExternalId(), config.getProxyRoleConfig());
             try (final var client = clientCreator.apply(StsClient.builder()).build()) {
               final String account = client.getCallerIdentity().account();
+              if (coverage.covers(plugin.service(), account, region.id())) {
+                logger.debug("{} in {} of {} was discovered through the Config aggregator", plugin.fullService(), region, account);
+                return;
+              }
               logger.info("Discovering cross-account {}:{} using role {}", plugin.service(), region,   role);
-              plugin.discoverWrapper(MAPPER, session, region, emitter, logger, account, clientCreator);
+              plugin.discoverWrapper(MAPPER, session, region, emitter, logger, account, clientCreator, config.enrichmentFor(plugin.service()));
             } catch (Exception ex) {
               logger.error("Discovery error  in {} - {}", region.id(), ex.getMessage());
               logger.debug("Details", ex);
@@ -131,10 +200,15 @@ public class AWSDiscoveryPlugin implements OriginPlugin<AWSDiscoveryConfig> {
   }
 
   protected List<Region> getRegionsForDiscovery(AWSDiscovery plugin) {
+    return getRegionsForDiscovery(plugin, Set.of());
+  }
+
+  protected List<Region> getRegionsForDiscovery(AWSDiscovery plugin, Set<String> disabledRegions) {
     final var regions = plugin.getSupportedRegions()
       .stream()
       .filter(region -> isDiscoveryEnabledIn(region.toString()))
       .filter(region -> isAllowedRegion(region.toString()))
+      .filter(region -> !disabledRegions.contains(region.id()))
       .collect(Collectors.toList());
 
     if (regions.isEmpty()) {
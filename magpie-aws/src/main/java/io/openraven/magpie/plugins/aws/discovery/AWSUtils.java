@@ -39,7 +39,6 @@ import software.amazon.awssdk.services.cloudwatch.model.Statistic;
 import software.amazon.awssdk.utils.builder.ToCopyableBuilder;
 
 import javax.annotation.Nullable;
-import java.io.IOException;
 import java.net.URLDecoder;
 import java.nio.charset.StandardCharsets;
 import java.time.Instant;
@@ -57,6 +56,8 @@ public class AWSUtils {
 
   private static final JsonNode NULL_NODE = AWSDiscoveryPlugin.MAPPER.nullNode();
 
+  private static final SdkPojoSerializer SDK_POJO_SERIALIZER = new SdkPojoSerializer(AWSDiscoveryPlugin.MAPPER);
+
   private static final Logger LOGGER = LoggerFactory.getLogger(AWSUtils.class);
 
   /**
@@ -79,8 +80,7 @@ public class AWSUtils {
   public static JsonNode update(@Nullable JsonNode payload, ToCopyableBuilder... responsesToAdd) {
     for (ToCopyableBuilder responseToAdd : responsesToAdd) {
       if (responseToAdd != null) {
-        JsonNode jsonNode = AWSDiscoveryPlugin.MAPPER.convertValue(responseToAdd.toBuilder(), JsonNode.class);
-        payload = update(payload, jsonNode);
+        payload = merge(payload, SDK_POJO_SERIALIZER.toJsonNode(responseToAdd), false);
       }
     }
     return payload;
@@ -95,14 +95,13 @@ public class AWSUtils {
 
       if (responseToAdd.getValue() instanceof ToCopyableBuilder) {
         nodeToAdd.set(responseToAdd.getKey(),
-          AWSDiscoveryPlugin.MAPPER.convertValue(((ToCopyableBuilder) responseToAdd.getValue()).toBuilder(),
-            JsonNode.class));
+          SDK_POJO_SERIALIZER.toJsonNode((ToCopyableBuilder) responseToAdd.getValue()));
       } else {
         nodeToAdd.set(responseToAdd.getKey(),
           AWSDiscoveryPlugin.MAPPER.convertValue(responseToAdd.getValue(), JsonNode.class));
       }
 
-      payload = update(payload, nodeToAdd);
+      payload = merge(payload, nodeToAdd, false);
     }
 
     return payload;
@@ -111,21 +110,52 @@ public class AWSUtils {
   public static JsonNode update(@Nullable JsonNode payload, JsonNode... nodesToAdd) {
     for (JsonNode nodeToAdd : nodesToAdd) {
       if (nodeToAdd != null) {
-        try {
-          if (payload != null) {
-            payload = AWSDiscoveryPlugin.MAPPER.readerForUpdating(payload).readValue(nodeToAdd);
-          } else {
-            payload = nodeToAdd;
-          }
-        } catch (IOException e) {
-          LOGGER.warn("Unable to add extra data {}", nodeToAdd, e);
-        }
+        payload = merge(payload, nodeToAdd, true);
       }
     }
 
     return payload;
   }
 
+  /**
+   * Merges {@code nodeToAdd} into {@code payload} in place, the way {@code MAPPER.readerForUpdating(payload)} would:
+   * objects are merged recursively, arrays are appended to, and any other value is replaced.  Fields the payload
+   * doesn't have yet, the common case, are attached without being walked.
+   *
+   * @param copy whether {@code nodeToAdd} may still be used by the caller and must be copied rather than attached
+   */
+  private static JsonNode merge(@Nullable JsonNode payload, JsonNode nodeToAdd, boolean copy) {
+    if (payload == null) {
+      return nodeToAdd;
+    } else if (nodeToAdd.isNull()) {
+      return payload;
+    } else if (payload.isObject() || payload.isArray()) {
+      if (payload.getNodeType() != nodeToAdd.getNodeType()) {
+        LOGGER.warn("Unable to add extra data {} to {}", nodeToAdd, payload.getNodeType());
+      } else if (payload.isObject()) {
+        mergeObject((ObjectNode) payload, (ObjectNode) nodeToAdd, copy);
+      } else {
+        nodeToAdd.forEach(item -> ((ArrayNode) payload).add(copy ? item.deepCopy() : item));
+      }
+      return payload;
+    }
+    return copy ? nodeToAdd.deepCopy() : nodeToAdd;
+  }
+
+  private static void mergeObject(ObjectNode payload, ObjectNode nodeToAdd, boolean copy) {
+    nodeToAdd.fields().forEachRemaining(field -> {
+      final var existing = payload.get(field.getKey());
+      final var value = field.getValue();
+      if (existing != null && existing.isObject() && value.isObject()) {
+        mergeObject((ObjectNode) existing, (ObjectNode) value, copy);
+      } else if (existing != null && existing.isArray() && value.isArray()) {
+        value.forEach(item -> ((ArrayNode) existing).add(copy ? item.deepCopy() : item));
+      } else {
+        payload.set(field.getKey(), copy ? value.deepCopy() : value);
+      }
+    });
+  }
+
   @SuppressWarnings("rawtypes")
   public static JsonNode update(ToCopyableBuilder... responsesToAdd) {
     return update(null, responsesToAdd);
@@ -133,7 +163,7 @@ public class AWSUtils {
 
   public static JsonNode add(List<? extends ToCopyableBuilder> responsesToAdd) {
     List<JsonNode> tags = responsesToAdd.stream()
-      .map((val) -> AWSDiscoveryPlugin.MAPPER.convertValue(val.toBuilder(), JsonNode.class))
+      .map(SDK_POJO_SERIALIZER::toJsonNode)
       .collect(toList());
 
     ArrayNode payload = AWSDiscoveryPlugin.MAPPER.createArrayNode();
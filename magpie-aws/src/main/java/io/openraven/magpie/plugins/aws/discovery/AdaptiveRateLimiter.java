@@ -0,0 +1,219 @@
+/*
+ * Copyright 2021 Open Raven Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.openraven.magpie.plugins.aws.discovery;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.awscore.AwsExecutionAttribute;
+import software.amazon.awssdk.core.client.config.ClientOverrideConfiguration;
+import software.amazon.awssdk.core.interceptor.Context;
+import software.amazon.awssdk.core.interceptor.ExecutionAttributes;
+import software.amazon.awssdk.core.interceptor.ExecutionInterceptor;
+import software.amazon.awssdk.core.interceptor.SdkExecutionAttribute;
+import software.amazon.awssdk.core.retry.RetryPolicy;
+import software.amazon.awssdk.core.retry.RetryPolicyContext;
+import software.amazon.awssdk.core.retry.RetryUtils;
+import software.amazon.awssdk.core.retry.backoff.FullJitterBackoffStrategy;
+import software.amazon.awssdk.core.retry.conditions.RetryCondition;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Client-side rate limiting for every AWS client built by a {@link MagpieAWSClientCreator}. Each (account, region,
+ * service, operation) gets its own token bucket whose rate adapts to what AWS accepts: every successful call raises it
+ * a little (additive increase) and a throttling response halves it (multiplicative decrease), so discovery settles
+ * close to the highest rate an API sustains for the account.
+ *
+ * Throttled calls are retried with jittered backoff many more times than other failures, so a throttled page of
+ * results is delayed rather than dropped from the scan.
+ */
+public class AdaptiveRateLimiter {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(AdaptiveRateLimiter.class);
+
+  static final double INITIAL_RATE = 20.0;
+  static final double MIN_RATE = 0.5;
+  static final double MAX_RATE = 200.0;
+  // Requests per second gained per successful call; a bucket kept busy without throttling grows by about 5% a second
+  private static final double ADDITIVE_INCREASE = 0.05;
+  private static final double MULTIPLICATIVE_DECREASE = 0.5;
+  // Throttles from calls already in flight when the rate was cut say nothing about the new rate
+  private static final long DECREASE_COOLDOWN_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+  private static final int MAX_THROTTLED_RETRIES = 10;
+  private static final int MAX_OTHER_RETRIES = 3;
+  private static final Duration THROTTLING_BASE_DELAY = Duration.ofMillis(500);
+  private static final Duration THROTTLING_MAX_DELAY = Duration.ofSeconds(20);
+
+  private static final AdaptiveRateLimiter INSTANCE = new AdaptiveRateLimiter();
+
+  private final Map<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+
+  public static AdaptiveRateLimiter getInstance() {
+    return INSTANCE;
+  }
+
+  /**
+   * @param account the account the client's credentials belong to, which together with the region, service and
+   *                operation of each call selects the bucket it draws from
+   * @return the override configuration that rate limits and retries the calls of a client
+   */
+  public ClientOverrideConfiguration overrideConfiguration(String account) {
+    final var retryPolicy = RetryPolicy.defaultRetryPolicy().toBuilder()
+      .numRetries(MAX_THROTTLED_RETRIES)
+      .retryCondition(new ThrottlingRetryCondition(account))
+      .throttlingBackoffStrategy(FullJitterBackoffStrategy.builder()
+        .baseDelay(THROTTLING_BASE_DELAY)
+        .maxBackoffTime(THROTTLING_MAX_DELAY)
+        .build())
+      .build();
+
+    return ClientOverrideConfiguration.builder()
+      .retryPolicy(retryPolicy)
+      .addExecutionInterceptor(new RateLimitingInterceptor(account))
+      .build();
+  }
+
+  /**
+   * Blocks until the bucket has a token for one more call.
+   */
+  void acquire(String key) throws InterruptedException {
+    final long waitNanos = bucket(key).reserve(System.nanoTime());
+    if (waitNanos > 0) {
+      TimeUnit.NANOSECONDS.sleep(waitNanos);
+    }
+  }
+
+  void onSuccess(String key) {
+    bucket(key).increase();
+  }
+
+  void onThrottle(String key) {
+    final var bucket = bucket(key);
+    if (bucket.decrease(System.nanoTime())) {
+      LOGGER.debug("Throttled on {}, lowering rate to {} requests per second", key, String.format("%.2f", bucket.rate()));
+    }
+  }
+
+  double rate(String key) {
+    return bucket(key).rate();
+  }
+
+  private TokenBucket bucket(String key) {
+    return buckets.computeIfAbsent(key, k -> new TokenBucket(INITIAL_RATE, System.nanoTime()));
+  }
+
+  private static String key(String account, ExecutionAttributes attributes) {
+    return account + "/" + attributes.getAttribute(AwsExecutionAttribute.AWS_REGION) + "/" +
+      attributes.getAttribute(SdkExecutionAttribute.SERVICE_NAME) + "/" +
+      attributes.getAttribute(SdkExecutionAttribute.OPERATION_NAME);
+  }
+
+  /**
+   * A token bucket holding at most one second worth of tokens. Callers reserve a token even when none is left, which
+   * drives the balance negative and makes later callers wait behind them in arrival order.
+   */
+  static class TokenBucket {
+    private double rate;
+    private double tokens;
+    private long lastRefill;
+    private long lastDecrease;
+
+    TokenBucket(double rate, long now) {
+      this.rate = rate;
+      this.tokens = rate;
+      this.lastRefill = now;
+      this.lastDecrease = now - DECREASE_COOLDOWN_NANOS;
+    }
+
+    /**
+     * @return how long to wait, in nanoseconds, before the reserved call may go out
+     */
+    synchronized long reserve(long now) {
+      tokens = Math.min(rate, tokens + (now - lastRefill) * rate / TimeUnit.SECONDS.toNanos(1));
+      lastRefill = now;
+      tokens -= 1;
+      return tokens >= 0 ? 0 : (long) (-tokens / rate * TimeUnit.SECONDS.toNanos(1));
+    }
+
+    synchronized void increase() {
+      rate = Math.min(MAX_RATE, rate + ADDITIVE_INCREASE);
+    }
+
+    synchronized boolean decrease(long now) {
+      if (now - lastDecrease < DECREASE_COOLDOWN_NANOS) {
+        return false;
+      }
+      lastDecrease = now;
+      rate = Math.max(MIN_RATE, rate * MULTIPLICATIVE_DECREASE);
+      // Drop the burst allowance so the lower rate takes effect right away
+      tokens = Math.min(tokens, 0);
+      return true;
+    }
+
+    synchronized double rate() {
+      return rate;
+    }
+  }
+
+  private class RateLimitingInterceptor implements ExecutionInterceptor {
+    private final String account;
+
+    private RateLimitingInterceptor(String account) {
+      this.account = account;
+    }
+
+    // Called once per attempt, so retries draw from the bucket as well
+    @Override
+    public void beforeTransmission(Context.BeforeTransmission context, ExecutionAttributes executionAttributes) {
+      try {
+        acquire(key(account, executionAttributes));
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+      }
+    }
+
+    @Override
+    public void afterTransmission(Context.AfterTransmission context, ExecutionAttributes executionAttributes) {
+      if (context.httpResponse().isSuccessful()) {
+        onSuccess(key(account, executionAttributes));
+      }
+    }
+  }
+
+  private class ThrottlingRetryCondition implements RetryCondition {
+    private final String account;
+    private final RetryCondition defaultCondition = RetryCondition.defaultRetryCondition();
+
+    private ThrottlingRetryCondition(String account) {
+      this.account = account;
+    }
+
+    @Override
+    public boolean shouldRetry(RetryPolicyContext context) {
+      if (RetryUtils.isThrottlingException(context.exception())) {
+        onThrottle(key(account, context.executionAttributes()));
+        return true;
+      }
+      return context.retriesAttempted() < MAX_OTHER_RETRIES && defaultCondition.shouldRetry(context);
+    }
+  }
+}
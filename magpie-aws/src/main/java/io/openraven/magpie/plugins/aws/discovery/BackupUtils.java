@@ -15,6 +15,10 @@
  */
 package io.openraven.magpie.plugins.aws.discovery;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import io.openraven.magpie.api.Session;
 import io.openraven.magpie.data.aws.backup.BackupPlan;
 import org.slf4j.Logger;
 import software.amazon.awssdk.core.exception.SdkClientException;
@@ -23,54 +27,93 @@ import software.amazon.awssdk.services.backup.BackupClient;
 import software.amazon.awssdk.services.backup.model.BackupJob;
 import software.amazon.awssdk.services.backup.model.BackupJobState;
 import software.amazon.awssdk.services.backup.model.ListBackupJobsRequest;
+import software.amazon.awssdk.services.backup.model.ListBackupJobsResponse;
 
+import java.time.Duration;
 import java.time.Instant;
 import java.time.Period;
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
 import java.util.stream.Collectors;
 
+/**
+ * Serves the completed backup jobs of a resource from an index built with one ListBackupJobs sweep per session,
+ * account and region, rather than filtering ListBackupJobs by resource ARN for every discovered resource.
+ */
 public class BackupUtils {
 
     private static final Period HISTORY = Period.ofDays(45);
+    private static final int MAX_ATTEMPTS = 5;
+    private static final Duration INITIAL_BACKOFF = Duration.ofSeconds(1);
     public static final String UNSUPPORTED_RESOURCE_TYPE_STRING_INDICATOR = "Unsupported resource type";
 
-    public static List<BackupJob.Builder> listBackupJobs(String arn, Region region, MagpieAWSClientCreator clientCreator, Logger logger) {
-        var retries = new AtomicInteger(5);
-        List<BackupJob.Builder> jobs = new LinkedList<>();
-        while (retries.get() > 0) {
-            try {
-                try (final var client = clientCreator.apply(BackupClient.builder()).region(region).build()) {
-                    final var builder = ListBackupJobsRequest.builder()
-                            .byResourceArn(arn)
-                            .byCreatedAfter(Instant.now().minus(HISTORY))
-                            .maxResults(1000)
-                            .byState(BackupJobState.COMPLETED);
-                    final var result = client.listBackupJobsPaginator(builder.build());
-                    result.forEach(response -> jobs.addAll(response.backupJobs().stream().map(BackupJob::toBuilder).collect(Collectors.toList())));
-                    break;
-                }
-            } catch (SdkClientException ex) {
+    // Completed jobs by resource ARN, per session, account and region. Entries outlive a region's discovery only long
+    // enough for every service that reports backups (EC2, RDS, DynamoDB, EFS, FSx) to read from them.
+    private static final Cache<String, Map<String, List<BackupJob>>> jobIndex = CacheBuilder.newBuilder()
+            .expireAfterAccess(Duration.ofMinutes(20))
+            .build();
 
-                if (retries.get() == 0) {
-                    throw ex;
-                }
+    public static List<BackupJob.Builder> listBackupJobs(Session session, String arn, Region region, String account,
+                                                         MagpieAWSClientCreator clientCreator, Logger logger) {
+        final var indexKey = session.getId() + ":" + account + ":" + region.id();
+        try {
+            final var index = jobIndex.get(indexKey, () -> indexBackupJobs(region, clientCreator, logger));
+            return index.getOrDefault(arn, List.of()).stream().map(BackupJob::toBuilder).collect(Collectors.toList());
+        } catch (ExecutionException | UncheckedExecutionException ex) {
+            throw new RuntimeException("Backup job discovery failed", ex.getCause());
+        }
+    }
 
-                logger.warn("Couldn't list backup jobs for {}, retrying {} more times", arn, retries);
+    /**
+     * Pages through every job completed in the region within {@link #HISTORY} and groups them by resource ARN. A page
+     * that fails on the client side is retried with exponential backoff; any other failure is reported once and
+     * leaves the region with an empty index, so resources are not re-queried one by one.
+     */
+    static Map<String, List<BackupJob>> indexBackupJobs(Region region, MagpieAWSClientCreator clientCreator, Logger logger) {
+        final var index = new HashMap<String, List<BackupJob>>();
+        try (final var client = clientCreator.apply(BackupClient.builder()).region(region).build()) {
+            final var request = ListBackupJobsRequest.builder()
+                    .byCreatedAfter(Instant.now().minus(HISTORY))
+                    .maxResults(1000)
+                    .byState(BackupJobState.COMPLETED)
+                    .build();
+            String nextToken = null;
+            do {
+                final var response = listPage(client, request.toBuilder().nextToken(nextToken).build(), region, logger);
+                response.backupJobs().forEach(job -> index.computeIfAbsent(job.resourceArn(), arn -> new ArrayList<>()).add(job));
+                nextToken = response.nextToken();
+            } while (nextToken != null && !nextToken.isEmpty());
+            logger.debug("Indexed {} backup jobs for {} resources in {}", index.values().stream().mapToInt(List::size).sum(), index.size(), region);
+            return index;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return Map.of();
+        } catch (Exception ex) {
+            // if we get "Unsupported resource type" this is a-ok (it just means we're trying to get backup jobs
+            // for resources AWS have told us to, but aren't released yet).
+            if (!String.valueOf(ex.getMessage()).contains(UNSUPPORTED_RESOURCE_TYPE_STRING_INDICATOR)) {
+                DiscoveryExceptions.onDiscoveryException(BackupPlan.RESOURCE_TYPE, null, region, ex);
             }
-            // if we get any exceptions here we continue, although some are ok/expected
-            catch (Exception ex) {
-                // if we get "Unsupported resource type" this is a-ok (it just means we're trying to get backup jobs
-                // for resources AWS have told us to, but aren't released yet).
-                if (String.valueOf(ex.getMessage()).contains(UNSUPPORTED_RESOURCE_TYPE_STRING_INDICATOR)) {
-                    break;
+            return Map.of();
+        }
+    }
+
+    private static ListBackupJobsResponse listPage(BackupClient client, ListBackupJobsRequest request, Region region, Logger logger) throws InterruptedException {
+        var backoff = INITIAL_BACKOFF;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return client.listBackupJobs(request);
+            } catch (SdkClientException ex) {
+                if (attempt == MAX_ATTEMPTS) {
+                    throw ex;
                 }
-                DiscoveryExceptions.onDiscoveryException(BackupPlan.RESOURCE_TYPE, arn, region, ex);
-            }finally {
-                retries.decrementAndGet();
+                logger.warn("Couldn't list backup jobs in {}, retrying {} more times", region, MAX_ATTEMPTS - attempt);
+                Thread.sleep(backoff.toMillis());
+                backoff = backoff.multipliedBy(2);
             }
         }
-        return jobs;
     }
 }
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2021 Open Raven Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.openraven.magpie.plugins.aws.discovery;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Extracts the resources named by change events: EventBridge events (including "AWS API Call via CloudTrail" events),
+ * bare CloudTrail records and CloudTrail log files ({"Records": [...]}), alone or in arrays. Only resources identified
+ * by ARN are returned; events naming none, e.g. most create calls, are ignored.
+ */
+class ChangeEvents {
+
+  static class ChangedResource {
+    final String arn;
+    final String account;
+    final String region;
+
+    ChangedResource(String arn, String account, String region) {
+      this.arn = arn;
+      // S3 ARNs and global resources have neither, in which case the event's are used
+      final var parts = arn.split(":", 6);
+      this.account = parts.length > 4 && !parts[4].isEmpty() ? parts[4] : account;
+      this.region = parts.length > 3 && !parts[3].isEmpty() ? parts[3] : region;
+    }
+  }
+
+  static List<ChangedResource> resourcesOf(JsonNode event) {
+    final var resources = new ArrayList<ChangedResource>();
+    collect(event, resources);
+    return resources;
+  }
+
+  private static void collect(JsonNode event, List<ChangedResource> resources) {
+    if (event.isArray()) {
+      event.forEach(e -> collect(e, resources));
+    } else if (event.has("Records")) {
+      collect(event.get("Records"), resources);
+    } else if (event.has("detail")) {
+      final var account = textOf(event, "account");
+      final var region = textOf(event, "region");
+      event.path("resources").forEach(arn -> add(arn.asText(), account, region, resources));
+      event.path("detail").path("resources").forEach(resource -> add(textOf(resource, "ARN"), account, region, resources));
+    } else {
+      final var account = textOf(event, "recipientAccountId");
+      final var region = textOf(event, "awsRegion");
+      event.path("resources").forEach(resource -> add(textOf(resource, "ARN"), account, region, resources));
+    }
+  }
+
+  private static void add(String arn, String account, String region, List<ChangedResource> resources) {
+    if (arn != null && arn.startsWith("arn:")) {
+      resources.add(new ChangedResource(arn, account, region));
+    }
+  }
+
+  private static String textOf(JsonNode node, String field) {
+    final var value = node.get(field);
+    return value == null || value.isNull() ? null : value.asText();
+  }
+}
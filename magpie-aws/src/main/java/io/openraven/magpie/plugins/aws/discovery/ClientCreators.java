@@ -15,6 +15,8 @@ import java.util.UUID;
 public class ClientCreators {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(ClientCreators.class);
+  // Local credentials always belong to a single account, the one discovery resolves through STS
+  private static final String LOCAL_ACCOUNT = "local";
 
   //This client does not need to be recreated on every request.
   public static final StsClient localStsClient = StsClient.create();
@@ -28,6 +30,7 @@ public class ClientCreators {
    * @return A new ClientCreator instanced used for assume role based discovery.
    */
   public static MagpieAWSClientCreator assumeRoleCreator(final Region region, final String roleArn, @Nullable  String externalId, @Nullable AWSDiscoveryConfig.ProxyRoleConfig proxyRoleConfig) {
+    final var rateLimits = AdaptiveRateLimiter.getInstance().overrideConfiguration(accountOf(roleArn));
     return new MagpieAWSClientCreator(){
       @Override
       public <BuilderT extends AwsClientBuilder<BuilderT, ClientT>, ClientT> BuilderT apply(AwsClientBuilder<BuilderT, ClientT> builder) {
@@ -71,12 +74,13 @@ public class ClientCreators {
               .build()
           ).build();
 
-        return builder.credentialsProvider(provider).region(region);
+        return builder.credentialsProvider(provider).overrideConfiguration(rateLimits).region(region);
       }
     };
   }
 
   public static MagpieAWSClientCreator localClientCreator(final Region region) {
+    final var rateLimits = AdaptiveRateLimiter.getInstance().overrideConfiguration(LOCAL_ACCOUNT);
     return new MagpieAWSClientCreator(){
       @Override
       public <BuilderT extends AwsClientBuilder<BuilderT, ClientT>, ClientT> BuilderT apply(AwsClientBuilder<BuilderT, ClientT> builder) {
@@ -84,8 +88,14 @@ public class ClientCreators {
         if (magpieAwsEndpoint != null) {
           builder.endpointOverride(URI.create(magpieAwsEndpoint));
         }
-        return builder.region(region);
+        return builder.overrideConfiguration(rateLimits).region(region);
       }
     };
   }
+
+  // The account of the role, e.g. 123456789012 in arn:aws:iam::123456789012:role/magpie, or the ARN itself if it has none
+  static String accountOf(String roleArn) {
+    final var parts = roleArn.split(":");
+    return parts.length > 4 && !parts[4].isEmpty() ? parts[4] : roleArn;
+  }
 }
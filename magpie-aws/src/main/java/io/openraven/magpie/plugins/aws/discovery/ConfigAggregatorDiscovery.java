@@ -0,0 +1,286 @@
+/*
+ * Copyright 2021 Open Raven Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.openraven.magpie.plugins.aws.discovery;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.openraven.magpie.api.Emitter;
+import io.openraven.magpie.api.EnrichmentLevel;
+import io.openraven.magpie.api.Session;
+import io.openraven.magpie.plugins.aws.discovery.services.AWSDiscovery;
+import org.slf4j.Logger;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.config.ConfigClient;
+import software.amazon.awssdk.services.config.model.AggregateResourceIdentifier;
+import software.amazon.awssdk.services.config.model.BatchGetAggregateResourceConfigRequest;
+import software.amazon.awssdk.services.config.model.ConfigurationItemStatus;
+import software.amazon.awssdk.services.config.model.SelectAggregateResourceConfigRequest;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * Discovers, in bulk from an AWS Config aggregator, the resources of services whose describe output Config records as
+ * the resource's configuration. Resource identifiers are selected a page at a time with SelectAggregateResourceConfig
+ * and their current configuration items are read 100 at a time with BatchGetAggregateResourceConfig, instead of calling
+ * each service's list and describe APIs in every account and region.
+ *
+ * The configurations are handed to the service's {@link AWSDiscovery#discoverConfigurations}, which reads them back
+ * into the describe models and emits them exactly as its own discovery does, per-resource lookups included. Only
+ * accounts Magpie discovers are read, and an account and region is left to the service's own discovery unless the
+ * aggregator returned resources for it and all of them were emitted.
+ */
+public class ConfigAggregatorDiscovery {
+
+  // The largest page either API returns
+  private static final int PAGE_SIZE = 100;
+  // Consecutive batches in which Config returned nothing before the remaining identifiers are given up on
+  private static final int MAX_IDLE_BATCHES = 5;
+
+  // Config resource types by the service that discovers them
+  private static final Map<String, String> COVERED_TYPES = Map.of(
+    "cloudTrail", "AWS::CloudTrail::Trail",
+    "elb", "AWS::ElasticLoadBalancing::LoadBalancer",
+    "elbv2", "AWS::ElasticLoadBalancingV2::LoadBalancer",
+    "es", "AWS::Elasticsearch::Domain",
+    "lambda", "AWS::Lambda::Function",
+    "redshift", "AWS::Redshift::Cluster");
+
+  private final String aggregatorName;
+  private final MagpieAWSClientCreator clientCreator;
+  private final Logger logger;
+
+  public ConfigAggregatorDiscovery(String aggregatorName, MagpieAWSClientCreator clientCreator, Logger logger) {
+    this.aggregatorName = aggregatorName;
+    this.clientCreator = clientCreator;
+    this.logger = logger;
+  }
+
+  /**
+   * The services, accounts and regions whose resources were all discovered through the aggregator.
+   */
+  public static class Coverage {
+    public static final Coverage NONE = new Coverage(Set.of());
+
+    private final Set<Scope> scopes;
+
+    private Coverage(Set<Scope> scopes) {
+      this.scopes = scopes;
+    }
+
+    /**
+     * @return true if the service must not be discovered again in the account and region
+     */
+    public boolean covers(String service, String account, String region) {
+      return scopes.contains(new Scope(service, account, region));
+    }
+  }
+
+  /**
+   * Emits every current resource of the enabled, covered services in the given accounts and in the regions passing the
+   * region filter.
+   *
+   * @param services        the enabled services
+   * @param accounts        the client creator of each account discovered, by account id and region
+   * @param enrichmentLevel the enrichment level of each service
+   * @return the services, accounts and regions that must not be discovered again; none if the aggregator couldn't be
+   * queried, in which case every service should be discovered as usual
+   */
+  public Coverage discover(ObjectMapper mapper, Session session, Emitter emitter, List<AWSDiscovery> services,
+                           Map<String, Function<Region, MagpieAWSClientCreator>> accounts,
+                           Function<String, EnrichmentLevel> enrichmentLevel, Predicate<String> isRegionEnabled) {
+    final var servicesByType = services.stream()
+      .filter(service -> COVERED_TYPES.containsKey(service.service()))
+      .collect(Collectors.toMap(service -> COVERED_TYPES.get(service.service()), Function.identity()));
+    if (servicesByType.isEmpty() || accounts.isEmpty()) {
+      return Coverage.NONE;
+    }
+
+    final Map<Scope, List<JsonNode>> configurations;
+    try (final var client = clientCreator.apply(ConfigClient.builder()).build()) {
+      final Map<AggregateResourceIdentifier, Scope> identifiers;
+      try {
+        identifiers = selectResources(mapper, client, servicesByType, accounts.keySet(), isRegionEnabled);
+      } catch (Exception ex) {
+        logger.warn("Couldn't query Config aggregator {}, discovering every service directly: {}", aggregatorName, ex.getMessage());
+        logger.debug("Details", ex);
+        return Coverage.NONE;
+      }
+      logger.info("Reading {} resources from Config aggregator {}", identifiers.size(), aggregatorName);
+      configurations = readConfigurations(mapper, client, identifiers);
+    }
+
+    final var covered = new HashSet<Scope>();
+    final var servicesByName = services.stream().collect(Collectors.toMap(AWSDiscovery::service, Function.identity()));
+    configurations.forEach((scope, scopeConfigurations) -> {
+      final var service = servicesByName.get(scope.service);
+      final var region = Region.of(scope.region);
+      try {
+        if (service.discoverConfigurations(mapper, session, region, scopeConfigurations, emitter, logger, scope.account,
+          accounts.get(scope.account).apply(region), enrichmentLevel.apply(scope.service))) {
+          covered.add(scope);
+        } else {
+          logger.info("Config aggregator {} returned {} {} resources in {} that can't be read, discovering them directly",
+            aggregatorName, scopeConfigurations.size(), scope.service, scope.region);
+        }
+      } catch (Exception ex) {
+        logger.error("Couldn't discover {} resources in {} from Config aggregator {}, discovering them directly: {}",
+          scope.service, scope.region, aggregatorName, ex.getMessage());
+        logger.debug("Details", ex);
+      }
+    });
+    return new Coverage(covered);
+  }
+
+  private Map<AggregateResourceIdentifier, Scope> selectResources(ObjectMapper mapper, ConfigClient client, Map<String, AWSDiscovery> servicesByType,
+                                                                  Set<String> accounts, Predicate<String> isRegionEnabled) throws JsonProcessingException {
+    final var expression = "SELECT resourceId, resourceType, accountId, awsRegion WHERE resourceType IN (" +
+      servicesByType.keySet().stream().sorted().map(type -> "'" + type + "'").collect(Collectors.joining(", ")) +
+      ") AND accountId IN (" + accounts.stream().sorted().map(account -> "'" + account + "'").collect(Collectors.joining(", ")) + ")";
+    final var request = SelectAggregateResourceConfigRequest.builder()
+      .configurationAggregatorName(aggregatorName)
+      .expression(expression)
+      .limit(PAGE_SIZE)
+      .build();
+
+    final var resources = new LinkedHashMap<AggregateResourceIdentifier, Scope>();
+    String nextToken = null;
+    do {
+      final var response = client.selectAggregateResourceConfig(request.toBuilder().nextToken(nextToken).build());
+      for (String result : response.results()) {
+        final var row = mapper.readTree(result);
+        final var service = servicesByType.get(row.path("resourceType").asText());
+        final var account = row.path("accountId").asText();
+        final var region = row.path("awsRegion").asText();
+        if (service == null || !accounts.contains(account) || !isRegionEnabled.test(region)) {
+          continue;
+        }
+        final var identifier = AggregateResourceIdentifier.builder()
+          .sourceAccountId(account)
+          .sourceRegion(region)
+          .resourceId(row.path("resourceId").asText())
+          .resourceType(row.path("resourceType").asText())
+          .build();
+        resources.put(identifier, new Scope(service.service(), account, region));
+      }
+      nextToken = response.nextToken();
+    } while (nextToken != null && !nextToken.isEmpty());
+    return resources;
+  }
+
+  /**
+   * @return the configurations of the current resources by scope, leaving out any scope some resource couldn't be read
+   * in
+   */
+  private Map<Scope, List<JsonNode>> readConfigurations(ObjectMapper mapper, ConfigClient client,
+                                                        Map<AggregateResourceIdentifier, Scope> identifiers) {
+    final var configurations = new LinkedHashMap<Scope, List<JsonNode>>();
+    final var incomplete = new HashSet<Scope>();
+    final var pending = new ArrayDeque<>(identifiers.keySet());
+    int idleBatches = 0;
+    while (!pending.isEmpty() && idleBatches < MAX_IDLE_BATCHES) {
+      final var batch = new ArrayList<AggregateResourceIdentifier>(PAGE_SIZE);
+      while (batch.size() < PAGE_SIZE && !pending.isEmpty()) {
+        batch.add(pending.poll());
+      }
+
+      try {
+        final var response = client.batchGetAggregateResourceConfig(BatchGetAggregateResourceConfigRequest.builder()
+          .configurationAggregatorName(aggregatorName)
+          .resourceIdentifiers(batch)
+          .build());
+        response.baseConfigurationItems().forEach(item -> {
+          final var scope = identifiers.get(AggregateResourceIdentifier.builder()
+            .sourceAccountId(item.accountId())
+            .sourceRegion(item.awsRegion())
+            .resourceId(item.resourceId())
+            .resourceType(item.resourceTypeAsString())
+            .build());
+          if (scope != null && item.configurationItemStatus() != ConfigurationItemStatus.RESOURCE_DELETED &&
+            item.configurationItemStatus() != ConfigurationItemStatus.RESOURCE_DELETED_NOT_RECORDED) {
+            configurations.computeIfAbsent(scope, s -> new ArrayList<>()).add(parse(mapper, item.configuration()));
+          }
+        });
+        pending.addAll(response.unprocessedResourceIdentifiers());
+        idleBatches = response.baseConfigurationItems().isEmpty() ? idleBatches + 1 : 0;
+      } catch (Exception ex) {
+        logger.error("Couldn't read {} resources from Config aggregator {}: {}", batch.size(), aggregatorName, ex.getMessage());
+        logger.debug("Details", ex);
+        batch.forEach(identifier -> incomplete.add(identifiers.get(identifier)));
+      }
+    }
+
+    if (!pending.isEmpty()) {
+      logger.warn("Config aggregator {} left {} resources unprocessed, discovering their services directly", aggregatorName, pending.size());
+      pending.forEach(identifier -> incomplete.add(identifiers.get(identifier)));
+    }
+    configurations.keySet().removeAll(incomplete);
+    return configurations;
+  }
+
+  // Config returns configuration as JSON text; anything unparseable is kept as text, which no service can read
+  private static JsonNode parse(ObjectMapper mapper, String json) {
+    if (json == null) {
+      return mapper.createObjectNode();
+    }
+    try {
+      return mapper.readTree(json);
+    } catch (JsonProcessingException ex) {
+      return mapper.getNodeFactory().textNode(json);
+    }
+  }
+
+  private static class Scope {
+    private final String service;
+    private final String account;
+    private final String region;
+
+    private Scope(String service, String account, String region) {
+      this.service = service;
+      this.account = account;
+      this.region = region;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (this == o) {
+        return true;
+      }
+      if (!(o instanceof Scope)) {
+        return false;
+      }
+      final var scope = (Scope) o;
+      return service.equals(scope.service) && account.equals(scope.account) && region.equals(scope.region);
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(service, account, region);
+    }
+  }
+}
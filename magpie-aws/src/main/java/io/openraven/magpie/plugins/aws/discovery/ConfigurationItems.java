@@ -0,0 +1,73 @@
+/*
+ * Copyright 2021 Open Raven Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.openraven.magpie.plugins.aws.discovery;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import software.amazon.awssdk.utils.builder.SdkBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Predicate;
+
+/**
+ * Reads the configurations AWS Config records back into the SDK models of the describe calls they were recorded from.
+ * Config serializes those models with either camelCase or PascalCase keys and adds fields of its own, so keys are
+ * matched case-insensitively and unknown ones are ignored.
+ */
+public final class ConfigurationItems {
+
+  private static final ObjectMapper READER = JsonMapper.builder()
+    .findAndAddModules()
+    .enable(MapperFeature.ACCEPT_CASE_INSENSITIVE_PROPERTIES)
+    .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+    // Epoch timestamps are in milliseconds
+    .disable(DeserializationFeature.READ_DATE_TIMESTAMPS_AS_NANOSECONDS)
+    .build();
+
+  private ConfigurationItems() {
+  }
+
+  /**
+   * @param builderClass the model's {@code serializableBuilderClass()}
+   * @param isComplete   whether a model has every field the service's discovery reads from it, e.g. its ARN
+   * @return the models, or empty if any configuration can't be read or is incomplete
+   */
+  public static <B extends SdkBuilder<B, T>, T> Optional<List<T>> read(List<JsonNode> configurations,
+                                                                      Class<? extends B> builderClass,
+                                                                      Predicate<T> isComplete) {
+    final var models = new ArrayList<T>(configurations.size());
+    for (JsonNode configuration : configurations) {
+      final T model;
+      try {
+        model = READER.treeToValue(configuration, builderClass).build();
+      } catch (JsonProcessingException | IllegalArgumentException ex) {
+        return Optional.empty();
+      }
+      if (!isComplete.test(model)) {
+        return Optional.empty();
+      }
+      models.add(model);
+    }
+    return Optional.of(models);
+  }
+}
@@ -12,6 +12,8 @@ import software.amazon.awssdk.core.exception.SdkException;
 import software.amazon.awssdk.core.exception.SdkServiceException;
 import software.amazon.awssdk.regions.Region;
 
+import java.util.Objects;
+
 public class DiscoveryExceptions {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(DiscoveryExceptions.class);
@@ -44,9 +46,10 @@ public class DiscoveryExceptions {
   /*
    * returns true and logs given exception if the exception is an AWS SDK exception that is non-exceptional to Magpie
    */
-  private static boolean isManagedSdkException(String resourceType, String resourceName, Exception exception, Region region) {
+  static boolean isManagedSdkException(String resourceType, String resourceName, Exception exception, Region region) {
     if ((exception instanceof SdkServiceException) && (((SdkServiceException) exception).isThrottlingException())) {
-      LOGGER.info("{} - Throttling exception on {}, with error {}", resourceType, resourceName, exception.getMessage());
+      // Throttled calls are retried by every client until the retries run out, so this one has lost data
+      LOGGER.warn("{} - Throttling exception on {} after retries, results are incomplete: {}", resourceType, resourceName, exception.getMessage());
       return true;
     }
 
@@ -60,24 +63,26 @@ public class DiscoveryExceptions {
       return true;
     }
 
-    if (exception.getMessage().contains("STS is not activated in this region")) {
+    // Not every exception carries a message
+    final var message = Objects.toString(exception.getMessage(), "");
+    if (message.contains("STS is not activated in this region")) {
       LOGGER.info("STS is not activated in this region for resource {}", resourceName, exception);
       return true;
     }
 
-    if (exception.getMessage().contains("not authorized to perform") ||
-      exception.getMessage().contains("AccessDenied") ||
-      exception.getMessage().contains("Access Denied")) {
+    if (message.contains("not authorized to perform") ||
+      message.contains("AccessDenied") ||
+      message.contains("Access Denied")) {
       LOGGER.info("Access denied on {}", resourceName);
       return true;
     }
 
-    if (exception.getMessage().contains("The security token included in the request is invalid")) {
+    if (message.contains("The security token included in the request is invalid")) {
       LOGGER.info("Cannot access {}: {}", region, exception.getMessage());
       return true;
     }
 
-    if (exception.getMessage().contains("The AWS Access Key Id needs a subscription for the service")) {
+    if (message.contains("The AWS Access Key Id needs a subscription for the service")) {
       LOGGER.info("The AWS Access Key Id needs a subscription for the service for resource {}", resourceName);
       return true;
     }
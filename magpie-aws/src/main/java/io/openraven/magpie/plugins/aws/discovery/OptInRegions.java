@@ -0,0 +1,87 @@
+/*
+ * Copyright 2021 Open Raven Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.openraven.magpie.plugins.aws.discovery;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import io.openraven.magpie.api.Session;
+import org.slf4j.Logger;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.regions.providers.DefaultAwsRegionProviderChain;
+import software.amazon.awssdk.services.ec2.Ec2Client;
+import software.amazon.awssdk.services.ec2.model.DescribeRegionsRequest;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.stream.Collectors;
+
+/**
+ * Resolves, with one DescribeRegions call per session and account, the opt-in regions the account has not enabled.
+ * Every call made there fails, often only after a timeout, so discovery leaves those regions out before building any
+ * service client.
+ */
+public class OptInRegions {
+
+  private static final String NOT_OPTED_IN = "not-opted-in";
+
+  private static final Cache<String, Set<String>> disabledRegions = CacheBuilder.newBuilder()
+    .expireAfterAccess(Duration.ofMinutes(20))
+    .build();
+
+  /**
+   * @param principal The assumed role, or any fixed name for local credentials; one account per principal.
+   * @param clientCreator A client creator for the principal. Its region is replaced by {@link #lookupRegion()}.
+   * @return The ids of the regions disabled for the principal's account, or an empty set if they couldn't be resolved,
+   * in which case nothing is skipped.
+   */
+  public static Set<String> disabledRegions(Session session, String principal, MagpieAWSClientCreator clientCreator, Logger logger) {
+    try {
+      return disabledRegions.get(session.getId() + ":" + principal, () -> describeDisabledRegions(principal, clientCreator, logger));
+    } catch (ExecutionException | UncheckedExecutionException ex) {
+      throw new RuntimeException("Region lookup failed", ex.getCause());
+    }
+  }
+
+  private static Set<String> describeDisabledRegions(String principal, MagpieAWSClientCreator clientCreator, Logger logger) {
+    try (final var client = clientCreator.apply(Ec2Client.builder()).region(lookupRegion()).build()) {
+      final var disabled = client.describeRegions(DescribeRegionsRequest.builder().allRegions(true).build())
+        .regions()
+        .stream()
+        .filter(region -> NOT_OPTED_IN.equals(region.optInStatus()))
+        .map(software.amazon.awssdk.services.ec2.model.Region::regionName)
+        .collect(Collectors.toSet());
+      logger.info("Skipping regions not enabled for {}: {}", principal, disabled);
+      return disabled;
+    } catch (Exception ex) {
+      logger.warn("Couldn't resolve the regions enabled for {}, discovering in all of them: {}", principal, ex.getMessage());
+      logger.debug("Details", ex);
+      return Set.of();
+    }
+  }
+
+  // Regions enabled by default can answer for every region of their partition
+  private static Region lookupRegion() {
+    try {
+      return new DefaultAwsRegionProviderChain().getRegion();
+    } catch (Exception ex) {
+      return Region.US_EAST_1;
+    }
+  }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2021 Open Raven Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.openraven.magpie.plugins.aws.discovery;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * IAM policy documents keyed by policy ARN, policy id and version id. A policy version never changes once created, so a document
+ * fetched for one account serves every other account attaching the same AWS-managed policy, and a customer-managed
+ * policy whose default version is unchanged needs no GetPolicyVersion call at all. The policy id is part of the key
+ * because a policy deleted and recreated under the same name keeps its ARN and starts over at v1.
+ *
+ * After each scan only the versions that scan used are kept, both in memory and, with a cache file configured, in the
+ * file that is loaded before the next scan.
+ */
+public class PolicyDocumentCache {
+
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+  private static final PolicyDocumentCache INSTANCE = new PolicyDocumentCache();
+
+  private final Map<String, String> documents = new ConcurrentHashMap<>();
+  private final Set<String> used = ConcurrentHashMap.newKeySet();
+
+  public static PolicyDocumentCache getInstance() {
+    return INSTANCE;
+  }
+
+  /**
+   * @param loader fetches the document on a miss; a null result is returned but not cached
+   * @return the (still URL encoded) document of the policy version
+   */
+  public String get(String policyArn, String policyId, String versionId, Supplier<String> loader) {
+    final var key = policyArn + "#" + policyId + "#" + versionId;
+    used.add(key);
+    final var cached = documents.get(key);
+    if (cached != null) {
+      return cached;
+    }
+    final var document = loader.get();
+    if (document != null) {
+      documents.put(key, document);
+    }
+    return document;
+  }
+
+  /**
+   * Adds the documents stored in the file, if it exists. An unreadable file is logged and otherwise ignored.
+   */
+  public void load(Path file, Logger logger) {
+    if (!Files.exists(file)) {
+      return;
+    }
+    try {
+      final Map<String, String> stored = MAPPER.readValue(file.toFile(), new TypeReference<>() {});
+      stored.forEach(documents::putIfAbsent);
+      logger.debug("Loaded {} policy documents from {}", stored.size(), file);
+    } catch (IOException ex) {
+      logger.warn("Unable to read policy documents from {}, they will be fetched again: {}", file, ex.getMessage());
+    }
+  }
+
+  /**
+   * Replaces the file with the documents used since the last {@link #retainUsed()}. Nothing is written if no
+   * document was used, e.g. when IAM discovery is disabled, so the file survives scans of other services.
+   */
+  public void save(Path file, Logger logger) {
+    final var toSave = new HashMap<String, String>();
+    used.forEach(key -> {
+      final var document = documents.get(key);
+      if (document != null) {
+        toSave.put(key, document);
+      }
+    });
+    if (toSave.isEmpty()) {
+      return;
+    }
+    try {
+      final var parent = file.toAbsolutePath().getParent();
+      Files.createDirectories(parent);
+      final var temp = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+      MAPPER.writeValue(temp.toFile(), toSave);
+      Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      logger.debug("Saved {} policy documents to {}", toSave.size(), file);
+    } catch (IOException ex) {
+      logger.warn("Unable to save policy documents to {}: {}", file, ex.getMessage());
+    }
+  }
+
+  /**
+   * Drops every document the scan that just ended did not use and starts tracking the next scan.
+   */
+  public void retainUsed() {
+    documents.keySet().retainAll(used);
+    used.clear();
+  }
+}
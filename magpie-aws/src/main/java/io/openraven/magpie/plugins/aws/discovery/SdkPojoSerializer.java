@@ -0,0 +1,158 @@
+/*
+ * Copyright 2021 Open Raven Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.openraven.magpie.plugins.aws.discovery;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.ser.PropertyWriter;
+import com.fasterxml.jackson.databind.ser.std.BeanSerializerBase;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.core.SdkBytes;
+import software.amazon.awssdk.core.SdkField;
+import software.amazon.awssdk.core.SdkPojo;
+import software.amazon.awssdk.core.protocol.MarshallingType;
+import software.amazon.awssdk.core.traits.DefaultValueTrait;
+import software.amazon.awssdk.core.util.SdkAutoConstructList;
+import software.amazon.awssdk.core.util.SdkAutoConstructMap;
+import software.amazon.awssdk.utils.builder.ToCopyableBuilder;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Converts AWS SDK models to JSON by walking their {@link SdkPojo#sdkFields()}, producing the same tree as
+ * {@code mapper.convertValue(model.toBuilder(), JsonNode.class)} without copying the model into a builder and
+ * bean-serializing it through a token buffer.
+ *
+ * Property names and order are taken once per model class from the serializer Jackson uses for its builder, and each
+ * property is matched to the SDK field it exposes.  Values follow the builder getters: enums as their string value,
+ * lists and maps that were never set as null, nested models recursively.  A class whose builder has a property that
+ * doesn't match exactly one field is converted by Jackson as before.
+ */
+final class SdkPojoSerializer {
+  private static final Logger LOGGER = LoggerFactory.getLogger(SdkPojoSerializer.class);
+
+  private final ObjectMapper mapper;
+  private final JsonNodeFactory factory;
+  private final Map<Class<?>, Optional<List<Property>>> properties = new ConcurrentHashMap<>();
+
+  SdkPojoSerializer(ObjectMapper mapper) {
+    this.mapper = mapper;
+    this.factory = mapper.getNodeFactory();
+  }
+
+  @SuppressWarnings("rawtypes")
+  JsonNode toJsonNode(ToCopyableBuilder model) {
+    if (model instanceof SdkPojo) {
+      final var modelProperties = properties.computeIfAbsent(model.getClass(), type -> findProperties(model));
+      if (modelProperties.isPresent()) {
+        final ObjectNode node = factory.objectNode();
+        for (Property property : modelProperties.get()) {
+          node.set(property.name, toJsonNode(property.field.getValueOrDefault(model)));
+        }
+        return node;
+      }
+    }
+    return mapper.convertValue(model.toBuilder(), JsonNode.class);
+  }
+
+  @SuppressWarnings("rawtypes")
+  private JsonNode toJsonNode(Object value) {
+    if (value == null || value instanceof SdkAutoConstructList || value instanceof SdkAutoConstructMap) {
+      return factory.nullNode();
+    } else if (value instanceof String) {
+      return factory.textNode((String) value);
+    } else if (value instanceof Boolean) {
+      return factory.booleanNode((Boolean) value);
+    } else if (value instanceof Integer) {
+      return factory.numberNode((Integer) value);
+    } else if (value instanceof Long) {
+      return factory.numberNode((Long) value);
+    } else if (value instanceof ToCopyableBuilder) {
+      return toJsonNode((ToCopyableBuilder) value);
+    } else if (value instanceof List) {
+      final ArrayNode node = factory.arrayNode(((List<?>) value).size());
+      ((List<?>) value).forEach(item -> node.add(toJsonNode(item)));
+      return node;
+    } else if (value instanceof Map) {
+      final ObjectNode node = factory.objectNode();
+      ((Map<?, ?>) value).forEach((key, item) -> node.set(String.valueOf(key), toJsonNode(item)));
+      return node;
+    } else if (value instanceof SdkBytes) {
+      // Builders expose blobs as ByteBuffers
+      return mapper.valueToTree(((SdkBytes) value).asByteBuffer());
+    }
+    return mapper.valueToTree(value);
+  }
+
+  private Optional<List<Property>> findProperties(ToCopyableBuilder<?, ?> model) {
+    try {
+      final var fields = new HashMap<String, SdkField<?>>();
+      for (SdkField<?> field : ((SdkPojo) model).sdkFields()) {
+        // Default values (idempotency tokens) are filled in by the field but not by the builder getter
+        if (field.marshallingType() == MarshallingType.DOCUMENT
+          || field.containsTrait(DefaultValueTrait.class)
+          || fields.put(normalize(field.memberName()), field) != null) {
+          return Optional.empty();
+        }
+      }
+
+      final var builderProperties = new ArrayList<Property>();
+      final var serializer = mapper.getSerializerProviderInstance().findValueSerializer(model.toBuilder().getClass());
+      if (!(serializer instanceof BeanSerializerBase)) { // e.g. builders without properties, which Jackson rejects
+        return Optional.empty();
+      }
+      for (var writers = serializer.properties(); writers.hasNext(); ) {
+        final PropertyWriter writer = writers.next();
+        final var field = fields.remove(normalize(writer.getName()));
+        if (field == null) {
+          LOGGER.debug("{} has no field for builder property {}, converting it with Jackson", model.getClass().getName(), writer.getName());
+          return Optional.empty();
+        }
+        builderProperties.add(new Property(writer.getName(), field));
+      }
+      return Optional.of(builderProperties);
+    } catch (Exception e) {
+      LOGGER.debug("Unable to map the fields of {}, converting it with Jackson", model.getClass().getName(), e);
+      return Optional.empty();
+    }
+  }
+
+  private static String normalize(String name) {
+    return name.replace("_", "").toLowerCase(Locale.ROOT);
+  }
+
+  private static class Property {
+    private final String name;
+    private final SdkField<?> field;
+
+    private Property(String name, SdkField<?> field) {
+      this.name = name;
+      this.field = field;
+    }
+  }
+}
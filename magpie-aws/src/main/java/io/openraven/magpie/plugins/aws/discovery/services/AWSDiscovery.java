@@ -16,8 +16,10 @@
 
 package io.openraven.magpie.plugins.aws.discovery.services;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import io.openraven.magpie.api.Emitter;
+import io.openraven.magpie.api.EnrichmentLevel;
 import io.openraven.magpie.api.MagpieAwsResource;
 import io.openraven.magpie.api.Session;
 import io.openraven.magpie.plugins.aws.discovery.AWSDiscoveryPlugin;
@@ -34,16 +36,46 @@ public interface AWSDiscovery {
 
   String service();
 
-  default void discoverWrapper(ObjectMapper mapper, Session session, Region region, Emitter emitter, Logger logger, String account, MagpieAWSClientCreator clientCreator) {
+  default void discoverWrapper(ObjectMapper mapper, Session session, Region region, Emitter emitter, Logger logger, String account, MagpieAWSClientCreator clientCreator, EnrichmentLevel enrichment) {
     logger.debug("Starting {} discovery in {}", service(), region);
-    discover(mapper, session, region, emitter, logger, account, clientCreator);
+    discover(mapper, session, region, emitter, logger, account, clientCreator, enrichment);
     logger.debug("Completed {} discovery in {}", service(), region);
   }
 
   void discover(ObjectMapper mapper, Session session, Region region, Emitter Emitter, Logger logger, String account, MagpieAWSClientCreator clientCreator);
 
-  default void discoverBackupJobs(String arn, Region region, MagpieAwsResource data, MagpieAWSClientCreator clientCreator, Logger logger) {
-    final var backups = BackupUtils.listBackupJobs(arn, region, clientCreator, logger);
+  /**
+   * Services with optional, call-heavy enrichments override this and skip them below {@link EnrichmentLevel#FULL};
+   * every other service discovers the same at any level.
+   */
+  default void discover(ObjectMapper mapper, Session session, Region region, Emitter emitter, Logger logger, String account, MagpieAWSClientCreator clientCreator, EnrichmentLevel enrichment) {
+    discover(mapper, session, region, emitter, logger, account, clientCreator);
+  }
+
+  /**
+   * Rediscovers the single resource the ARN names, emitting it exactly as {@link #discover} would. Services able to
+   * look up individual resources override this; the rest are only discovered by full sweeps.
+   *
+   * @return true if the ARN names a resource of this service that it can rediscover, whether or not it still exists
+   */
+  default boolean discoverResource(ObjectMapper mapper, Session session, Region region, String arn, Emitter emitter, Logger logger, String account, MagpieAWSClientCreator clientCreator, EnrichmentLevel enrichment) {
+    return false;
+  }
+
+  /**
+   * Emits the resources of one account and region whose configurations were read in bulk from AWS Config, exactly as
+   * {@link #discover} would, making the same per-resource lookups but skipping the list and describe calls. Services
+   * whose describe output Config records as the configuration override this; the rest are only discovered by sweeps.
+   *
+   * @return false, before anything is emitted, if any configuration can't be read as this service's describe output,
+   * in which case the account and region must be swept as usual
+   */
+  default boolean discoverConfigurations(ObjectMapper mapper, Session session, Region region, List<JsonNode> configurations, Emitter emitter, Logger logger, String account, MagpieAWSClientCreator clientCreator, EnrichmentLevel enrichment) {
+    return false;
+  }
+
+  default void discoverBackupJobs(Session session, String arn, Region region, MagpieAwsResource data, MagpieAWSClientCreator clientCreator, Logger logger) {
+    final var backups = BackupUtils.listBackupJobs(session, arn, region, data.awsAccountId, clientCreator, logger);
     AWSUtils.update(data.supplementaryConfiguration, Map.of("awsBackupJobs", backups));
   }
 
@@ -18,6 +18,7 @@ package io.openraven.magpie.plugins.aws.discovery.services;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import io.openraven.magpie.api.Emitter;
+import io.openraven.magpie.api.EnrichmentLevel;
 import io.openraven.magpie.api.MagpieAwsResource;
 import io.openraven.magpie.api.Session;
 import io.openraven.magpie.data.aws.cloudsearch.CloudSearchDomain;
@@ -58,6 +59,11 @@ public class CloudSearchDiscovery implements AWSDiscovery {
 
   @Override
   public void discover(ObjectMapper mapper, Session session, Region region, Emitter emitter, Logger logger, String account, MagpieAWSClientCreator clientCreator) {
+    discover(mapper, session, region, emitter, logger, account, clientCreator, EnrichmentLevel.FULL);
+  }
+
+  @Override
+  public void discover(ObjectMapper mapper, Session session, Region region, Emitter emitter, Logger logger, String account, MagpieAWSClientCreator clientCreator, EnrichmentLevel enrichment) {
     final String RESOURCE_TYPE = CloudSearchDomain.RESOURCE_TYPE;
 
     try (final var client = clientCreator.apply(CloudSearchClient.builder()).build()){
@@ -76,7 +82,9 @@ public class CloudSearchDiscovery implements AWSDiscovery {
           discoverServiceAccessPolicies(client, domain, data);
           discoverExpressions(client, domain, data);
           discoverIndexFields(client, domain, data);
-          discoverSize(domain, data, account, clientCreator);
+          if (enrichment.isFull()) {
+            discoverSize(domain, data, account, clientCreator);
+          }
 
           emitter.emit(VersionedMagpieEnvelopeProvider.create(session, List.of(fullService() + ":domain"), data.toJsonNode()));
         });
@@ -19,10 +19,12 @@ package io.openraven.magpie.plugins.aws.discovery.services;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import io.openraven.magpie.api.Emitter;
+import io.openraven.magpie.api.EnrichmentLevel;
 import io.openraven.magpie.api.MagpieAwsResource;
 import io.openraven.magpie.api.Session;
 import io.openraven.magpie.data.aws.cloudtrail.CloudTrail;
 import io.openraven.magpie.plugins.aws.discovery.AWSUtils;
+import io.openraven.magpie.plugins.aws.discovery.ConfigurationItems;
 import io.openraven.magpie.plugins.aws.discovery.DiscoveryExceptions;
 import io.openraven.magpie.plugins.aws.discovery.MagpieAWSClientCreator;
 import io.openraven.magpie.plugins.aws.discovery.VersionedMagpieEnvelopeProvider;
@@ -59,28 +61,46 @@ public class CloudTrailDiscovery implements AWSDiscovery {
 
     try (final var client = clientCreator.apply(CloudTrailClient.builder()).build()){
       client.listTrailsPaginator(ListTrailsRequest.builder().build()).trails()
-        .forEach(trail -> {
-          var data = new MagpieAwsResource.MagpieAwsResourceBuilder(mapper, trail.trailARN())
-            .withResourceName(trail.name())
-            .withResourceType(RESOURCE_TYPE)
-            .withConfiguration(mapper.valueToTree(trail.toBuilder()))
-            .withAccountId(account)
-            .withAwsRegion(region.toString())
-            .build();
-
-          discoverEventSelectors(client, trail, data);
-          discoverInsightSelectors(client, trail, data);
-          discoverTrailDetails(client, trail, data);
-          discoverTrailStatus(client, trail, data);
-          discoverTags(client, trail, data, mapper);
-
-          emitter.emit(VersionedMagpieEnvelopeProvider.create(session, List.of(fullService() + ":trail"), data.toJsonNode()));
-        });
+        .forEach(trail -> emitTrail(mapper, session, client, trail, region, emitter, account));
     } catch (SdkServiceException | SdkClientException ex) {
       DiscoveryExceptions.onDiscoveryException(RESOURCE_TYPE, null, region, ex);
     }
   }
 
+  @Override
+  public boolean discoverConfigurations(ObjectMapper mapper, Session session, Region region, List<JsonNode> configurations, Emitter emitter, Logger logger, String account, MagpieAWSClientCreator clientCreator, EnrichmentLevel enrichment) {
+    final var trails = ConfigurationItems.read(configurations, TrailInfo.serializableBuilderClass(),
+      trail -> trail.trailARN() != null && trail.name() != null);
+    if (trails.isEmpty()) {
+      return false;
+    }
+
+    try (final var client = clientCreator.apply(CloudTrailClient.builder()).build()) {
+      trails.get().forEach(trail -> emitTrail(mapper, session, client, trail, region, emitter, account));
+    } catch (SdkServiceException | SdkClientException ex) {
+      DiscoveryExceptions.onDiscoveryException(CloudTrail.RESOURCE_TYPE, null, region, ex);
+    }
+    return true;
+  }
+
+  private void emitTrail(ObjectMapper mapper, Session session, CloudTrailClient client, TrailInfo trail, Region region, Emitter emitter, String account) {
+    var data = new MagpieAwsResource.MagpieAwsResourceBuilder(mapper, trail.trailARN())
+      .withResourceName(trail.name())
+      .withResourceType(CloudTrail.RESOURCE_TYPE)
+      .withConfiguration(mapper.valueToTree(trail.toBuilder()))
+      .withAccountId(account)
+      .withAwsRegion(region.toString())
+      .build();
+
+    discoverEventSelectors(client, trail, data);
+    discoverInsightSelectors(client, trail, data);
+    discoverTrailDetails(client, trail, data);
+    discoverTrailStatus(client, trail, data);
+    discoverTags(client, trail, data, mapper);
+
+    emitter.emit(VersionedMagpieEnvelopeProvider.create(session, List.of(fullService() + ":trail"), data.toJsonNode()));
+  }
+
   private void discoverEventSelectors(CloudTrailClient client, TrailInfo resource, MagpieAwsResource data) {
     final String keyname = "eventSelectors";
 
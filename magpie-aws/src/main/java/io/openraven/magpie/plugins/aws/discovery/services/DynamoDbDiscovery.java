@@ -19,6 +19,7 @@ package io.openraven.magpie.plugins.aws.discovery.services;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import io.openraven.magpie.api.Emitter;
+import io.openraven.magpie.api.EnrichmentLevel;
 import io.openraven.magpie.api.MagpieAwsResource;
 import io.openraven.magpie.api.Session;
 import io.openraven.magpie.data.aws.dynamodb.DynamoDbGlobalTable;
@@ -66,9 +67,14 @@ public class DynamoDbDiscovery implements AWSDiscovery {
 
   @Override
   public void discover(ObjectMapper mapper, Session session, Region region, Emitter emitter, Logger logger, String account, MagpieAWSClientCreator clientCreator) {
+    discover(mapper, session, region, emitter, logger, account, clientCreator, EnrichmentLevel.FULL);
+  }
+
+  @Override
+  public void discover(ObjectMapper mapper, Session session, Region region, Emitter emitter, Logger logger, String account, MagpieAWSClientCreator clientCreator, EnrichmentLevel enrichment) {
     try (final var client = clientCreator.apply(DynamoDbClient.builder()).build()) {
       discoverGlobalTables(mapper, session, region, emitter, client, account);
-      discoverTables(mapper, session, region, emitter, client, account, clientCreator, logger);
+      discoverTables(mapper, session, region, emitter, client, account, clientCreator, logger, enrichment);
     }
   }
 
@@ -95,7 +101,7 @@ public class DynamoDbDiscovery implements AWSDiscovery {
     }
   }
 
-  protected void discoverTables(ObjectMapper mapper, Session session, Region region, Emitter emitter, DynamoDbClient client, String account, MagpieAWSClientCreator clientCreator, Logger logger) {
+  protected void discoverTables(ObjectMapper mapper, Session session, Region region, Emitter emitter, DynamoDbClient client, String account, MagpieAWSClientCreator clientCreator, Logger logger, EnrichmentLevel enrichment) {
     final String RESOURCE_TYPE = DynamoDbTable.RESOURCE_TYPE;
 
     try {
@@ -119,8 +125,10 @@ public class DynamoDbDiscovery implements AWSDiscovery {
           discoverSize(data);
           discoverContinuousBackups(client, table, data);
           discoverTags(client, table, data, mapper);
-          discoverBackupJobs(table.tableArn(), region, data, clientCreator, logger);
-          getCloudWatchMetrics(table, data, logger, clientCreator);
+          if (enrichment.isFull()) {
+            discoverBackupJobs(session, table.tableArn(), region, data, clientCreator, logger);
+            getCloudWatchMetrics(table, data, logger, clientCreator);
+          }
 
           emitter.emit(VersionedMagpieEnvelopeProvider.create(session, List.of(fullService() + ":table"), data.toJsonNode()));
       });
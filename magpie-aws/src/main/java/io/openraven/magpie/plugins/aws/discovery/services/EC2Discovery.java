@@ -22,6 +22,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import io.openraven.magpie.api.Emitter;
+import io.openraven.magpie.api.EnrichmentLevel;
 import io.openraven.magpie.api.MagpieAwsResource;
 import io.openraven.magpie.api.Session;
 import io.openraven.magpie.data.aws.ec2.EC2SecurityGroup;
@@ -49,6 +50,7 @@ import software.amazon.awssdk.core.exception.SdkClientException;
 import software.amazon.awssdk.core.exception.SdkServiceException;
 import software.amazon.awssdk.regions.Region;
 import software.amazon.awssdk.services.ec2.Ec2Client;
+import software.amazon.awssdk.services.ec2.model.DescribeInstancesRequest;
 import software.amazon.awssdk.services.ec2.model.DescribeNetworkAclsRequest;
 import software.amazon.awssdk.services.ec2.model.DescribeTransitGatewaysRequest;
 import software.amazon.awssdk.services.ec2.model.Instance;
@@ -78,9 +80,14 @@ public class EC2Discovery implements AWSDiscovery {
   private final Map<String, JsonNode> whoisCache = new HashMap<>();
 
   public void discover(ObjectMapper mapper, Session session, Region region, Emitter emitter, Logger logger, String account, MagpieAWSClientCreator clientCreator) {
+    discover(mapper, session, region, emitter, logger, account, clientCreator, EnrichmentLevel.FULL);
+  }
+
+  @Override
+  public void discover(ObjectMapper mapper, Session session, Region region, Emitter emitter, Logger logger, String account, MagpieAWSClientCreator clientCreator, EnrichmentLevel enrichment) {
 
     try (final var client = clientCreator.apply(Ec2Client.builder()).build()) {
-      discoverEc2Instances(mapper, session, client, region, emitter, account, clientCreator, logger);
+      discoverEc2Instances(mapper, session, client, DescribeInstancesRequest.builder().build(), region, emitter, account, clientCreator, logger, enrichment);
       discoverEIPs(mapper, session, client, region, emitter, account);
       discoverSecurityGroups(mapper, session, client, region, emitter, account, logger);
       discoverNetworkAcls(mapper, session, client, region, emitter, account);
@@ -98,11 +105,26 @@ public class EC2Discovery implements AWSDiscovery {
     return Ec2Client.serviceMetadata().regions();
   }
 
-  private void discoverEc2Instances(ObjectMapper mapper, Session session, Ec2Client client, Region region, Emitter emitter, String account, MagpieAWSClientCreator clientCreator, Logger logger) {
+  @Override
+  public boolean discoverResource(ObjectMapper mapper, Session session, Region region, String arn, Emitter emitter, Logger logger, String account, MagpieAWSClientCreator clientCreator, EnrichmentLevel enrichment) {
+    // arn:aws:ec2:us-east-1:123456789012:instance/i-0123456789abcdef0
+    final var parts = arn.split(":", 6);
+    if (parts.length < 6 || !"ec2".equals(parts[2]) || !parts[5].startsWith("instance/")) {
+      return false;
+    }
+
+    final var request = DescribeInstancesRequest.builder().instanceIds(parts[5].substring("instance/".length())).build();
+    try (final var client = clientCreator.apply(Ec2Client.builder()).build()) {
+      discoverEc2Instances(mapper, session, client, request, region, emitter, account, clientCreator, logger, enrichment);
+    }
+    return true;
+  }
+
+  private void discoverEc2Instances(ObjectMapper mapper, Session session, Ec2Client client, DescribeInstancesRequest request, Region region, Emitter emitter, String account, MagpieAWSClientCreator clientCreator, Logger logger, EnrichmentLevel enrichment) {
 
     final String RESOURCE_TYPE = Ec2Instance.RESOURCE_TYPE;
     try {
-      client.describeInstancesPaginator()
+      client.describeInstancesPaginator(request)
         .forEach(describeInstancesResponse -> describeInstancesResponse.reservations()
           .forEach(reservation -> reservation.instances().forEach(instance -> {
             String arn = format("arn:aws:ec2:%s:%s:instance/%s", region, reservation.ownerId(), instance.instanceId());
@@ -118,7 +140,9 @@ public class EC2Discovery implements AWSDiscovery {
               .build();
 
             massageInstanceTypeAndPublicIp(data, instance, mapper, region, RESOURCE_TYPE);
-            discoverBackupJobs(arn, region, data, clientCreator, logger);
+            if (enrichment.isFull()) {
+              discoverBackupJobs(session, arn, region, data, clientCreator, logger);
+            }
             emitter.emit(VersionedMagpieEnvelopeProvider.create(session, List.of(fullService()), data.toJsonNode()));
           })));
     } catch (SdkServiceException | SdkClientException ex) {
@@ -18,6 +18,7 @@ package io.openraven.magpie.plugins.aws.discovery.services;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import io.openraven.magpie.api.Emitter;
+import io.openraven.magpie.api.EnrichmentLevel;
 import io.openraven.magpie.api.MagpieAwsResource;
 import io.openraven.magpie.api.Session;
 import io.openraven.magpie.data.aws.efs.EfsFileSystem;
@@ -55,6 +56,11 @@ public class EFSDiscovery implements AWSDiscovery {
 
   @Override
   public void discover(ObjectMapper mapper, Session session, Region region, Emitter emitter, Logger logger, String account, MagpieAWSClientCreator clientCreator) {
+    discover(mapper, session, region, emitter, logger, account, clientCreator, EnrichmentLevel.FULL);
+  }
+
+  @Override
+  public void discover(ObjectMapper mapper, Session session, Region region, Emitter emitter, Logger logger, String account, MagpieAWSClientCreator clientCreator, EnrichmentLevel enrichment) {
     final String RESOURCE_TYPE = EfsFileSystem.RESOURCE_TYPE;
 
     try (final var client = clientCreator.apply(EfsClient.builder()).build()) {
@@ -73,7 +79,9 @@ public class EFSDiscovery implements AWSDiscovery {
           .build();
 
         discoverMountTargets(client, fileSystem, data);
-        discoverBackupJobs(arn, region, data, clientCreator, logger);
+        if (enrichment.isFull()) {
+          discoverBackupJobs(session, arn, region, data, clientCreator, logger);
+        }
 
         emitter.emit(VersionedMagpieEnvelopeProvider.create(session, List.of(fullService() + ":fileSystem"), data.toJsonNode()));
       });
@@ -20,10 +20,12 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import io.openraven.magpie.api.Emitter;
+import io.openraven.magpie.api.EnrichmentLevel;
 import io.openraven.magpie.api.MagpieAwsResource;
 import io.openraven.magpie.api.Session;
 import io.openraven.magpie.data.aws.elb.ElasticLoadBalancingLoadBalancer;
 import io.openraven.magpie.plugins.aws.discovery.AWSUtils;
+import io.openraven.magpie.plugins.aws.discovery.ConfigurationItems;
 import io.openraven.magpie.plugins.aws.discovery.DiscoveryExceptions;
 import io.openraven.magpie.plugins.aws.discovery.MagpieAWSClientCreator;
 import io.openraven.magpie.plugins.aws.discovery.VersionedMagpieEnvelopeProvider;
@@ -63,30 +65,49 @@ public class ELBDiscovery implements AWSDiscovery {
     final String RESOURCE_TYPE = ElasticLoadBalancingLoadBalancer.RESOURCE_TYPE;
 
     try (final var client = clientCreator.apply(ElasticLoadBalancingClient.builder()).build()) {
-      client.describeLoadBalancers().loadBalancerDescriptions().forEach(loadBalancer -> {
-        final var name = loadBalancer.loadBalancerName();
-        final var arn = String.format("arn:aws:elasticloadbalancing:%s:%s:loadbalancer/%s", region, account, name);
-
-        final var data = new MagpieAwsResource.MagpieAwsResourceBuilder(mapper, arn)
-          .withResourceName(loadBalancer.dnsName())
-          .withResourceId(name)
-          .withResourceType(RESOURCE_TYPE)
-          .withConfiguration(mapper.valueToTree(loadBalancer.toBuilder()))
-          .withCreatedIso(loadBalancer.createdTime())
-          .withAccountId(account)
-          .withAwsRegion(region.toString())
-          .build();
-
-        discoverAttributes(client, loadBalancer, data, mapper);
-        discoverTags(client, loadBalancer, data, mapper);
-
-        emitter.emit(VersionedMagpieEnvelopeProvider.create(session, List.of(fullService() + ":loadBalancer"), data.toJsonNode()));
-      });
+      client.describeLoadBalancers().loadBalancerDescriptions().forEach(loadBalancer ->
+        emitLoadBalancer(mapper, session, client, loadBalancer, region, emitter, account));
     } catch (SdkServiceException | SdkClientException ex) {
       DiscoveryExceptions.onDiscoveryException(RESOURCE_TYPE, null, region, ex);
     }
   }
 
+  @Override
+  public boolean discoverConfigurations(ObjectMapper mapper, Session session, Region region, List<JsonNode> configurations, Emitter emitter, Logger logger, String account, MagpieAWSClientCreator clientCreator, EnrichmentLevel enrichment) {
+    final var loadBalancers = ConfigurationItems.read(configurations, LoadBalancerDescription.serializableBuilderClass(),
+      loadBalancer -> loadBalancer.loadBalancerName() != null);
+    if (loadBalancers.isEmpty()) {
+      return false;
+    }
+
+    try (final var client = clientCreator.apply(ElasticLoadBalancingClient.builder()).build()) {
+      loadBalancers.get().forEach(loadBalancer -> emitLoadBalancer(mapper, session, client, loadBalancer, region, emitter, account));
+    } catch (SdkServiceException | SdkClientException ex) {
+      DiscoveryExceptions.onDiscoveryException(ElasticLoadBalancingLoadBalancer.RESOURCE_TYPE, null, region, ex);
+    }
+    return true;
+  }
+
+  private void emitLoadBalancer(ObjectMapper mapper, Session session, ElasticLoadBalancingClient client, LoadBalancerDescription loadBalancer, Region region, Emitter emitter, String account) {
+    final var name = loadBalancer.loadBalancerName();
+    final var arn = String.format("arn:aws:elasticloadbalancing:%s:%s:loadbalancer/%s", region, account, name);
+
+    final var data = new MagpieAwsResource.MagpieAwsResourceBuilder(mapper, arn)
+      .withResourceName(loadBalancer.dnsName())
+      .withResourceId(name)
+      .withResourceType(ElasticLoadBalancingLoadBalancer.RESOURCE_TYPE)
+      .withConfiguration(mapper.valueToTree(loadBalancer.toBuilder()))
+      .withCreatedIso(loadBalancer.createdTime())
+      .withAccountId(account)
+      .withAwsRegion(region.toString())
+      .build();
+
+    discoverAttributes(client, loadBalancer, data, mapper);
+    discoverTags(client, loadBalancer, data, mapper);
+
+    emitter.emit(VersionedMagpieEnvelopeProvider.create(session, List.of(fullService() + ":loadBalancer"), data.toJsonNode()));
+  }
+
   private void discoverAttributes(ElasticLoadBalancingClient client, LoadBalancerDescription resource, MagpieAwsResource data, ObjectMapper mapper) {
     getAwsResponse(
       () -> client.describeLoadBalancerAttributes(DescribeLoadBalancerAttributesRequest.builder().loadBalancerName(resource.loadBalancerName()).build()),
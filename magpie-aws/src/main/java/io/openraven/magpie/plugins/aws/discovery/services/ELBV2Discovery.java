@@ -19,10 +19,12 @@ package io.openraven.magpie.plugins.aws.discovery.services;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import io.openraven.magpie.api.Emitter;
+import io.openraven.magpie.api.EnrichmentLevel;
 import io.openraven.magpie.api.MagpieAwsResource;
 import io.openraven.magpie.api.Session;
 import io.openraven.magpie.data.aws.elbv2.ElasticLoadBalancingV2LoadBalancer;
 import io.openraven.magpie.plugins.aws.discovery.AWSUtils;
+import io.openraven.magpie.plugins.aws.discovery.ConfigurationItems;
 import io.openraven.magpie.plugins.aws.discovery.DiscoveryExceptions;
 import io.openraven.magpie.plugins.aws.discovery.MagpieAWSClientCreator;
 import io.openraven.magpie.plugins.aws.discovery.VersionedMagpieEnvelopeProvider;
@@ -61,26 +63,46 @@ public class ELBV2Discovery implements AWSDiscovery {
     final String RESOURCE_TYPE = ElasticLoadBalancingV2LoadBalancer.RESOURCE_TYPE;
 
     try (final var client = clientCreator.apply(ElasticLoadBalancingV2Client.builder()).build()){
-      client.describeLoadBalancers().loadBalancers().forEach(loadBalancerV2 -> {
-        var data = new MagpieAwsResource.MagpieAwsResourceBuilder(mapper, loadBalancerV2.loadBalancerArn())
-          .withResourceName(loadBalancerV2.dnsName())
-          .withResourceId(loadBalancerV2.loadBalancerName())
-          .withResourceType(RESOURCE_TYPE)
-          .withConfiguration(mapper.valueToTree(loadBalancerV2.toBuilder()))
-          .withCreatedIso(loadBalancerV2.createdTime())
-          .withAccountId(account)
-          .withAwsRegion(region.toString())
-          .build();
-
-        discoverAttributes(client, loadBalancerV2, data, mapper);
-        discoverTags(client, loadBalancerV2, data, mapper);
-
-        emitter.emit(VersionedMagpieEnvelopeProvider.create(session, List.of(fullService() + ":loadBalancerV2"), data.toJsonNode()));
-      });
+      client.describeLoadBalancers().loadBalancers().forEach(loadBalancerV2 ->
+        emitLoadBalancer(mapper, session, client, loadBalancerV2, region, emitter, account));
     } catch (SdkServiceException | SdkClientException ex) {
       DiscoveryExceptions.onDiscoveryException(RESOURCE_TYPE, null, region, ex);
     }
   }
+
+  @Override
+  public boolean discoverConfigurations(ObjectMapper mapper, Session session, Region region, List<JsonNode> configurations, Emitter emitter, Logger logger, String account, MagpieAWSClientCreator clientCreator, EnrichmentLevel enrichment) {
+    final var loadBalancers = ConfigurationItems.read(configurations, LoadBalancer.serializableBuilderClass(),
+      loadBalancerV2 -> loadBalancerV2.loadBalancerArn() != null);
+    if (loadBalancers.isEmpty()) {
+      return false;
+    }
+
+    try (final var client = clientCreator.apply(ElasticLoadBalancingV2Client.builder()).build()) {
+      loadBalancers.get().forEach(loadBalancerV2 -> emitLoadBalancer(mapper, session, client, loadBalancerV2, region, emitter, account));
+    } catch (SdkServiceException | SdkClientException ex) {
+      DiscoveryExceptions.onDiscoveryException(ElasticLoadBalancingV2LoadBalancer.RESOURCE_TYPE, null, region, ex);
+    }
+    return true;
+  }
+
+  private void emitLoadBalancer(ObjectMapper mapper, Session session, ElasticLoadBalancingV2Client client, LoadBalancer loadBalancerV2, Region region, Emitter emitter, String account) {
+    var data = new MagpieAwsResource.MagpieAwsResourceBuilder(mapper, loadBalancerV2.loadBalancerArn())
+      .withResourceName(loadBalancerV2.dnsName())
+      .withResourceId(loadBalancerV2.loadBalancerName())
+      .withResourceType(ElasticLoadBalancingV2LoadBalancer.RESOURCE_TYPE)
+      .withConfiguration(mapper.valueToTree(loadBalancerV2.toBuilder()))
+      .withCreatedIso(loadBalancerV2.createdTime())
+      .withAccountId(account)
+      .withAwsRegion(region.toString())
+      .build();
+
+    discoverAttributes(client, loadBalancerV2, data, mapper);
+    discoverTags(client, loadBalancerV2, data, mapper);
+
+    emitter.emit(VersionedMagpieEnvelopeProvider.create(session, List.of(fullService() + ":loadBalancerV2"), data.toJsonNode()));
+  }
+
   private void discoverAttributes(ElasticLoadBalancingV2Client client, LoadBalancer resource, MagpieAwsResource data, ObjectMapper mapper) {
     getAwsResponse(
       () -> client.describeLoadBalancerAttributes(DescribeLoadBalancerAttributesRequest.builder().loadBalancerArn(resource.loadBalancerArn()).build()),
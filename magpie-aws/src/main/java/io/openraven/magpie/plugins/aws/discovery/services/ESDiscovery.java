@@ -19,6 +19,7 @@ package io.openraven.magpie.plugins.aws.discovery.services;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import io.openraven.magpie.api.Emitter;
+import io.openraven.magpie.api.EnrichmentLevel;
 import io.openraven.magpie.api.MagpieAwsResource;
 import io.openraven.magpie.api.Session;
 import io.openraven.magpie.data.aws.ess.EssDomain;
@@ -59,31 +60,56 @@ public class ESDiscovery implements AWSDiscovery {
 
   @Override
   public void discover(ObjectMapper mapper, Session session, Region region, Emitter emitter, Logger logger, String account, MagpieAWSClientCreator clientCreator) {
+    discover(mapper, session, region, emitter, logger, account, clientCreator, EnrichmentLevel.FULL);
+  }
+
+  @Override
+  public void discover(ObjectMapper mapper, Session session, Region region, Emitter emitter, Logger logger, String account, MagpieAWSClientCreator clientCreator, EnrichmentLevel enrichment) {
     final String RESOURCE_TYPE = EssDomain.RESOURCE_TYPE;
 
     try (final var client = clientCreator.apply(ElasticsearchClient.builder()).build()) {
       client.listDomainNames().domainNames().stream()
         .map(domainInfo -> client.describeElasticsearchDomain(DescribeElasticsearchDomainRequest.builder().domainName(domainInfo.domainName()).build()).domainStatus())
-        .forEach(domain -> {
-          var data = new MagpieAwsResource.MagpieAwsResourceBuilder(mapper, domain.arn())
-            .withResourceName(domain.domainName())
-            .withResourceId(domain.domainId())
-            .withResourceType(RESOURCE_TYPE)
-            .withConfiguration(mapper.valueToTree(domain.toBuilder()))
-            .withAccountId(account)
-            .withAwsRegion(region.toString())
-            .build();
-
-          discoverTags(client, domain, data, mapper);
-          discoverSize(domain, data, region, account, logger, clientCreator);
-
-          emitter.emit(VersionedMagpieEnvelopeProvider.create(session, List.of(fullService() + ":domain"), data.toJsonNode()));
-        });
+        .forEach(domain -> emitDomain(mapper, session, client, domain, region, emitter, logger, account, clientCreator, enrichment));
     } catch (SdkServiceException | SdkClientException ex) {
       DiscoveryExceptions.onDiscoveryException(RESOURCE_TYPE, null, region, ex);
     }
   }
 
+  @Override
+  public boolean discoverConfigurations(ObjectMapper mapper, Session session, Region region, List<JsonNode> configurations, Emitter emitter, Logger logger, String account, MagpieAWSClientCreator clientCreator, EnrichmentLevel enrichment) {
+    final var domains = ConfigurationItems.read(configurations, ElasticsearchDomainStatus.serializableBuilderClass(),
+      domain -> domain.arn() != null && domain.domainName() != null);
+    if (domains.isEmpty()) {
+      return false;
+    }
+
+    try (final var client = clientCreator.apply(ElasticsearchClient.builder()).build()) {
+      domains.get().forEach(domain -> emitDomain(mapper, session, client, domain, region, emitter, logger, account, clientCreator, enrichment));
+    } catch (SdkServiceException | SdkClientException ex) {
+      DiscoveryExceptions.onDiscoveryException(EssDomain.RESOURCE_TYPE, null, region, ex);
+    }
+    return true;
+  }
+
+  private void emitDomain(ObjectMapper mapper, Session session, ElasticsearchClient client, ElasticsearchDomainStatus domain, Region region, Emitter emitter, Logger logger, String account, MagpieAWSClientCreator clientCreator, EnrichmentLevel enrichment) {
+    var data = new MagpieAwsResource.MagpieAwsResourceBuilder(mapper, domain.arn())
+      .withResourceName(domain.domainName())
+      .withResourceId(domain.domainId())
+      .withResourceType(EssDomain.RESOURCE_TYPE)
+      .withConfiguration(mapper.valueToTree(domain.toBuilder()))
+      .withAccountId(account)
+      .withAwsRegion(region.toString())
+      .build();
+
+    discoverTags(client, domain, data, mapper);
+    if (enrichment.isFull()) {
+      discoverSize(domain, data, region, account, logger, clientCreator);
+    }
+
+    emitter.emit(VersionedMagpieEnvelopeProvider.create(session, List.of(fullService() + ":domain"), data.toJsonNode()));
+  }
+
   private void discoverTags(ElasticsearchClient client, ElasticsearchDomainStatus resource, MagpieAwsResource data, ObjectMapper mapper) {
     getAwsResponse(
       () -> client.listTags(builder -> builder.arn(resource.arn())),
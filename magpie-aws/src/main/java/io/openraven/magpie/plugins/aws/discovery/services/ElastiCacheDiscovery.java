@@ -18,6 +18,7 @@ package io.openraven.magpie.plugins.aws.discovery.services;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import io.openraven.magpie.api.Emitter;
+import io.openraven.magpie.api.EnrichmentLevel;
 import io.openraven.magpie.api.MagpieAwsResource;
 import io.openraven.magpie.api.Session;
 import io.openraven.magpie.data.aws.elasticache.ElastiCacheCluster;
@@ -58,6 +59,11 @@ public class ElastiCacheDiscovery implements AWSDiscovery {
 
   @Override
   public void discover(ObjectMapper mapper, Session session, Region region, Emitter emitter, Logger logger, String account, MagpieAWSClientCreator clientCreator) {
+    discover(mapper, session, region, emitter, logger, account, clientCreator, EnrichmentLevel.FULL);
+  }
+
+  @Override
+  public void discover(ObjectMapper mapper, Session session, Region region, Emitter emitter, Logger logger, String account, MagpieAWSClientCreator clientCreator, EnrichmentLevel enrichment) {
     final  String RESOURCE_TYPE = ElastiCacheCluster.RESOURCE_TYPE;
 
     try (final var client = clientCreator.apply(ElastiCacheClient.builder()).build()) {
@@ -71,7 +77,9 @@ public class ElastiCacheDiscovery implements AWSDiscovery {
           .withAwsRegion(region.toString())
           .build();
 
-        discoverRedisSize(cacheCluster, data, region.id(), clientCreator);
+        if (enrichment.isFull()) {
+          discoverRedisSize(cacheCluster, data, region.id(), clientCreator);
+        }
 
         emitter.emit(VersionedMagpieEnvelopeProvider.create(session, List.of(fullService() + ":cacheCluster"), data.toJsonNode()));
       });
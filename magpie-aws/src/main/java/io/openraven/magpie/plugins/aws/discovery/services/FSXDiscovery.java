@@ -18,6 +18,7 @@ package io.openraven.magpie.plugins.aws.discovery.services;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import io.openraven.magpie.api.Emitter;
+import io.openraven.magpie.api.EnrichmentLevel;
 import io.openraven.magpie.api.MagpieAwsResource;
 import io.openraven.magpie.api.Session;
 import io.openraven.magpie.data.aws.fsx.FSxFileSystem;
@@ -56,6 +57,11 @@ public class FSXDiscovery implements AWSDiscovery {
 
   @Override
   public void discover(ObjectMapper mapper, Session session, Region region, Emitter emitter, Logger logger, String account, MagpieAWSClientCreator clientCreator) {
+    discover(mapper, session, region, emitter, logger, account, clientCreator, EnrichmentLevel.FULL);
+  }
+
+  @Override
+  public void discover(ObjectMapper mapper, Session session, Region region, Emitter emitter, Logger logger, String account, MagpieAWSClientCreator clientCreator, EnrichmentLevel enrichment) {
     final String RESOURCE_TYPE = FSxFileSystem.RESOURCE_TYPE;
 
     try (final var client = clientCreator.apply(FSxClient.builder()).build()) {
@@ -71,8 +77,10 @@ public class FSXDiscovery implements AWSDiscovery {
           .withTags(mapper.valueToTree(fileSystem.tags().stream().collect(Collectors.toMap(Tag::key, Tag::value))))
           .build();
 
-        discoverSize(fileSystem, data, region, logger, clientCreator);
-        discoverBackupJobs(fileSystem.resourceARN(), region, data, clientCreator, logger);
+        if (enrichment.isFull()) {
+          discoverSize(fileSystem, data, region, logger, clientCreator);
+          discoverBackupJobs(session, fileSystem.resourceARN(), region, data, clientCreator, logger);
+        }
 
         emitter.emit(VersionedMagpieEnvelopeProvider.create(session, List.of(fullService() + ":fileSystem"), data.toJsonNode()));
       });
@@ -21,6 +21,7 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import io.openraven.magpie.api.Emitter;
+import io.openraven.magpie.api.EnrichmentLevel;
 import io.openraven.magpie.api.MagpieAwsResource;
 import io.openraven.magpie.api.Session;
 import io.openraven.magpie.data.aws.accounts.AccountResource;
@@ -32,6 +33,7 @@ import io.openraven.magpie.data.aws.accounts.IamUser;
 import io.openraven.magpie.plugins.aws.discovery.AWSUtils;
 import io.openraven.magpie.plugins.aws.discovery.DiscoveryExceptions;
 import io.openraven.magpie.plugins.aws.discovery.MagpieAWSClientCreator;
+import io.openraven.magpie.plugins.aws.discovery.PolicyDocumentCache;
 import io.openraven.magpie.plugins.aws.discovery.VersionedMagpieEnvelopeProvider;
 import org.slf4j.Logger;
 import software.amazon.awssdk.core.exception.SdkClientException;
@@ -50,14 +52,12 @@ import software.amazon.awssdk.services.iam.model.ListGroupsForUserRequest;
 import software.amazon.awssdk.services.iam.model.ListMfaDevicesRequest;
 import software.amazon.awssdk.services.iam.model.ListMfaDevicesResponse;
 import software.amazon.awssdk.services.iam.model.ListPoliciesRequest;
-import software.amazon.awssdk.services.iam.model.ListPolicyVersionsRequest;
 import software.amazon.awssdk.services.iam.model.ListRolePoliciesRequest;
 import software.amazon.awssdk.services.iam.model.ListUserPoliciesRequest;
 import software.amazon.awssdk.services.iam.model.NoSuchEntityException;
 import software.amazon.awssdk.services.iam.model.PasswordPolicy;
 import software.amazon.awssdk.services.iam.model.Policy;
 import software.amazon.awssdk.services.iam.model.PolicyScopeType;
-import software.amazon.awssdk.services.iam.model.PolicyVersion;
 import software.amazon.awssdk.services.iam.model.Role;
 import software.amazon.awssdk.services.iam.model.Tag;
 import software.amazon.awssdk.services.iam.model.User;
@@ -67,6 +67,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
 
 import static io.openraven.magpie.plugins.aws.discovery.AWSUtils.getAwsResponse;
@@ -90,9 +91,16 @@ public class IAMDiscovery implements AWSDiscovery {
 
   @Override
   public void discover(ObjectMapper mapper, Session session, Region region, Emitter emitter, Logger logger, String account, MagpieAWSClientCreator clientCreator) {
+    discover(mapper, session, region, emitter, logger, account, clientCreator, EnrichmentLevel.FULL);
+  }
+
+  @Override
+  public void discover(ObjectMapper mapper, Session session, Region region, Emitter emitter, Logger logger, String account, MagpieAWSClientCreator clientCreator, EnrichmentLevel enrichment) {
 
     try (final var client = clientCreator.apply(IamClient.builder()).build()) {
-      discoverCredentialsReport(client, mapper, session, region, emitter, logger, account);
+      if (enrichment.isFull()) {
+        discoverCredentialsReport(client, mapper, session, region, emitter, logger, account);
+      }
       discoverAccounts(client, mapper, session, region, emitter, account);
       discoverGroups(client, mapper, session, region, emitter, account);
       discoverUsers(client, mapper, session, region, emitter, account);
@@ -200,31 +208,28 @@ public class IAMDiscovery implements AWSDiscovery {
   }
 
   private void discoverPolicyDocument(ObjectMapper mapper, IamClient client, MagpieAwsResource data, Policy policy) {
-    getAwsResponse(
-      () -> client.listPolicyVersionsPaginator(ListPolicyVersionsRequest.builder().policyArn(policy.arn()).build()),
-      (resp) -> resp.forEach(policyVersionsResponse -> {
-        var currentPolicy = policyVersionsResponse.versions()
-          .stream()
-          .filter(PolicyVersion::isDefaultVersion)
-          .findFirst();
-        currentPolicy.ifPresent(policyVersion -> getAwsResponse(
-          () -> client.getPolicyVersion(builder -> builder
-            .policyArn(policy.arn())
-            .versionId(policyVersion.versionId())
-            .build()),
-          (innerResp) -> {
-            AWSUtils.update(data.supplementaryConfiguration, Map.of("attachedPolicies", Map.of("policyDocument",
-              AWSUtils.parsePolicyDocument(mapper, innerResp.policyVersion().document()))));
-            // PROD-2760 requires the encoded policy doc under this key
-            AWSUtils.update(data.supplementaryConfiguration, Map.of("policyDocument", innerResp.policyVersion().document()));
-        },
-          (innerNoresp) -> {
-          }
-        ));
-      }),
-      (noresp) -> {
-      }
-    );
+    // ListPolicies already names the default version, and versions never change, so the document is only fetched
+    // for versions no account scanned so far (or, with a cache file, no earlier scan) has seen
+    final var document = PolicyDocumentCache.getInstance().get(policy.arn(), policy.policyId(), policy.defaultVersionId(), () -> {
+      final var fetched = new AtomicReference<String>();
+      getAwsResponse(
+        () -> client.getPolicyVersion(builder -> builder
+          .policyArn(policy.arn())
+          .versionId(policy.defaultVersionId())
+          .build()),
+        (resp) -> fetched.set(resp.policyVersion().document()),
+        (noresp) -> {
+        }
+      );
+      return fetched.get();
+    });
+
+    if (document != null) {
+      AWSUtils.update(data.supplementaryConfiguration, Map.of("attachedPolicies", Map.of("policyDocument",
+        AWSUtils.parsePolicyDocument(mapper, document))));
+      // PROD-2760 requires the encoded policy doc under this key
+      AWSUtils.update(data.supplementaryConfiguration, Map.of("policyDocument", document));
+    }
   }
 
   private void discoverUsers(IamClient client, ObjectMapper mapper, Session session, Region region, Emitter
@@ -16,12 +16,15 @@
 
 package io.openraven.magpie.plugins.aws.discovery.services;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import io.openraven.magpie.api.Emitter;
+import io.openraven.magpie.api.EnrichmentLevel;
 import io.openraven.magpie.api.MagpieAwsResource;
 import io.openraven.magpie.api.Session;
 import io.openraven.magpie.data.aws.lambda.LambdaFunction;
 import io.openraven.magpie.plugins.aws.discovery.AWSUtils;
+import io.openraven.magpie.plugins.aws.discovery.ConfigurationItems;
 import io.openraven.magpie.plugins.aws.discovery.DiscoveryExceptions;
 import io.openraven.magpie.plugins.aws.discovery.MagpieAWSClientCreator;
 import io.openraven.magpie.plugins.aws.discovery.VersionedMagpieEnvelopeProvider;
@@ -63,29 +66,64 @@ public class LambdaDiscovery implements AWSDiscovery {
     final String RESOURCE_TYPE = LambdaFunction.RESOURCE_TYPE;
 
     try (final var client = clientCreator.apply(LambdaClient.builder()).build()) {
-      client.listFunctionsPaginator().functions().forEach(function -> {
-        var data = new MagpieAwsResource.MagpieAwsResourceBuilder(mapper, function.functionArn())
-          .withResourceName(function.functionName())
-          .withResourceId(function.revisionId())
-          .withResourceType(RESOURCE_TYPE)
-          .withConfiguration(mapper.valueToTree(function.toBuilder()))
-          .withAccountId(account)
-          .withAwsRegion(region.toString())
-          .build();
-
-        discoverFunctionEventInvokeConfigs(client, function, data);
-        discoverEventSourceMapping(client, function, data);
-        discoverFunction(client, function, data);
-        discoverFunctionInvokeConfig(client, function, data);
-        discoverAccessPolicy(client, function, data);
-
-        emitter.emit(VersionedMagpieEnvelopeProvider.create(session, List.of(fullService() + ":function"), data.toJsonNode()));
-      });
+      client.listFunctionsPaginator().functions().forEach(function -> emitFunction(mapper, session, client, function, region, emitter, account));
     } catch (SdkServiceException | SdkClientException ex) {
       DiscoveryExceptions.onDiscoveryException(RESOURCE_TYPE, null, region, ex);
     }
   }
 
+  @Override
+  public boolean discoverResource(ObjectMapper mapper, Session session, Region region, String arn, Emitter emitter, Logger logger, String account, MagpieAWSClientCreator clientCreator, EnrichmentLevel enrichment) {
+    // arn:aws:lambda:us-east-1:123456789012:function:name, optionally followed by a version or alias
+    final var parts = arn.split(":");
+    if (parts.length < 7 || !SERVICE.equals(parts[2]) || !"function".equals(parts[5])) {
+      return false;
+    }
+
+    try (final var client = clientCreator.apply(LambdaClient.builder()).build()) {
+      final var function = client.getFunction(GetFunctionRequest.builder().functionName(parts[6]).build()).configuration();
+      emitFunction(mapper, session, client, function, region, emitter, account);
+    } catch (SdkServiceException | SdkClientException ex) {
+      DiscoveryExceptions.onDiscoveryException(LambdaFunction.RESOURCE_TYPE, parts[6], region, ex);
+    }
+    return true;
+  }
+
+  @Override
+  public boolean discoverConfigurations(ObjectMapper mapper, Session session, Region region, List<JsonNode> configurations, Emitter emitter, Logger logger, String account, MagpieAWSClientCreator clientCreator, EnrichmentLevel enrichment) {
+    final var functions = ConfigurationItems.read(configurations, FunctionConfiguration.serializableBuilderClass(),
+      function -> function.functionArn() != null && function.revisionId() != null);
+    if (functions.isEmpty()) {
+      return false;
+    }
+
+    try (final var client = clientCreator.apply(LambdaClient.builder()).build()) {
+      functions.get().forEach(function -> emitFunction(mapper, session, client, function, region, emitter, account));
+    } catch (SdkServiceException | SdkClientException ex) {
+      DiscoveryExceptions.onDiscoveryException(LambdaFunction.RESOURCE_TYPE, null, region, ex);
+    }
+    return true;
+  }
+
+  private void emitFunction(ObjectMapper mapper, Session session, LambdaClient client, FunctionConfiguration function, Region region, Emitter emitter, String account) {
+    var data = new MagpieAwsResource.MagpieAwsResourceBuilder(mapper, function.functionArn())
+      .withResourceName(function.functionName())
+      .withResourceId(function.revisionId())
+      .withResourceType(LambdaFunction.RESOURCE_TYPE)
+      .withConfiguration(mapper.valueToTree(function.toBuilder()))
+      .withAccountId(account)
+      .withAwsRegion(region.toString())
+      .build();
+
+    discoverFunctionEventInvokeConfigs(client, function, data);
+    discoverEventSourceMapping(client, function, data);
+    discoverFunction(client, function, data);
+    discoverFunctionInvokeConfig(client, function, data);
+    discoverAccessPolicy(client, function, data);
+
+    emitter.emit(VersionedMagpieEnvelopeProvider.create(session, List.of(fullService() + ":function"), data.toJsonNode()));
+  }
+
   private void discoverFunctionEventInvokeConfigs(LambdaClient client, FunctionConfiguration resource, MagpieAwsResource data) {
     final String keyname = "EventInvokeConfigs";
     getAwsResponse(
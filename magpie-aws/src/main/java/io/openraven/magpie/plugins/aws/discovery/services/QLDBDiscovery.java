@@ -19,6 +19,7 @@ package io.openraven.magpie.plugins.aws.discovery.services;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import io.openraven.magpie.api.Emitter;
+import io.openraven.magpie.api.EnrichmentLevel;
 import io.openraven.magpie.api.MagpieAwsResource;
 import io.openraven.magpie.api.Session;
 import io.openraven.magpie.data.aws.qldb.QldbLedger;
@@ -67,6 +68,11 @@ public class QLDBDiscovery implements AWSDiscovery {
 
   @Override
   public void discover(ObjectMapper mapper, Session session, Region region, Emitter emitter, Logger logger, String account, MagpieAWSClientCreator clientCreator) {
+    discover(mapper, session, region, emitter, logger, account, clientCreator, EnrichmentLevel.FULL);
+  }
+
+  @Override
+  public void discover(ObjectMapper mapper, Session session, Region region, Emitter emitter, Logger logger, String account, MagpieAWSClientCreator clientCreator, EnrichmentLevel enrichment) {
     final String RESOURCE_TYPE = QldbLedger.RESOURCE_TYPE;
 
     try (final var client = clientCreator.apply(QldbClient.builder()).build()) {
@@ -87,7 +93,9 @@ public class QLDBDiscovery implements AWSDiscovery {
             discoverStreams(client, ledger, data);
             discoverJournalS3Exports(client, ledger, data);
             discoverTags(client, ledger, data, mapper);
-            discoverSize(ledger, data, region, clientCreator);
+            if (enrichment.isFull()) {
+              discoverSize(ledger, data, region, clientCreator);
+            }
 
             emitter.emit(VersionedMagpieEnvelopeProvider.create(session, List.of(fullService() + ":ledger"), data.toJsonNode()));
           }));
@@ -20,6 +20,7 @@ package io.openraven.magpie.plugins.aws.discovery.services;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import io.openraven.magpie.api.Emitter;
+import io.openraven.magpie.api.EnrichmentLevel;
 import io.openraven.magpie.api.MagpieAwsResource;
 import io.openraven.magpie.api.Session;
 import io.openraven.magpie.data.aws.rds.RDSInstance;
@@ -69,12 +70,17 @@ public class RDSDiscovery implements AWSDiscovery {
 
   @Override
   public void discover(ObjectMapper mapper, Session session, Region region, Emitter emitter, Logger logger, String account, MagpieAWSClientCreator clientCreator) {
+    discover(mapper, session, region, emitter, logger, account, clientCreator, EnrichmentLevel.FULL);
+  }
+
+  @Override
+  public void discover(ObjectMapper mapper, Session session, Region region, Emitter emitter, Logger logger, String account, MagpieAWSClientCreator clientCreator, EnrichmentLevel enrichment) {
 
     try (final var client = clientCreator.apply(RdsClient.builder()).build()) {
       discoverDbProxy(mapper, session, region, emitter, account, client);
       discoverDbSnapshot(mapper, session, region, emitter, account, client);
-      discoverDbInstances(mapper, session, region, emitter, logger, account, client, clientCreator);
-      discoverDbAuoraClusters(mapper, session, region, emitter, logger, account, client, clientCreator);
+      discoverDbInstances(mapper, session, region, emitter, logger, account, client, clientCreator, enrichment);
+      discoverDbAuoraClusters(mapper, session, region, emitter, logger, account, client, clientCreator, enrichment);
     }
   }
 
@@ -125,7 +131,7 @@ public class RDSDiscovery implements AWSDiscovery {
     }
   }
 
-  private void discoverDbInstances(ObjectMapper mapper, Session session, Region region, Emitter emitter, Logger logger, String account, RdsClient client, MagpieAWSClientCreator clientCreator) {
+  private void discoverDbInstances(ObjectMapper mapper, Session session, Region region, Emitter emitter, Logger logger, String account, RdsClient client, MagpieAWSClientCreator clientCreator, EnrichmentLevel enrichment) {
     final String RESOURCE_TYPE = RDSInstance.RESOURCE_TYPE;
     try {
       client.describeDBInstancesPaginator().dbInstances().stream()
@@ -146,13 +152,15 @@ public class RDSDiscovery implements AWSDiscovery {
             }
 
             discoverTags(client, db, data, mapper);
-            discoverInstanceDbSnapshots(client, db, data);
-            discoverInstanceSize(db, data, logger, clientCreator);
-            discoverInstanceDbProxies(client, db, data);
+            if (enrichment.isFull()) {
+              discoverInstanceDbSnapshots(client, db, data);
+              discoverInstanceSize(db, data, logger, clientCreator);
+              discoverInstanceDbProxies(client, db, data);
 
-            discoverCloudWatchInstanceUsageMetrics(client, db, data, logger, clientCreator);
+              discoverCloudWatchInstanceUsageMetrics(client, db, data, logger, clientCreator);
 
-            discoverBackupJobs(db.dbInstanceArn(), region, data, clientCreator, logger);
+              discoverBackupJobs(session, db.dbInstanceArn(), region, data, clientCreator, logger);
+            }
 
             emitter.emit(VersionedMagpieEnvelopeProvider.create(session, List.of(fullService() + ":dbInstance"), data.toJsonNode()));
           }
@@ -162,7 +170,7 @@ public class RDSDiscovery implements AWSDiscovery {
     }
   }
 
-  private void discoverDbAuoraClusters(ObjectMapper mapper, Session session, Region region, Emitter emitter, Logger logger, String account, RdsClient client, MagpieAWSClientCreator clientCreator) {
+  private void discoverDbAuoraClusters(ObjectMapper mapper, Session session, Region region, Emitter emitter, Logger logger, String account, RdsClient client, MagpieAWSClientCreator clientCreator, EnrichmentLevel enrichment) {
     final String RESOURCE_TYPE = RDSInstance.RESOURCE_TYPE;
     try {
       client.describeDBClustersPaginator().dbClusters().stream()
@@ -182,13 +190,15 @@ public class RDSDiscovery implements AWSDiscovery {
           }
 
           discoverTags(client, cluster, data, mapper);
-          discoverDbClusterInstances(client, cluster, data);
-          discoverDbClusterSnapshots(client, cluster, data);
-          discoverClusterSize(cluster, data, logger, clientCreator);
+          if (enrichment.isFull()) {
+            discoverDbClusterInstances(client, cluster, data);
+            discoverDbClusterSnapshots(client, cluster, data);
+            discoverClusterSize(cluster, data, logger, clientCreator);
 
-          discoverBackupJobs(cluster.dbClusterArn(), region, data, clientCreator, logger);
+            discoverBackupJobs(session, cluster.dbClusterArn(), region, data, clientCreator, logger);
 
-          discoverCloudWatchClusterUsageMetrics(client, cluster, data, logger, clientCreator);
+            discoverCloudWatchClusterUsageMetrics(client, cluster, data, logger, clientCreator);
+          }
 
           emitter.emit(VersionedMagpieEnvelopeProvider.create(session, List.of(fullService() + ":dbInstance"), data.toJsonNode()));
         });
@@ -20,10 +20,12 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.collect.Maps;
 import io.openraven.magpie.api.Emitter;
+import io.openraven.magpie.api.EnrichmentLevel;
 import io.openraven.magpie.api.MagpieAwsResource;
 import io.openraven.magpie.api.Session;
 import io.openraven.magpie.data.aws.redshift.RedshiftCluster;
 import io.openraven.magpie.plugins.aws.discovery.AWSUtils;
+import io.openraven.magpie.plugins.aws.discovery.ConfigurationItems;
 import io.openraven.magpie.plugins.aws.discovery.DiscoveryExceptions;
 import io.openraven.magpie.plugins.aws.discovery.MagpieAWSClientCreator;
 import io.openraven.magpie.plugins.aws.discovery.VersionedMagpieEnvelopeProvider;
@@ -64,33 +66,58 @@ public class RedshiftDiscovery implements AWSDiscovery {
 
   @Override
   public void discover(ObjectMapper mapper, Session session, Region region, Emitter emitter, Logger logger, String account, MagpieAWSClientCreator clientCreator) {
+    discover(mapper, session, region, emitter, logger, account, clientCreator, EnrichmentLevel.FULL);
+  }
+
+  @Override
+  public void discover(ObjectMapper mapper, Session session, Region region, Emitter emitter, Logger logger, String account, MagpieAWSClientCreator clientCreator, EnrichmentLevel enrichment) {
     final String RESOURCE_TYPE = RedshiftCluster.RESOURCE_TYPE;
 
     try (final var client = clientCreator.apply(RedshiftClient.builder()).build()) {
-      client.describeClustersPaginator().clusters().stream().forEach(cluster -> {
-        String arn = String.format("arn:aws:redshift:%s:%s:cluster:%s", region, account, cluster.clusterIdentifier());
-        var data = new MagpieAwsResource.MagpieAwsResourceBuilder(mapper, arn)
-          .withResourceName(cluster.dbName())
-          .withResourceId(cluster.clusterIdentifier())
-          .withResourceType(RESOURCE_TYPE)
-          .withConfiguration(mapper.valueToTree(cluster.toBuilder()))
-          .withCreatedIso(cluster.clusterCreateTime())
-          .withAccountId(account)
-          .withAwsRegion(region.toString())
-          .build();
-
-        discoverStorage(client, data);
-        discoverSize(cluster, data, region, logger, clientCreator);
-        getCloudWatchMetrics(cluster, data, logger, clientCreator);
-        discoverClusterParams(client, data, cluster, logger);
-
-        emitter.emit(VersionedMagpieEnvelopeProvider.create(session, List.of(fullService() + ":cluster"), data.toJsonNode()));
-      });
+      client.describeClustersPaginator().clusters().stream().forEach(cluster ->
+        emitCluster(mapper, session, client, cluster, region, emitter, logger, account, clientCreator, enrichment));
     } catch (SdkServiceException | SdkClientException ex) {
       DiscoveryExceptions.onDiscoveryException(RESOURCE_TYPE, null, region, ex);
     }
   }
 
+  @Override
+  public boolean discoverConfigurations(ObjectMapper mapper, Session session, Region region, List<JsonNode> configurations, Emitter emitter, Logger logger, String account, MagpieAWSClientCreator clientCreator, EnrichmentLevel enrichment) {
+    final var clusters = ConfigurationItems.read(configurations, Cluster.serializableBuilderClass(), cluster -> cluster.clusterIdentifier() != null);
+    if (clusters.isEmpty()) {
+      return false;
+    }
+
+    try (final var client = clientCreator.apply(RedshiftClient.builder()).build()) {
+      clusters.get().forEach(cluster -> emitCluster(mapper, session, client, cluster, region, emitter, logger, account, clientCreator, enrichment));
+    } catch (SdkServiceException | SdkClientException ex) {
+      DiscoveryExceptions.onDiscoveryException(RedshiftCluster.RESOURCE_TYPE, null, region, ex);
+    }
+    return true;
+  }
+
+  private void emitCluster(ObjectMapper mapper, Session session, RedshiftClient client, Cluster cluster, Region region, Emitter emitter, Logger logger, String account, MagpieAWSClientCreator clientCreator, EnrichmentLevel enrichment) {
+    String arn = String.format("arn:aws:redshift:%s:%s:cluster:%s", region, account, cluster.clusterIdentifier());
+    var data = new MagpieAwsResource.MagpieAwsResourceBuilder(mapper, arn)
+      .withResourceName(cluster.dbName())
+      .withResourceId(cluster.clusterIdentifier())
+      .withResourceType(RedshiftCluster.RESOURCE_TYPE)
+      .withConfiguration(mapper.valueToTree(cluster.toBuilder()))
+      .withCreatedIso(cluster.clusterCreateTime())
+      .withAccountId(account)
+      .withAwsRegion(region.toString())
+      .build();
+
+    discoverStorage(client, data);
+    if (enrichment.isFull()) {
+      discoverSize(cluster, data, region, logger, clientCreator);
+      getCloudWatchMetrics(cluster, data, logger, clientCreator);
+    }
+    discoverClusterParams(client, data, cluster, logger);
+
+    emitter.emit(VersionedMagpieEnvelopeProvider.create(session, List.of(fullService() + ":cluster"), data.toJsonNode()));
+  }
+
   private void discoverClusterParams(RedshiftClient client, MagpieAwsResource data, Cluster cluster, Logger logger){
     final Map<String, DescribeClusterParametersResponse.Builder> parameterGroups = Maps.newHashMap();
 
@@ -22,6 +22,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
 import io.openraven.magpie.api.Emitter;
+import io.openraven.magpie.api.EnrichmentLevel;
 import io.openraven.magpie.api.MagpieAwsResource;
 import io.openraven.magpie.api.Session;
 import io.openraven.magpie.data.aws.s3.S3Bucket;
@@ -73,12 +74,16 @@ import java.net.URI;
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Collections;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 import static io.openraven.magpie.plugins.aws.discovery.AWSUtils.getAwsResponse;
@@ -95,6 +100,9 @@ public class S3Discovery implements AWSDiscovery {
     .expireAfterAccess(Duration.ofMinutes(20))
     .build();
 
+  // Buckets resolved or enriched at once; stays below the 50 connections the default SDK HTTP client pools per client
+  private static final int PARALLELISM = Integer.getInteger("MAGPIE_AWS_S3_PARALLELISM", 16);
+
   @Override
   public String service() {
     return SERVICE;
@@ -107,6 +115,11 @@ public class S3Discovery implements AWSDiscovery {
 
   @Override
   public void discover(ObjectMapper mapper, Session session, Region region, Emitter emitter, Logger logger, String account, MagpieAWSClientCreator clientCreator) {
+    discover(mapper, session, region, emitter, logger, account, clientCreator, EnrichmentLevel.FULL);
+  }
+
+  @Override
+  public void discover(ObjectMapper mapper, Session session, Region region, Emitter emitter, Logger logger, String account, MagpieAWSClientCreator clientCreator, EnrichmentLevel enrichment) {
 
     final String RESOURCE_TYPE = S3Bucket.RESOURCE_TYPE;
 
@@ -117,42 +130,118 @@ public class S3Discovery implements AWSDiscovery {
         return;
       }
 
-      bucketOpt.get().forEach(bucket -> {
-        var data = new MagpieAwsResource.MagpieAwsResourceBuilder(mapper, "arn:aws:s3:::" + bucket.name())
-          .withResourceName(bucket.name())
-          .withResourceId(bucket.name())
-          .withResourceType(RESOURCE_TYPE)
-          .withConfiguration(mapper.valueToTree(bucket.toBuilder()))
-          .withCreatedIso(bucket.creationDate())
-          .withAccountId(account)
-          .withAwsRegion(region.toString())
-          .build();
-
-        discoverEncryption(client, bucket, data);
-        discoverHosting(client, bucket, data);
-        discoverACLS(client, bucket, data);
-        discoverPublicAccess(client, bucket, data);
-        discoverLogging(client, bucket, data);
-        discoverMetrics(client, bucket, data);
-        discoverNotifications(client, bucket, data);
-        discoverBucketPolicy(client, bucket, data, mapper);
-        discoverObjectLockConfiguration(client, bucket, data);
-        discoverReplication(client, bucket, data);
-        discoverPublic(client, bucket, data, logger);
-        discoverIsEncrypted(client, bucket, data, logger);
-        discoverVersioning(client, bucket, data);
-        discoverLifeCycleConfiguration(client, bucket, data);
-        discoverBucketTags(client, bucket, data, mapper);
-        discoverSize(bucket, data, clientCreator);
-        discoverCloudWatchMetricsConfig(client, bucket, data, clientCreator, logger, mapper);
-
-        emitter.emit(VersionedMagpieEnvelopeProvider.create(session, List.of(fullService() + ":bucket"), data.toJsonNode()));
+      forEachInParallel(bucketOpt.get(), bucket -> {
+        try {
+          final var data = discoverBucket(mapper, client, bucket, region, account, clientCreator, logger, enrichment);
+          // Emitters are not required to be thread-safe, so envelopes are handed over one at a time
+          synchronized (emitter) {
+            emitter.emit(VersionedMagpieEnvelopeProvider.create(session, List.of(fullService() + ":bucket"), data.toJsonNode()));
+          }
+        } catch (RuntimeException ex) {
+          // SDK errors included; one failed bucket must not stop the others
+          DiscoveryExceptions.onDiscoveryException(RESOURCE_TYPE, bucket.name(), region, ex);
+        }
       });
     } catch (SdkServiceException | SdkClientException ex) {
       DiscoveryExceptions.onDiscoveryException(RESOURCE_TYPE, null, region, ex);
     }
   }
 
+  @Override
+  public boolean discoverResource(ObjectMapper mapper, Session session, Region region, String arn, Emitter emitter, Logger logger, String account, MagpieAWSClientCreator clientCreator, EnrichmentLevel enrichment) {
+    // Bucket ARNs carry neither region nor account, e.g. arn:aws:s3:::name; object ARNs add /key and aren't buckets
+    final var parts = arn.split(":", 6);
+    if (parts.length < 6 || !SERVICE.equals(parts[2]) || parts[5].isEmpty() || parts[5].contains("/")) {
+      return false;
+    }
+
+    final var bucketName = parts[5];
+    try (final var client = configureS3Client(clientCreator, region)) {
+      // ListBuckets is the only call returning a bucket's creation date
+      final var bucket = client.listBuckets().buckets().stream().filter(b -> b.name().equals(bucketName)).findFirst();
+      if (bucket.isEmpty()) {
+        logger.debug("Bucket {} no longer exists", bucketName);
+        return true;
+      }
+
+      final var bucketRegion = locationOf(client, bucketName);
+      try (final var bucketClient = configureS3Client(clientCreator, bucketRegion)) {
+        final var data = discoverBucket(mapper, bucketClient, bucket.get(), bucketRegion, account, clientCreator, logger, enrichment);
+        emitter.emit(VersionedMagpieEnvelopeProvider.create(session, List.of(fullService() + ":bucket"), data.toJsonNode()));
+      }
+    } catch (SdkServiceException | SdkClientException ex) {
+      DiscoveryExceptions.onDiscoveryException(S3Bucket.RESOURCE_TYPE, bucketName, region, ex);
+    }
+    return true;
+  }
+
+  private MagpieAwsResource discoverBucket(ObjectMapper mapper, S3Client client, Bucket bucket, Region region, String account, MagpieAWSClientCreator clientCreator, Logger logger, EnrichmentLevel enrichment) {
+    var data = new MagpieAwsResource.MagpieAwsResourceBuilder(mapper, "arn:aws:s3:::" + bucket.name())
+      .withResourceName(bucket.name())
+      .withResourceId(bucket.name())
+      .withResourceType(S3Bucket.RESOURCE_TYPE)
+      .withConfiguration(mapper.valueToTree(bucket.toBuilder()))
+      .withCreatedIso(bucket.creationDate())
+      .withAccountId(account)
+      .withAwsRegion(region.toString())
+      .build();
+
+    discoverEncryption(client, bucket, data);
+    discoverHosting(client, bucket, data);
+    discoverACLS(client, bucket, data);
+    discoverPublicAccess(client, bucket, data);
+    discoverLogging(client, bucket, data);
+    discoverMetrics(client, bucket, data);
+    discoverNotifications(client, bucket, data);
+    discoverBucketPolicy(client, bucket, data, mapper);
+    discoverObjectLockConfiguration(client, bucket, data);
+    discoverReplication(client, bucket, data);
+    discoverPublic(client, bucket, data, logger);
+    discoverIsEncrypted(client, bucket, data, logger);
+    discoverVersioning(client, bucket, data);
+    discoverLifeCycleConfiguration(client, bucket, data);
+    discoverBucketTags(client, bucket, data, mapper);
+    if (enrichment.isFull()) {
+      discoverSize(bucket, data, clientCreator);
+      discoverCloudWatchMetricsConfig(client, bucket, data, clientCreator, logger, mapper);
+    }
+    return data;
+  }
+
+  /**
+   * Runs the task for every bucket on at most {@link #PARALLELISM} threads and waits for all of them. Every call made
+   * for a bucket is a blocking round-trip, so this is what keeps accounts with thousands of buckets from taking hours.
+   * The task is expected to handle its own failures; one bucket never stops the others.
+   */
+  private static void forEachInParallel(List<Bucket> buckets, Consumer<Bucket> task) {
+    if (buckets.size() <= 1 || PARALLELISM <= 1) {
+      buckets.forEach(task);
+      return;
+    }
+
+    final var threadCount = new AtomicInteger();
+    final var executor = Executors.newFixedThreadPool(Math.min(buckets.size(), PARALLELISM), r -> {
+      Thread t = Executors.defaultThreadFactory().newThread(r);
+      t.setName("s3-discovery-" + threadCount.incrementAndGet());
+      t.setDaemon(true);
+      return t;
+    });
+    try {
+      final var futures = new ArrayList<Future<?>>(buckets.size());
+      buckets.forEach(bucket -> futures.add(executor.submit(() -> task.accept(bucket))));
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("S3 discovery was interrupted", ex);
+    } catch (ExecutionException ex) {
+      throw new IllegalStateException("S3 discovery failed", ex.getCause());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
   /**
    * https://github.com/aws/aws-sdk-cpp/issues/1339#issuecomment-598402493
    * AWS S3 Api conduct US_EAST_1/AWS_GLOBAL as a default region and URI -> s3.amazonaws.com
@@ -180,21 +269,15 @@ public class S3Discovery implements AWSDiscovery {
       //
       var buckets = bucketCache.get(cacheKey, () -> {
         logger.debug("No cache found for {}, creating one now.", cacheKey);
-        var map = new HashMap<Region, List<Bucket>>();
-        client.listBuckets().buckets().forEach(bucket -> {
-          final var resp = client.getBucketLocation(GetBucketLocationRequest.builder().bucket(bucket.name()).build());
-          final var location = resp.locationConstraint();
-          // Thanks to https://sdk.amazonaws.com/java/api/latest/software/amazon/awssdk/services/s3/model/GetBucketLocationResponse.html#locationConstraint--
-          // we need to be aware of both null and UNKNOWN_TO_SDK_VERSION values.
-          var region =
-            Region.US_EAST_1.toString().equals(resp.locationConstraintAsString())
-              || resp.locationConstraintAsString().isEmpty()
-              ? Region.US_EAST_1
-              : Region.of(location.toString());
-          logger.debug("Associating {} to region {}", bucket.name(), region);
-          var list = map.getOrDefault(region, new LinkedList<>());
-          list.add(bucket);
-          map.put(region, list);
+        var map = new ConcurrentHashMap<Region, List<Bucket>>();
+        forEachInParallel(client.listBuckets().buckets(), bucket -> {
+          try {
+            var region = locationOf(client, bucket.name());
+            logger.debug("Associating {} to region {}", bucket.name(), region);
+            map.computeIfAbsent(region, r -> Collections.synchronizedList(new ArrayList<>())).add(bucket);
+          } catch (SdkServiceException | SdkClientException ex) {
+            DiscoveryExceptions.onDiscoveryException(S3Bucket.RESOURCE_TYPE, bucket.name(), bucketRegion, ex);
+          }
         });
         return map;
       });
@@ -204,6 +287,17 @@ public class S3Discovery implements AWSDiscovery {
     }
   }
 
+  private static Region locationOf(S3Client client, String bucketName) {
+    final var resp = client.getBucketLocation(GetBucketLocationRequest.builder().bucket(bucketName).build());
+    final var location = resp.locationConstraint();
+    // Thanks to https://sdk.amazonaws.com/java/api/latest/software/amazon/awssdk/services/s3/model/GetBucketLocationResponse.html#locationConstraint--
+    // we need to be aware of both null and UNKNOWN_TO_SDK_VERSION values.
+    return Region.US_EAST_1.toString().equals(resp.locationConstraintAsString())
+      || resp.locationConstraintAsString().isEmpty()
+      ? Region.US_EAST_1
+      : Region.of(location.toString());
+  }
+
   private void discoverPublic(S3Client client, Bucket resource, MagpieAwsResource data, Logger logger) {
     boolean isPublicByACL = false;
     boolean isPublicByPolicy = false;
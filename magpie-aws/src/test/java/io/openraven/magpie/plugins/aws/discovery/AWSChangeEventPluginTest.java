@@ -0,0 +1,121 @@
+/*
+ * Copyright 2021 Open Raven Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.openraven.magpie.plugins.aws.discovery;
+
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.MockConsumer;
+import org.apache.kafka.clients.consumer.OffsetResetStrategy;
+import org.apache.kafka.common.KafkaException;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+public class AWSChangeEventPluginTest {
+
+  private static final String TOPIC = "events";
+  private static final TopicPartition PARTITION = new TopicPartition(TOPIC, 0);
+  private static final String BUCKET_EVENT = event("arn:aws:s3:::bucket");
+  private static final String FUNCTION_EVENT = event("arn:aws:lambda:us-east-1:123456789012:function:fn");
+
+  @TempDir
+  Path events;
+
+  @Test
+  public void testReadsTopicOnceGroupIsJoined() {
+    final var consumer = new MockConsumer<String, String>(OffsetResetStrategy.EARLIEST);
+    // Polls made while the group is being joined return nothing
+    consumer.schedulePollTask(() -> {});
+    consumer.schedulePollTask(() -> {});
+    consumer.schedulePollTask(() -> {
+      consumer.rebalance(List.of(PARTITION));
+      consumer.updateBeginningOffsets(Map.of(PARTITION, 0L));
+      consumer.updateEndOffsets(Map.of(PARTITION, 3L));
+      consumer.addRecord(record(0, BUCKET_EVENT));
+      consumer.addRecord(record(1, "not json"));
+    });
+    consumer.schedulePollTask(() -> consumer.addRecord(record(2, "[" + BUCKET_EVENT + "," + FUNCTION_EVENT + "]")));
+
+    final var plugin = plugin(config(Map.of("topic", TOPIC, "group.id", "magpie"), null), properties -> consumer);
+
+    // Named twice, rediscovered once
+    assertEquals(List.of("arn:aws:s3:::bucket", "arn:aws:lambda:us-east-1:123456789012:function:fn"), arns(plugin));
+    assertTrue(consumer.closed());
+  }
+
+  @Test
+  public void testMissingGroupIdIsReported() throws IOException {
+    final var plugin = plugin(config(Map.of("topic", TOPIC), file(BUCKET_EVENT)), properties -> fail("No consumer without a group"));
+
+    // The file's events are still rediscovered
+    assertEquals(List.of("arn:aws:s3:::bucket"), arns(plugin));
+  }
+
+  @Test
+  public void testUnreadableTopicKeepsFileEvents() throws IOException {
+    final var consumer = new MockConsumer<String, String>(OffsetResetStrategy.EARLIEST);
+    consumer.setPollException(new KafkaException("broker unavailable"));
+
+    final var plugin = plugin(config(Map.of("topic", TOPIC, "group.id", "magpie"), file(FUNCTION_EVENT)), properties -> consumer);
+
+    assertEquals(List.of("arn:aws:lambda:us-east-1:123456789012:function:fn"), arns(plugin));
+    assertTrue(consumer.closed());
+  }
+
+  private String file(String contents) throws IOException {
+    return Files.writeString(events.resolve("events.json"), contents).toString();
+  }
+
+  private static AWSChangeEventConfig config(Map<String, Object> kafka, String path) {
+    final var config = new AWSChangeEventConfig();
+    config.setKafka(kafka);
+    config.setPath(path);
+    return config;
+  }
+
+  private static AWSChangeEventPlugin plugin(AWSChangeEventConfig config, Function<Map<String, Object>, Consumer<String, String>> consumers) {
+    final var plugin = new AWSChangeEventPlugin(consumers);
+    plugin.init(config, LoggerFactory.getLogger(AWSChangeEventPluginTest.class));
+    return plugin;
+  }
+
+  private static List<String> arns(AWSChangeEventPlugin plugin) {
+    return plugin.changedResources().stream().map(resource -> resource.arn).collect(Collectors.toList());
+  }
+
+  private static ConsumerRecord<String, String> record(long offset, String value) {
+    return new ConsumerRecord<>(TOPIC, 0, offset, null, value);
+  }
+
+  private static String event(String arn) {
+    return "{\"detail-type\": \"AWS API Call via CloudTrail\", \"account\": \"123456789012\", \"region\": \"us-east-1\"," +
+      "\"resources\": [\"" + arn + "\"], \"detail\": {}}";
+  }
+}
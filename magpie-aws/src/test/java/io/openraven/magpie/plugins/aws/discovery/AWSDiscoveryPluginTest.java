@@ -10,6 +10,7 @@ import org.slf4j.Logger;
 import software.amazon.awssdk.regions.Region;
 
 import java.util.List;
+import java.util.Set;
 import java.util.regex.Pattern;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -60,6 +61,17 @@ public class AWSDiscoveryPluginTest {
 
   }
 
+  @Test
+  public void testFilteringForDisabledRegions() {
+    Mockito.when(awsDiscoveryMock.getSupportedRegions()).thenReturn(PLUGIN_SUPPORTED_REGIONS);
+
+    // execute
+    awsDiscoveryPlugin.init(awsDiscoveryConfig, logger);
+    List<Region> regions = awsDiscoveryPlugin.getRegionsForDiscovery(awsDiscoveryMock, Set.of(AP_SOUTH_1.id(), EU_CENTRAL_1.id()));
+
+    assertEquals(List.of(US_EAST_1, US_EAST_2, US_WEST_1), regions);
+  }
+
   // Forced to copy this method due to unavailability of testing
   private boolean isNotIgnoredRegion(String region) {
     return awsDiscoveryConfig.getIgnoredRegions()
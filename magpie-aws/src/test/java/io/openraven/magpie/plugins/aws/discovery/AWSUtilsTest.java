@@ -0,0 +1,81 @@
+/*
+ * Copyright 2021 Open Raven Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.openraven.magpie.plugins.aws.discovery;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.ec2.model.Instance;
+import software.amazon.awssdk.services.ec2.model.InstanceState;
+import software.amazon.awssdk.services.ec2.model.Tag;
+import software.amazon.awssdk.services.s3.model.GetBucketEncryptionResponse;
+import software.amazon.awssdk.services.s3.model.ServerSideEncryptionByDefault;
+import software.amazon.awssdk.services.s3.model.ServerSideEncryptionConfiguration;
+import software.amazon.awssdk.services.s3.model.ServerSideEncryptionRule;
+
+import java.time.Instant;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class AWSUtilsTest {
+
+  private static final Instance INSTANCE = Instance.builder()
+    .instanceId("i-0123456789")
+    .launchTime(Instant.parse("2021-06-01T10:15:30Z"))
+    .state(InstanceState.builder().code(16).name("running").build())
+    .tags(Tag.builder().key("env").value("prod").build())
+    .ebsOptimized(true)
+    .build();
+
+  private static final GetBucketEncryptionResponse ENCRYPTION = GetBucketEncryptionResponse.builder()
+    .serverSideEncryptionConfiguration(ServerSideEncryptionConfiguration.builder()
+      .rules(ServerSideEncryptionRule.builder()
+        .applyServerSideEncryptionByDefault(ServerSideEncryptionByDefault.builder().sseAlgorithm("aws:kms").kmsMasterKeyID("key").build())
+        .bucketKeyEnabled(true)
+        .build())
+      .build())
+    .build();
+
+  @Test
+  public void testModelsConvertLikeTheirBuilders() {
+    assertEquals(builderJson(INSTANCE.toBuilder()), AWSUtils.update(INSTANCE).toString());
+    assertEquals(builderJson(ENCRYPTION.toBuilder()), AWSUtils.update(ENCRYPTION).toString());
+  }
+
+  @Test
+  public void testMergeMatchesUpdatingReader() throws Exception {
+    var addition = AWSDiscoveryPlugin.MAPPER.readTree(
+      "{\"state\":{\"name\":\"stopped\",\"reason\":\"user\"},\"tags\":[{\"key\":\"team\",\"value\":\"a\"}],\"ebsOptimized\":null}");
+    JsonNode expected = AWSDiscoveryPlugin.MAPPER.readerForUpdating(AWSUtils.update(INSTANCE)).readValue((JsonNode) addition.deepCopy());
+
+    var payload = AWSUtils.update(AWSUtils.update(INSTANCE), addition);
+    assertEquals(expected, payload);
+
+    // The added node is copied, not attached
+    ((ObjectNode) payload.get("state")).put("name", "terminated");
+    assertEquals("stopped", addition.get("state").get("name").asText());
+
+    payload = AWSUtils.update(payload, Map.of("BucketEncryption", ENCRYPTION));
+    assertEquals(AWSDiscoveryPlugin.MAPPER.readTree(builderJson(ENCRYPTION.toBuilder())), payload.get("BucketEncryption"));
+  }
+
+  private static String builderJson(Object builder) {
+    return AWSDiscoveryPlugin.MAPPER.convertValue(builder, JsonNode.class).toString();
+  }
+}
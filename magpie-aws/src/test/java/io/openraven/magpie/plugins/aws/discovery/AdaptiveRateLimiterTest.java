@@ -0,0 +1,64 @@
+/*
+ * Copyright 2021 Open Raven Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.openraven.magpie.plugins.aws.discovery;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class AdaptiveRateLimiterTest {
+
+  private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+  @Test
+  public void testCallsBeyondTheRateWaitInArrivalOrder() {
+    final var bucket = new AdaptiveRateLimiter.TokenBucket(2.0, 0);
+
+    assertEquals(0, bucket.reserve(0));
+    assertEquals(0, bucket.reserve(0));
+    assertEquals(SECOND / 2, bucket.reserve(0));
+    assertEquals(SECOND, bucket.reserve(0));
+    // One second later two tokens have been added back, both already promised to the waiting calls
+    assertEquals(SECOND / 2, bucket.reserve(SECOND));
+  }
+
+  @Test
+  public void testRateHalvesOnThrottlingAndGrowsBackOnSuccess() {
+    final var bucket = new AdaptiveRateLimiter.TokenBucket(AdaptiveRateLimiter.INITIAL_RATE, 0);
+
+    assertTrue(bucket.decrease(0));
+    assertEquals(AdaptiveRateLimiter.INITIAL_RATE / 2, bucket.rate());
+    // Throttles from calls sent before the cut don't lower the rate again
+    assertFalse(bucket.decrease(SECOND / 2));
+    assertEquals(AdaptiveRateLimiter.INITIAL_RATE / 2, bucket.rate());
+
+    for (int i = 0; i < 100; i++) {
+      bucket.increase();
+    }
+    assertEquals(AdaptiveRateLimiter.INITIAL_RATE / 2 + 5, bucket.rate(), 1e-9);
+
+    for (int i = 0; i < 20; i++) {
+      bucket.decrease(SECOND * (i + 2));
+    }
+    assertEquals(AdaptiveRateLimiter.MIN_RATE, bucket.rate());
+  }
+}
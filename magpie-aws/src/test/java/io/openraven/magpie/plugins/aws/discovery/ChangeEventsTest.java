@@ -0,0 +1,55 @@
+/*
+ * Copyright 2021 Open Raven Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.openraven.magpie.plugins.aws.discovery;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class ChangeEventsTest {
+
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+
+  @Test
+  public void testEventBridgeEvent() throws Exception {
+    final var resources = ChangeEvents.resourcesOf(MAPPER.readTree("{" +
+      "\"detail-type\": \"EC2 Instance State-change Notification\", \"account\": \"123456789012\", \"region\": \"us-west-2\"," +
+      "\"resources\": [\"arn:aws:ec2:us-west-2:123456789012:instance/i-0abc\"]," +
+      "\"detail\": {\"resources\": [{\"ARN\": \"arn:aws:s3:::my-bucket\"}]}}"));
+
+    assertEquals(2, resources.size());
+    assertEquals("arn:aws:ec2:us-west-2:123456789012:instance/i-0abc", resources.get(0).arn);
+    // S3 ARNs carry neither account nor region, so the event's are used
+    assertEquals("arn:aws:s3:::my-bucket", resources.get(1).arn);
+    assertEquals("123456789012", resources.get(1).account);
+    assertEquals("us-west-2", resources.get(1).region);
+  }
+
+  @Test
+  public void testCloudTrailLogFile() throws Exception {
+    final var resources = ChangeEvents.resourcesOf(MAPPER.readTree("{\"Records\": [" +
+      "{\"eventName\": \"UpdateFunctionConfiguration\", \"recipientAccountId\": \"111111111111\", \"awsRegion\": \"eu-west-1\"," +
+      "\"resources\": [{\"ARN\": \"arn:aws:lambda:eu-central-1:222222222222:function:fn\"}]}," +
+      "{\"eventName\": \"CreateBucket\", \"recipientAccountId\": \"111111111111\", \"awsRegion\": \"eu-west-1\"}]}"));
+
+    assertEquals(1, resources.size());
+    assertEquals("222222222222", resources.get(0).account);
+    assertEquals("eu-central-1", resources.get(0).region);
+  }
+}
@@ -0,0 +1,217 @@
+/*
+ * Copyright 2021 Open Raven Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.openraven.magpie.plugins.aws.discovery;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.openraven.magpie.api.EnrichmentLevel;
+import io.openraven.magpie.api.MagpieEnvelope;
+import io.openraven.magpie.api.Session;
+import io.openraven.magpie.plugins.aws.discovery.services.LambdaDiscovery;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.awscore.client.builder.AwsClientBuilder;
+import software.amazon.awssdk.regions.Region;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs the Config backend against an in-process stand-in for the AWS Config JSON API, which also answers the Lambda
+ * lookups the service's own discovery makes for each function.
+ */
+public class ConfigAggregatorDiscoveryTest {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ConfigAggregatorDiscoveryTest.class);
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+  private static final String ACCOUNT = "123456789012";
+  private static final String FUNCTION_ARN = "arn:aws:lambda:us-east-1:" + ACCOUNT + ":function:";
+
+  private final List<String> expressions = new ArrayList<>();
+  private final AtomicInteger batches = new AtomicInteger();
+  private final List<MagpieEnvelope> emitted = new ArrayList<>();
+  private HttpServer server;
+  private boolean failSelect;
+
+  @BeforeEach
+  public void startConfig() throws IOException {
+    server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.createContext("/", this::handle);
+    server.start();
+  }
+
+  @AfterEach
+  public void stopConfig() {
+    server.stop(0);
+  }
+
+  @Test
+  public void testReadsCoveredServicesInBulk() {
+    final var coverage = discover();
+
+    // Both pages of identifiers were selected
+    assertEquals(2, expressions.size());
+    assertTrue(expressions.get(0).contains("'AWS::Lambda::Function'"));
+    assertFalse(expressions.get(0).contains("AWS::Redshift::Cluster"));
+    assertTrue(expressions.get(0).contains("accountId IN ('" + ACCOUNT + "')"));
+    // The second function is left unprocessed by the first batch and returned by the next one
+    assertEquals(2, batches.get());
+
+    assertTrue(coverage.covers("lambda", ACCOUNT, "us-east-1"));
+    assertEquals(2, emitted.size());
+    final var first = emitted.get(0);
+    assertEquals(List.of("magpie.aws.discovery:lambda:function"), first.getPluginPath());
+    assertEquals(FUNCTION_ARN + "first", first.getContents().get("arn").asText());
+    assertEquals("AWS::Lambda::Function", first.getContents().get("resourceType").asText());
+    assertEquals(ACCOUNT, first.getContents().get("awsAccountId").asText());
+    assertEquals("us-east-1", first.getContents().get("awsRegion").asText());
+    // Laid out exactly as the service's own discovery lays it out, lookups included
+    assertEquals("revision-first", first.getContents().get("resourceId").asText());
+    assertEquals("python3.9", first.getContents().at("/configuration/runtime").asText());
+    assertEquals("{\"Statement\":[]}", first.getContents().at("/supplementaryConfiguration/AccessPolicy/policy").asText());
+    assertTrue(first.getContents().at("/supplementaryConfiguration").has("EventInvokeConfigs"));
+    assertEquals(FUNCTION_ARN + "second", emitted.get(1).getContents().get("arn").asText());
+  }
+
+  @Test
+  public void testLeavesUnreadScopesToServiceDiscovery() {
+    final var coverage = discover();
+
+    // Nothing was returned for the region, or for an account Magpie doesn't discover
+    assertFalse(coverage.covers("lambda", ACCOUNT, "us-west-2"));
+    assertFalse(coverage.covers("lambda", "210987654321", "us-east-1"));
+    // A function without a revision id isn't laid out as the service would, so its region is swept instead
+    assertFalse(coverage.covers("lambda", ACCOUNT, "eu-west-1"));
+    assertTrue(emitted.stream().noneMatch(envelope -> envelope.getContents().get("awsRegion").asText().equals("eu-west-1")));
+  }
+
+  @Test
+  public void testFallsBackWhenAggregatorCannotBeQueried() {
+    failSelect = true;
+
+    final var coverage = discover();
+
+    assertFalse(coverage.covers("lambda", ACCOUNT, "us-east-1"));
+    assertTrue(emitted.isEmpty());
+  }
+
+  private ConfigAggregatorDiscovery.Coverage discover() {
+    final var endpoint = URI.create("http://localhost:" + server.getAddress().getPort());
+    final var clientCreator = new MagpieAWSClientCreator() {
+      @Override
+      public <BuilderT extends AwsClientBuilder<BuilderT, ClientT>, ClientT> BuilderT apply(AwsClientBuilder<BuilderT, ClientT> builder) {
+        return builder.endpointOverride(endpoint)
+          .region(Region.US_EAST_1)
+          .credentialsProvider(StaticCredentialsProvider.create(AwsBasicCredentials.create("key", "secret")));
+      }
+    };
+    return new ConfigAggregatorDiscovery("org", clientCreator, LOGGER).discover(MAPPER, new Session(), emitted::add,
+      List.of(new LambdaDiscovery()), Map.of(ACCOUNT, region -> clientCreator), service -> EnrichmentLevel.FULL, region -> true);
+  }
+
+  private void handle(HttpExchange exchange) throws IOException {
+    final var target = exchange.getRequestHeaders().getFirst("X-Amz-Target");
+    final var response = MAPPER.createObjectNode();
+    var status = 200;
+
+    if (target == null) {
+      // A Lambda lookup; only the function policy has content
+      if (exchange.getRequestURI().getPath().endsWith("/policy")) {
+        response.put("Policy", "{\"Statement\":[]}");
+      }
+    } else if (target.endsWith("SelectAggregateResourceConfig")) {
+      final var request = MAPPER.readTree(exchange.getRequestBody());
+      expressions.add(request.get("Expression").asText());
+      if (failSelect) {
+        status = 400;
+        response.put("__type", "NoSuchConfigurationAggregatorException");
+        response.put("message", "no aggregator");
+      } else if (!request.has("NextToken")) {
+        final var results = response.putArray("Results");
+        results.add(row("first", ACCOUNT, "us-east-1", "AWS::Lambda::Function"));
+        results.add(row("cluster", ACCOUNT, "us-east-1", "AWS::ECS::Cluster"));
+        results.add(row("other", "210987654321", "us-east-1", "AWS::Lambda::Function"));
+        results.add(row("incomplete", ACCOUNT, "eu-west-1", "AWS::Lambda::Function"));
+        response.put("NextToken", "page-2");
+      } else {
+        response.putArray("Results").add(row("second", ACCOUNT, "us-east-1", "AWS::Lambda::Function"));
+      }
+    } else {
+      final var request = MAPPER.readTree(exchange.getRequestBody());
+      final var items = response.putArray("BaseConfigurationItems");
+      final var unprocessed = response.putArray("UnprocessedResourceIdentifiers");
+      final var firstBatch = batches.incrementAndGet() == 1;
+      for (JsonNode identifier : request.get("ResourceIdentifiers")) {
+        if (firstBatch && identifier.get("ResourceId").asText().equals("second")) {
+          unprocessed.add(identifier);
+        } else {
+          items.add(item(identifier));
+        }
+      }
+    }
+
+    final var body = MAPPER.writeValueAsBytes(response);
+    exchange.getResponseHeaders().add("Content-Type", target == null ? "application/json" : "application/x-amz-json-1.1");
+    exchange.sendResponseHeaders(status, body.length);
+    exchange.getResponseBody().write(body);
+    exchange.close();
+  }
+
+  private static String row(String resourceId, String account, String region, String resourceType) {
+    return "{\"resourceId\":\"" + resourceId + "\",\"resourceType\":\"" + resourceType + "\",\"accountId\":\"" + account + "\"," +
+      "\"awsRegion\":\"" + region + "\"}";
+  }
+
+  private static ObjectNode item(JsonNode identifier) {
+    final var resourceId = identifier.get("ResourceId").asText();
+    final var item = MAPPER.createObjectNode();
+    item.put("accountId", identifier.get("SourceAccountId").asText());
+    item.put("awsRegion", identifier.get("SourceRegion").asText());
+    item.put("resourceId", resourceId);
+    item.put("resourceName", resourceId);
+    item.put("resourceType", identifier.get("ResourceType").asText());
+    item.put("arn", FUNCTION_ARN + resourceId);
+    item.put("configurationItemStatus", "OK");
+    final var configuration = MAPPER.createObjectNode()
+      .put("functionName", resourceId)
+      .put("functionArn", FUNCTION_ARN + resourceId)
+      .put("runtime", "python3.9");
+    if (!resourceId.equals("incomplete")) {
+      configuration.put("revisionId", "revision-" + resourceId);
+    }
+    item.put("configuration", configuration.toString());
+    return item;
+  }
+}
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2021 Open Raven Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.openraven.magpie.plugins.aws.discovery;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.services.redshift.model.Cluster;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ConfigurationItemsTest {
+
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+
+  @Test
+  public void testReadsEitherKeyCase() throws JsonProcessingException {
+    final var clusters = ConfigurationItems.read(List.of(
+      json("{\"ClusterIdentifier\":\"pascal\",\"ClusterCreateTime\":\"2021-06-01T12:00:00Z\",\"ClusterParameterGroups\":[{\"ParameterGroupName\":\"p\"}],\"Recorded\":true}"),
+      json("{\"clusterIdentifier\":\"camel\",\"clusterCreateTime\":1622548800000,\"encrypted\":true}")
+    ), Cluster.serializableBuilderClass(), cluster -> cluster.clusterIdentifier() != null).orElseThrow();
+
+    assertEquals("pascal", clusters.get(0).clusterIdentifier());
+    assertEquals(Instant.parse("2021-06-01T12:00:00Z"), clusters.get(0).clusterCreateTime());
+    assertEquals("p", clusters.get(0).clusterParameterGroups().get(0).parameterGroupName());
+    assertEquals("camel", clusters.get(1).clusterIdentifier());
+    assertEquals(Instant.parse("2021-06-01T12:00:00Z"), clusters.get(1).clusterCreateTime());
+    assertTrue(clusters.get(1).encrypted());
+  }
+
+  @Test
+  public void testRejectsAllWhenAnyIsIncomplete() throws JsonProcessingException {
+    final var clusters = ConfigurationItems.read(List.of(
+      json("{\"clusterIdentifier\":\"complete\"}"),
+      json("{\"nodeType\":\"dc2.large\"}")
+    ), Cluster.serializableBuilderClass(), cluster -> cluster.clusterIdentifier() != null);
+
+    assertTrue(clusters.isEmpty());
+    assertTrue(ConfigurationItems.read(List.of(MAPPER.getNodeFactory().textNode("not json")),
+      Cluster.serializableBuilderClass(), cluster -> true).isEmpty());
+  }
+
+  private static JsonNode json(String json) throws JsonProcessingException {
+    return MAPPER.readTree(json);
+  }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2021 Open Raven Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.openraven.magpie.plugins.aws.discovery;
+
+import org.junit.jupiter.api.Test;
+import software.amazon.awssdk.core.exception.SdkClientException;
+import software.amazon.awssdk.core.exception.SdkServiceException;
+import software.amazon.awssdk.regions.Region;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class DiscoveryExceptionsTest {
+
+  @Test
+  public void testExceptionsWithoutMessageAreNotManaged() {
+    assertFalse(DiscoveryExceptions.isManagedSdkException("AWS::S3::Bucket", "bucket", new NullPointerException(), Region.US_EAST_1));
+    assertFalse(DiscoveryExceptions.isManagedSdkException("AWS::S3::Bucket", "bucket",
+      SdkClientException.builder().build(), Region.US_EAST_1));
+    assertTrue(DiscoveryExceptions.isManagedSdkException("AWS::S3::Bucket", "bucket",
+      SdkServiceException.builder().statusCode(404).build(), Region.US_EAST_1));
+  }
+
+  @Test
+  public void testExceptionsWithoutMessageAreReported() {
+    assertDoesNotThrow(() -> DiscoveryExceptions.onDiscoveryException("AWS::S3::Bucket", "bucket", Region.US_EAST_1,
+      new NullPointerException()));
+    assertDoesNotThrow(() -> DiscoveryExceptions.onDiscoveryException("AWS::S3::Bucket", "bucket", Region.US_EAST_1,
+      SdkClientException.builder().build()));
+    assertDoesNotThrow(() -> DiscoveryExceptions.onDiscoveryException("AWS::S3::Bucket", null, Region.US_EAST_1,
+      SdkServiceException.builder().statusCode(500).build()));
+  }
+
+  @Test
+  public void testManagedExceptionsAreRecognizedByMessage() {
+    assertTrue(DiscoveryExceptions.isManagedSdkException("AWS::S3::Bucket", "bucket",
+      SdkServiceException.builder().message("Access Denied").statusCode(403).build(), Region.US_EAST_1));
+    assertFalse(DiscoveryExceptions.isManagedSdkException("AWS::S3::Bucket", "bucket",
+      SdkServiceException.builder().message("Internal error").statusCode(500).build(), Region.US_EAST_1));
+  }
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2021 Open Raven Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package io.openraven.magpie.plugins.aws.discovery;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+public class PolicyDocumentCacheTest {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(PolicyDocumentCacheTest.class);
+  private static final String READ_ONLY = "arn:aws:iam::aws:policy/ReadOnlyAccess";
+  private static final String READ_ONLY_ID = "ANPAILL3HVNFSB6DCOWYQ";
+
+  @Test
+  public void testFetchesEachVersionOnce() {
+    final var cache = new PolicyDocumentCache();
+    final var fetches = new AtomicInteger();
+    final Function<String, Supplier<String>> fetch = document -> () -> {
+      fetches.incrementAndGet();
+      return document;
+    };
+
+    assertEquals("v1-doc", cache.get(READ_ONLY, READ_ONLY_ID, "v1", fetch.apply("v1-doc")));
+    assertEquals("v1-doc", cache.get(READ_ONLY, READ_ONLY_ID, "v1", fetch.apply("other")));
+    assertEquals("v2-doc", cache.get(READ_ONLY, READ_ONLY_ID, "v2", fetch.apply("v2-doc")));
+    assertNull(cache.get(READ_ONLY, READ_ONLY_ID, "v3", fetch.apply(null)));
+    assertEquals("v3-doc", cache.get(READ_ONLY, READ_ONLY_ID, "v3", fetch.apply("v3-doc")));
+
+    assertEquals(4, fetches.get());
+  }
+
+  @Test
+  public void testKeepsOnlyUsedVersionsAcrossScans(@TempDir Path dir) {
+    final var file = dir.resolve("policies.json");
+    final var firstScan = new PolicyDocumentCache();
+    firstScan.load(file, LOGGER);
+    firstScan.get(READ_ONLY, READ_ONLY_ID, "v1", () -> "v1-doc");
+    firstScan.save(file, LOGGER);
+
+    final var secondScan = new PolicyDocumentCache();
+    secondScan.load(file, LOGGER);
+    assertEquals("v1-doc", secondScan.get(READ_ONLY, READ_ONLY_ID, "v1", () -> "fetched"));
+    secondScan.save(file, LOGGER);
+
+    final var thirdScan = new PolicyDocumentCache();
+    thirdScan.load(file, LOGGER);
+    assertEquals("v2-doc", thirdScan.get(READ_ONLY, READ_ONLY_ID, "v2", () -> "v2-doc"));
+    thirdScan.save(file, LOGGER);
+
+    final var fourthScan = new PolicyDocumentCache();
+    fourthScan.load(file, LOGGER);
+    assertEquals("fetched", fourthScan.get(READ_ONLY, READ_ONLY_ID, "v1", () -> "fetched"));
+  }
+
+  @Test
+  public void testRecreatedPolicyIsFetchedAgain() {
+    final var cache = new PolicyDocumentCache();
+    final var arn = "arn:aws:iam::123456789012:policy/app";
+
+    assertEquals("old-doc", cache.get(arn, "ANPAOLDPOLICYID", "v1", () -> "old-doc"));
+    assertEquals("new-doc", cache.get(arn, "ANPANEWPOLICYID", "v1", () -> "new-doc"));
+  }
+
+  @Test
+  public void testDropsUnusedVersionsInMemory() {
+    final var cache = new PolicyDocumentCache();
+    cache.get(READ_ONLY, READ_ONLY_ID, "v1", () -> "v1-doc");
+    cache.retainUsed();
+
+    cache.get(READ_ONLY, READ_ONLY_ID, "v2", () -> "v2-doc");
+    cache.retainUsed();
+
+    assertEquals("v2-doc", cache.get(READ_ONLY, READ_ONLY_ID, "v2", () -> "fetched"));
+    assertEquals("fetched", cache.get(READ_ONLY, READ_ONLY_ID, "v1", () -> "fetched"));
+  }
+}
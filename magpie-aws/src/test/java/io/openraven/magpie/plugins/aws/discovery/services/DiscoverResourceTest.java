@@ -0,0 +1,207 @@
+/*
+ * Copyright 2021 Open Raven Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.openraven.magpie.plugins.aws.discovery.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.openraven.magpie.api.EnrichmentLevel;
+import io.openraven.magpie.api.MagpieEnvelope;
+import io.openraven.magpie.api.Session;
+import io.openraven.magpie.plugins.aws.discovery.MagpieAWSClientCreator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.awscore.client.builder.AwsClientBuilder;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.s3.S3ClientBuilder;
+import software.amazon.awssdk.services.s3.S3Configuration;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Rediscovers single resources against an in-process stand-in for the S3, EC2 and Lambda APIs. Lookups the stand-in
+ * doesn't know are answered with a 404, as for a resource with nothing configured.
+ */
+public class DiscoverResourceTest {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(DiscoverResourceTest.class);
+  private static final ObjectMapper MAPPER = new ObjectMapper()
+    .configure(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS, false)
+    .findAndRegisterModules();
+  private static final String ACCOUNT = "123456789012";
+  private static final Region REGION = Region.US_WEST_2;
+
+  private final List<String> requests = new ArrayList<>();
+  private final List<MagpieEnvelope> emitted = new ArrayList<>();
+  private HttpServer server;
+
+  @BeforeEach
+  public void startServices() throws IOException {
+    server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.createContext("/", this::handle);
+    server.start();
+  }
+
+  @AfterEach
+  public void stopServices() {
+    server.stop(0);
+  }
+
+  @Test
+  public void testS3Bucket() {
+    assertTrue(discoverResource(new S3Discovery(), "arn:aws:s3:::bucket"));
+
+    assertEquals(1, emitted.size());
+    final var bucket = emitted.get(0);
+    assertEquals(List.of("magpie.aws.discovery:s3:bucket"), bucket.getPluginPath());
+    assertEquals("arn:aws:s3:::bucket", bucket.getContents().get("arn").asText());
+    assertEquals("AWS::S3::Bucket", bucket.getContents().get("resourceType").asText());
+    assertEquals(REGION.id(), bucket.getContents().get("awsRegion").asText());
+    assertEquals("2021-01-01T00:00:00Z", bucket.getContents().get("createdIso").asText());
+    assertTrue(requests.contains("GET /bucket?location"));
+  }
+
+  @Test
+  public void testS3BucketNoLongerListed() {
+    assertTrue(discoverResource(new S3Discovery(), "arn:aws:s3:::deleted"));
+
+    assertTrue(emitted.isEmpty());
+    assertEquals(List.of("GET /"), requests);
+  }
+
+  @Test
+  public void testS3ObjectIsNotABucket() {
+    assertFalse(discoverResource(new S3Discovery(), "arn:aws:s3:::bucket/key"));
+    assertFalse(discoverResource(new S3Discovery(), "arn:aws:lambda:us-west-2:" + ACCOUNT + ":function:fn"));
+
+    assertTrue(requests.isEmpty());
+  }
+
+  @Test
+  public void testEC2Instance() {
+    assertTrue(discoverResource(new EC2Discovery(), "arn:aws:ec2:us-west-2:" + ACCOUNT + ":instance/i-0abc"));
+
+    assertEquals(1, emitted.size());
+    final var instance = emitted.get(0);
+    assertEquals(List.of("magpie.aws.discovery:ec2"), instance.getPluginPath());
+    assertEquals("arn:aws:ec2:us-west-2:" + ACCOUNT + ":instance/i-0abc", instance.getContents().get("arn").asText());
+    assertEquals("i-0abc", instance.getContents().get("resourceId").asText());
+    assertEquals("t2.micro", instance.getContents().at("/configuration/instanceType").asText());
+    // Only the named instance was described
+    assertEquals(1, requests.size());
+    assertTrue(requests.get(0).contains("Action=DescribeInstances"));
+    assertTrue(requests.get(0).contains("InstanceId.1=i-0abc"));
+  }
+
+  @Test
+  public void testEC2OtherResourcesAreSwept() {
+    assertFalse(discoverResource(new EC2Discovery(), "arn:aws:ec2:us-west-2:" + ACCOUNT + ":volume/vol-0abc"));
+
+    assertTrue(requests.isEmpty());
+  }
+
+  @Test
+  public void testLambdaFunction() {
+    // A qualified ARN rediscovers the function itself
+    assertTrue(discoverResource(new LambdaDiscovery(), "arn:aws:lambda:us-west-2:" + ACCOUNT + ":function:fn:live"));
+
+    assertEquals(1, emitted.size());
+    final var function = emitted.get(0);
+    assertEquals(List.of("magpie.aws.discovery:lambda:function"), function.getPluginPath());
+    assertEquals("arn:aws:lambda:us-west-2:" + ACCOUNT + ":function:fn", function.getContents().get("arn").asText());
+    assertEquals("revision", function.getContents().get("resourceId").asText());
+    assertEquals("python3.9", function.getContents().at("/configuration/runtime").asText());
+    assertEquals("GET /2015-03-31/functions/fn", requests.get(0));
+  }
+
+  @Test
+  public void testLambdaFunctionNoLongerExists() {
+    assertTrue(discoverResource(new LambdaDiscovery(), "arn:aws:lambda:us-west-2:" + ACCOUNT + ":function:deleted"));
+
+    assertTrue(emitted.isEmpty());
+  }
+
+  private boolean discoverResource(AWSDiscovery discovery, String arn) {
+    final var endpoint = URI.create("http://localhost:" + server.getAddress().getPort());
+    final var clientCreator = new MagpieAWSClientCreator() {
+      @Override
+      public <BuilderT extends AwsClientBuilder<BuilderT, ClientT>, ClientT> BuilderT apply(AwsClientBuilder<BuilderT, ClientT> builder) {
+        if (builder instanceof S3ClientBuilder) {
+          ((S3ClientBuilder) builder).serviceConfiguration(S3Configuration.builder().pathStyleAccessEnabled(true).build());
+        }
+        return builder.endpointOverride(endpoint)
+          .region(REGION)
+          .credentialsProvider(StaticCredentialsProvider.create(AwsBasicCredentials.create("key", "secret")));
+      }
+    };
+    return discovery.discoverResource(MAPPER, new Session(), REGION, arn, emitted::add, LOGGER, ACCOUNT, clientCreator,
+      EnrichmentLevel.LITE);
+  }
+
+  private void handle(HttpExchange exchange) throws IOException {
+    final var uri = exchange.getRequestURI();
+    final var request = exchange.getRequestMethod() + " " + uri.getPath() + (uri.getRawQuery() == null ? "" : "?" + uri.getRawQuery());
+    final var body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+    requests.add(body.isEmpty() ? request : request + " " + body);
+
+    if (body.contains("Action=DescribeInstances")) {
+      respond(exchange, 200, "text/xml", "<DescribeInstancesResponse xmlns=\"http://ec2.amazonaws.com/doc/2016-11-15/\">" +
+        "<requestId>request</requestId><reservationSet><item><reservationId>r-0abc</reservationId><ownerId>" + ACCOUNT + "</ownerId>" +
+        "<instancesSet><item><instanceId>i-0abc</instanceId><instanceType>t2.micro</instanceType>" +
+        "<launchTime>2021-01-01T00:00:00.000Z</launchTime></item></instancesSet></item></reservationSet></DescribeInstancesResponse>");
+    } else if (request.equals("GET /")) {
+      respond(exchange, 200, "application/xml", "<ListAllMyBucketsResult><Buckets><Bucket><Name>bucket</Name>" +
+        "<CreationDate>2021-01-01T00:00:00.000Z</CreationDate></Bucket></Buckets></ListAllMyBucketsResult>");
+    } else if (request.equals("GET /bucket?location")) {
+      respond(exchange, 200, "application/xml", "<LocationConstraint>" + REGION.id() + "</LocationConstraint>");
+    } else if (request.equals("GET /2015-03-31/functions/fn")) {
+      respond(exchange, 200, "application/json", "{\"Configuration\": {\"FunctionName\": \"fn\", \"Runtime\": \"python3.9\"," +
+        "\"FunctionArn\": \"arn:aws:lambda:us-west-2:" + ACCOUNT + ":function:fn\", \"RevisionId\": \"revision\"}}");
+    } else if (uri.getPath().startsWith("/2015-03-31/functions/deleted")) {
+      exchange.getResponseHeaders().add("x-amzn-ErrorType", "ResourceNotFoundException");
+      respond(exchange, 404, "application/json", "{\"Type\": \"User\", \"message\": \"Function not found\"}");
+    } else if (uri.getPath().startsWith("/20")) {
+      // Lambda's other lookups, which have nothing configured
+      respond(exchange, 200, "application/json", "{}");
+    } else {
+      respond(exchange, 404, "application/xml", "<Error><Code>NoSuchConfiguration</Code><Message>Not configured</Message></Error>");
+    }
+  }
+
+  private static void respond(HttpExchange exchange, int status, String contentType, String body) throws IOException {
+    final var bytes = body.getBytes(StandardCharsets.UTF_8);
+    exchange.getResponseHeaders().add("Content-Type", contentType);
+    exchange.sendResponseHeaders(status, bytes.length);
+    exchange.getResponseBody().write(bytes);
+    exchange.close();
+  }
+}
@@ -1,8 +1,10 @@
 package io.openraven.magpie.plugins.aws.discovery.services;
 
 import io.openraven.magpie.api.Emitter;
+import io.openraven.magpie.api.EnrichmentLevel;
 import io.openraven.magpie.api.MagpieAwsResource;
 import io.openraven.magpie.api.MagpieEnvelope;
+import io.openraven.magpie.api.Session;
 import io.openraven.magpie.plugins.aws.discovery.ClientCreators;
 import io.openraven.magpie.plugins.aws.discovery.MagpieAWSClientCreator;
 import io.openraven.magpie.plugins.aws.discovery.services.base.BaseAWSServiceIT;
@@ -30,7 +32,7 @@ class DynamoDbDiscoveryIT extends BaseAWSServiceIT {
 
   private final DynamoDbDiscovery dynamoDbDiscovery = new DynamoDbDiscovery() {
     // We override this to make it a no-op since we can't perform Backup calls on the free version of Localstack.
-    public void discoverBackupJobs(String arn, Region region, MagpieAwsResource data, MagpieAWSClientCreator clientCreator, Logger logger) {
+    public void discoverBackupJobs(Session session, String arn, Region region, MagpieAwsResource data, MagpieAWSClientCreator clientCreator, Logger logger) {
     }
   };
 
@@ -59,7 +61,8 @@ class DynamoDbDiscoveryIT extends BaseAWSServiceIT {
       dynamoDbClient,
       ACCOUNT,
       ClientCreators.localClientCreator(BASE_REGION),
-      LoggerFactory.getLogger(DynamoDbDiscoveryIT.class)
+      LoggerFactory.getLogger(DynamoDbDiscoveryIT.class),
+      EnrichmentLevel.FULL
     );
 
     // then
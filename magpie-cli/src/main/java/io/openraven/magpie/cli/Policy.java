@@ -20,7 +20,12 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
 import io.openraven.magpie.core.config.ConfigUtils;
 import io.openraven.magpie.core.config.MagpieConfig;
+import io.openraven.magpie.core.config.PluginConfig;
 import io.openraven.magpie.core.cspm.services.*;
+import io.openraven.magpie.core.plugins.PluginManager;
+import io.openraven.magpie.plugins.persist.PersistConfig;
+import io.openraven.magpie.plugins.persist.PersistPlugin;
+import io.openraven.magpie.plugins.persist.embedded.EmbeddedAssetStore;
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.DefaultParser;
 import org.apache.commons.cli.Option;
@@ -31,6 +36,7 @@ import org.slf4j.LoggerFactory;
 
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.nio.file.Path;
 
 public class Policy {
   private static final Logger LOGGER = LoggerFactory.getLogger(Policy.class);
@@ -43,12 +49,31 @@ public class Policy {
     final var config = getConfig(cmd);
 
     CspmFacade cspmFacade = new CspmFacadeImpl();
-    cspmFacade.analyze(config);
+    if (!cmd.hasOption("i")) {
+      cspmFacade.analyze(config);
+      return;
+    }
+
+    // Analyze discovery output files in a throwaway embedded database rather than the configured one
+    if (!EmbeddedAssetStore.isAvailable()) {
+      LOGGER.error("-i needs embedded Postgres, which this build doesn't include. Build magpie-cli with -Puberjar,embedded-postgres");
+      System.exit(1);
+    }
+    final var persistPluginConfig = config.getPlugins().computeIfAbsent(PersistPlugin.ID, id -> new PluginConfig());
+    final var persistConfig = (PersistConfig) PluginManager.buildPluginConfig(PersistPlugin.ID, PersistConfig.class, persistPluginConfig.getConfig());
+    try (var store = EmbeddedAssetStore.start(persistConfig)) {
+      for (String input : cmd.getOptionValues("i")) {
+        store.load(Path.of(input));
+      }
+      persistPluginConfig.setConfig(store.getPersistConfig());
+      cspmFacade.analyze(config);
+    }
   }
 
   private static CommandLine parsePolicyOptions(String[] args) throws ParseException {
     final var options = new Options();
     options.addOption(new Option("f", "configfile", true, "Config file location (defaults to " + DEFAULT_CONFIG_FILE + ")"));
+    options.addOption(new Option("i", "input", true, "Discovery output (NDJSON or magpie.json output) to analyze in an embedded database instead of magpie.persist; may be repeated"));
 
     final var parser = new DefaultParser();
     return parser.parse(options, args);
@@ -22,6 +22,9 @@ import java.util.List;
 public class PolicyConfig {
   private String root = "~/.magpie/policies";
   private List<String> repositories = List.of();
+  private int analysisWorkers = 1;
+  private boolean combineRules = true;
+  private boolean incremental = false;
 
   public String getRoot() {
     return root;
@@ -38,4 +41,28 @@ public class PolicyConfig {
   public void setRepositories(List<String> repositories) {
     this.repositories = repositories == null ? List.of() : repositories;
   }
+
+  public int getAnalysisWorkers() {
+    return analysisWorkers;
+  }
+
+  public void setAnalysisWorkers(int analysisWorkers) {
+    this.analysisWorkers = Math.max(1, analysisWorkers);
+  }
+
+  public boolean isCombineRules() {
+    return combineRules;
+  }
+
+  public void setCombineRules(boolean combineRules) {
+    this.combineRules = combineRules;
+  }
+
+  public boolean isIncremental() {
+    return incremental;
+  }
+
+  public void setIncremental(boolean incremental) {
+    this.incremental = incremental;
+  }
 }
@@ -20,33 +20,33 @@ import io.openraven.magpie.core.cspm.model.Rule;
 
 public class IgnoredRule {
 
-  private final Policy policy;
-  private final Rule rule;
+  private final String policyId;
+  private final String ruleId;
   private final IgnoredReason ignoredReason;
 
   public IgnoredRule(Policy policy, Rule rule, IgnoredReason ignoredReason) {
-    this.policy = policy;
-    this.rule = rule;
+    this.policyId = ModelReference.of(policy);
+    this.ruleId = ModelReference.of(rule);
     this.ignoredReason = ignoredReason;
   }
 
-  public Rule getRule() {
-    return rule;
+  public String getPolicyId() {
+    return policyId;
   }
 
-  public IgnoredReason getIgnoredReason() {
-    return ignoredReason;
+  public String getRuleId() {
+    return ruleId;
   }
 
-  public Policy getPolicy() {
-    return policy;
+  public IgnoredReason getIgnoredReason() {
+    return ignoredReason;
   }
 
   @Override
   public String toString() {
     return "IgnoredRule{" +
-      "policy=" + policy +
-      ", rule=" + rule +
+      "policyId='" + policyId + '\'' +
+      ", ruleId='" + ruleId + '\'' +
       ", ignoredReason=" + ignoredReason +
       '}';
   }
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2021 Open Raven Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.openraven.magpie.core.cspm.analysis;
+
+import io.openraven.magpie.core.cspm.model.Policy;
+import io.openraven.magpie.core.cspm.model.Rule;
+
+/**
+ * The id analysis results use to reference a policy or rule: its {@code id}, or its {@code refId} when it has none.
+ */
+public final class ModelReference {
+
+  private ModelReference() {
+  }
+
+  public static String of(Policy policy) {
+    return of(policy.getId(), policy.getRefId());
+  }
+
+  public static String of(Rule rule) {
+    return of(rule.getId(), rule.getRefId());
+  }
+
+  private static String of(Object id, String refId) {
+    return id == null ? refId : id.toString();
+  }
+}
@@ -20,55 +20,58 @@ import io.openraven.magpie.core.cspm.model.Rule;
 
 import java.time.LocalDateTime;
 
+/**
+ * A violating asset. The policy and rule are referenced by id (see {@link ModelReference}) rather than embedded, since
+ * their definitions are already part of {@link ScanResults#getPolicies()}.
+ */
 public class Violation {
-  private Policy policy;
-  private Rule rule;
+  private String policyId;
+  private String ruleId;
   private String assetId;
-  private String info;
   private String error;
   private LocalDateTime evaluatedAt;
 
   public Violation() {
   }
 
-  public String getError() {
-    return error;
-  }
-
-  public void setError(String error) {
+  public Violation(Policy policy, Rule rule, String assetId, String error, LocalDateTime evaluatedAt) {
+    this.policyId = ModelReference.of(policy);
+    this.ruleId = ModelReference.of(rule);
+    this.assetId = assetId;
     this.error = error;
+    this.evaluatedAt = evaluatedAt;
   }
 
-  public String getInfo() {
-    return info;
+  public String getPolicyId() {
+    return policyId;
   }
 
-  public void setInfo(String info) {
-    this.info = info;
+  public void setPolicyId(String policyId) {
+    this.policyId = policyId;
   }
 
-  public LocalDateTime getEvaluatedAt() {
-    return evaluatedAt;
+  public String getRuleId() {
+    return ruleId;
   }
 
-  public void setEvaluatedAt(LocalDateTime evaluatedAt) {
-    this.evaluatedAt = evaluatedAt;
+  public void setRuleId(String ruleId) {
+    this.ruleId = ruleId;
   }
 
-  public Policy getPolicy() {
-    return policy;
+  public String getError() {
+    return error;
   }
 
-  public void setPolicy(Policy policy) {
-    this.policy = policy;
+  public void setError(String error) {
+    this.error = error;
   }
 
-  public Rule getRule() {
-    return rule;
+  public LocalDateTime getEvaluatedAt() {
+    return evaluatedAt;
   }
 
-  public void setRule(Rule rule) {
-    this.rule = rule;
+  public void setEvaluatedAt(LocalDateTime evaluatedAt) {
+    this.evaluatedAt = evaluatedAt;
   }
 
   public String getAssetId() {
@@ -82,10 +85,9 @@ public class Violation {
   @Override
   public String toString() {
     return "Violation{" +
-      "policy=" + policy +
-      ", rule=" + rule +
+      "policyId='" + policyId + '\'' +
+      ", ruleId='" + ruleId + '\'' +
       ", assetId='" + assetId + '\'' +
-      ", info='" + info + '\'' +
       ", error='" + error + '\'' +
       ", evaluatedAt=" + evaluatedAt +
       '}';
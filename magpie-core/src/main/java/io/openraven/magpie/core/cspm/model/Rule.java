@@ -15,9 +15,16 @@
  */
 package io.openraven.magpie.core.cspm.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.List;
 import java.util.UUID;
+import java.util.function.Predicate;
 
 public class Rule {
+  public static final String PREDICATE_TYPE = "predicate";
+
   private UUID id;
   private String refId;
   private String type;
@@ -33,6 +40,10 @@ public class Rule {
   private boolean archived;
   private boolean manualControl;
   private String fileName;
+  private List<String> resourceTypes;
+  private RuleCondition condition;
+  @JsonIgnore
+  private Predicate<JsonNode> predicate;
 
   public UUID getId() {
     return id;
@@ -153,4 +164,35 @@ public class Rule {
   public void setFileName(String fileName) {
     this.fileName = fileName;
   }
+
+  public List<String> getResourceTypes() {
+    return resourceTypes;
+  }
+
+  public void setResourceTypes(List<String> resourceTypes) {
+    this.resourceTypes = resourceTypes;
+  }
+
+  public RuleCondition getCondition() {
+    return condition;
+  }
+
+  public void setCondition(RuleCondition condition) {
+    this.condition = condition;
+  }
+
+  @JsonIgnore
+  public Predicate<JsonNode> getPredicate() {
+    return predicate;
+  }
+
+  @JsonIgnore
+  public void setPredicate(Predicate<JsonNode> predicate) {
+    this.predicate = predicate;
+  }
+
+  @JsonIgnore
+  public boolean isPredicateRule() {
+    return PREDICATE_TYPE.equalsIgnoreCase(type);
+  }
 }
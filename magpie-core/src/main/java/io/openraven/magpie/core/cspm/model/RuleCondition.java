@@ -0,0 +1,82 @@
+/*
+ * Copyright 2021 Open Raven Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.openraven.magpie.core.cspm.model;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.List;
+
+/**
+ * Condition of a predicate rule. A condition is either a leaf, testing the value found at a JSON pointer in the asset
+ * document with {@code op} (and {@code value} where the operator takes one), or a combination of other conditions
+ * through exactly one of {@code all}, {@code any} or {@code not}.
+ */
+public class RuleCondition {
+  private String path;
+  private String op;
+  private JsonNode value;
+  private List<RuleCondition> all;
+  private List<RuleCondition> any;
+  private RuleCondition not;
+
+  public String getPath() {
+    return path;
+  }
+
+  public void setPath(String path) {
+    this.path = path;
+  }
+
+  public String getOp() {
+    return op;
+  }
+
+  public void setOp(String op) {
+    this.op = op;
+  }
+
+  public JsonNode getValue() {
+    return value;
+  }
+
+  public void setValue(JsonNode value) {
+    this.value = value;
+  }
+
+  public List<RuleCondition> getAll() {
+    return all;
+  }
+
+  public void setAll(List<RuleCondition> all) {
+    this.all = all;
+  }
+
+  public List<RuleCondition> getAny() {
+    return any;
+  }
+
+  public void setAny(List<RuleCondition> any) {
+    this.any = any;
+  }
+
+  public RuleCondition getNot() {
+    return not;
+  }
+
+  public void setNot(RuleCondition not) {
+    this.not = not;
+  }
+}
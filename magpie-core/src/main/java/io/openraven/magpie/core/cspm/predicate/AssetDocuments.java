@@ -0,0 +1,43 @@
+/*
+ * Copyright 2021 Open Raven Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.openraven.magpie.core.cspm.predicate;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.util.List;
+
+/**
+ * Helpers shared by every path that evaluates rules against asset documents rather than SQL rows.
+ */
+public final class AssetDocuments {
+
+  private AssetDocuments() {
+  }
+
+  /**
+   * @return what SQL rules select as assetid: the ARN for AWS assets, the asset id for GCP ones, falling back to the
+   * document id, or an empty string if the document has none of them
+   */
+  public static String assetIdOf(JsonNode document) {
+    for (String field : List.of("arn", "assetId", "documentId")) {
+      final var value = document.path(field);
+      if (value.isTextual() && !value.textValue().isEmpty()) {
+        return value.textValue();
+      }
+    }
+    return "";
+  }
+}
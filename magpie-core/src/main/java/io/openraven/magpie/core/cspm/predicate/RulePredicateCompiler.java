@@ -0,0 +1,195 @@
+/*
+ * Copyright 2021 Open Raven Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.openraven.magpie.core.cspm.predicate;
+
+import com.fasterxml.jackson.core.JsonPointer;
+import com.fasterxml.jackson.databind.JsonNode;
+import io.openraven.magpie.core.cspm.model.Rule;
+import io.openraven.magpie.core.cspm.model.RuleCondition;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Compiles the condition tree of a predicate rule into a plain Java {@link Predicate} over asset documents (the JSON
+ * form of a Resource, as found in envelopes). Pointers, patterns and value sets are resolved once here, so evaluating
+ * the predicate does no parsing. A document for which the predicate returns true is a violation.
+ *
+ * Supported operators: exists, notExists, empty, notEmpty, equals, notEquals, in, notIn, contains, matches,
+ * greaterThan, greaterThanOrEqual, lessThan and lessThanOrEqual.
+ */
+public final class RulePredicateCompiler {
+
+  private RulePredicateCompiler() {
+  }
+
+  public static Predicate<JsonNode> compile(Rule rule) {
+    if (rule.getCondition() == null) {
+      throw new IllegalArgumentException("Predicate rule " + rule.getRefId() + " has no condition");
+    }
+    if (rule.getResourceTypes() == null || rule.getResourceTypes().isEmpty()) {
+      throw new IllegalArgumentException("Predicate rule " + rule.getRefId() + " has no resourceTypes");
+    }
+    try {
+      return compile(rule.getCondition());
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException("Invalid condition in rule " + rule.getRefId() + ": " + e.getMessage(), e);
+    }
+  }
+
+  public static Predicate<JsonNode> compile(RuleCondition condition) {
+    final int kinds = (condition.getOp() != null ? 1 : 0) + (condition.getAll() != null ? 1 : 0)
+      + (condition.getAny() != null ? 1 : 0) + (condition.getNot() != null ? 1 : 0);
+    if (kinds != 1) {
+      throw new IllegalArgumentException("a condition needs exactly one of op, all, any or not");
+    }
+
+    if (condition.getAll() != null) {
+      final var children = compileAll(condition.getAll());
+      return document -> children.stream().allMatch(child -> child.test(document));
+    }
+    if (condition.getAny() != null) {
+      final var children = compileAll(condition.getAny());
+      return document -> children.stream().anyMatch(child -> child.test(document));
+    }
+    if (condition.getNot() != null) {
+      return compile(condition.getNot()).negate();
+    }
+
+    if (condition.getPath() == null) {
+      throw new IllegalArgumentException("'" + condition.getOp() + "' needs a path");
+    }
+    final JsonPointer pointer;
+    try {
+      pointer = JsonPointer.compile(condition.getPath());
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException("'" + condition.getPath() + "' is not a JSON pointer", e);
+    }
+    final var test = compileOperator(condition.getOp(), condition.getValue());
+    return document -> test.test(document.at(pointer));
+  }
+
+  private static List<Predicate<JsonNode>> compileAll(List<RuleCondition> conditions) {
+    if (conditions.isEmpty()) {
+      throw new IllegalArgumentException("all/any needs at least one condition");
+    }
+    return conditions.stream().map(RulePredicateCompiler::compile).collect(Collectors.toList());
+  }
+
+  private static Predicate<JsonNode> compileOperator(String op, JsonNode value) {
+    switch (op.toLowerCase(Locale.ROOT)) {
+      case "exists":
+        return node -> !node.isMissingNode();
+      case "notexists":
+        return JsonNode::isMissingNode;
+      case "empty":
+        return RulePredicateCompiler::isEmpty;
+      case "notempty":
+        return node -> !isEmpty(node);
+      case "equals":
+        requireValue(op, value);
+        return node -> matches(node, value);
+      case "notequals":
+        requireValue(op, value);
+        return node -> !matches(node, value);
+      case "in": {
+        final var values = valueSet(op, value);
+        return node -> values.stream().anyMatch(candidate -> matches(node, candidate));
+      }
+      case "notin": {
+        final var values = valueSet(op, value);
+        return node -> values.stream().noneMatch(candidate -> matches(node, candidate));
+      }
+      case "contains":
+        requireValue(op, value);
+        return node -> {
+          if (node.isArray()) {
+            for (JsonNode element : node) {
+              if (matches(element, value)) {
+                return true;
+              }
+            }
+            return false;
+          }
+          return node.isTextual() && value.isTextual() && node.textValue().contains(value.textValue());
+        };
+      case "matches": {
+        requireValue(op, value);
+        final var pattern = Pattern.compile(value.asText());
+        return node -> node.isValueNode() && !node.isNull() && pattern.matcher(node.asText()).find();
+      }
+      case "greaterthan":
+        return ordered(op, value, cmp -> cmp > 0);
+      case "greaterthanorequal":
+        return ordered(op, value, cmp -> cmp >= 0);
+      case "lessthan":
+        return ordered(op, value, cmp -> cmp < 0);
+      case "lessthanorequal":
+        return ordered(op, value, cmp -> cmp <= 0);
+      default:
+        throw new IllegalArgumentException("unknown operator '" + op + "'");
+    }
+  }
+
+  private static Predicate<JsonNode> ordered(String op, JsonNode value, IntPredicate accept) {
+    requireValue(op, value);
+    if (!value.isNumber() && !value.isTextual()) {
+      throw new IllegalArgumentException("'" + op + "' needs a number or a string value");
+    }
+    return node -> {
+      if (value.isNumber() && node.isNumber()) {
+        return accept.test(node.decimalValue().compareTo(value.decimalValue()));
+      }
+      // Strings, e.g. ISO-8601 timestamps, compare lexicographically
+      return value.isTextual() && node.isTextual() && accept.test(node.textValue().compareTo(value.textValue()));
+    };
+  }
+
+  private static Set<JsonNode> valueSet(String op, JsonNode value) {
+    if (value == null || !value.isArray()) {
+      throw new IllegalArgumentException("'" + op + "' needs a list value");
+    }
+    final var values = new HashSet<JsonNode>();
+    value.forEach(values::add);
+    return values;
+  }
+
+  private static void requireValue(String op, JsonNode value) {
+    if (value == null) {
+      throw new IllegalArgumentException("'" + op + "' needs a value");
+    }
+  }
+
+  private static boolean isEmpty(JsonNode node) {
+    return node.isMissingNode() || node.isNull()
+      || (node.isTextual() && node.textValue().isEmpty())
+      || (node.isContainerNode() && node.size() == 0);
+  }
+
+  // JsonNode equality, except that numbers compare by value so that 1 and 1.0 are equal
+  private static boolean matches(JsonNode node, JsonNode expected) {
+    if (node.isNumber() && expected.isNumber()) {
+      return node.decimalValue().compareTo(expected.decimalValue()) == 0;
+    }
+    return node.equals(expected);
+  }
+}
@@ -0,0 +1,202 @@
+package io.openraven.magpie.core.cspm.services;
+
+import io.openraven.magpie.plugins.persist.AssetsRepo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.function.ObjIntConsumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Runs eval-free SQL rules that read the same table in a single scan of it. Rules of the plain form
+ * {@code SELECT <expr> AS assetid FROM <table> [alias] [WHERE <condition>]} are rewritten to one statement that reads
+ * the table once and evaluates every rule's condition against each row through a LATERAL subquery:
+ *
+ * <pre>
+ * SELECT magpie_rules.magpie_rule, magpie_rules.assetid FROM magpie.aws CROSS JOIN LATERAL (
+ *   SELECT 0 AS magpie_rule, (arn)::text AS assetid WHERE (resourcetype = 'AWS::S3::Bucket' AND ...)
+ *   UNION ALL
+ *   SELECT 1, (arn)::text WHERE (resourcetype = 'AWS::EC2::Instance' AND ...)
+ * ) AS magpie_rules
+ * </pre>
+ *
+ * Each row comes back once per rule it violates, tagged with the rule's position, and is streamed to the caller.
+ *
+ * Rule SQL is free-form, so only this plain form is recognized: anything with joins, subqueries, grouping, ordering,
+ * set operations, DISTINCT or function calls in the select list runs on its own as before. If the combined statement
+ * fails for any reason the group is dropped and its rules run one by one.
+ */
+final class CombinedRuleQuery {
+  private static final Logger LOGGER = LoggerFactory.getLogger(CombinedRuleQuery.class);
+
+  private static final String RULE_COLUMN = "magpie_rule";
+  private static final String RULES_ALIAS = "magpie_rules";
+
+  private static final Pattern COMMENT = Pattern.compile("--[^\\n]*|/\\*.*?\\*/", Pattern.DOTALL);
+  private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+  private static final Pattern PLAIN_RULE = Pattern.compile(
+    "(?is)select\\s+(?<select>.+?)\\s+from\\s+(?<table>(?:\"?\\w+\"?\\.)?\"?\\w+\"?)" +
+      "(?:\\s+(?:as\\s+)?(?!where\\b)(?<alias>\\w+))?(?:\\s+where\\s+(?<where>.+))?");
+  private static final Pattern UNSUPPORTED = Pattern.compile("(?i)\\b(?:distinct|join|group\\s+by|having|order\\s+by|" +
+    "limit|offset|fetch|window|union|except|intersect|with|lateral|only|tablesample|for|into|returning)\\b|[$\\\\;]");
+  private static final Pattern SELECT = Pattern.compile("(?i)\\bselect\\b");
+  private static final Pattern FROM = Pattern.compile("(?i)\\bfrom\\b");
+  private static final Pattern ASSET_ID_ITEM = Pattern.compile("(?is)\\s*(?:(?<expr>.+?)\\s+as\\s+assetid|(?<column>(?:\\w+\\.)?assetid))\\s*");
+
+  private CombinedRuleQuery() {
+  }
+
+  /**
+   * A rule query of the plain form, split into the table it scans and the parts evaluated per row.
+   */
+  static final class PlainRule {
+    private final String table;
+    private final String alias;
+    private final String assetId;
+    private final String condition;
+
+    private PlainRule(String table, String alias, String assetId, String condition) {
+      this.table = table;
+      this.alias = alias;
+      this.assetId = assetId;
+      this.condition = condition;
+    }
+
+    // Rules only share a scan if their column references resolve the same way
+    String scanKey() {
+      return (table + " " + Optional.ofNullable(alias).orElse("")).toLowerCase(Locale.ROOT);
+    }
+  }
+
+  /**
+   * @return the rule query split into its parts, or empty if it is not of the plain form
+   */
+  static Optional<PlainRule> parse(String sql) {
+    var text = COMMENT.matcher(sql).replaceAll(" ").strip();
+    if (text.endsWith(";")) {
+      text = text.substring(0, text.length() - 1).strip();
+    }
+    // String contents are blanked (keeping every index) so keywords inside literals are never matched
+    final var structure = blankLiterals(text);
+    if (UNSUPPORTED.matcher(structure).find() || count(SELECT, structure) != 1 || count(FROM, structure) != 1) {
+      return Optional.empty();
+    }
+
+    final var matcher = PLAIN_RULE.matcher(structure);
+    if (!matcher.matches() || structure.substring(matcher.start("select"), matcher.end("select")).contains("(")) {
+      return Optional.empty();
+    }
+
+    String assetId = null;
+    int itemStart = matcher.start("select");
+    for (String item : structure.substring(matcher.start("select"), matcher.end("select")).split(",", -1)) {
+      final var itemMatcher = ASSET_ID_ITEM.matcher(item);
+      if (itemMatcher.matches()) {
+        if (assetId != null) {
+          return Optional.empty();
+        }
+        final var group = itemMatcher.group("expr") != null ? "expr" : "column";
+        assetId = text.substring(itemStart + itemMatcher.start(group), itemStart + itemMatcher.end(group));
+      }
+      itemStart += item.length() + 1;
+    }
+    if (assetId == null) {
+      return Optional.empty();
+    }
+
+    return Optional.of(new PlainRule(
+      text.substring(matcher.start("table"), matcher.end("table")),
+      matcher.group("alias"),
+      assetId,
+      matcher.group("where") == null ? null : text.substring(matcher.start("where"), matcher.end("where"))));
+  }
+
+  /**
+   * Groups rule queries of the plain form by the table they scan and returns the distinct queries of each group. A
+   * query that shares its table with no other query gains nothing from being combined and is left out, unless several
+   * rules use it (e.g. one rule in several policies), in which case it still runs only once.
+   */
+  static Collection<List<String>> group(List<String> sqls) {
+    final var groups = new LinkedHashMap<String, List<String>>();
+    sqls.forEach(sql -> parse(sql).ifPresent(rule -> groups.computeIfAbsent(rule.scanKey(), k -> new ArrayList<>()).add(sql)));
+    return groups.values().stream()
+      .filter(group -> group.size() > 1)
+      .map(group -> List.copyOf(new LinkedHashSet<>(group)))
+      .collect(Collectors.toList());
+  }
+
+  /**
+   * @param sqls rule queries of the plain form that scan the same table, see {@link #group(List)}
+   */
+  static String combine(List<String> sqls) {
+    final var rules = sqls.stream()
+      .map(sql -> parse(sql).orElseThrow(() -> new IllegalArgumentException("Not a plain rule query: " + sql)))
+      .collect(Collectors.toList());
+
+    final var first = rules.get(0);
+    final var combined = new StringBuilder("SELECT ").append(RULES_ALIAS).append('.').append(RULE_COLUMN)
+      .append(", ").append(RULES_ALIAS).append(".assetid FROM ").append(first.table);
+    if (first.alias != null) {
+      combined.append(" AS ").append(first.alias);
+    }
+    combined.append(" CROSS JOIN LATERAL (");
+    for (int i = 0; i < rules.size(); i++) {
+      final var rule = rules.get(i);
+      if (!rule.scanKey().equals(first.scanKey())) {
+        throw new IllegalArgumentException("Rule queries scan different tables: " + first.scanKey() + ", " + rule.scanKey());
+      }
+      combined.append(i == 0 ? "\n  " : "\n  UNION ALL\n  ").append("SELECT ").append(i);
+      combined.append(i == 0 ? " AS " + RULE_COLUMN : "").append(", (").append(rule.assetId).append(")::text");
+      combined.append(i == 0 ? " AS assetid" : "");
+      if (rule.condition != null) {
+        combined.append(" WHERE (").append(rule.condition).append(')');
+      }
+    }
+    return combined.append("\n) AS ").append(RULES_ALIAS).toString();
+  }
+
+  /**
+   * Streams the rows of the combined statement to the consumer as asset id and the index of the rule query in sqls.
+   *
+   * @return false if the statement failed, in which case rows already passed on are incomplete and must be discarded
+   */
+  static boolean run(AssetsRepo assetsRepo, List<String> sqls, ObjIntConsumer<Object> onRow) {
+    try {
+      assetsRepo.queryNative(combine(sqls), row -> onRow.accept(row.get("assetid"), ((Number) row.get(RULE_COLUMN)).intValue()));
+      return true;
+    } catch (RuntimeException e) {
+      LOGGER.warn("Combined query over {} rules failed, running them individually: {}", sqls.size(), e.getMessage());
+      LOGGER.debug("Details", e);
+      return false;
+    }
+  }
+
+  private static String blankLiterals(String text) {
+    final var blanked = new StringBuilder(text);
+    final Matcher literal = STRING_LITERAL.matcher(text);
+    while (literal.find()) {
+      for (int i = literal.start() + 1; i < literal.end() - 1; i++) {
+        blanked.setCharAt(i, ' ');
+      }
+    }
+    return blanked.toString();
+  }
+
+  private static int count(Pattern pattern, String text) {
+    final var matcher = pattern.matcher(text);
+    int count = 0;
+    while (matcher.find()) {
+      count++;
+    }
+    return count;
+  }
+}
@@ -16,9 +16,11 @@
 package io.openraven.magpie.core.cspm.services;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import io.openraven.magpie.api.MagpiePlugin;
 import io.openraven.magpie.api.PolicyOutputPlugin;
+import io.openraven.magpie.api.StreamingPolicyOutputPlugin;
 import io.openraven.magpie.core.config.MagpieConfig;
 import io.openraven.magpie.core.cspm.analysis.ScanMetadata;
 import io.openraven.magpie.core.cspm.analysis.ScanResults;
@@ -60,11 +62,20 @@ public class CspmFacadeImpl implements CspmFacade {
 
       List<MagpiePlugin<?>> outputPlugins = policyPluginManager.byType(PolicyOutputPlugin.class);
 
-      // invoke output plugins
-      outputPlugins.forEach(outputPlugin -> {
+      // invoke output plugins; streaming ones get the results piece by piece, the rest as a single tree
+      final var publisher = new ScanResultsPublisher(mapper, scanResults);
+      ObjectNode resultsTree = null;
+      for (MagpiePlugin<?> outputPlugin : outputPlugins) {
         LOGGER.debug("Executing output plugin : {}", outputPlugin.getClass());
-        ((PolicyOutputPlugin<?>) outputPlugin).generateReport(mapper.valueToTree(scanResults));
-      });
+        if (outputPlugin instanceof StreamingPolicyOutputPlugin) {
+          publisher.publish((StreamingPolicyOutputPlugin<?>) outputPlugin);
+        } else {
+          if (resultsTree == null) {
+            resultsTree = mapper.valueToTree(scanResults);
+          }
+          ((PolicyOutputPlugin<?>) outputPlugin).generateReport(resultsTree);
+        }
+      }
       // release all resources
       outputPlugins.forEach(MagpiePlugin::shutdown);
 
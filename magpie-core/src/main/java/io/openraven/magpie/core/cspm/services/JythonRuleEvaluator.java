@@ -0,0 +1,124 @@
+package io.openraven.magpie.core.cspm.services;
+
+import io.openraven.magpie.core.cspm.model.Rule;
+import org.python.core.Py;
+import org.python.core.PyCode;
+import org.python.core.PyDictionary;
+import org.python.core.PyList;
+import org.python.core.PyObject;
+import org.python.core.PyString;
+import org.python.core.PyStringMap;
+import org.python.util.PythonInterpreter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Runs rule eval blocks. Each block is compiled once per rule id and version and the resulting PyCode is shared by
+ * every thread; interpreters are borrowed from a pool bounded by the number of analysis workers. Every evaluation
+ * gets a fresh namespace, so definitions from one rule never leak into another.
+ *
+ * The result set is passed to Python as the Java list itself (Jython proxies List and Map access), and the returned
+ * Python dictionaries are handed back as-is, since PyDictionary already implements Map.
+ */
+class JythonRuleEvaluator implements AutoCloseable {
+  private static final Logger LOGGER = LoggerFactory.getLogger(JythonRuleEvaluator.class);
+
+  private final Map<String, CompiledEval> compiledEvals = new ConcurrentHashMap<>();
+  private final BlockingQueue<PythonInterpreter> interpreters;
+
+  JythonRuleEvaluator(int poolSize) {
+    this.interpreters = new ArrayBlockingQueue<>(Math.max(1, poolSize));
+  }
+
+  @SuppressWarnings("unchecked")
+  List<Map<String, Object>> evaluate(Rule rule, Object resultSet) {
+    final var interpreter = borrow();
+    try {
+      final var namespace = new PyStringMap();
+      namespace.__setitem__("__name__", new PyString("__main__"));
+      interpreter.setLocals(namespace);
+
+      // Define evaluate method
+      interpreter.exec(compile(interpreter, rule));
+      final PyObject evaluate = interpreter.get("evaluate");
+      if (evaluate == null) {
+        throw new IllegalStateException("Eval block does not define evaluate(resultset)");
+      }
+
+      final var v = evaluate.__call__(Py.java2py(resultSet));
+      if (!(v instanceof PyList)) {
+        throw new RuntimeException("Eval block returned an illegal value. Expected a Python list but found " + v.getClass().getName());
+      }
+
+      final var results = new ArrayList<Map<String, Object>>(((PyList) v).size());
+      for (PyObject item : ((PyList) v).getArray()) {
+        if (item instanceof PyDictionary) {
+          results.add((Map<String, Object>) (Map<?, ?>) item);
+        } else {
+          LOGGER.warn("{} returned an invalid value, found {} but expected a dictionary", rule.getName(), item.getClass().getName());
+        }
+      }
+      return results;
+    } finally {
+      giveBack(interpreter);
+    }
+  }
+
+  PyCode compile(PythonInterpreter interpreter, Rule rule) {
+    final var key = (rule.getId() == null ? rule.getRefId() : rule.getId().toString()) + ":" + rule.getVersion();
+    final var source = rule.getEval();
+
+    // A locally edited rule can keep its id and version, so the source is checked as well
+    final var compiled = compiledEvals.get(key);
+    if (compiled != null && compiled.source.equals(source)) {
+      return compiled.code;
+    }
+    final var code = interpreter.compile(source, "<eval:" + Objects.toString(rule.getName(), key) + ">");
+    compiledEvals.put(key, new CompiledEval(source, code));
+    return code;
+  }
+
+  private PythonInterpreter borrow() {
+    final var interpreter = interpreters.poll();
+    if (interpreter != null) {
+      return interpreter;
+    }
+    final var created = new PythonInterpreter();
+    created.setOut(Writer.nullWriter());
+    return created;
+  }
+
+  private void giveBack(PythonInterpreter interpreter) {
+    interpreter.setLocals(new PyStringMap());
+    if (!interpreters.offer(interpreter)) {
+      interpreter.close();
+    }
+  }
+
+  @Override
+  public void close() {
+    PythonInterpreter interpreter;
+    while ((interpreter = interpreters.poll()) != null) {
+      interpreter.close();
+    }
+  }
+
+  private static class CompiledEval {
+    private final String source;
+    private final PyCode code;
+
+    private CompiledEval(String source, PyCode code) {
+      this.source = source;
+      this.code = code;
+    }
+  }
+}
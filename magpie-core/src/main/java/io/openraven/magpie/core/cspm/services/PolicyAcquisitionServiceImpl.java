@@ -9,6 +9,7 @@ import io.openraven.magpie.core.cspm.model.PolicyContext;
 import io.openraven.magpie.core.cspm.model.PolicyMetadata;
 import io.openraven.magpie.core.cspm.model.Rule;
 import io.openraven.magpie.core.cspm.model.Policy;
+import io.openraven.magpie.core.cspm.predicate.RulePredicateCompiler;
 import io.openraven.magpie.core.plugins.PluginManager;
 import io.openraven.magpie.plugins.persist.PersistConfig;
 import org.apache.commons.io.FileUtils;
@@ -19,9 +20,21 @@ import org.slf4j.LoggerFactory;
 import java.io.File;
 import java.io.IOException;
 import java.nio.charset.Charset;
+import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 
 public class PolicyAcquisitionServiceImpl implements PolicyAcquisitionService {
 
@@ -29,6 +42,12 @@ public class PolicyAcquisitionServiceImpl implements PolicyAcquisitionService {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(PolicyAcquisitionServiceImpl.class);
   private static final ObjectMapper YAML_MAPPER = new ObjectMapper(new YAMLFactory());
+  private static final int MAX_SYNC_THREADS = 8;
+
+  // Parsed rules keyed by file name, schema and a hash of the file's content, shared by every load in this JVM.
+  // Loaded rules are never modified afterwards, so policies referencing the same file share one instance.
+  private static final Map<String, Rule> PARSED_RULES = new ConcurrentHashMap<>();
+
   private PolicyConfig policyConfig;
   private MagpieConfig config;
 
@@ -37,16 +56,46 @@ public class PolicyAcquisitionServiceImpl implements PolicyAcquisitionService {
     policyConfig = config.getPolicies();
     this.config = config;
 
-    policyConfig.getRepositories()
+    final var repositories = policyConfig.getRepositories()
       .stream()
       .map(repository -> repository.replace("~", System.getProperty("user.home")))
-      .forEach(repository -> {
-        if (isGitRepository(repository)) {
-          getGitRepository(repository);
-        } else {
-          copyLocalRepository(repository);
-        }
-      });
+      .distinct()
+      .collect(Collectors.toList());
+    if (repositories.size() <= 1) {
+      repositories.forEach(this::syncRepository);
+      return;
+    }
+
+    // Repositories are independent and syncing them is mostly waiting on git or the disk
+    final var threadCount = new AtomicInteger();
+    final var executor = Executors.newFixedThreadPool(Math.min(repositories.size(), MAX_SYNC_THREADS), r -> {
+      Thread t = Executors.defaultThreadFactory().newThread(r);
+      t.setName("policy-sync-" + threadCount.incrementAndGet());
+      t.setDaemon(true);
+      return t;
+    });
+    try {
+      final var futures = new ArrayList<Future<?>>();
+      repositories.forEach(repository -> futures.add(executor.submit(() -> syncRepository(repository))));
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Policy repository sync was interrupted", e);
+    } catch (ExecutionException e) {
+      LOGGER.error("Unable to sync policy repository", e.getCause());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private void syncRepository(String repository) {
+    if (isGitRepository(repository)) {
+      getGitRepository(repository);
+    } else {
+      copyLocalRepository(repository);
+    }
   }
 
   @Override
@@ -76,34 +125,67 @@ public class PolicyAcquisitionServiceImpl implements PolicyAcquisitionService {
     return policyContexts;
   }
 
-  private List<Rule> loadRules(String rulesDirectory, List<String> ruleFileNames) throws JsonProcessingException {
+  private List<Rule> loadRules(String rulesDirectory, List<String> ruleFileNames, String schema) {
     List<Rule> rules = new ArrayList<>();
-    final var persistConfig = config.getPlugins().get("magpie.persist");
-    final var conf = (PersistConfig)PluginManager.buildPluginConfig("PolicyService",PersistConfig.class, persistConfig.getConfig());
-    final var schema = conf.getSchema();
 
     for (String ruleFileName : ruleFileNames) {
       try {
         File ruleFile = new File(rulesDirectory + "/" + ruleFileName);
-        Rule yamlRule = YAML_MAPPER.readValue(ruleFile, Rule.class);
-
-        // Loading post-processing.  Update the file name and modify the sql to replace the SQL schema placeholder
-        yamlRule.setFileName(ruleFileName);
-        if (yamlRule.getSql()!= null) {
-          yamlRule.setSql(yamlRule.getSql().replaceAll(SQL_SCHEMA_TOKEN, schema));
+        final byte[] content = Files.readAllBytes(ruleFile.toPath());
+        final var key = ruleFileName + '\u0000' + schema + '\u0000' + sha256(content);
+
+        var yamlRule = PARSED_RULES.get(key);
+        if (yamlRule == null) {
+          yamlRule = parseRule(content, ruleFileName, schema);
+          PARSED_RULES.put(key, yamlRule);
+          LOGGER.info("Successfully loaded rule {}", yamlRule.getId());
+        } else {
+          LOGGER.debug("Rule {} is unchanged, reusing it", yamlRule.getId());
         }
 
-
         rules.add(yamlRule);
-        LOGGER.info("Successfully loaded rule {}", yamlRule.getId());
       } catch (IOException yamlIOException) {
         LOGGER.error(yamlIOException.getMessage());
+      } catch (IllegalArgumentException invalidRule) {
+        LOGGER.error("Skipping rule {}: {}", ruleFileName, invalidRule.getMessage());
       }
     }
 
     return rules;
   }
 
+  private Rule parseRule(byte[] content, String ruleFileName, String schema) throws IOException {
+    Rule yamlRule = YAML_MAPPER.readValue(content, Rule.class);
+
+    // Loading post-processing.  Update the file name and modify the sql to replace the SQL schema placeholder
+    yamlRule.setFileName(ruleFileName);
+    if (yamlRule.getSql()!= null) {
+      yamlRule.setSql(yamlRule.getSql().replaceAll(SQL_SCHEMA_TOKEN, schema));
+    }
+    if (yamlRule.isPredicateRule()) {
+      yamlRule.setPredicate(RulePredicateCompiler.compile(yamlRule));
+    }
+    return yamlRule;
+  }
+
+  private String schema() throws JsonProcessingException {
+    final var persistConfig = config.getPlugins().get("magpie.persist");
+    final var conf = (PersistConfig)PluginManager.buildPluginConfig("PolicyService",PersistConfig.class, persistConfig.getConfig());
+    return conf.getSchema();
+  }
+
+  private static String sha256(byte[] content) {
+    try {
+      final var hex = new StringBuilder();
+      for (byte b : MessageDigest.getInstance("SHA-256").digest(content)) {
+        hex.append(String.format("%02x", b));
+      }
+      return hex.toString();
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("SHA-256 is not available", e);
+    }
+  }
+
   private ArrayList<PolicyContext> loadPoliciesFromRepository(String repositoryPath) throws JsonProcessingException {
     File policiesDirectory = new File(repositoryPath + "/resources/policies");
     File rulesDirectory = new File(repositoryPath + "/resources/rules");
@@ -111,13 +193,14 @@ public class PolicyAcquisitionServiceImpl implements PolicyAcquisitionService {
     var policiesContexts = new ArrayList<PolicyContext>();
 
     if (policiesDirectory.exists() && rulesDirectory.exists()) {
+      final var schema = schema();
       for (File policyFile : Objects.requireNonNull(policiesDirectory.listFiles())) {
         var policy = loadPolicy(policyFile);
 
         if (policy != null) {
           var policyRulesFiles = new ArrayList<>(policy.getRuleIds());
 
-          policy.setRules(loadRules(rulesDirectory.toString(), policyRulesFiles));
+          policy.setRules(loadRules(rulesDirectory.toString(), policyRulesFiles, schema));
 
           var policyMetadata = new PolicyMetadata(policyFile.getPath(), getRepoHashOrLocalRepositoryString(repositoryPath));
           policiesContexts.add(new PolicyContext(policyMetadata, policy));
@@ -163,30 +246,96 @@ public class PolicyAcquisitionServiceImpl implements PolicyAcquisitionService {
       .replace(System.lineSeparator(), "");
   }
 
+  /**
+   * Only the latest commit and the resources directory are fetched.  The checkout is a cache owned by Magpie, so an
+   * existing one is reset to the fetched commit rather than merged.
+   */
   private void getGitRepository(String repository) {
     Path targetPath = getTargetProjectDirectoryPath(repository);
 
     if (Files.exists(targetPath)) {
-      executeShellCommand(Arrays.asList("git", "pull"), targetPath.toString());
+      executeShellCommand(Arrays.asList("git", "fetch", "--depth", "1", "origin", "HEAD"), targetPath.toString());
+      executeShellCommand(Arrays.asList("git", "reset", "--hard", "FETCH_HEAD"), targetPath.toString());
     } else {
-      executeShellCommand(Arrays.asList("git", "clone", repository, targetPath.toString()), null);
+      executeShellCommand(Arrays.asList("git", "clone", "--depth", "1", "--filter=blob:none", "--sparse", repository, targetPath.toString()), null);
+      if (Files.exists(targetPath.resolve(".git"))) {
+        executeShellCommand(Arrays.asList("git", "sparse-checkout", "set", "resources"), targetPath.toString());
+      } else {
+        // Older git clients or servers without partial clone support
+        executeShellCommand(Arrays.asList("git", "clone", "--depth", "1", repository, targetPath.toString()), null);
+      }
     }
   }
 
   private void copyLocalRepository(String repository) {
     try {
-      File sourceDirectory = new File(repository);
-      File destinationDirectory = getTargetProjectDirectoryPath(repository).toFile();
+      Path sourceDirectory = Path.of(repository);
+      Path destinationDirectory = getTargetProjectDirectoryPath(repository);
 
-      FileUtils.deleteDirectory(destinationDirectory);
-      FileUtils.copyDirectory(sourceDirectory, destinationDirectory);
+      final int copied = syncDirectory(sourceDirectory, destinationDirectory);
 
-      LOGGER.info("Successfully copied {} to {}", sourceDirectory, destinationDirectory);
+      LOGGER.info("Successfully synced {} to {}, {} files copied", sourceDirectory, destinationDirectory, copied);
     } catch (IOException e) {
       LOGGER.error(e.getMessage());
     }
   }
 
+  /**
+   * Makes the target a copy of the source, copying only files whose size or modification time differ and removing
+   * files the source no longer has.
+   *
+   * @return the number of files copied
+   */
+  static int syncDirectory(Path source, Path target) throws IOException {
+    final var copied = new AtomicInteger();
+    Files.walkFileTree(source, new SimpleFileVisitor<>() {
+      @Override
+      public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+        final var targetDir = target.resolve(source.relativize(dir).toString());
+        if (!Files.isDirectory(targetDir)) {
+          FileUtils.deleteQuietly(targetDir.toFile());
+          Files.createDirectories(targetDir);
+        }
+        return FileVisitResult.CONTINUE;
+      }
+
+      @Override
+      public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+        final var targetFile = target.resolve(source.relativize(file).toString());
+        if (Files.isDirectory(targetFile)) {
+          FileUtils.deleteDirectory(targetFile.toFile());
+        }
+        if (!Files.exists(targetFile)
+          || Files.size(targetFile) != attrs.size()
+          || !Files.getLastModifiedTime(targetFile).equals(attrs.lastModifiedTime())) {
+          Files.copy(file, targetFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.COPY_ATTRIBUTES);
+          copied.incrementAndGet();
+        }
+        return FileVisitResult.CONTINUE;
+      }
+    });
+
+    Files.walkFileTree(target, new SimpleFileVisitor<>() {
+      @Override
+      public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+        if (!Files.exists(source.resolve(target.relativize(dir).toString()))) {
+          FileUtils.deleteDirectory(dir.toFile());
+          return FileVisitResult.SKIP_SUBTREE;
+        }
+        return FileVisitResult.CONTINUE;
+      }
+
+      @Override
+      public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+        if (!Files.exists(source.resolve(target.relativize(file).toString()))) {
+          Files.delete(file);
+        }
+        return FileVisitResult.CONTINUE;
+      }
+    });
+    return copied.get();
+  }
+
   private String executeShellCommand(List<String> command, String directory) {
     LOGGER.info("Running {}", String.join(" ", command));
     try {
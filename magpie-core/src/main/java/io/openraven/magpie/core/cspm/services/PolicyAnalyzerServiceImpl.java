@@ -1,6 +1,7 @@
 package io.openraven.magpie.core.cspm.services;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import io.openraven.magpie.core.config.ConfigException;
 import io.openraven.magpie.core.config.MagpieConfig;
@@ -10,28 +11,46 @@ import io.openraven.magpie.core.cspm.analysis.Violation;
 import io.openraven.magpie.core.cspm.model.Policy;
 import io.openraven.magpie.core.cspm.model.PolicyContext;
 import io.openraven.magpie.core.cspm.model.Rule;
+import io.openraven.magpie.core.cspm.predicate.AssetDocuments;
+import io.openraven.magpie.core.cspm.predicate.RulePredicateCompiler;
+import io.openraven.magpie.data.utils.JacksonMapper;
+import io.openraven.magpie.plugins.persist.AssetWatermark;
 import io.openraven.magpie.plugins.persist.AssetsRepo;
 import io.openraven.magpie.plugins.persist.PersistConfig;
 import io.openraven.magpie.plugins.persist.PersistPlugin;
 import io.openraven.magpie.plugins.persist.impl.HibernateAssetsRepoImpl;
-import org.python.core.PyDictionary;
-import org.python.core.PyList;
 import org.python.google.common.base.Strings;
-import org.python.util.PythonInterpreter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
 import java.io.StringWriter;
-import java.math.BigInteger;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 
 import static io.openraven.magpie.core.cspm.analysis.IgnoredRule.IgnoredReason.*;
 
 public class PolicyAnalyzerServiceImpl implements PolicyAnalyzerService {
   private static final Logger LOGGER = LoggerFactory.getLogger(PolicyAnalyzerServiceImpl.class);
   private static final ObjectMapper MAPPER = new ObjectMapper();
+  private static final ObjectMapper RESOURCE_MAPPER = JacksonMapper.getJacksonMapper();
   private AssetsRepo assetsRepo;
+  private PersistConfig persistConfig;
+  private int workers = 1;
+  private boolean combineRules = true;
+  private RuleEvaluationStore evaluationStore;
+  private JythonRuleEvaluator ruleEvaluator = new JythonRuleEvaluator(1);
+  // Rule SQL -> resource types it filters on; parsed once per distinct query
+  private final Map<String, List<String>> referencedResourceTypes = new ConcurrentHashMap<>();
+  // Rule SQL -> resource types it can read, empty when they cannot be determined; see RuleInputs
+  private final Map<String, List<String>> readResourceTypes = new ConcurrentHashMap<>();
 
   @Override
   public void init(MagpieConfig config) {
@@ -41,11 +60,23 @@ public class PolicyAnalyzerServiceImpl implements PolicyAnalyzerService {
     }
 
     try {
-      final PersistConfig persistConfig = MAPPER.treeToValue(MAPPER.valueToTree(rawPersistConfig.getConfig()), PersistConfig.class);
+      persistConfig = MAPPER.treeToValue(MAPPER.valueToTree(rawPersistConfig.getConfig()), PersistConfig.class);
       assetsRepo = new HibernateAssetsRepoImpl(persistConfig);
     } catch (JsonProcessingException e) {
       throw new ConfigException("Cannot instantiate PersistConfig while initializing PolicyAnalyzerService", e);
     }
+
+    final var policyConfig = config.getPolicies();
+    workers = policyConfig == null ? 1 : policyConfig.getAnalysisWorkers();
+    combineRules = policyConfig == null || policyConfig.isCombineRules();
+    evaluationStore = policyConfig != null && policyConfig.isIncremental() ? new RuleEvaluationStore(persistConfig) : null;
+    if (workers > persistConfig.getConnectionPoolSize()) {
+      LOGGER.warn("analysisWorkers ({}) exceeds the persistence connectionPoolSize ({}), limiting workers to the pool size",
+        workers, persistConfig.getConnectionPoolSize());
+      workers = persistConfig.getConnectionPoolSize();
+    }
+    ruleEvaluator.close();
+    ruleEvaluator = new JythonRuleEvaluator(workers);
   }
 
   @Override
@@ -54,41 +85,181 @@ public class PolicyAnalyzerServiceImpl implements PolicyAnalyzerService {
     List<IgnoredRule> ignoredRules = new ArrayList<>();
     List<Policy> policies = new ArrayList<>();
 
-    policyContexts.forEach(policyContext -> {
-      final var policy = policyContext.getPolicy();
-      processPolicy(policy, violations, ignoredRules);
-      policies.add(policy);
-    });
+    policyContexts.forEach(policyContext -> policies.add(policyContext.getPolicy()));
+
+    // One grouped count up front answers every provider and missing-asset check for the run
+    final AnalysisRun run;
+    if (evaluationStore != null) {
+      evaluationStore.load();
+      run = new AnalysisRun(assetsRepo.getAssetWatermarks(), evaluationStore);
+    } else {
+      run = new AnalysisRun(assetsRepo.getAssetCounts());
+    }
+    final var analyzable = policies.stream()
+      .filter(policy -> shouldAnalyze(policy, run.assetCounts))
+      .collect(Collectors.toList());
+    final var combinable = combineRules ? combinableRules(analyzable, run) : Map.<String, List<RuleKey>>of();
+    final var ruleGroups = CombinedRuleQuery.group(combinable.entrySet().stream()
+      .flatMap(entry -> entry.getValue().stream().map(rule -> entry.getKey()))
+      .collect(Collectors.toList()));
+
+    if (workers > 1) {
+      analyzeInParallel(analyzable, run, ruleGroups, combinable, violations, ignoredRules);
+    } else {
+      ruleGroups.forEach(group -> runCombined(assetsRepo, run, group, combinable));
+      analyzable.forEach(policy -> policy.getRules().forEach(rule ->
+        executeRule(assetsRepo, run, violations, ignoredRules, policy, rule)));
+    }
+
+    if (evaluationStore != null) {
+      evaluationStore.flush();
+    }
     return new ScanResults(policies, violations, ignoredRules);
   }
 
-  private void processPolicy(Policy policy,
-                             List<Violation> policyViolations,
-                             List<IgnoredRule> policyIgnoredRules) {
+  /**
+   * Collects the rules that would run plain SQL (enabled, no eval block, assets present, no reusable earlier result)
+   * by their query, see {@link CombinedRuleQuery}.
+   */
+  private Map<String, List<RuleKey>> combinableRules(List<Policy> policies, AnalysisRun run) {
+    final var rulesBySql = new LinkedHashMap<String, List<RuleKey>>();
+    policies.forEach(policy -> policy.getRules().stream()
+      .filter(rule -> rule.isEnabled() && !rule.isManualControl() && !rule.isPredicateRule())
+      .filter(rule -> rule.getSql() != null && Optional.ofNullable(rule.getEval()).orElse("").isEmpty())
+      .filter(rule -> checkForMissingAssets(run.assetCounts, rule.getSql()).isEmpty())
+      .filter(rule -> !canReuse(run, policy, rule))
+      .forEach(rule -> {
+        final var rules = rulesBySql.computeIfAbsent(rule.getSql(), k -> new ArrayList<>());
+        // A rule listed twice in one policy takes the combined result once and runs on its own the second time
+        if (!rules.contains(new RuleKey(policy, rule))) {
+          rules.add(new RuleKey(policy, rule));
+        }
+      }));
+    return rulesBySql;
+  }
+
+  /**
+   * Runs one group of rule queries as a single scan, turning each row straight into a violation of every rule using
+   * that query. The violations are only handed to the rules once the whole statement succeeded.
+   */
+  private void runCombined(AssetsRepo assetsRepo, AnalysisRun run, List<String> group, Map<String, List<RuleKey>> rulesBySql) {
+    final var evaluatedAt = LocalDateTime.now();
+    final var collected = new HashMap<RuleKey, List<Violation>>();
+    final var rulesByIndex = group.stream().map(rulesBySql::get).collect(Collectors.toList());
+    rulesByIndex.forEach(rules -> rules.forEach(key -> collected.put(key, new ArrayList<>())));
+
+    final boolean succeeded = CombinedRuleQuery.run(assetsRepo, group, (assetId, index) ->
+      rulesByIndex.get(index).forEach(key -> collected.get(key).add(
+        createViolation(key.policy, key.rule, Collections.singletonMap("assetid", assetId), "", evaluatedAt))));
+    if (succeeded) {
+      run.combinedViolations.putAll(collected);
+    }
+  }
+
+  /**
+   * Fans the rules of every analyzable policy out to a fixed pool of workers. Each worker thread owns its own
+   * EntityManager (and so its own pooled connection), and each rule collects into its own lists which are joined in
+   * submission order, so the results are identical to a serial run. Combined rule groups run first, on the same pool.
+   */
+  private void analyzeInParallel(List<Policy> policies,
+                                 AnalysisRun run,
+                                 Collection<List<String>> ruleGroups,
+                                 Map<String, List<RuleKey>> combinable,
+                                 List<Violation> violations,
+                                 List<IgnoredRule> ignoredRules) {
+    final var workerRepos = new ConcurrentLinkedQueue<HibernateAssetsRepoImpl>();
+    final var workerRepo = ThreadLocal.withInitial(() -> {
+      final var repo = new HibernateAssetsRepoImpl(persistConfig);
+      workerRepos.add(repo);
+      return repo;
+    });
+
+    final var threadCount = new AtomicInteger();
+    final var executor = Executors.newFixedThreadPool(workers, r -> {
+      Thread t = Executors.defaultThreadFactory().newThread(r);
+      t.setName("policy-analyzer-" + threadCount.incrementAndGet());
+      t.setDaemon(true);
+      return t;
+    });
+
+    try {
+      final var groupFutures = new ArrayList<Future<?>>();
+      ruleGroups.forEach(group -> groupFutures.add(executor.submit(() -> runCombined(workerRepo.get(), run, group, combinable))));
+      for (Future<?> future : groupFutures) {
+        future.get();
+      }
+
+      final var futures = new ArrayList<Future<RuleOutcome>>();
+      policies.forEach(policy ->
+        policy.getRules().forEach(rule -> futures.add(executor.submit(() -> {
+          final var outcome = new RuleOutcome();
+          executeRule(workerRepo.get(), run, outcome.violations, outcome.ignoredRules, policy, rule);
+          return outcome;
+        }))));
+
+      for (Future<RuleOutcome> future : futures) {
+        final var outcome = future.get();
+        violations.addAll(outcome.violations);
+        ignoredRules.addAll(outcome.ignoredRules);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Policy analysis was interrupted", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new IllegalStateException("Rule evaluation failed", e.getCause());
+    } finally {
+      executor.shutdownNow();
+      workerRepos.forEach(repo -> {
+        try {
+          repo.close();
+        } catch (IOException e) {
+          LOGGER.debug("Unable to close worker repository", e);
+        }
+      });
+    }
+  }
+
+  private boolean shouldAnalyze(Policy policy, Map<String, Long> assetCounts) {
     if (!policy.isEnabled()) { // Not enabled
       LOGGER.info("Policy '{}' disabled", policy.getName());
-      return;
+      return false;
     }
 
-    if (!cloudProviderAssetsAvailable(policy)) { // No cloud related assets
+    if (!cloudProviderAssetsAvailable(policy, assetCounts)) { // No cloud related assets
       LOGGER.warn("No assets found for cloudProvider: {}, policy: {}", policy.getCloudProvider(), policy.getName());
-      return;
+      return false;
     }
 
     LOGGER.info("Analyzing policy - {}", policy.getName());
-    policy.getRules().forEach(rule -> executeRule(policyViolations, policyIgnoredRules, policy, rule));
+    return true;
   }
 
-  private boolean cloudProviderAssetsAvailable(Policy policy) {
+  private boolean cloudProviderAssetsAvailable(Policy policy, Map<String, Long> assetCounts) {
     var provider = Strings.isNullOrEmpty(policy.getCloudProvider()) ? "" : policy.getCloudProvider().toLowerCase(Locale.ROOT);
-    List<Map<String, Object>> data = assetsRepo.queryNative("select count(*) from magpie.%provider%".replace("%provider%", provider));
-    return BigInteger.ZERO.compareTo((BigInteger)data.get(0).get("count")) < 0;
+    return assetCounts.entrySet().stream()
+      .anyMatch(entry -> provider.equals(providerOf(entry.getKey())) && entry.getValue() > 0);
+  }
+
+  private static String providerOf(String resourceType) {
+    return resourceType.split(":")[0].toLowerCase(Locale.ROOT);
   }
 
   protected void executeRule(List<Violation> policyViolations,
                            List<IgnoredRule> policyIgnoredRules,
                            Policy policy,
                            Rule rule) {
+    executeRule(assetsRepo, new AnalysisRun(assetsRepo.getAssetCounts()), policyViolations, policyIgnoredRules, policy, rule);
+  }
+
+  private void executeRule(AssetsRepo assetsRepo,
+                           AnalysisRun run,
+                           List<Violation> policyViolations,
+                           List<IgnoredRule> policyIgnoredRules,
+                           Policy policy,
+                           Rule rule) {
     if (!rule.isEnabled()) {
       policyIgnoredRules.add(new IgnoredRule(policy, rule, DISABLED));
       LOGGER.info("Rule '{}' disabled", rule.getName());
@@ -101,41 +272,128 @@ public class PolicyAnalyzerServiceImpl implements PolicyAnalyzerService {
       return;
     }
 
-    var missingAssets = checkForMissingAssets(rule.getSql());
+    var missingAssets = rule.isPredicateRule() ?
+      checkForMissingAssets(run.assetCounts, rule.getResourceTypes()) :
+      checkForMissingAssets(run.assetCounts, rule.getSql());
     if (!missingAssets.isEmpty()) { // Missing assets found
       policyIgnoredRules.add(new IgnoredRule(policy, rule, MISSING_ASSET));
       LOGGER.info("Missing assets for analyzing the rule, ignoring. [assets={}, rule={}]", missingAssets, rule.getName());
       return;
     }
 
+    final var inputs = run.evaluations == null ? List.<String>of() : inputResourceTypes(rule);
+    if (inputs.isEmpty()) { // Not incremental, or the rule's inputs cannot be fully determined
+      evaluateRule(assetsRepo, run, policyViolations, policy, rule, LocalDateTime.now());
+      return;
+    }
+
+    final var reused = run.evaluations.reuse(policy, rule, inputs, run.watermarks);
+    if (reused != null) {
+      LOGGER.info("Assets unchanged since the rule was last analyzed, reusing {} violation(s) - {}", reused.size(), rule.getName());
+      policyViolations.addAll(reused);
+      return;
+    }
+
+    final var evaluatedAt = LocalDateTime.now();
+    final var ruleViolations = new ArrayList<Violation>();
+    if (evaluateRule(assetsRepo, run, ruleViolations, policy, rule, evaluatedAt)) {
+      run.evaluations.record(policy, rule, inputs, run.watermarks, ruleViolations, evaluatedAt);
+    }
+    policyViolations.addAll(ruleViolations);
+  }
+
+  /**
+   * @return false if the rule's eval block failed, in which case the violations carry the error and must not be reused
+   */
+  private boolean evaluateRule(AssetsRepo assetsRepo,
+                               AnalysisRun run,
+                               List<Violation> policyViolations,
+                               Policy policy,
+                               Rule rule,
+                               LocalDateTime evaluatedAt) {
     LOGGER.info("Analyzing rule - {}", rule.getName());
-    LocalDateTime evaluatedAt = LocalDateTime.now();
+
+    if (rule.isPredicateRule()) {
+      executePredicateRule(assetsRepo, policyViolations, policy, rule, evaluatedAt);
+      return true;
+    }
+
+    if (Optional.ofNullable(rule.getEval()).orElse("").isEmpty()) {
+      final var combined = run.combinedViolations.remove(new RuleKey(policy, rule));
+      if (combined != null) {
+        policyViolations.addAll(combined);
+        return true;
+      }
+      // Without an eval block each row maps straight to a violation, so stream them rather than materializing the result set
+      assetsRepo.queryNative(rule.getSql(), result ->
+        policyViolations.add(createViolation(policy, rule, result, "", evaluatedAt)));
+      return true;
+    }
 
     List<Map<String, Object>> results = assetsRepo.queryNative(rule.getSql());
 
     StringWriter evalErr = new StringWriter();
-    if (!Optional.ofNullable(rule.getEval()).orElse("").isEmpty()) {
-      try {
-        results = evaluate(rule, results);
-      } catch (Exception e) {
-        LOGGER.warn("Couldn't run eval code", e);
-        evalErr.append(e.getMessage());
-      }
+    try {
+      results = evaluate(rule, results);
+    } catch (Exception e) {
+      LOGGER.warn("Couldn't run eval code", e);
+      evalErr.append(e.getMessage());
     }
 
-    results.forEach(result -> {
-      Violation violation = new Violation();
-      violation.setPolicy(policy);
-      violation.setRule(rule);
-      violation.setAssetId(result.get("assetid").toString()); // Assume Rules should always return this type of alias
-      violation.setInfo(rule.getDescription());
-      violation.setError(evalErr.toString());
-      violation.setEvaluatedAt(evaluatedAt);
-      policyViolations.add(violation);
-    });
+    results.forEach(result -> policyViolations.add(createViolation(policy, rule, result, evalErr.toString(), evaluatedAt)));
+    return evalErr.getBuffer().length() == 0;
+  }
+
+  private boolean canReuse(AnalysisRun run, Policy policy, Rule rule) {
+    if (run.evaluations == null) {
+      return false;
+    }
+    final var inputs = inputResourceTypes(rule);
+    return !inputs.isEmpty() && run.evaluations.canReuse(policy, rule, inputs, run.watermarks);
+  }
+
+  // The resource types a rule reads: declared for predicate rules, derived from the tables and filters of the SQL otherwise
+  private List<String> inputResourceTypes(Rule rule) {
+    return rule.isPredicateRule() ?
+      rule.getResourceTypes() :
+      readResourceTypes.computeIfAbsent(rule.getSql(), RuleInputs::resourceTypesRead);
+  }
+
+  private void executePredicateRule(AssetsRepo assetsRepo,
+                                    List<Violation> policyViolations,
+                                    Policy policy,
+                                    Rule rule,
+                                    LocalDateTime evaluatedAt) {
+    // Rules loaded by PolicyAcquisitionService arrive compiled; compile here for rules built any other way
+    final var predicate = rule.getPredicate() != null ? rule.getPredicate() : RulePredicateCompiler.compile(rule);
+    try (var assets = assetsRepo.streamAssets(rule.getResourceTypes())) {
+      assets.map(asset -> (JsonNode) RESOURCE_MAPPER.valueToTree(asset))
+        .filter(predicate)
+        .forEach(document -> policyViolations.add(
+          createViolation(policy, rule, Map.of("assetid", AssetDocuments.assetIdOf(document)), "", evaluatedAt)));
+    }
+  }
+
+  private Violation createViolation(Policy policy, Rule rule, Map<String, Object> result, String error, LocalDateTime evaluatedAt) {
+    // Assume Rules should always return this type of alias
+    return new Violation(policy, rule, result.get("assetid").toString(), error, evaluatedAt);
+  }
+
+  // A predicate rule only needs one of its resource types to be present
+  private List<String> checkForMissingAssets(Map<String, Long> assetCounts, List<String> resourceTypes) {
+    final var missing = resourceTypes.stream()
+      .filter(resourceType -> assetCounts.getOrDefault(resourceType, 0L) == 0)
+      .collect(Collectors.toList());
+    return missing.size() == resourceTypes.size() ? missing : List.of();
+  }
+
+  private List<String> checkForMissingAssets(Map<String, Long> assetCounts, String sql) {
+    return referencedResourceTypes.computeIfAbsent(sql, PolicyAnalyzerServiceImpl::parseResourceTypes).stream()
+      .filter(resourceType -> assetCounts.getOrDefault(resourceType, 0L) == 0)
+      .collect(Collectors.toList());
   }
 
-  private List<String> checkForMissingAssets(String sql) {
+  private static List<String> parseResourceTypes(String sql) {
     String sqlNoWhitespaces = sql.replaceAll("\\s+", "");
     String resourceTypeSearch = "resourcetype='";
     List<String> resourceTypes = new ArrayList<>();
@@ -150,48 +408,63 @@ public class PolicyAnalyzerServiceImpl implements PolicyAnalyzerService {
         index++;
       }
     }
+    return resourceTypes;
+  }
 
-    List<String> missingAssets = new ArrayList<>();
-    resourceTypes.forEach(resourceType -> {
-      if (assetsRepo.getAssetCount(resourceType) == 0) {
-        missingAssets.add(resourceType);
-      }
-    });
+  private static class AnalysisRun {
+    private final Map<String, Long> assetCounts;
+    // Only set for incremental runs
+    private final Map<String, AssetWatermark> watermarks;
+    private final RuleEvaluationStore evaluations;
+    // Violations of the rules already answered by a combined query; filled before any rule runs
+    private final Map<RuleKey, List<Violation>> combinedViolations = new ConcurrentHashMap<>();
+
+    private AnalysisRun(Map<String, Long> assetCounts) {
+      this.assetCounts = assetCounts;
+      this.watermarks = null;
+      this.evaluations = null;
+    }
+
+    private AnalysisRun(Map<String, AssetWatermark> watermarks, RuleEvaluationStore evaluations) {
+      this.assetCounts = watermarks.entrySet().stream()
+        .collect(Collectors.toMap(Map.Entry::getKey, entry -> entry.getValue().getCount()));
+      this.watermarks = watermarks;
+      this.evaluations = evaluations;
+    }
+  }
 
-    return missingAssets;
+  // A rule as included in one policy; the same rule object may be part of several
+  private static class RuleKey {
+    private final Policy policy;
+    private final Rule rule;
+
+    private RuleKey(Policy policy, Rule rule) {
+      this.policy = policy;
+      this.rule = rule;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return o instanceof RuleKey && ((RuleKey) o).policy == policy && ((RuleKey) o).rule == rule;
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * System.identityHashCode(policy) + System.identityHashCode(rule);
+    }
+  }
+
+  private static class RuleOutcome {
+    private final List<Violation> violations = new ArrayList<>();
+    private final List<IgnoredRule> ignoredRules = new ArrayList<>();
   }
 
   @Override
   public List<Map<String, Object>> evaluate(Rule rule, Object resultSet) throws Exception {
-
-    final var results = new ArrayList<Map<String, Object>>();
-
-    StringWriter output = new StringWriter();
-    try (PythonInterpreter pyInterp = new PythonInterpreter()) {
-      pyInterp.setOut(output);
-
-      // Define evaluate method
-      pyInterp.exec(rule.getEval());
-      // Prepare argument and execute evaluate()
-      pyInterp.set("resultset", resultSet);
-      var v = pyInterp.eval("evaluate(resultset)");
-      if (v instanceof PyList) {
-        ((PyList)v).stream().forEach(item -> {
-          if (item instanceof PyDictionary) {
-            final var dict = (PyDictionary)item;
-            final var map = new HashMap<String, Object>();
-            dict.keySet().forEach(k -> map.put(k.toString(), dict.get(k)));
-            results.add(map);
-          } else {
-            LOGGER.warn("{} returned an invalid value, found {} but expected a dictionary", rule.getName(), item.getClass().getName());
-          }
-        });
-      } else {
-        throw new RuntimeException("Eval block returned an illegal value. Expected a Python list but found " + v.getClass().getName());
-      }
+    try {
+      return ruleEvaluator.evaluate(rule, resultSet);
     } catch (Exception e) {
       throw new Exception(e);
     }
-    return results;
   }
 }
@@ -0,0 +1,254 @@
+package io.openraven.magpie.core.cspm.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.openraven.magpie.core.cspm.analysis.ModelReference;
+import io.openraven.magpie.core.cspm.analysis.Violation;
+import io.openraven.magpie.core.cspm.model.Policy;
+import io.openraven.magpie.core.cspm.model.Rule;
+import io.openraven.magpie.plugins.persist.AssetWatermark;
+import io.openraven.magpie.plugins.persist.PersistConfig;
+import io.openraven.magpie.plugins.persist.config.PostgresPersistenceProvider;
+import org.hibernate.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Keeps the violations of every evaluated rule together with the watermarks (row count and latest updatediso) of the
+ * resource types the rule read. A later run whose watermarks for those types are unchanged gets the stored violations
+ * back instead of evaluating the rule again.
+ *
+ * Entries are keyed by policy, rule and a hash of everything that defines the rule's result (SQL, eval block,
+ * predicate condition), so an edited rule never matches an old entry. New entries are queued while the analysis runs
+ * and written in one transaction by {@link #flush()}.
+ */
+class RuleEvaluationStore {
+  private static final Logger LOGGER = LoggerFactory.getLogger(RuleEvaluationStore.class);
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+  // Counts read back from jsonb come out as int nodes, freshly built ones as long nodes
+  private static final Comparator<JsonNode> SAME_VALUE = (a, b) -> a.equals(b) ||
+    (a.isNumber() && b.isNumber() && a.decimalValue().compareTo(b.decimalValue()) == 0) ? 0 : 1;
+
+  private final PersistConfig persistConfig;
+  private final Map<String, StoredEvaluation> evaluations = new HashMap<>();
+  private final Queue<StoredEvaluation> pending = new ConcurrentLinkedQueue<>();
+
+  RuleEvaluationStore(PersistConfig persistConfig) {
+    this.persistConfig = persistConfig;
+  }
+
+  /**
+   * Reads every stored evaluation. Called once at the start of an analysis, before any worker looks entries up.
+   */
+  @SuppressWarnings("unchecked")
+  void load() {
+    evaluations.clear();
+    final var entityManager = PostgresPersistenceProvider.getEntityManager(persistConfig);
+    try {
+      final List<Object[]> rows = entityManager.createNativeQuery(
+          "SELECT policyid, ruleid, rulehash, CAST(watermarks AS text), CAST(violations AS text) FROM " + persistConfig.getSchema() + ".ruleevaluation")
+        .getResultList();
+      for (Object[] row : rows) {
+        final var evaluation = new StoredEvaluation((String) row[0], (String) row[1], (String) row[2],
+          MAPPER.readTree((String) row[3]), (ArrayNode) MAPPER.readTree((String) row[4]), null);
+        evaluations.put(evaluation.key(), evaluation);
+      }
+    } catch (JsonProcessingException e) {
+      LOGGER.warn("Stored rule evaluations are unreadable, every rule will be evaluated", e);
+      evaluations.clear();
+    } finally {
+      entityManager.close();
+    }
+  }
+
+  /**
+   * @return the stored violations of the rule, rebuilt against the given policy and rule, or null if the rule changed
+   * or any of its resource types did since it was last evaluated
+   */
+  List<Violation> reuse(Policy policy, Rule rule, List<String> resourceTypes, Map<String, AssetWatermark> watermarks) {
+    final var stored = find(policy, rule, resourceTypes, watermarks);
+    if (stored == null) {
+      return null;
+    }
+
+    final var violations = new ArrayList<Violation>(stored.violations.size());
+    stored.violations.forEach(node -> violations.add(new Violation(policy, rule, node.path("assetId").asText(),
+      node.path("error").asText(""), LocalDateTime.parse(node.path("evaluatedAt").asText()))));
+    return violations;
+  }
+
+  boolean canReuse(Policy policy, Rule rule, List<String> resourceTypes, Map<String, AssetWatermark> watermarks) {
+    return find(policy, rule, resourceTypes, watermarks) != null;
+  }
+
+  /**
+   * Queues the outcome of a rule evaluated against the given watermarks; safe to call from any worker.
+   */
+  void record(Policy policy,
+              Rule rule,
+              List<String> resourceTypes,
+              Map<String, AssetWatermark> watermarks,
+              List<Violation> violations,
+              LocalDateTime evaluatedAt) {
+    final var stored = MAPPER.createArrayNode();
+    violations.forEach(violation -> {
+      final var node = stored.addObject();
+      node.put("assetId", violation.getAssetId());
+      node.put("error", violation.getError());
+      node.put("evaluatedAt", violation.getEvaluatedAt().toString());
+    });
+    pending.add(new StoredEvaluation(idOf(policy), idOf(rule),
+      hash(rule), watermarksOf(resourceTypes, watermarks), stored, evaluatedAt));
+  }
+
+  /**
+   * Replaces the stored entries of every rule recorded since the last flush. A failure is logged and only means
+   * those rules are evaluated again next time.
+   */
+  void flush() {
+    if (pending.isEmpty()) {
+      return;
+    }
+
+    final var entries = new ArrayList<StoredEvaluation>();
+    StoredEvaluation entry;
+    while ((entry = pending.poll()) != null) {
+      entries.add(entry);
+    }
+
+    try {
+      write(entries);
+      entries.forEach(evaluation -> evaluations.put(evaluation.key(), evaluation));
+    } catch (Exception e) {
+      LOGGER.warn("Unable to store rule evaluations, they will be evaluated again on the next run: {}", e.getMessage());
+      LOGGER.debug("Details", e);
+    }
+  }
+
+  /**
+   * Replaces the stored entries of the given rules in one transaction.
+   */
+  void write(List<StoredEvaluation> entries) {
+    final var table = persistConfig.getSchema() + ".ruleevaluation";
+    final var entityManager = PostgresPersistenceProvider.getEntityManager(persistConfig);
+    try {
+      entityManager.getTransaction().begin();
+      entityManager.unwrap(Session.class).doWork(connection -> {
+        try (PreparedStatement delete = connection.prepareStatement("DELETE FROM " + table + " WHERE policyid = ? AND ruleid = ?");
+             PreparedStatement insert = connection.prepareStatement("INSERT INTO " + table +
+               " (policyid, ruleid, rulehash, watermarks, violations, evaluatedat) VALUES (?, ?, ?, ?::jsonb, ?::jsonb, ?)")) {
+          for (StoredEvaluation evaluation : entries) {
+            delete.setString(1, evaluation.policyId);
+            delete.setString(2, evaluation.ruleId);
+            delete.addBatch();
+
+            insert.setString(1, evaluation.policyId);
+            insert.setString(2, evaluation.ruleId);
+            insert.setString(3, evaluation.ruleHash);
+            insert.setString(4, evaluation.watermarks.toString());
+            insert.setString(5, evaluation.violations.toString());
+            insert.setTimestamp(6, Timestamp.valueOf(evaluation.evaluatedAt));
+            insert.addBatch();
+          }
+          delete.executeBatch();
+          insert.executeBatch();
+        }
+      });
+      entityManager.getTransaction().commit();
+    } catch (RuntimeException e) {
+      if (entityManager.getTransaction().isActive()) {
+        entityManager.getTransaction().rollback();
+      }
+      throw e;
+    } finally {
+      entityManager.close();
+    }
+  }
+
+  private StoredEvaluation find(Policy policy, Rule rule, List<String> resourceTypes, Map<String, AssetWatermark> watermarks) {
+    final var stored = evaluations.get(key(idOf(policy), idOf(rule), hash(rule)));
+    return stored != null && stored.watermarks.equals(SAME_VALUE, watermarksOf(resourceTypes, watermarks)) ? stored : null;
+  }
+
+  private static ObjectNode watermarksOf(List<String> resourceTypes, Map<String, AssetWatermark> watermarks) {
+    final var node = MAPPER.createObjectNode();
+    new TreeSet<>(resourceTypes).forEach(resourceType -> {
+      final var watermark = watermarks.get(resourceType);
+      final var typeNode = node.putObject(resourceType);
+      typeNode.put("count", watermark == null ? 0 : watermark.getCount());
+      typeNode.put("latestUpdate", watermark == null || watermark.getLatestUpdate() == null ? null : watermark.getLatestUpdate().toString());
+    });
+    return node;
+  }
+
+  static String hash(Rule rule) {
+    try {
+      final var digest = MessageDigest.getInstance("SHA-256");
+      for (Object part : new Object[]{rule.getType(), rule.getSql(), rule.getEval(), rule.getResourceTypes(),
+        rule.getCondition() == null ? null : MAPPER.writeValueAsString(rule.getCondition())}) {
+        digest.update(String.valueOf(part).getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+      }
+      final var hex = new StringBuilder();
+      for (byte b : digest.digest()) {
+        hex.append(String.format("%02x", b));
+      }
+      return hex.toString();
+    } catch (NoSuchAlgorithmException | JsonProcessingException e) {
+      throw new IllegalStateException("Unable to hash rule " + rule.getName(), e);
+    }
+  }
+
+  private static String idOf(Policy policy) {
+    return String.valueOf(ModelReference.of(policy));
+  }
+
+  private static String idOf(Rule rule) {
+    return String.valueOf(ModelReference.of(rule));
+  }
+
+  private static String key(String policyId, String ruleId, String ruleHash) {
+    return policyId + '\u0000' + ruleId + '\u0000' + ruleHash;
+  }
+
+  static class StoredEvaluation {
+    private final String policyId;
+    private final String ruleId;
+    private final String ruleHash;
+    private final JsonNode watermarks;
+    private final ArrayNode violations;
+    private final LocalDateTime evaluatedAt;
+
+    private StoredEvaluation(String policyId, String ruleId, String ruleHash, JsonNode watermarks, ArrayNode violations,
+                             LocalDateTime evaluatedAt) {
+      this.policyId = policyId;
+      this.ruleId = ruleId;
+      this.ruleHash = ruleHash;
+      this.watermarks = watermarks;
+      this.violations = violations;
+      this.evaluatedAt = evaluatedAt;
+    }
+
+    private String key() {
+      return RuleEvaluationStore.key(policyId, ruleId, ruleHash);
+    }
+  }
+}
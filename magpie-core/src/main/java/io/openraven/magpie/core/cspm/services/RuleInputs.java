@@ -0,0 +1,144 @@
+package io.openraven.magpie.core.cspm.services;
+
+import io.openraven.magpie.data.utils.ResourceTypeRegistry;
+
+import javax.persistence.Table;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Works out which resource types a SQL rule reads, for deciding whether its stored violations are still valid. The
+ * answer must never be too small: a rule whose inputs cannot be fully determined gets no inputs at all and is then
+ * evaluated on every run.
+ *
+ * Every table a rule names must be known. A per-type table (e.g. awss3bucket) contributes the types stored in it,
+ * whatever the rule's filters. The aws and gcp parent tables hold every type, so a rule reading one of them only has
+ * bounded inputs if it reads nothing else and its WHERE clause is a plain AND of resourcetype = '...' and other
+ * conditions, so every row it can return has one of the named types.
+ */
+final class RuleInputs {
+
+  static final Pattern TABLE_REFERENCE = Pattern.compile("(?i)\\b(?:from|join)\\s+(?:\"?\\w+\"?\\.)?\"?(\\w+)\"?");
+
+  private static final Pattern COMMENT = Pattern.compile("--[^\\n]*|/\\*.*?\\*/", Pattern.DOTALL);
+  private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+  private static final Pattern COMMA_JOIN = Pattern.compile("(?i)\\b(?:from|join)\\s+[\\w\".]+(?:\\s+(?:as\\s+)?(?!where\\b|on\\b)\\w+)?\\s*,");
+  private static final Pattern RESOURCE_TYPE = Pattern.compile("(?i)\\bresourcetype\\b");
+  private static final Pattern RESOURCE_TYPE_EQUALS = Pattern.compile("(?i)\\bresourcetype\\s*=\\s*'((?:[^']|'')*)'");
+  private static final Pattern WHERE_CLAUSE = Pattern.compile("(?i)\\bwhere\\b(.*?)(?:\\b(?:group\\s+by|order\\s+by|having|limit|offset|window|for)\\b|$)", Pattern.DOTALL);
+  private static final Pattern SET_OPERATION = Pattern.compile("(?i)\\b(?:union|except|intersect)\\b");
+  private static final Set<String> PARENT_TABLES = Set.of("aws", "gcp");
+
+  private static final Map<String, Set<String>> TABLE_RESOURCE_TYPES = tableResourceTypes();
+
+  private RuleInputs() {
+  }
+
+  /**
+   * @return the resource types the rule SQL can read, or an empty list if they cannot be determined
+   */
+  static List<String> resourceTypesRead(String sql) {
+    final var withoutComments = COMMENT.matcher(sql).replaceAll(" ");
+    // Structure is checked with string contents blanked, so text inside literals is never mistaken for SQL
+    final var structure = STRING_LITERAL.matcher(withoutComments).replaceAll("''");
+    if (COMMA_JOIN.matcher(structure).find() || SET_OPERATION.matcher(structure).find()) {
+      return List.of();
+    }
+
+    final var tables = new ArrayList<String>();
+    final Matcher tableMatcher = TABLE_REFERENCE.matcher(structure);
+    while (tableMatcher.find()) {
+      tables.add(tableMatcher.group(1).toLowerCase(Locale.ROOT));
+    }
+    if (tables.isEmpty()) {
+      return List.of();
+    }
+
+    final var resourceTypes = new LinkedHashSet<String>();
+    for (String table : tables) {
+      if (PARENT_TABLES.contains(table)) {
+        if (tables.size() > 1 || !boundedByResourceType(structure)) {
+          return List.of();
+        }
+        final var literals = RESOURCE_TYPE_EQUALS.matcher(withoutComments);
+        while (literals.find()) {
+          resourceTypes.add(literals.group(1).replace("''", "'"));
+        }
+      } else if (TABLE_RESOURCE_TYPES.containsKey(table)) {
+        resourceTypes.addAll(TABLE_RESOURCE_TYPES.get(table));
+      } else {
+        return List.of();
+      }
+    }
+    return List.copyOf(resourceTypes);
+  }
+
+  // Every mention of resourcetype is an equality at the top level of the WHERE clause, which has no top-level OR
+  private static boolean boundedByResourceType(String structure) {
+    final var where = WHERE_CLAUSE.matcher(structure);
+    if (!where.find()) {
+      return false;
+    }
+    final var clauseStart = where.start(1);
+    final var clause = where.group(1);
+
+    final var mentions = RESOURCE_TYPE.matcher(structure);
+    final var equalities = RESOURCE_TYPE_EQUALS.matcher(structure);
+    int count = 0;
+    while (mentions.find()) {
+      final int at = mentions.start();
+      if (!equalities.find(at) || equalities.start() != at
+        || at < clauseStart || at >= clauseStart + clause.length()
+        || depthAt(clause, at - clauseStart) != 0 || precededByNot(clause, at - clauseStart)) {
+        return false;
+      }
+      count++;
+    }
+    return count > 0 && !hasTopLevelOr(clause);
+  }
+
+  private static int depthAt(String clause, int index) {
+    int depth = 0;
+    for (int i = 0; i < index; i++) {
+      final char c = clause.charAt(i);
+      if (c == '(') {
+        depth++;
+      } else if (c == ')') {
+        depth--;
+      }
+    }
+    return depth;
+  }
+
+  private static boolean precededByNot(String clause, int index) {
+    return clause.substring(0, index).stripTrailing().toLowerCase(Locale.ROOT).matches("(?s).*\\bnot");
+  }
+
+  private static boolean hasTopLevelOr(String clause) {
+    final var or = Pattern.compile("(?i)\\bor\\b").matcher(clause);
+    while (or.find()) {
+      if (depthAt(clause, or.start()) == 0) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static Map<String, Set<String>> tableResourceTypes() {
+    final var tables = new HashMap<String, Set<String>>();
+    ResourceTypeRegistry.resourceTypes().forEach((resourceType, entityClass) -> {
+      final var table = entityClass.getAnnotation(Table.class);
+      if (table != null) {
+        tables.computeIfAbsent(table.name().toLowerCase(Locale.ROOT), k -> new LinkedHashSet<>()).add(resourceType);
+      }
+    });
+    return tables;
+  }
+}
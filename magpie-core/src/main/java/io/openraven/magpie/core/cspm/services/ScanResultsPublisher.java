@@ -0,0 +1,64 @@
+package io.openraven.magpie.core.cspm.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.openraven.magpie.api.StreamingPolicyOutputPlugin;
+import io.openraven.magpie.core.cspm.analysis.IgnoredRule;
+import io.openraven.magpie.core.cspm.analysis.ModelReference;
+import io.openraven.magpie.core.cspm.analysis.ScanResults;
+import io.openraven.magpie.core.cspm.analysis.Violation;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static java.util.stream.Collectors.groupingBy;
+
+/**
+ * Delivers {@link ScanResults} to streaming output plugins: the policy catalog once, then each policy's violations and
+ * ignored rules one node at a time. Only the node being delivered is ever converted to JSON.
+ */
+final class ScanResultsPublisher {
+  private final ObjectMapper mapper;
+  private final ScanResults results;
+  private final ArrayNode policies;
+  private final Map<String, List<Violation>> violationsByPolicy;
+  private final Map<String, List<IgnoredRule>> ignoredRulesByPolicy;
+
+  ScanResultsPublisher(ObjectMapper mapper, ScanResults results) {
+    this.mapper = mapper;
+    this.results = results;
+    this.policies = mapper.valueToTree(results.getPolicies());
+    this.violationsByPolicy = results.getViolations().stream()
+      .collect(groupingBy(violation -> String.valueOf(violation.getPolicyId()), Collectors.toList()));
+    this.ignoredRulesByPolicy = results.getIgnoredRules().stream()
+      .collect(groupingBy(ignoredRule -> String.valueOf(ignoredRule.getPolicyId()), Collectors.toList()));
+  }
+
+  void publish(StreamingPolicyOutputPlugin<?> plugin) {
+    final var header = mapper.createObjectNode();
+    header.set("scanMetadata", mapper.valueToTree(results.getScanMetadata()));
+    header.set("policies", policies);
+    header.put("violationCount", results.getViolations().size());
+    header.put("ignoredRuleCount", results.getIgnoredRules().size());
+    plugin.beginReport(header);
+
+    for (int i = 0; i < policies.size(); i++) {
+      final var policyId = String.valueOf(ModelReference.of(results.getPolicies().get(i)));
+      final var violations = violationsByPolicy.getOrDefault(policyId, List.of());
+      final var ignoredRules = ignoredRulesByPolicy.getOrDefault(policyId, List.of());
+
+      final ObjectNode policy = policies.get(i).deepCopy();
+      policy.remove("rules"); // Already in the header
+      policy.put("violationCount", violations.size());
+      policy.put("ignoredRuleCount", ignoredRules.size());
+
+      plugin.beginPolicy(policy);
+      violations.forEach(violation -> plugin.violation(mapper.valueToTree(violation)));
+      ignoredRules.forEach(ignoredRule -> plugin.ignoredRule(mapper.valueToTree(ignoredRule)));
+      plugin.endPolicy(policy);
+    }
+    plugin.endReport();
+  }
+}
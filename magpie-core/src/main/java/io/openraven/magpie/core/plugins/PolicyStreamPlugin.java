@@ -0,0 +1,152 @@
+/*
+ * Copyright 2021 Open Raven Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.openraven.magpie.core.plugins;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.openraven.magpie.api.Emitter;
+import io.openraven.magpie.api.IntermediatePlugin;
+import io.openraven.magpie.api.MagpieEnvelope;
+import io.openraven.magpie.core.config.MagpieConfig;
+import io.openraven.magpie.core.config.PluginConfig;
+import io.openraven.magpie.core.config.PolicyConfig;
+import io.openraven.magpie.core.cspm.analysis.ModelReference;
+import io.openraven.magpie.core.cspm.model.Policy;
+import io.openraven.magpie.core.cspm.model.PolicyContext;
+import io.openraven.magpie.core.cspm.model.Rule;
+import io.openraven.magpie.core.cspm.predicate.AssetDocuments;
+import io.openraven.magpie.core.cspm.services.PolicyAcquisitionServiceImpl;
+import io.openraven.magpie.plugins.persist.PersistConfig;
+import io.openraven.magpie.plugins.persist.PersistPlugin;
+import org.slf4j.Logger;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Evaluates policies while discovery is still running. The configured policy repositories are loaded once at init,
+ * and every predicate rule is indexed by the resource types it applies to. Each incoming asset envelope is then
+ * tested against the rules for its resource type, and one envelope is emitted per violation.
+ *
+ * Only predicate rules can be decided from a single asset; SQL rules still need the persisted inventory and are left
+ * to the policy analysis run. Asset envelopes are not forwarded, so persisting assets and evaluating them in-stream
+ * needs a fifo that fans out, e.g. a Kafka topic read by two layers with different consumer groups.
+ */
+public class PolicyStreamPlugin implements IntermediatePlugin<PolicyConfig> {
+
+  public static final String ID = "magpie.policy.stream";
+
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+
+  private Logger logger;
+  private Map<String, List<RuleBinding>> rulesByResourceType = Map.of();
+
+  @Override
+  public void accept(MagpieEnvelope env, Emitter emitter) {
+    final var asset = env.getContents();
+    final var resourceType = asset.path("resourceType").asText();
+    final var bindings = rulesByResourceType.get(resourceType);
+    if (bindings == null) {
+      return;
+    }
+
+    bindings.forEach(binding -> {
+      if (binding.rule.getPredicate().test(asset)) {
+        emitter.emit(MagpieEnvelope.of(env, ID, violation(binding, asset)));
+      }
+    });
+  }
+
+  private ObjectNode violation(RuleBinding binding, ObjectNode asset) {
+    final var violation = MAPPER.createObjectNode();
+    violation.put("policyId", ModelReference.of(binding.policy));
+    violation.put("policyName", binding.policy.getName());
+    violation.put("ruleId", ModelReference.of(binding.rule));
+    violation.put("ruleRefId", binding.rule.getRefId());
+    violation.put("ruleName", binding.rule.getName());
+    violation.put("severity", binding.rule.getSeverity());
+    violation.put("assetId", AssetDocuments.assetIdOf(asset));
+    violation.put("resourceType", asset.path("resourceType").asText());
+    violation.put("evaluatedAt", Instant.now().toString());
+    return violation;
+  }
+
+  @Override
+  public String id() {
+    return ID;
+  }
+
+  @Override
+  public void init(PolicyConfig config, Logger logger) {
+    this.logger = logger;
+
+    // PolicyAcquisitionService reads the persistence schema to expand SQL rules; predicate rules don't use it
+    final var persistConfig = new PluginConfig<PersistConfig>();
+    persistConfig.setConfig(new PersistConfig());
+    final var magpieConfig = new MagpieConfig();
+    magpieConfig.setPolicies(config);
+    magpieConfig.getPlugins().put(PersistPlugin.ID, persistConfig);
+
+    final var policyAcquisitionService = new PolicyAcquisitionServiceImpl();
+    policyAcquisitionService.init(magpieConfig);
+    rulesByResourceType = index(policyAcquisitionService.loadPolicies());
+  }
+
+  private Map<String, List<RuleBinding>> index(List<PolicyContext> policyContexts) {
+    final var index = new HashMap<String, List<RuleBinding>>();
+    int skipped = 0;
+    for (PolicyContext policyContext : policyContexts) {
+      final var policy = policyContext.getPolicy();
+      if (!policy.isEnabled()) {
+        continue;
+      }
+      for (Rule rule : policy.getRules()) {
+        if (!rule.isEnabled() || rule.isManualControl()) {
+          continue;
+        }
+        if (!rule.isPredicateRule() || rule.getPredicate() == null) {
+          skipped++;
+          continue;
+        }
+        final var binding = new RuleBinding(policy, rule);
+        rule.getResourceTypes().forEach(resourceType ->
+          index.computeIfAbsent(resourceType, k -> new ArrayList<>()).add(binding));
+      }
+    }
+    logger.info("Streaming evaluation of {} resource type(s); {} rule(s) need the persisted inventory and were skipped",
+      index.size(), skipped);
+    return index;
+  }
+
+  @Override
+  public Class<PolicyConfig> configType() {
+    return PolicyConfig.class;
+  }
+
+  private static class RuleBinding {
+    private final Policy policy;
+    private final Rule rule;
+
+    private RuleBinding(Policy policy, Rule rule) {
+      this.policy = policy;
+      this.rule = rule;
+    }
+  }
+}
@@ -0,0 +1,21 @@
+package io.openraven.magpie.core.cspm.predicate;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class AssetDocumentsTest {
+
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+
+  @Test
+  void assetIdShouldPreferArnThenAssetIdThenDocumentId() throws Exception {
+    assertEquals("arn:aws:s3:::bucket",
+      AssetDocuments.assetIdOf(MAPPER.readTree("{\"arn\": \"arn:aws:s3:::bucket\", \"documentId\": \"doc\"}")));
+    assertEquals("//storage.googleapis.com/projects/_/buckets/b",
+      AssetDocuments.assetIdOf(MAPPER.readTree("{\"arn\": \"\", \"assetId\": \"//storage.googleapis.com/projects/_/buckets/b\"}")));
+    assertEquals("doc", AssetDocuments.assetIdOf(MAPPER.readTree("{\"arn\": null, \"documentId\": \"doc\"}")));
+    assertEquals("", AssetDocuments.assetIdOf(MAPPER.readTree("{}")));
+  }
+}
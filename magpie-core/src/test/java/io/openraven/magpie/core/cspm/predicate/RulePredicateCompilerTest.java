@@ -0,0 +1,78 @@
+package io.openraven.magpie.core.cspm.predicate;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
+import io.openraven.magpie.core.cspm.model.Rule;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RulePredicateCompilerTest {
+
+  private static final ObjectMapper YAML_MAPPER = new ObjectMapper(new YAMLFactory());
+
+  private static final String RULE = String.join("\n",
+    "refId: unencrypted-public-bucket",
+    "type: predicate",
+    "resourceTypes: ['AWS::S3::Bucket']",
+    "condition:",
+    "  all:",
+    "    - path: /supplementaryConfiguration/BucketEncryption/ServerSideEncryptionConfiguration",
+    "      op: empty",
+    "    - any:",
+    "        - path: /supplementaryConfiguration/BucketACLConfiguration/grants",
+    "          op: contains",
+    "          value: {grantee: AllUsers}",
+    "        - path: /tags/public",
+    "          op: in",
+    "          value: ['true', 'yes']",
+    "    - not:",
+    "        path: /awsRegion",
+    "        op: matches",
+    "        value: '^cn-'",
+    "    - path: /configuration/sizeInGb",
+    "      op: greaterThanOrEqual",
+    "      value: 1.0");
+
+  @Test
+  void testCompiledPredicateEvaluatesDocuments() throws Exception {
+    var rule = YAML_MAPPER.readValue(RULE, Rule.class);
+    var predicate = RulePredicateCompiler.compile(rule);
+
+    assertTrue(rule.isPredicateRule());
+    assertTrue(predicate.test(document("{'awsRegion': 'us-east-1', 'tags': {'public': 'yes'}, 'configuration': {'sizeInGb': 1}}")));
+    assertTrue(predicate.test(document("{'awsRegion': 'us-east-1', 'configuration': {'sizeInGb': 5}, " +
+      "'supplementaryConfiguration': {'BucketACLConfiguration': {'grants': [{'grantee': 'AllUsers'}]}}}")));
+
+    // encrypted
+    assertFalse(predicate.test(document("{'awsRegion': 'us-east-1', 'tags': {'public': 'yes'}, 'configuration': {'sizeInGb': 1}, " +
+      "'supplementaryConfiguration': {'BucketEncryption': {'ServerSideEncryptionConfiguration': {'rules': []}}}}")));
+    // not public
+    assertFalse(predicate.test(document("{'awsRegion': 'us-east-1', 'tags': {'public': 'no'}, 'configuration': {'sizeInGb': 1}}")));
+    // excluded region
+    assertFalse(predicate.test(document("{'awsRegion': 'cn-north-1', 'tags': {'public': 'yes'}, 'configuration': {'sizeInGb': 1}}")));
+    // too small, or the field is missing altogether
+    assertFalse(predicate.test(document("{'awsRegion': 'us-east-1', 'tags': {'public': 'yes'}, 'configuration': {'sizeInGb': 0.5}}")));
+    assertFalse(predicate.test(document("{'awsRegion': 'us-east-1', 'tags': {'public': 'yes'}}")));
+  }
+
+  @Test
+  void testInvalidRulesAreRejected() throws Exception {
+    var unknownOperator = YAML_MAPPER.readValue("{type: predicate, resourceTypes: [a], condition: {path: /a, op: like, value: x}}", Rule.class);
+    var mixedCondition = YAML_MAPPER.readValue("{type: predicate, resourceTypes: [a], condition: {path: /a, op: exists, not: {path: /b, op: exists}}}", Rule.class);
+    var badPointer = YAML_MAPPER.readValue("{type: predicate, resourceTypes: [a], condition: {path: a, op: exists}}", Rule.class);
+    var noResourceTypes = YAML_MAPPER.readValue("{type: predicate, condition: {path: /a, op: exists}}", Rule.class);
+
+    assertThrows(IllegalArgumentException.class, () -> RulePredicateCompiler.compile(unknownOperator));
+    assertThrows(IllegalArgumentException.class, () -> RulePredicateCompiler.compile(mixedCondition));
+    assertThrows(IllegalArgumentException.class, () -> RulePredicateCompiler.compile(badPointer));
+    assertThrows(IllegalArgumentException.class, () -> RulePredicateCompiler.compile(noResourceTypes));
+  }
+
+  private static JsonNode document(String json) throws Exception {
+    return YAML_MAPPER.readTree(json);
+  }
+}
@@ -0,0 +1,59 @@
+package io.openraven.magpie.core.cspm.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CombinedRuleQueryTest {
+
+  private static final String PUBLIC_BUCKETS =
+    "SELECT arn AS assetid FROM magpie.aws WHERE resourcetype = 'AWS::S3::Bucket' AND (supplementaryconfiguration->>'isPublic')::boolean";
+  private static final String UNENCRYPTED_BUCKETS =
+    "SELECT documentid, arn AS assetid\n  FROM magpie.aws\n  WHERE resourcetype = 'AWS::S3::Bucket' AND supplementaryconfiguration->'BucketEncryption' IS NULL;";
+  private static final String ALL_ASSETS = "SELECT arn as assetid FROM magpie.aws -- every asset, from any account";
+
+  @Test
+  void plainRulesOnTheSameTableShouldBeReadInOneScan() {
+    assertEquals(
+      "SELECT magpie_rules.magpie_rule, magpie_rules.assetid FROM magpie.aws CROSS JOIN LATERAL (\n" +
+        "  SELECT 0 AS magpie_rule, (arn)::text AS assetid WHERE (resourcetype = 'AWS::S3::Bucket' AND (supplementaryconfiguration->>'isPublic')::boolean)\n" +
+        "  UNION ALL\n" +
+        "  SELECT 1, (arn)::text WHERE (resourcetype = 'AWS::S3::Bucket' AND supplementaryconfiguration->'BucketEncryption' IS NULL)\n" +
+        "  UNION ALL\n" +
+        "  SELECT 2, (arn)::text\n" +
+        ") AS magpie_rules",
+      CombinedRuleQuery.combine(List.of(PUBLIC_BUCKETS, UNENCRYPTED_BUCKETS, ALL_ASSETS)));
+  }
+
+  @Test
+  void rulesShouldBeGroupedByTheTableAndAliasTheyScan() {
+    final var aliased = "SELECT b.arn AS assetid FROM magpie.aws b WHERE b.tags->>'env' = 'dev'";
+    final var perType = "SELECT arn AS assetid FROM magpie.awss3bucket WHERE awsregion = 'us-east-1'";
+    final var distinct = "SELECT DISTINCT arn AS assetid FROM magpie.aws WHERE resourcetype = 'AWS::S3::Bucket'";
+
+    assertEquals(List.of(List.of(PUBLIC_BUCKETS, UNENCRYPTED_BUCKETS), List.of(perType)),
+      List.copyOf(CombinedRuleQuery.group(List.of(PUBLIC_BUCKETS, aliased, UNENCRYPTED_BUCKETS, perType, perType, distinct))));
+  }
+
+  @Test
+  void rulesOutsideThePlainFormShouldRunOnTheirOwn() {
+    for (String sql : List.of(
+      "SELECT DISTINCT arn AS assetid FROM aws WHERE resourcetype = 'AWS::S3::Bucket'",
+      "SELECT b.arn AS assetid FROM aws b JOIN aws k ON k.arn = b.configuration->>'kmsKey'",
+      "SELECT arn AS assetid FROM aws b, jsonb_array_elements(b.configuration->'grants') g",
+      "SELECT arn AS assetid FROM aws WHERE arn IN (SELECT arn FROM awskmskey)",
+      "SELECT max(arn) AS assetid FROM aws",
+      "SELECT arn AS assetid FROM aws GROUP BY arn",
+      "SELECT arn AS assetid FROM aws ORDER BY arn LIMIT 10",
+      "SELECT arn AS assetid FROM aws UNION ALL SELECT arn FROM gcp",
+      "WITH b AS (SELECT * FROM aws) SELECT arn AS assetid FROM b",
+      "SELECT arn AS id FROM aws",
+      "SELECT arn FROM aws")) {
+      assertTrue(CombinedRuleQuery.parse(sql).isEmpty(), sql);
+    }
+    assertTrue(CombinedRuleQuery.parse("SELECT arn AS assetid FROM aws WHERE configuration->>'note' = 'ordered from (select) list'").isPresent());
+  }
+}
@@ -0,0 +1,62 @@
+package io.openraven.magpie.core.cspm.services;
+
+import io.openraven.magpie.core.config.MagpieConfig;
+import io.openraven.magpie.core.config.PluginConfig;
+import io.openraven.magpie.core.cspm.analysis.Violation;
+import io.openraven.magpie.core.cspm.model.Policy;
+import io.openraven.magpie.core.cspm.model.PolicyContext;
+import io.openraven.magpie.core.cspm.model.Rule;
+import io.openraven.magpie.plugins.persist.PersistConfig;
+import io.openraven.magpie.plugins.persist.PersistPlugin;
+import io.openraven.magpie.plugins.persist.embedded.EmbeddedAssetStore;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assumptions.assumeFalse;
+
+/**
+ * Analyzes a discovery output file the way {@code magpie-policy -i} does, in an embedded Postgres instance.
+ */
+class EmbeddedAnalysisTest {
+
+  @Test
+  void analyzesDiscoveryOutputInEmbeddedDatabase() throws Exception {
+    assumeFalse("root".equals(System.getProperty("user.name")), "Postgres refuses to run as root");
+
+    final var input = Path.of(Objects.requireNonNull(getClass().getResource("/discovery/s3-buckets.ndjson")).toURI());
+    try (var store = EmbeddedAssetStore.start(new PersistConfig())) {
+      // The line that isn't an asset is skipped
+      assertEquals(3, store.load(input));
+
+      final var persistConfig = new PluginConfig<PersistConfig>();
+      persistConfig.setConfig(store.getPersistConfig());
+      final var config = new MagpieConfig();
+      config.getPlugins().put(PersistPlugin.ID, persistConfig);
+
+      final var rule = new Rule();
+      rule.setRefId("public-buckets");
+      rule.setName("public-buckets");
+      rule.setEnabled(true);
+      rule.setSql("SELECT arn AS assetid FROM magpie.aws " +
+        "WHERE resourcetype = 'AWS::S3::Bucket' AND (supplementaryconfiguration->>'isPublic')::boolean");
+      final var policy = new Policy();
+      policy.setRefId("embedded");
+      policy.setName("embedded");
+      policy.setCloudProvider("AWS");
+      policy.setEnabled(true);
+      policy.setRules(List.of(rule));
+
+      final var analyzer = new PolicyAnalyzerServiceImpl();
+      analyzer.init(config);
+      final var results = analyzer.analyze(List.of(new PolicyContext(null, policy)));
+
+      assertEquals(List.of("arn:aws:s3:::public-encrypted", "arn:aws:s3:::public-unencrypted"),
+        results.getViolations().stream().map(Violation::getAssetId).sorted().collect(Collectors.toList()));
+    }
+  }
+}
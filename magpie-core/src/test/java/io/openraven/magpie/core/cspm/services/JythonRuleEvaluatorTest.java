@@ -0,0 +1,185 @@
+package io.openraven.magpie.core.cspm.services;
+
+import io.openraven.magpie.core.cspm.model.Rule;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.python.core.PyDictionary;
+import org.python.util.PythonInterpreter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JythonRuleEvaluatorTest {
+
+  private static final List<Map<String, Object>> RESULT_SET = List.of(
+    Map.of("assetid", "arn:aws:s3:::public", "awsregion", "us-east-1"),
+    Map.of("assetid", "arn:aws:s3:::private", "awsregion", "us-west-2"));
+
+  private final JythonRuleEvaluator evaluator = new JythonRuleEvaluator(2);
+
+  @AfterEach
+  void close() {
+    evaluator.close();
+  }
+
+  @Test
+  void evalBlockShouldBeCompiledOncePerRuleIdAndVersion() {
+    final var rule = rule(UUID.randomUUID(), "cached", "1", returning("'a'"));
+    final var interpreter = new PythonInterpreter();
+    final var other = new PythonInterpreter();
+    try {
+      final var code = evaluator.compile(interpreter, rule);
+      // Shared by every interpreter
+      assertSame(code, evaluator.compile(other, rule));
+      assertSame(code, evaluator.compile(interpreter, rule(rule.getId(), "renamed", "1", rule.getEval())));
+
+      assertNotSame(code, evaluator.compile(interpreter, rule(rule.getId(), "cached", "2", rule.getEval())));
+      assertNotSame(code, evaluator.compile(interpreter, rule(UUID.randomUUID(), "cached", "1", rule.getEval())));
+    } finally {
+      interpreter.close();
+      other.close();
+    }
+  }
+
+  @Test
+  void editedEvalBlockShouldBeRecompiled() {
+    final var id = UUID.randomUUID();
+    assertEquals(List.of("a"), labels(evaluator.evaluate(rule(id, "edited", "1", returning("'a'")), RESULT_SET)));
+
+    // Same id and version, as with a rule edited locally
+    final var edited = rule(id, "edited", "1", returning("'b'"));
+    assertEquals(List.of("b"), labels(evaluator.evaluate(edited, RESULT_SET)));
+
+    final var interpreter = new PythonInterpreter();
+    try {
+      assertSame(evaluator.compile(interpreter, edited), evaluator.compile(interpreter, edited));
+    } finally {
+      interpreter.close();
+    }
+  }
+
+  @Test
+  void rulesWithoutIdShouldBeCachedByRefId() {
+    assertEquals(List.of("a"), labels(evaluator.evaluate(rule(null, "first", null, returning("'a'")), RESULT_SET)));
+    assertEquals(List.of("b"), labels(evaluator.evaluate(rule(null, "second", null, returning("'b'")), RESULT_SET)));
+    assertEquals(List.of("a"), labels(evaluator.evaluate(rule(null, "first", null, returning("'a'")), RESULT_SET)));
+  }
+
+  @Test
+  void definitionsShouldNotLeakIntoTheNextEvaluation() {
+    final var defining = rule(UUID.randomUUID(), "defining", "1",
+      "leaked = 'value'\n" +
+      "def helper():\n" +
+      "    return 'helper'\n" +
+      returning("helper()"));
+    final var probing = rule(UUID.randomUUID(), "probing", "1",
+      "def evaluate(resultset):\n" +
+      "    return [{'leaked': 'leaked' in globals(), 'helper': 'helper' in globals()}]\n");
+    final var undefined = rule(UUID.randomUUID(), "undefined", "1", "x = 1\n");
+
+    // A pool of one reuses the same interpreter for every evaluation
+    try (var single = new JythonRuleEvaluator(1)) {
+      assertEquals(List.of("helper"), labels(single.evaluate(defining, RESULT_SET)));
+
+      final var probed = single.evaluate(probing, RESULT_SET).get(0);
+      assertEquals(false, probed.get("leaked"));
+      assertEquals(false, probed.get("helper"));
+
+      // The evaluate function of the previous rule is gone as well
+      assertThrows(IllegalStateException.class, () -> single.evaluate(undefined, RESULT_SET));
+    }
+  }
+
+  @Test
+  void concurrentEvaluationsShouldKeepTheirOwnNamespaces() throws Exception {
+    final var rules = new ArrayList<Rule>();
+    for (var label : List.of("a", "b", "c", "d")) {
+      rules.add(rule(UUID.randomUUID(), label, "1",
+        "def label():\n" +
+        "    return '" + label + "'\n" +
+        "def evaluate(resultset):\n" +
+        "    result = []\n" +
+        "    for row in resultset:\n" +
+        "        result.append({'label': label()})\n" +
+        "    return result\n"));
+    }
+
+    final var executor = Executors.newFixedThreadPool(4);
+    try {
+      final var futures = new ArrayList<Future<List<Object>>>();
+      for (int i = 0; i < 200; i++) {
+        final var rule = rules.get(i % rules.size());
+        futures.add(executor.submit((Callable<List<Object>>) () -> labels(evaluator.evaluate(rule, RESULT_SET))));
+      }
+      for (int i = 0; i < futures.size(); i++) {
+        final var label = rules.get(i % rules.size()).getRefId();
+        assertEquals(List.<Object>of(label, label), futures.get(i).get());
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  void returnedDictionariesShouldBeUsableAsMaps() {
+    final var rule = rule(UUID.randomUUID(), "east", "1",
+      "def evaluate(resultset):\n" +
+      "    return [{'assetid': row['assetid'], 'count': 2, 'public': True} for row in resultset\n" +
+      "            if row['awsregion'] == 'us-east-1'] + ['not a dictionary']\n");
+
+    final var results = evaluator.evaluate(rule, RESULT_SET);
+
+    // The invalid item is skipped
+    assertEquals(1, results.size());
+    final var result = results.get(0);
+    assertTrue(result instanceof PyDictionary);
+    assertEquals("arn:aws:s3:::public", result.get("assetid"));
+    assertEquals(2, result.get("count"));
+    assertEquals(true, result.get("public"));
+    assertTrue(result.containsKey("assetid"));
+    assertFalse(result.containsKey("awsregion"));
+    assertEquals(3, result.size());
+  }
+
+  @Test
+  void evalBlockMustReturnAList() {
+    final var rule = rule(UUID.randomUUID(), "dictionary", "1",
+      "def evaluate(resultset):\n" +
+      "    return {'assetid': 'arn:aws:s3:::public'}\n");
+
+    assertThrows(RuntimeException.class, () -> evaluator.evaluate(rule, RESULT_SET));
+  }
+
+  private static String returning(String label) {
+    return "def evaluate(resultset):\n" +
+      "    return [{'label': " + label + "}]\n";
+  }
+
+  private static List<Object> labels(List<Map<String, Object>> results) {
+    final var labels = new ArrayList<>();
+    results.forEach(result -> labels.add(result.get("label")));
+    return labels;
+  }
+
+  private static Rule rule(UUID id, String refId, String version, String eval) {
+    final var rule = new Rule();
+    rule.setId(id);
+    rule.setRefId(refId);
+    rule.setName(refId);
+    rule.setVersion(version);
+    rule.setEval(eval);
+    return rule;
+  }
+}
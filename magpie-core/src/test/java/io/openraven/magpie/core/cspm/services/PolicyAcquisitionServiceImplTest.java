@@ -0,0 +1,92 @@
+package io.openraven.magpie.core.cspm.services;
+
+import io.openraven.magpie.core.config.MagpieConfig;
+import io.openraven.magpie.core.config.PluginConfig;
+import io.openraven.magpie.core.config.PolicyConfig;
+import io.openraven.magpie.core.cspm.model.PolicyContext;
+import io.openraven.magpie.core.cspm.model.Rule;
+import io.openraven.magpie.plugins.persist.PersistConfig;
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PolicyAcquisitionServiceImplTest {
+
+  @TempDir
+  Path workDir;
+
+  @Test
+  void testOnlyChangedFilesAreCopied() throws Exception {
+    var source = copyFixture();
+    var target = workDir.resolve("target");
+
+    assertEquals(3, PolicyAcquisitionServiceImpl.syncDirectory(source, target));
+    assertEquals(0, PolicyAcquisitionServiceImpl.syncDirectory(source, target));
+
+    Files.writeString(source.resolve("resources/rules/iam-group-sql.yaml"), "refId: iam-group-sql\n");
+    Files.delete(source.resolve("resources/rules/iam-group-outside-path.yaml"));
+    Files.createDirectories(source.resolve("docs"));
+    Files.writeString(source.resolve("docs/README.md"), "rules");
+
+    assertEquals(2, PolicyAcquisitionServiceImpl.syncDirectory(source, target));
+    assertEquals("refId: iam-group-sql\n", Files.readString(target.resolve("resources/rules/iam-group-sql.yaml")));
+    assertFalse(Files.exists(target.resolve("resources/rules/iam-group-outside-path.yaml")));
+    assertTrue(Files.exists(target.resolve("docs/README.md")));
+  }
+
+  @Test
+  void testUnchangedRulesAreNotParsedAgain() throws Exception {
+    var source = copyFixture();
+
+    var first = rules(load(source));
+    var second = rules(load(source));
+    assertEquals(2, first.size());
+    assertSame(first.get(0), second.get(0));
+    assertSame(first.get(1), second.get(1));
+
+    Files.writeString(source.resolve("resources/rules/iam-group-sql.yaml"),
+      Files.readString(source.resolve("resources/rules/iam-group-sql.yaml")).replace("name: SQL rule", "name: Edited SQL rule"));
+
+    var third = rules(load(source));
+    assertSame(first.get(0), third.get(0));
+    assertNotSame(first.get(1), third.get(1));
+    assertEquals("Edited SQL rule that needs the inventory", third.get(1).getName());
+  }
+
+  private Path copyFixture() throws Exception {
+    var source = workDir.resolve("rules-repo");
+    FileUtils.copyDirectory(Path.of(getClass().getResource("/policystream").toURI()).toFile(), source.toFile());
+    return source;
+  }
+
+  private List<PolicyContext> load(Path repository) {
+    var policyConfig = new PolicyConfig();
+    policyConfig.setRoot(workDir.resolve("root").toString());
+    policyConfig.setRepositories(List.of(repository.toString()));
+
+    var persistConfig = new PluginConfig<PersistConfig>();
+    persistConfig.setConfig(new PersistConfig());
+    var config = new MagpieConfig();
+    config.setPolicies(policyConfig);
+    config.getPlugins().put("magpie.persist", persistConfig);
+
+    var service = new PolicyAcquisitionServiceImpl();
+    service.init(config);
+    return service.loadPolicies();
+  }
+
+  private static List<Rule> rules(List<PolicyContext> policies) {
+    assertEquals(1, policies.size());
+    return policies.get(0).getPolicy().getRules();
+  }
+}
@@ -4,6 +4,7 @@ import ch.qos.logback.classic.Level;
 import ch.qos.logback.classic.Logger;
 import ch.qos.logback.classic.LoggerContext;
 import io.openraven.magpie.core.cspm.analysis.IgnoredRule;
+import io.openraven.magpie.core.cspm.analysis.ModelReference;
 import io.openraven.magpie.core.cspm.analysis.ScanResults;
 import io.openraven.magpie.core.cspm.analysis.Violation;
 import io.openraven.magpie.core.cspm.model.Policy;
@@ -16,6 +17,7 @@ import org.junit.jupiter.api.BeforeEach;
 import org.slf4j.LoggerFactory;
 import io.openraven.magpie.core.config.MagpieConfig;
 import io.openraven.magpie.core.config.PluginConfig;
+import io.openraven.magpie.core.config.PolicyConfig;
 import io.openraven.magpie.core.util.LoggerStubAppender;
 import io.openraven.magpie.plugins.persist.PersistConfig;
 import io.openraven.magpie.plugins.persist.PersistPlugin;
@@ -32,6 +34,7 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Scanner;
 import java.util.UUID;
+import java.util.stream.Collectors;
 
 import static io.openraven.magpie.core.cspm.analysis.IgnoredRule.IgnoredReason.DISABLED;
 import static java.util.stream.Collectors.groupingBy;
@@ -144,7 +147,7 @@ class PolicyAnalyzerServiceIT {
 
     // when
     ScanResults analyze = initAndAnalyzePolicies();
-    Map<Policy, List<IgnoredRule>> ignoredRulesMap = remapIgnoredRules(analyze);
+    Map<String, List<IgnoredRule>> ignoredRulesMap = remapIgnoredRules(analyze);
 
     // then
     assertEquals(1, analyze.getPolicies().size());
@@ -153,7 +156,7 @@ class PolicyAnalyzerServiceIT {
 
     // TODO fix me
     assertEquals(DISABLED.getReason(),
-      ignoredRulesMap.get(policy).get(0).getIgnoredReason().getReason());
+      ignoredRulesMap.get(String.valueOf(ModelReference.of(policy))).get(0).getIgnoredReason().getReason());
 
     assertTrue(loggerStubAppender.contains(String.format("Rule '%s' disabled", testRuleName), Level.INFO));
   }
@@ -234,7 +237,6 @@ class PolicyAnalyzerServiceIT {
     String violatedAssetId = "arn:aws:iam::723176279592:root";
     UUID policyId = UUID.fromString(POLICY_UUID);;
     UUID ruleId = UUID.fromString(RULE_UUID);
-    String ruleDescription = "some rule description";
 
     when(policyContext.getPolicy()).thenReturn(policy);
     when(policy.isEnabled()).thenReturn(true);
@@ -242,7 +244,6 @@ class PolicyAnalyzerServiceIT {
     when(policy.getCloudProvider()).thenReturn(cloudProvider);
     when(policy.getRules()).thenReturn(List.of(rule));
     when(policy.getId()).thenReturn(policyId);
-    when(rule.getDescription()).thenReturn(ruleDescription);
     when(rule.isEnabled()).thenReturn(true); // <-- Enabled now
     when(rule.getId()).thenReturn(ruleId); // <-- Enabled now
     when(rule.isManualControl()).thenReturn(false); // <-- NOT Manual
@@ -260,14 +261,137 @@ class PolicyAnalyzerServiceIT {
     List<Violation> violations = analyze.getViolations();
     assertEquals(1, violations.size());
     Violation violation = violations.get(0);
-    assertEquals(policyId, violation.getPolicy().getId());
+    assertEquals(policyId.toString(), violation.getPolicyId());
     assertEquals(violatedAssetId, violation.getAssetId());
-    assertEquals(ruleId, violation.getRule().getId());
-    assertEquals(ruleDescription, violation.getInfo());
+    assertEquals(ruleId.toString(), violation.getRuleId());
 
     assertTrue(loggerStubAppender.contains(String.format("Analyzing rule - %s", testRuleName), Level.INFO));
   }
 
+  @Test
+  void combinedAndIndividualRulesShouldReportTheSameViolations() throws Exception {
+    // given
+    var publicBuckets = sqlRule("public-buckets", "SELECT arn AS assetid FROM magpie.aws " +
+      "WHERE resourcetype = 'AWS::S3::Bucket' AND (supplementaryconfiguration->>'isPublic')::boolean");
+    var unencryptedBuckets = sqlRule("unencrypted-buckets", "SELECT documentid, arn AS assetid FROM magpie.aws " +
+      "WHERE resourcetype = 'AWS::S3::Bucket' AND supplementaryconfiguration->'BucketEncryption' IS NULL;");
+    var devBuckets = sqlRule("dev-buckets", "SELECT arn AS assetid FROM magpie.awss3bucket WHERE tags->>'env' = 'dev'");
+    var eastBuckets = sqlRule("east-buckets", "SELECT arn AS assetid FROM magpie.awss3bucket WHERE awsregion = 'us-east-1'");
+    var notCombinable = sqlRule("distinct-buckets",
+      "SELECT DISTINCT arn AS assetid FROM magpie.aws WHERE resourcetype = 'AWS::S3::Bucket'");
+    var contexts = List.of(
+      new PolicyContext(null, sqlPolicy("combined-a", List.of(publicBuckets, unencryptedBuckets, devBuckets, eastBuckets, notCombinable))),
+      new PolicyContext(null, sqlPolicy("combined-b", List.of(publicBuckets, eastBuckets))));
+
+    // when
+    ScanResults combined = analyzeWithCombinedRules(true, contexts);
+    ScanResults individual = analyzeWithCombinedRules(false, contexts);
+
+    // then
+    assertEquals(14, combined.getViolations().size());
+    assertEquals(violationKeys(individual), violationKeys(combined));
+  }
+
+  @Test
+  void parallelAnalysisShouldReportTheSameResultsInTheSameOrder() throws Exception {
+    // given
+    var publicBuckets = sqlRule("public-buckets", "SELECT arn AS assetid FROM magpie.aws " +
+      "WHERE resourcetype = 'AWS::S3::Bucket' AND (supplementaryconfiguration->>'isPublic')::boolean");
+    var unencryptedBuckets = sqlRule("unencrypted-buckets", "SELECT documentid, arn AS assetid FROM magpie.aws " +
+      "WHERE resourcetype = 'AWS::S3::Bucket' AND supplementaryconfiguration->'BucketEncryption' IS NULL;");
+    var eastBuckets = sqlRule("east-buckets", "SELECT arn AS assetid, awsregion FROM magpie.awss3bucket");
+    eastBuckets.setEval("def evaluate(resultset):\n" +
+      "    return [{'assetid': row['assetid']} for row in resultset if row['awsregion'] == 'us-east-1']\n");
+    var devBuckets = sqlRule("dev-buckets", null);
+    devBuckets.setType("predicate");
+    devBuckets.setResourceTypes(List.of("AWS::S3::Bucket"));
+    devBuckets.setPredicate(asset -> "dev".equals(asset.at("/tags/env").asText()));
+    var rootUsers = sqlRule("root-users", getResourceAsString("/sql/rule-sql-with-available-asset.sql"));
+    var disabled = sqlRule("disabled", "SELECT arn AS assetid FROM magpie.awss3bucket");
+    disabled.setEnabled(false);
+    var manual = sqlRule("manual", "SELECT arn AS assetid FROM magpie.awss3bucket");
+    manual.setManualControl(true);
+    var missingAssets = sqlRule("missing-assets", getResourceAsString("/sql/rule-sql-with-missed-asset.sql"));
+    var gcpPolicy = sqlPolicy("gcp", List.of(sqlRule("gcp-rule", "SELECT 1")));
+    gcpPolicy.setCloudProvider("GCP");
+    var disabledPolicy = sqlPolicy("disabled-policy", List.of(publicBuckets));
+    disabledPolicy.setEnabled(false);
+
+    var contexts = List.of(
+      new PolicyContext(null, sqlPolicy("buckets", List.of(publicBuckets, disabled, unencryptedBuckets, eastBuckets, devBuckets))),
+      new PolicyContext(null, disabledPolicy),
+      new PolicyContext(null, sqlPolicy("mixed", List.of(manual, rootUsers, missingAssets, publicBuckets))),
+      new PolicyContext(null, gcpPolicy),
+      new PolicyContext(null, sqlPolicy("repeated", List.of(eastBuckets, devBuckets, unencryptedBuckets, eastBuckets))));
+
+    for (boolean combineRules : List.of(true, false)) {
+      // when
+      ScanResults serial = analyzeWithWorkers(1, combineRules, contexts);
+      ScanResults parallel = analyzeWithWorkers(4, combineRules, contexts);
+
+      // then
+      assertEquals(17, serial.getViolations().size());
+      assertEquals(3, serial.getIgnoredRules().size());
+      assertEquals(orderedViolationKeys(serial), orderedViolationKeys(parallel));
+      assertEquals(orderedIgnoredRuleKeys(serial), orderedIgnoredRuleKeys(parallel));
+    }
+  }
+
+  private ScanResults analyzeWithWorkers(int workers, boolean combineRules, List<PolicyContext> contexts) {
+    var policyConfig = new PolicyConfig();
+    policyConfig.setAnalysisWorkers(workers);
+    policyConfig.setCombineRules(combineRules);
+    when(config.getPolicies()).thenReturn(policyConfig);
+    policyAnalyzerService.init(config);
+    return policyAnalyzerService.analyze(contexts);
+  }
+
+  private static List<String> orderedViolationKeys(ScanResults results) {
+    return results.getViolations().stream()
+      .map(violation -> violation.getPolicyId() + " " + violation.getRuleId() + " " + violation.getAssetId())
+      .collect(Collectors.toList());
+  }
+
+  private static List<String> orderedIgnoredRuleKeys(ScanResults results) {
+    return results.getIgnoredRules().stream()
+      .map(ignoredRule -> ignoredRule.getPolicyId() + " " + ignoredRule.getRuleId() + " " + ignoredRule.getIgnoredReason())
+      .collect(Collectors.toList());
+  }
+
+  private ScanResults analyzeWithCombinedRules(boolean combineRules, List<PolicyContext> contexts) {
+    var policyConfig = new PolicyConfig();
+    policyConfig.setCombineRules(combineRules);
+    when(config.getPolicies()).thenReturn(policyConfig);
+    policyAnalyzerService.init(config);
+    return policyAnalyzerService.analyze(contexts);
+  }
+
+  private static List<String> violationKeys(ScanResults results) {
+    return results.getViolations().stream()
+      .map(violation -> violation.getPolicyId() + " " + violation.getRuleId() + " " + violation.getAssetId())
+      .sorted()
+      .collect(Collectors.toList());
+  }
+
+  private static Policy sqlPolicy(String refId, List<Rule> rules) {
+    var policy = new Policy();
+    policy.setRefId(refId);
+    policy.setName(refId);
+    policy.setCloudProvider("AWS");
+    policy.setEnabled(true);
+    policy.setRules(rules);
+    return policy;
+  }
+
+  private static Rule sqlRule(String refId, String sql) {
+    var rule = new Rule();
+    rule.setRefId(refId);
+    rule.setName(refId);
+    rule.setEnabled(true);
+    rule.setSql(sql);
+    return rule;
+  }
+
   private static void persistanceSetup(JdbcDatabaseContainer jdbcDatabaseContainer) {
     PersistConfig persistConfig = new PersistConfig();
     persistConfig.setHostname("localhost");
@@ -300,6 +424,7 @@ class PolicyAnalyzerServiceIT {
 
   private static void populateAssetData() {
     assetsRepo.executeNative(getResourceAsString("/sql/aws-asset-credential-report.sql"));
+    assetsRepo.executeNative(getResourceAsString("/sql/aws-asset-s3-buckets.sql"));
   }
 
   private ScanResults initAndAnalyzePolicies() throws Exception {
@@ -307,9 +432,9 @@ class PolicyAnalyzerServiceIT {
     return policyAnalyzerService.analyze(List.of(policyContext));
   }
 
-  private Map<Policy, List<IgnoredRule>> remapIgnoredRules(ScanResults analyze) {
+  private Map<String, List<IgnoredRule>> remapIgnoredRules(ScanResults analyze) {
     return analyze.getIgnoredRules().stream()
-      .collect(groupingBy(IgnoredRule::getPolicy));
+      .collect(groupingBy(ignoredRule -> String.valueOf(ignoredRule.getPolicyId())));
   }
 
 }
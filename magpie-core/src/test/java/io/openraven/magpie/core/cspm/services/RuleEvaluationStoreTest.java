@@ -0,0 +1,74 @@
+package io.openraven.magpie.core.cspm.services;
+
+import io.openraven.magpie.core.cspm.analysis.Violation;
+import io.openraven.magpie.core.cspm.model.Policy;
+import io.openraven.magpie.core.cspm.model.Rule;
+import io.openraven.magpie.plugins.persist.AssetWatermark;
+import io.openraven.magpie.plugins.persist.PersistConfig;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class RuleEvaluationStoreTest {
+
+  private static final List<String> INPUTS = List.of("AWS::S3::Bucket");
+  private static final Instant DISCOVERED = Instant.parse("2021-06-01T00:00:00Z");
+
+  // Keeps evaluations in memory only
+  private final RuleEvaluationStore store = new RuleEvaluationStore(new PersistConfig()) {
+    @Override
+    void write(List<StoredEvaluation> entries) {
+    }
+  };
+
+  @Test
+  void unchangedInputsShouldReuseStoredViolations() {
+    final var policy = policy();
+    final var rule = rule("SELECT arn AS assetid FROM aws WHERE resourcetype = 'AWS::S3::Bucket'");
+    record(policy, rule, Map.of("AWS::S3::Bucket", new AssetWatermark(2, DISCOVERED)));
+
+    final var reused = store.reuse(policy, rule, INPUTS, Map.of("AWS::S3::Bucket", new AssetWatermark(2, DISCOVERED)));
+    assertEquals(1, reused.size());
+    assertEquals("arn:aws:s3:::public", reused.get(0).getAssetId());
+  }
+
+  @Test
+  void changedInputsOrRuleShouldInvalidateStoredViolations() {
+    final var policy = policy();
+    final var rule = rule("SELECT arn AS assetid FROM aws WHERE resourcetype = 'AWS::S3::Bucket'");
+    record(policy, rule, Map.of("AWS::S3::Bucket", new AssetWatermark(2, DISCOVERED)));
+
+    assertNull(store.reuse(policy, rule, INPUTS, Map.of("AWS::S3::Bucket", new AssetWatermark(3, DISCOVERED))));
+    assertNull(store.reuse(policy, rule, INPUTS, Map.of("AWS::S3::Bucket", new AssetWatermark(2, DISCOVERED.plusSeconds(1)))));
+    assertNull(store.reuse(policy, rule, INPUTS, Map.of()));
+
+    rule.setSql("SELECT arn AS assetid FROM aws WHERE resourcetype = 'AWS::S3::Bucket' AND arn LIKE '%public%'");
+    assertNull(store.reuse(policy, rule, INPUTS, Map.of("AWS::S3::Bucket", new AssetWatermark(2, DISCOVERED))));
+  }
+
+  private void record(Policy policy, Rule rule, Map<String, AssetWatermark> watermarks) {
+    final var evaluatedAt = LocalDateTime.now();
+    store.record(policy, rule, INPUTS, watermarks,
+      List.of(new Violation(policy, rule, "arn:aws:s3:::public", "", evaluatedAt)), evaluatedAt);
+    store.flush();
+  }
+
+  private static Policy policy() {
+    final var policy = new Policy();
+    policy.setRefId("policy");
+    return policy;
+  }
+
+  private static Rule rule(String sql) {
+    final var rule = new Rule();
+    rule.setRefId("rule");
+    rule.setSql(sql);
+    return rule;
+  }
+}
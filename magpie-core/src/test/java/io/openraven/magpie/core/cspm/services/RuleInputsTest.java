@@ -0,0 +1,47 @@
+package io.openraven.magpie.core.cspm.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RuleInputsTest {
+
+  @Test
+  void parentTableFilteredByResourceTypeShouldReadThatType() {
+    assertEquals(List.of("AWS::IAM::Group"),
+      RuleInputs.resourceTypesRead("SELECT arn AS assetid FROM magpie.aws WHERE resourcetype = 'AWS::IAM::Group'"));
+    assertEquals(List.of("AWS::S3::Bucket"), RuleInputs.resourceTypesRead(
+      "SELECT arn AS assetid FROM magpie.aws WHERE resourcetype = 'AWS::S3::Bucket' " +
+        "AND (configuration->>'or' = 'x' OR tags->>'public' = 'true');"));
+  }
+
+  @Test
+  void perTypeTablesShouldReadTheirTypesWhateverTheFilters() {
+    assertEquals(List.of("AWS::EC2::Instance", "AWS::EC2::SecurityGroup"), RuleInputs.resourceTypesRead(
+      "SELECT i.arn AS assetid FROM magpie.awsec2instance i " +
+        "JOIN magpie.awsec2securitygroup g ON g.resourceid = i.configuration->>'securityGroupId' " +
+        "WHERE g.configuration->>'open' = 'true' OR i.resourcetype LIKE 'AWS::%'"));
+  }
+
+  @Test
+  void undeterminedInputsShouldNotBeCached() {
+    for (String sql : List.of(
+      "SELECT arn AS assetid FROM aws WHERE resourcetype IN ('AWS::S3::Bucket', 'AWS::EC2::Instance')",
+      "SELECT arn AS assetid FROM aws WHERE resourcetype LIKE 'AWS::S3::%'",
+      "SELECT arn AS assetid FROM aws WHERE resourcetype = 'AWS::S3::Bucket' OR tags->>'public' = 'true'",
+      "SELECT arn AS assetid FROM aws WHERE (resourcetype = 'AWS::S3::Bucket' OR true)",
+      "SELECT arn AS assetid FROM aws WHERE NOT resourcetype = 'AWS::S3::Bucket'",
+      "SELECT arn AS assetid FROM aws",
+      "SELECT b.arn AS assetid FROM aws b JOIN aws k ON k.arn = b.configuration->>'kmsKey' WHERE b.resourcetype = 'AWS::S3::Bucket'",
+      "SELECT arn AS assetid FROM aws WHERE resourcetype = 'AWS::S3::Bucket' AND arn IN (SELECT arn FROM awskmskey)",
+      "SELECT arn AS assetid FROM awss3bucket b, jsonb_array_elements(b.configuration->'grants') g",
+      "SELECT arn AS assetid FROM awss3bucket UNION ALL SELECT arn FROM aws",
+      "WITH buckets AS (SELECT * FROM awss3bucket) SELECT arn AS assetid FROM buckets",
+      "SELECT arn AS assetid FROM somefuturetable")) {
+      assertTrue(RuleInputs.resourceTypesRead(sql).isEmpty(), sql);
+    }
+  }
+}
@@ -0,0 +1,187 @@
+package io.openraven.magpie.core.cspm.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.openraven.magpie.api.StreamingPolicyOutputPlugin;
+import io.openraven.magpie.core.cspm.analysis.IgnoredRule;
+import io.openraven.magpie.core.cspm.analysis.ScanMetadata;
+import io.openraven.magpie.core.cspm.analysis.ScanResults;
+import io.openraven.magpie.core.cspm.analysis.Violation;
+import io.openraven.magpie.core.cspm.model.Policy;
+import io.openraven.magpie.core.cspm.model.Rule;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+class ScanResultsPublisherTest {
+
+  private static final ObjectMapper MAPPER = new ObjectMapper().registerModule(new JavaTimeModule());
+  private static final LocalDateTime EVALUATED_AT = LocalDateTime.of(2021, 6, 1, 12, 1);
+
+  @Test
+  void callbacksShouldFollowThePoliciesInOrder() {
+    final var plugin = new RecordingPlugin();
+    new ScanResultsPublisher(MAPPER, results()).publish(plugin);
+
+    assertEquals(List.of(
+      "beginReport 2 violations, 2 ignored rules",
+      "beginPolicy encryption 2 violations, 1 ignored rules",
+      "violation encryption/unencrypted-bucket arn:aws:s3:::logs",
+      "violation encryption/unencrypted-bucket arn:aws:s3:::data",
+      "ignoredRule encryption/manual-review MANUAL_CONTROL",
+      "endPolicy encryption",
+      // Referenced by refId, having no id
+      "beginPolicy legacy 0 violations, 1 ignored rules",
+      "ignoredRule legacy/legacy-rule DISABLED",
+      "endPolicy legacy",
+      "beginPolicy clean 0 violations, 0 ignored rules",
+      "endPolicy clean",
+      "endReport"), plugin.calls);
+
+    // Rules are sent once, in the header
+    assertEquals(2, plugin.header.at("/policies/0/rules").size());
+    plugin.policies.forEach(policy -> assertFalse(policy.has("rules")));
+  }
+
+  @Test
+  void publishingShouldMatchReplayingTheResultsTree() {
+    final var results = results();
+    final var published = new RecordingPlugin();
+    new ScanResultsPublisher(MAPPER, results).publish(published);
+
+    final var replayed = new RecordingPlugin();
+    replayed.generateReport(MAPPER.valueToTree(results));
+
+    assertEquals(published.calls, replayed.calls);
+    assertEquals(published.header, replayed.header);
+    assertEquals(published.policies, replayed.policies);
+    assertEquals(published.entries, replayed.entries);
+  }
+
+  private static ScanResults results() {
+    final var unencryptedBucket = rule(UUID.fromString("5b0c1f8e-2f7a-4d8e-9a47-3c1d2e4f5a60"), "unencrypted-bucket",
+      "Unencrypted bucket", "s3-encryption.yaml");
+    final var manualReview = rule(null, "manual-review", "Manual key review", "manual-review.yaml");
+    final var legacyRule = rule(null, "legacy-rule", "Legacy rule", "legacy.yaml");
+
+    final var encryption = policy(UUID.fromString("9f1e2d3c-4b5a-4968-8776-a5b4c3d2e1f0"), "encryption", "Encryption",
+      true, unencryptedBucket, manualReview);
+    final var legacy = policy(null, "legacy", "Legacy", false, legacyRule);
+    final var clean = policy(UUID.fromString("0a1b2c3d-4e5f-4a6b-8c7d-9e0f1a2b3c4d"), "clean", "Clean", true);
+
+    final var results = new ScanResults(List.of(encryption, legacy, clean),
+      List.of(
+        new Violation(encryption, unencryptedBucket, "arn:aws:s3:::logs", null, EVALUATED_AT),
+        new Violation(encryption, unencryptedBucket, "arn:aws:s3:::data", null, EVALUATED_AT)),
+      List.of(
+        new IgnoredRule(legacy, legacyRule, IgnoredRule.IgnoredReason.DISABLED),
+        new IgnoredRule(encryption, manualReview, IgnoredRule.IgnoredReason.MANUAL_CONTROL)));
+    results.setScanMetadata(new ScanMetadata(Date.from(Instant.parse("2021-06-01T12:00:00Z")), Duration.ofSeconds(95)));
+    return results;
+  }
+
+  private static Policy policy(UUID id, String refId, String name, boolean enabled, Rule... rules) {
+    final var policy = new Policy();
+    policy.setId(id);
+    policy.setRefId(refId);
+    policy.setName(name);
+    policy.setEnabled(enabled);
+    policy.setRules(List.of(rules));
+    return policy;
+  }
+
+  private static Rule rule(UUID id, String refId, String name, String fileName) {
+    final var rule = new Rule();
+    rule.setId(id);
+    rule.setRefId(refId);
+    rule.setName(name);
+    rule.setFileName(fileName);
+    rule.setSeverity("high");
+    rule.setEnabled(true);
+    return rule;
+  }
+
+  private static class RecordingPlugin implements StreamingPolicyOutputPlugin<Void> {
+    private final List<String> calls = new ArrayList<>();
+    private final List<ObjectNode> policies = new ArrayList<>();
+    private final List<ObjectNode> entries = new ArrayList<>();
+    private ObjectNode header;
+
+    @Override
+    public void beginReport(ObjectNode header) {
+      this.header = header;
+      calls.add("beginReport " + header.get("violationCount") + " violations, " + header.get("ignoredRuleCount") + " ignored rules");
+    }
+
+    @Override
+    public void beginPolicy(ObjectNode policy) {
+      policies.add(policy);
+      calls.add("beginPolicy " + policy.get("refId").asText() + " " + policy.get("violationCount") + " violations, " +
+        policy.get("ignoredRuleCount") + " ignored rules");
+    }
+
+    @Override
+    public void violation(ObjectNode violation) {
+      entries.add(violation);
+      calls.add("violation " + refIdOf(violation) + " " + violation.get("assetId").asText());
+    }
+
+    @Override
+    public void ignoredRule(ObjectNode ignoredRule) {
+      entries.add(ignoredRule);
+      calls.add("ignoredRule " + refIdOf(ignoredRule) + " " + ignoredRule.get("ignoredReason").asText());
+    }
+
+    @Override
+    public void endPolicy(ObjectNode policy) {
+      calls.add("endPolicy " + policy.get("refId").asText());
+    }
+
+    @Override
+    public void endReport() {
+      calls.add("endReport");
+    }
+
+    // Names the policy and rule an entry references by their refIds, whichever id it carries
+    private String refIdOf(ObjectNode entry) {
+      String policyRefId = null;
+      String ruleRefId = null;
+      for (var policy : header.get("policies")) {
+        if (StreamingPolicyOutputPlugin.referenceOf(policy).equals(entry.get("policyId").asText())) {
+          policyRefId = policy.get("refId").asText();
+          for (var rule : policy.get("rules")) {
+            if (StreamingPolicyOutputPlugin.referenceOf(rule).equals(entry.get("ruleId").asText())) {
+              ruleRefId = rule.get("refId").asText();
+            }
+          }
+        }
+      }
+      return policyRefId + "/" + ruleRefId;
+    }
+
+    @Override
+    public String id() {
+      return "recording";
+    }
+
+    @Override
+    public void init(Void config, Logger logger) {
+    }
+
+    @Override
+    public Class<Void> configType() {
+      return null;
+    }
+  }
+}
@@ -0,0 +1,60 @@
+package io.openraven.magpie.core.plugins;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.openraven.magpie.api.MagpieEnvelope;
+import io.openraven.magpie.api.Session;
+import io.openraven.magpie.core.config.PolicyConfig;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PolicyStreamPluginTest {
+
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+
+  @TempDir
+  Path policyRoot;
+
+  @Test
+  void testViolationsAreEmittedPerAsset() throws Exception {
+    var config = new PolicyConfig();
+    config.setRoot(policyRoot.toString());
+    config.setRepositories(List.of(Path.of(PolicyStreamPluginTest.class.getResource("/policystream").toURI()).toString()));
+
+    var plugin = new PolicyStreamPlugin();
+    plugin.init(config, LoggerFactory.getLogger(PolicyStreamPlugin.class));
+
+    var emitted = new ArrayList<MagpieEnvelope>();
+    plugin.accept(envelope("AWS::IAM::Group", "arn:aws:iam::000000000000:group/Admins", "/"), emitted::add);
+    plugin.accept(envelope("AWS::IAM::Group", "arn:aws:iam::000000000000:group/Ops", "/managed/ops/"), emitted::add);
+    plugin.accept(envelope("AWS::S3::Bucket", "arn:aws:s3:::bucket", "/"), emitted::add);
+
+    assertEquals(1, emitted.size());
+    var violation = emitted.get(0);
+    assertEquals("arn:aws:iam::000000000000:group/Admins", violation.getContents().get("assetId").asText());
+    assertEquals("iam-group-outside-path", violation.getContents().get("ruleRefId").asText());
+    assertEquals("0b7c9a06-4a7e-4b4c-9a5e-5b8f2f6b1c11", violation.getContents().get("policyId").asText());
+    // The rule has no id, so it's referenced by refId as in scan results
+    assertEquals("iam-group-outside-path", violation.getContents().get("ruleId").asText());
+    assertFalse(violation.getContents().has("info"));
+    assertEquals("Streaming policy", violation.getContents().get("policyName").asText());
+    assertTrue(violation.getPluginPath().contains(PolicyStreamPlugin.ID));
+  }
+
+  private static MagpieEnvelope envelope(String resourceType, String arn, String path) {
+    ObjectNode contents = MAPPER.createObjectNode();
+    contents.put("resourceType", resourceType);
+    contents.put("arn", arn);
+    contents.putObject("configuration").put("path", path);
+    return new MagpieEnvelope(new Session(), new ArrayList<>(List.of("magpie.aws.discovery")), contents);
+  }
+}
@@ -0,0 +1,4 @@
+INSERT INTO magpie.awss3bucket (documentid, arn, resourcename, resourceid, resourcetype, awsregion, awsaccountid, creatediso, updatediso, discoverysessionid, configuration, supplementaryconfiguration, tags, discoverymeta)
+VALUES ('s3-public-unencrypted', 'arn:aws:s3:::public-unencrypted', 'public-unencrypted', 'public-unencrypted', 'AWS::S3::Bucket', 'us-east-1', '723176279592', NULL, '2021-07-06 11:30:03.439601+00', NULL, '{"name": "public-unencrypted"}', '{"isPublic": true}', '{"env": "dev"}', NULL),
+       ('s3-public-encrypted', 'arn:aws:s3:::public-encrypted', 'public-encrypted', 'public-encrypted', 'AWS::S3::Bucket', 'us-west-2', '723176279592', NULL, '2021-07-06 11:30:03.439601+00', NULL, '{"name": "public-encrypted"}', '{"isPublic": true, "BucketEncryption": {"rules": [{"sse": "aws:kms"}]}}', '{"env": "prod"}', NULL),
+       ('s3-private', 'arn:aws:s3:::private', 'private', 'private', 'AWS::S3::Bucket', 'us-east-1', '723176279592', NULL, '2021-07-06 11:30:03.439601+00', NULL, '{"name": "private"}', '{"isPublic": false}', '{}', NULL);
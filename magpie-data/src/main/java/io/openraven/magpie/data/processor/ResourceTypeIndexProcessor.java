@@ -0,0 +1,153 @@
+/*-
+ * #%L
+ * Magpie API
+ * %%
+ * Copyright (C) 2021 - 2022 Open Raven Inc
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * 
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package io.openraven.magpie.data.processor;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Compile-time replacement for classpath scanning of {@code Resource} subtypes. Collects every {@code @Entity} that
+ * extends {@code io.openraven.magpie.data.Resource} and generates {@code ResourceTypeRegistry}, a static map of
+ * {@code RESOURCE_TYPE} to entity class.
+ *
+ * This processor is only run while compiling magpie-data itself and is deliberately not registered as a service, so
+ * it isn't picked up by modules that depend on magpie-data.
+ */
+@SupportedAnnotationTypes("javax.persistence.Entity")
+public class ResourceTypeIndexProcessor extends AbstractProcessor {
+
+  static final String REGISTRY_PACKAGE = "io.openraven.magpie.data.utils";
+  static final String REGISTRY_CLASS = "ResourceTypeRegistry";
+
+  private static final String RESOURCE_CLASS = "io.openraven.magpie.data.Resource";
+  private static final String RESOURCE_TYPE_FIELD = "RESOURCE_TYPE";
+
+  private final Map<String, String> resourceTypes = new TreeMap<>();
+  private boolean written;
+
+  @Override
+  public SourceVersion getSupportedSourceVersion() {
+    return SourceVersion.latestSupported();
+  }
+
+  @Override
+  public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+    final var resource = processingEnv.getElementUtils().getTypeElement(RESOURCE_CLASS);
+    if (resource == null) {
+      return false;
+    }
+
+    annotations.forEach(annotation -> ElementFilter.typesIn(roundEnv.getElementsAnnotatedWith(annotation)).forEach(type -> {
+      if (type.getModifiers().contains(Modifier.ABSTRACT)
+        || !processingEnv.getTypeUtils().isSubtype(type.asType(), resource.asType())) {
+        return;
+      }
+      register(type);
+    }));
+
+    // All entities are hand written, so they are seen in the first round. Writing the registry there (rather than
+    // once processing is over) keeps it subject to compilation in the following round.
+    if (!written && !resourceTypes.isEmpty()) {
+      writeRegistry();
+      written = true;
+    }
+    // Leave the annotation unclaimed, the JPA metamodel generator processes the same entities
+    return false;
+  }
+
+  private void register(TypeElement type) {
+    final var resourceType = ElementFilter.fieldsIn(type.getEnclosedElements()).stream()
+      .filter(field -> field.getSimpleName().contentEquals(RESOURCE_TYPE_FIELD))
+      .filter(field -> field.getModifiers().contains(Modifier.STATIC))
+      .map(VariableElement::getConstantValue)
+      .findFirst();
+
+    if (resourceType.isEmpty() || resourceType.get() == null) {
+      error(type, "Entity %s does not declare a constant RESOURCE_TYPE", type.getQualifiedName());
+      return;
+    }
+
+    final var key = String.valueOf(resourceType.get());
+    final var className = binaryName(type);
+    final var existing = resourceTypes.putIfAbsent(key, className);
+    if (existing != null && !existing.equals(className)) {
+      error(type, "RESOURCE_TYPE:  \"%s\" already exists on %s", key, existing);
+    } else if (existing == null && written) {
+      error(type, "Entity %s was generated after %s was written", type.getQualifiedName(), REGISTRY_CLASS);
+    }
+  }
+
+  private String binaryName(TypeElement type) {
+    return processingEnv.getElementUtils().getBinaryName(type).toString();
+  }
+
+  private void writeRegistry() {
+    final var qualifiedName = REGISTRY_PACKAGE + "." + REGISTRY_CLASS;
+    try (PrintWriter out = new PrintWriter(processingEnv.getFiler().createSourceFile(qualifiedName).openWriter())) {
+      out.println("package " + REGISTRY_PACKAGE + ";");
+      out.println();
+      out.println("import io.openraven.magpie.data.Resource;");
+      out.println();
+      out.println("import javax.annotation.processing.Generated;");
+      out.println("import java.util.Map;");
+      out.println();
+      out.println("@Generated(\"" + getClass().getName() + "\")");
+      out.println("public final class " + REGISTRY_CLASS + " {");
+      out.println();
+      out.println("  private static final Map<String, Class<? extends Resource>> RESOURCE_TYPES = Map.ofEntries(");
+      var remaining = resourceTypes.size();
+      for (Map.Entry<String, String> entry : resourceTypes.entrySet()) {
+        out.printf("    Map.entry(\"%s\", %s.class)%s%n", escape(entry.getKey()), entry.getValue().replace('$', '.'), --remaining > 0 ? "," : "");
+      }
+      out.println("  );");
+      out.println();
+      out.println("  private " + REGISTRY_CLASS + "() {");
+      out.println("  }");
+      out.println();
+      out.println("  public static Map<String, Class<? extends Resource>> resourceTypes() {");
+      out.println("    return RESOURCE_TYPES;");
+      out.println("  }");
+      out.println("}");
+    } catch (IOException e) {
+      processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Unable to write " + qualifiedName + ": " + e.getMessage());
+    }
+  }
+
+  private static String escape(String value) {
+    return value.replace("\\", "\\\\").replace("\"", "\\\"");
+  }
+
+  private void error(Element element, String format, Object... args) {
+    processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, String.format(format, args), element);
+  }
+}
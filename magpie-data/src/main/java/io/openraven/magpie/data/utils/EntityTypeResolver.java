@@ -39,17 +39,12 @@ import com.fasterxml.jackson.databind.DatabindContext;
 import com.fasterxml.jackson.databind.JavaType;
 import com.fasterxml.jackson.databind.jsontype.impl.TypeIdResolverBase;
 import io.openraven.magpie.data.exception.MissingEntityTypeException;
-import org.reflections.Reflections;
 
-import java.io.IOException;
-import java.lang.reflect.Field;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 
-import static java.lang.String.format;
-
 public class EntityTypeResolver extends TypeIdResolverBase {
 
     private JavaType baseType;
@@ -59,22 +54,12 @@ public class EntityTypeResolver extends TypeIdResolverBase {
     public void init(JavaType javaType) {
         baseType = javaType;
 
+        // The RESOURCE_TYPE -> class registry is generated at compile time by ResourceTypeIndexProcessor, which also
+        // rejects entities without a RESOURCE_TYPE constant and duplicate RESOURCE_TYPE values.
         Class<?> rawClass = baseType.getRawClass();
-        Set<Class<?>> subTypes = getSubClasses(rawClass);
-
-        subTypes.forEach(type -> {
-            try {
-                Field resourceTypeField = type.getDeclaredField("RESOURCE_TYPE");
-                String key = String.valueOf(resourceTypeField.get(null));
-
-                if (typeMap.containsKey(key)) {
-                    throw new IllegalStateException("RESOURCE_TYPE:  \"" + key + "\" already exists.");
-                }
-
+        ResourceTypeRegistry.resourceTypes().forEach((key, type) -> {
+            if (rawClass.isAssignableFrom(type) && !rawClass.equals(type)) {
                 typeMap.put(key, type);
-            } catch (NoSuchFieldException | IllegalAccessException e) {
-                throw new IllegalArgumentException(
-                        format("Entity %s does not declare RESOURCE_TYPE constant", type.getName()));
             }
         });
     }
@@ -104,12 +89,8 @@ public class EntityTypeResolver extends TypeIdResolverBase {
     }
 
     public static Set<Class<?>> getSubClasses(Class<?> rawClass) {
-        Reflections reflections = new Reflections(rawClass.getPackageName());
-        Set<Class<?>> abstractSubResources = (Set<Class<?>>) reflections.getSubTypesOf(rawClass);
-
-        return abstractSubResources.stream()
-          .map(resourceClass -> (Set<Class<?>>) reflections.getSubTypesOf(resourceClass))
-          .flatMap(Set::stream)
+        return ResourceTypeRegistry.resourceTypes().values().stream()
+          .filter(resourceClass -> rawClass.isAssignableFrom(resourceClass) && !rawClass.equals(resourceClass))
           .collect(Collectors.toSet());
     }
 }
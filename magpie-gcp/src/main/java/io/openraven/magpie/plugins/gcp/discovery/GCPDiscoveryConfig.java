@@ -18,8 +18,10 @@ package io.openraven.magpie.plugins.gcp.discovery;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.google.api.gax.core.CredentialsProvider;
+import io.openraven.magpie.api.EnrichmentLevel;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.function.Supplier;
 
@@ -28,6 +30,8 @@ public class GCPDiscoveryConfig {
 
     private CredentialsProvider credentialsProvider;
     private Optional<Supplier<List<String>>> projectListProvider = Optional.empty();
+    private EnrichmentLevel enrichment = EnrichmentLevel.FULL;
+    private Map<String, EnrichmentLevel> serviceEnrichment = Map.of();
 
     public List<String> getServices() {
     return services;
@@ -52,4 +56,28 @@ public class GCPDiscoveryConfig {
     public void setProjectListProvider(Supplier<List<String>> projectListProvider) {
         this.projectListProvider = Optional.ofNullable(projectListProvider);
     }
+
+    /**
+     * @return the enrichment level of every service without an entry in {@link #getServiceEnrichment()}. Defaults to
+     * FULL; LITE skips Cloud Monitoring size metrics and per-resource sub-resource lookups.
+     */
+    public EnrichmentLevel getEnrichment() {
+        return enrichment;
+    }
+
+    public void setEnrichment(EnrichmentLevel enrichment) {
+        this.enrichment = enrichment == null ? EnrichmentLevel.FULL : enrichment;
+    }
+
+    public Map<String, EnrichmentLevel> getServiceEnrichment() {
+        return serviceEnrichment;
+    }
+
+    public void setServiceEnrichment(Map<String, EnrichmentLevel> serviceEnrichment) {
+        this.serviceEnrichment = serviceEnrichment == null ? Map.of() : serviceEnrichment;
+    }
+
+    public EnrichmentLevel enrichmentFor(String service) {
+        return EnrichmentLevel.forService(service, enrichment, serviceEnrichment);
+    }
 }
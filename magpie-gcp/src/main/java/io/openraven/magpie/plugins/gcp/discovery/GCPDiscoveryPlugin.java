@@ -151,7 +151,7 @@ public class GCPDiscoveryPlugin implements OriginPlugin<GCPDiscoveryConfig> {
       .forEach(gcpDiscovery -> {
         try {
           logger.debug("Discovering service: {}, class: {}", gcpDiscovery.service(), gcpDiscovery.getClass());
-          gcpDiscovery.discoverWrapper(MAPPER, project, session, emitter, logger, Optional.ofNullable(config.getCredentialsProvider()));
+          gcpDiscovery.discoverWrapper(MAPPER, project, session, emitter, logger, Optional.ofNullable(config.getCredentialsProvider()), config.enrichmentFor(gcpDiscovery.service()));
         } catch (Exception ex) {
           logger.error("Discovery error in service {} - {}", gcpDiscovery.service(), ex.getMessage());
           logger.debug("Details", ex);
@@ -162,7 +162,7 @@ public class GCPDiscoveryPlugin implements OriginPlugin<GCPDiscoveryConfig> {
       .filter(service -> isEnabled(service.service()))
       .forEach(service -> {
       try {
-        service.discoverWrapper(MAPPER, null, session, emitter, logger, Optional.ofNullable(config.getCredentialsProvider()));
+        service.discoverWrapper(MAPPER, null, session, emitter, logger, Optional.ofNullable(config.getCredentialsProvider()), config.enrichmentFor(service.service()));
       } catch (PermissionDeniedException permissionDeniedException) {
         logger.error("{} While discovering {} service", permissionDeniedException.getMessage(), service.service());
       }
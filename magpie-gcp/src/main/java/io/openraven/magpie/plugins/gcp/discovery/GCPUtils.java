@@ -16,21 +16,25 @@
 
 package io.openraven.magpie.plugins.gcp.discovery;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.google.appengine.repackaged.com.google.common.base.Pair;
-import com.google.gson.GsonBuilder;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonPrimitive;
 
+import java.math.BigInteger;
 import java.time.Instant;
+import java.util.Map;
 
 public class GCPUtils {
-  private static final Logger logger = LoggerFactory.getLogger(GCPUtils.class);
   private static final ObjectMapper mapper = createObjectMapper();
+  // Thread-safe, and caches the reflective adapter of every type it has converted
+  private static final Gson gson = new Gson();
 
   public  static ObjectMapper createObjectMapper() {
     return  new ObjectMapper()
@@ -39,16 +43,64 @@ public class GCPUtils {
       .findAndRegisterModules();
   }
 
+  /**
+   * Converts a GCP client object (usually a protobuf message) to the JSON Gson's reflective serialization produces.
+   * Gson builds its element tree directly and the tree is copied into Jackson nodes, with numbers typed the way
+   * Jackson would parse Gson's text, so the result equals parsing {@code gson.toJson(object)} without producing it.
+   */
   public static JsonNode asJsonNode(Object object) {
-    String jsonString = new GsonBuilder().setPrettyPrinting().create().toJson(object);
+    if (object instanceof String) {
+      return mapper.getNodeFactory().textNode((String) object);
+    }
+    if (object instanceof Boolean) {
+      return mapper.getNodeFactory().booleanNode((Boolean) object);
+    }
+    return toJsonNode(gson.toJsonTree(object), mapper.getNodeFactory());
+  }
 
-    try {
-      return mapper.readValue(jsonString, JsonNode.class);
-    } catch (JsonProcessingException e) {
-      logger.error("Unexpected JsonProcessingException this shouldn't happen at all");
+  private static JsonNode toJsonNode(JsonElement element, JsonNodeFactory factory) {
+    if (element.isJsonObject()) {
+      final ObjectNode node = factory.objectNode();
+      for (Map.Entry<String, JsonElement> field : element.getAsJsonObject().entrySet()) {
+        node.set(field.getKey(), toJsonNode(field.getValue(), factory));
+      }
+      return node;
+    }
+    if (element.isJsonArray()) {
+      final ArrayNode node = factory.arrayNode(element.getAsJsonArray().size());
+      element.getAsJsonArray().forEach(item -> node.add(toJsonNode(item, factory)));
+      return node;
+    }
+    if (element.isJsonNull()) {
+      return factory.nullNode();
     }
 
-    return mapper.createObjectNode();
+    final JsonPrimitive primitive = element.getAsJsonPrimitive();
+    if (primitive.isBoolean()) {
+      return factory.booleanNode(primitive.getAsBoolean());
+    }
+    if (primitive.isString()) {
+      return factory.textNode(primitive.getAsString());
+    }
+    return toNumberNode(primitive.getAsNumber().toString(), factory);
+  }
+
+  // Gson writes a number as its toString(); Jackson reads integers as the smallest of int, long and BigInteger, and
+  // anything with a fraction or exponent as a double
+  private static JsonNode toNumberNode(String number, JsonNodeFactory factory) {
+    if (number.indexOf('.') >= 0 || number.indexOf('e') >= 0 || number.indexOf('E') >= 0) {
+      return factory.numberNode(Double.parseDouble(number));
+    }
+    try {
+      final long value = Long.parseLong(number);
+      return value == (int) value ? factory.numberNode((int) value) : factory.numberNode(value);
+    } catch (NumberFormatException notLong) {
+      try {
+        return factory.numberNode(new BigInteger(number));
+      } catch (NumberFormatException notInteger) { // NaN and Infinity
+        return factory.numberNode(Double.parseDouble(number));
+      }
+    }
   }
 
   public static void update(JsonNode payload, Pair<String, Object> objectPair) {
@@ -24,6 +24,7 @@ import com.google.cloud.bigquery.BigQueryOptions;
 import com.google.cloud.bigquery.Dataset;
 import com.google.cloud.bigquery.Table;
 import io.openraven.magpie.api.Emitter;
+import io.openraven.magpie.api.EnrichmentLevel;
 import io.openraven.magpie.api.MagpieGcpResource;
 import io.openraven.magpie.api.Session;
 import io.openraven.magpie.data.gcp.bigquery.BigQueryDataset;
@@ -45,6 +46,11 @@ public class BigQueryDiscovery implements GCPDiscovery {
   }
 
   public void discover(ObjectMapper mapper, String projectId, Session session, Emitter emitter, Logger logger, Optional<CredentialsProvider> maybeCredentialsProvider) {
+    discover(mapper, projectId, session, emitter, logger, maybeCredentialsProvider, EnrichmentLevel.FULL);
+  }
+
+  @Override
+  public void discover(ObjectMapper mapper, String projectId, Session session, Emitter emitter, Logger logger, Optional<CredentialsProvider> maybeCredentialsProvider, EnrichmentLevel enrichment) {
     var builder = BigQueryOptions.newBuilder();
 
     maybeCredentialsProvider.ifPresent(googleCredentialsProvider -> {
@@ -65,19 +71,20 @@ public class BigQueryDiscovery implements GCPDiscovery {
           .withConfiguration(GCPUtils.asJsonNode(datasetModel))
           .build();
 
-        discoverTables(bigQuery, datasetProxy, data);
+        discoverTables(bigQuery, datasetProxy, data, enrichment);
 
         emitter.emit(VersionedMagpieEnvelopeProvider.create(session, List.of(fullService() + ":dataset"), data.toJsonNode()));
       });
   }
 
-  private void discoverTables(BigQuery bigQuery, Dataset dataset, MagpieGcpResource data) {
+  private void discoverTables(BigQuery bigQuery, Dataset dataset, MagpieGcpResource data, EnrichmentLevel enrichment) {
     String fieldName = "tables";
 
+    // Tables are only discovered here, so lite keeps the listing and skips only the per-table detail lookup
     List<Table> tables = new ArrayList<>();
     bigQuery.listTables(dataset.getDatasetId()).iterateAll()
       .forEach(tableProxy -> {
-        tables.add(bigQuery.getTable(tableProxy.getTableId()));
+        tables.add(enrichment.isFull() ? bigQuery.getTable(tableProxy.getTableId()) : tableProxy);
       });
 
     GCPUtils.update(data.supplementaryConfiguration, Pair.of(fieldName, tables));
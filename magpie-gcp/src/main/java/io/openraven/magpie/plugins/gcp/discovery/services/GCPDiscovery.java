@@ -19,6 +19,7 @@ package io.openraven.magpie.plugins.gcp.discovery.services;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.api.gax.core.CredentialsProvider;
 import io.openraven.magpie.api.Emitter;
+import io.openraven.magpie.api.EnrichmentLevel;
 import io.openraven.magpie.api.Session;
 import io.openraven.magpie.plugins.gcp.discovery.GCPDiscoveryPlugin;
 import org.slf4j.Logger;
@@ -28,14 +29,33 @@ import java.util.Optional;
 public interface GCPDiscovery {
   String service();
 
-  default void discoverWrapper(ObjectMapper mapper, String projectId, Session session, Emitter emitter, Logger logger, Optional<CredentialsProvider> maybeCredentialsProvider) {
+  default void discoverWrapper(ObjectMapper mapper, String projectId, Session session, Emitter emitter, Logger logger, Optional<CredentialsProvider> maybeCredentialsProvider, EnrichmentLevel enrichment) {
     logger.debug("Starting {} discovery ", service());
-    discover(mapper, projectId, session, emitter, logger, maybeCredentialsProvider);
+    discover(mapper, projectId, session, emitter, logger, maybeCredentialsProvider, enrichment);
     logger.debug("Completed {} discovery", service());
   }
 
   void discover(ObjectMapper mapper, String projectId, Session session, Emitter emitter, Logger logger, Optional<CredentialsProvider> maybeCredentialsProvider);
 
+  /**
+   * Services with optional, call-heavy enrichments override this and skip them below {@link EnrichmentLevel#FULL};
+   * every other service discovers the same at any level.
+   */
+  default void discover(ObjectMapper mapper, String projectId, Session session, Emitter emitter, Logger logger, Optional<CredentialsProvider> maybeCredentialsProvider, EnrichmentLevel enrichment) {
+    discover(mapper, projectId, session, emitter, logger, maybeCredentialsProvider);
+  }
+
+  /**
+   * Rediscovers the single resource the asset id (or audit log resource name) names, emitting it exactly as
+   * {@link #discover} would. Services able to look up individual resources override this; the rest are only
+   * discovered by full sweeps.
+   *
+   * @return true if the id names a resource of this service that it can rediscover, whether or not it still exists
+   */
+  default boolean discoverResource(ObjectMapper mapper, String projectId, Session session, String assetId, Emitter emitter, Logger logger, Optional<CredentialsProvider> maybeCredentialsProvider, EnrichmentLevel enrichment) {
+    return false;
+  }
+
   default String fullService() {
     return GCPDiscoveryPlugin.ID + ":" + service();
   }
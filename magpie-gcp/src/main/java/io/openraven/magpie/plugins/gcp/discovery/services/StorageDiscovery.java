@@ -35,6 +35,7 @@ import com.google.monitoring.v3.TimeInterval;
 import com.google.protobuf.util.Timestamps;
 import com.google.storage.v2.BucketName;
 import io.openraven.magpie.api.Emitter;
+import io.openraven.magpie.api.EnrichmentLevel;
 import io.openraven.magpie.api.MagpieGcpResource;
 import io.openraven.magpie.api.Session;
 import io.openraven.magpie.data.gcp.storage.StorageBucket;
@@ -55,75 +56,129 @@ public class StorageDiscovery implements GCPDiscovery {
   private static final String SERVICE = "storage";
   public static final String ASSET_ID_FORMAT = "//storage.googleapis.com/%s";
 
+  // Storage API host other than Google's, or null
+  private final String host;
+
+  public StorageDiscovery() {
+    this(null);
+  }
+
+  StorageDiscovery(String host) {
+    this.host = host;
+  }
+
   @Override
   public String service() {
     return SERVICE;
   }
 
   public void discover(ObjectMapper mapper, String projectId, Session session, Emitter emitter, Logger logger, Optional<CredentialsProvider> maybeCredentialsProvider) {
-    final String RESOURCE_TYPE = StorageBucket.RESOURCE_TYPE;
+    discover(mapper, projectId, session, emitter, logger, maybeCredentialsProvider, EnrichmentLevel.FULL);
+  }
 
-    final StorageOptions.Builder builder = StorageOptions.newBuilder();
-    final var mBuilder = MetricServiceSettings.newBuilder();
+  @Override
+  public void discover(ObjectMapper mapper, String projectId, Session session, Emitter emitter, Logger logger, Optional<CredentialsProvider> maybeCredentialsProvider, EnrichmentLevel enrichment) {
+    final Storage storage = storage(projectId, maybeCredentialsProvider);
+    final var sizeMap = new HashMap<String, Double>();
+    final var countMap = new HashMap<String, Long>();
+    if (enrichment.isFull()) {
+      queryMetrics(projectId, maybeCredentialsProvider, sizeMap, countMap);
+    }
+
+    storage.list().iterateAll().forEach(bucket -> discoverBucket(mapper, projectId, session, emitter, bucket, sizeMap, countMap, enrichment));
+  }
+
+  @Override
+  public boolean discoverResource(ObjectMapper mapper, String projectId, Session session, String assetId, Emitter emitter, Logger logger, Optional<CredentialsProvider> maybeCredentialsProvider, EnrichmentLevel enrichment) {
+    // //storage.googleapis.com/projects/_/buckets/name as emitted, or projects/_/buckets/name as in audit logs;
+    // anything after the bucket name (e.g. /objects/key) names something other than a bucket
+    final var path = assetId.startsWith(String.format(ASSET_ID_FORMAT, "")) ? assetId.substring(String.format(ASSET_ID_FORMAT, "").length()) : assetId;
+    final var parts = path.split("/");
+    if (parts.length != 4 || !"projects".equals(parts[0]) || !"buckets".equals(parts[2])) {
+      return false;
+    }
+
+    final var bucket = storage(projectId, maybeCredentialsProvider).get(parts[3]);
+    if (bucket == null) {
+      logger.debug("Bucket {} no longer exists", parts[3]);
+      return true;
+    }
+    final var sizeMap = new HashMap<String, Double>();
+    final var countMap = new HashMap<String, Long>();
+    if (enrichment.isFull()) {
+      queryMetrics(projectId, maybeCredentialsProvider, sizeMap, countMap);
+    }
+    discoverBucket(mapper, projectId, session, emitter, bucket, sizeMap, countMap, enrichment);
+    return true;
+  }
 
+  private Storage storage(String projectId, Optional<CredentialsProvider> maybeCredentialsProvider) {
+    final StorageOptions.Builder builder = StorageOptions.newBuilder();
     try {
         if(maybeCredentialsProvider.isPresent()){
             builder.setCredentials(maybeCredentialsProvider.get().getCredentials());
-            mBuilder.setCredentialsProvider(maybeCredentialsProvider.get());
         }
     } catch(IOException ioException) {
         throw new RuntimeException(ioException);
     }
+    if (host != null) {
+      builder.setHost(host);
+    }
+    return builder.setProjectId(projectId).build().getService();
+  }
 
-    final var sizeMap = new HashMap<String, Double>();
-    final var countMap = new HashMap<String, Long>();
-
-    final Storage storage = builder.setProjectId(projectId).build().getService();
+  private void queryMetrics(String projectId, Optional<CredentialsProvider> maybeCredentialsProvider, Map<String, Double> sizeMap, Map<String, Long> countMap) {
+    final var mBuilder = MetricServiceSettings.newBuilder();
+    maybeCredentialsProvider.ifPresent(mBuilder::setCredentialsProvider);
     try (MetricServiceClient metrics = MetricServiceClient.create(mBuilder.build())) {
       sizeMap.putAll(queryTotalBytes(metrics, projectId));
       countMap.putAll(queryTotalObjects(metrics, projectId));
     } catch (Exception ex) {
       LOGGER.debug("Metrics discovery exception: {}", ex.getMessage());
     }
+  }
 
-    storage.list().iterateAll().forEach(bucket -> {
-      var data = new MagpieGcpResource.MagpieGcpResourceBuilder(mapper, String.format(
-        ASSET_ID_FORMAT, BucketName.format(projectId, bucket.getName())
-      ))
-        .withProjectId(projectId)
-        .withResourceId(bucket.getName())
-        .withResourceType(RESOURCE_TYPE)
-        .withRegion(bucket.getLocation().toLowerCase())
-        .withCreatedIso(bucket.getCreateTimeOffsetDateTime().toInstant())
-        .withRegion(bucket.getLocation())
-        // Get BucketInfo object instead, this contains the core set of properties and removes nasty bits
-        // like the current request data that contain tokens.
-        // NOTE: this method is in beta since 2.14.0 (which is a very long time ago, we are on major version 26 now).
-        // Should this ever deprecate, we can migrate by using the BucketInfo builder and manually set the fields
-        .withConfiguration(GCPUtils.asJsonNode(bucket.asBucketInfo()))
-        .build();
+  private void discoverBucket(ObjectMapper mapper, String projectId, Session session, Emitter emitter, Bucket bucket,
+                              Map<String, Double> sizeMap, Map<String, Long> countMap, EnrichmentLevel enrichment) {
+    final String RESOURCE_TYPE = StorageBucket.RESOURCE_TYPE;
 
-      try {
-        final var iamPolicy = bucket.getStorage().getIamPolicy(bucket.getName(), Storage.BucketSourceOption.requestedPolicyVersion(3));
-        final var iamConfiguration = bucket.getIamConfiguration();
-        discoverBucketPolicy(data, bucket, iamPolicy);
-        discoverPublicAccessPrevention(data, iamConfiguration);
-        discoverPublicHosting(data, iamPolicy, iamConfiguration);
-      } catch (StorageException ex) {
-        if (ex.getMessage().contains("does not have storage.buckets.getIamPolicy")) {
-          LOGGER.debug("Could not access IAM Policy for {}: {}", bucket.getName(), ex.getMessage());
-        } else {
-          DiscoveryExceptions.onDiscoveryException(RESOURCE_TYPE, ex);
-        }
+    var data = new MagpieGcpResource.MagpieGcpResourceBuilder(mapper, String.format(
+      ASSET_ID_FORMAT, BucketName.format(projectId, bucket.getName())
+    ))
+      .withProjectId(projectId)
+      .withResourceId(bucket.getName())
+      .withResourceType(RESOURCE_TYPE)
+      .withRegion(bucket.getLocation().toLowerCase())
+      .withCreatedIso(bucket.getCreateTimeOffsetDateTime().toInstant())
+      .withRegion(bucket.getLocation())
+      // Get BucketInfo object instead, this contains the core set of properties and removes nasty bits
+      // like the current request data that contain tokens.
+      // NOTE: this method is in beta since 2.14.0 (which is a very long time ago, we are on major version 26 now).
+      // Should this ever deprecate, we can migrate by using the BucketInfo builder and manually set the fields
+      .withConfiguration(GCPUtils.asJsonNode(bucket.asBucketInfo()))
+      .build();
+
+    try {
+      final var iamPolicy = bucket.getStorage().getIamPolicy(bucket.getName(), Storage.BucketSourceOption.requestedPolicyVersion(3));
+      final var iamConfiguration = bucket.getIamConfiguration();
+      discoverBucketPolicy(data, bucket, iamPolicy);
+      discoverPublicAccessPrevention(data, iamConfiguration);
+      discoverPublicHosting(data, iamPolicy, iamConfiguration);
+    } catch (StorageException ex) {
+      if (ex.getMessage().contains("does not have storage.buckets.getIamPolicy")) {
+        LOGGER.debug("Could not access IAM Policy for {}: {}", bucket.getName(), ex.getMessage());
+      } else {
+        DiscoveryExceptions.onDiscoveryException(RESOURCE_TYPE, ex);
       }
+    }
 
-      discoverLabels(data, bucket);
-      discoverBucketEncryption(data, bucket);
+    discoverLabels(data, bucket);
+    discoverBucketEncryption(data, bucket);
+    if (enrichment.isFull()) {
       discoverSizeMetrics(data, bucket, sizeMap, countMap);
+    }
 
-      emitter.emit(VersionedMagpieEnvelopeProvider.create(session, List.of(fullService() + ":bucket"), data.toJsonNode()));
-    });
-
+    emitter.emit(VersionedMagpieEnvelopeProvider.create(session, List.of(fullService() + ":bucket"), data.toJsonNode()));
   }
 
 //  private Map<String, String> discoverTags(Bucket bucket) throws GeneralSecurityException, IOException {
@@ -0,0 +1,130 @@
+/*
+ * Copyright 2021 Open Raven Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.openraven.magpie.plugins.gcp.discovery;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.cloud.bigquery.reservation.v1.Reservation;
+import com.google.cloud.compute.v1.Network;
+import com.google.cloud.compute.v1.NetworkPeering;
+import com.google.gson.Gson;
+import com.google.protobuf.Timestamp;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * {@link GCPUtils#asJsonNode} must build the same tree as parsing Gson's text, down to the type of every number node.
+ */
+public class GCPUtilsTest {
+
+  private static final ObjectMapper MAPPER = GCPUtils.createObjectMapper();
+
+  @Test
+  public void testProtobufMessages() throws Exception {
+    assertSameAsParsingGson(Network.newBuilder()
+      .setId(Long.MAX_VALUE)
+      .setName("default")
+      .setMtu(1460)
+      .setAutoCreateSubnetworks(true)
+      .addSubnetworks("regions/us-east1/subnetworks/default")
+      .addSubnetworks("regions/us-west1/subnetworks/default")
+      .addPeerings(NetworkPeering.newBuilder().setName("peer").setExchangeSubnetRoutes(false).setPeerMtu(1500))
+      .build());
+
+    assertSameAsParsingGson(Reservation.newBuilder()
+      .setName("projects/project/locations/US/reservations/default")
+      .setSlotCapacity(2_000L)
+      .setIgnoreIdleSlots(false)
+      .setCreationTime(Timestamp.newBuilder().setSeconds(1_622_548_800L).setNanos(500))
+      .build());
+
+    assertSameAsParsingGson(Network.getDefaultInstance());
+  }
+
+  @Test
+  public void testPojos() throws Exception {
+    assertSameAsParsingGson(new Numbers());
+    assertSameAsParsingGson(List.of(new Numbers(), new Numbers()));
+
+    final var map = new LinkedHashMap<String, Object>();
+    map.put("name", "bucket");
+    map.put("versioned", true);
+    map.put("size", 5L);
+    map.put("labels", Map.of("env", "prod"));
+    map.put("missing", null);
+    assertSameAsParsingGson(map);
+  }
+
+  @Test
+  public void testStringsAndBooleans() throws Exception {
+    assertSameAsParsingGson("");
+    assertSameAsParsingGson("bucket");
+    assertSameAsParsingGson("quotes \" and \\ backslashes\n and <html> & unicode \u00e9\u2603");
+    assertSameAsParsingGson("12");
+    assertSameAsParsingGson(true);
+    assertSameAsParsingGson(false);
+  }
+
+  @Test
+  public void testNumbers() throws Exception {
+    for (Object number : List.<Object>of(
+      0, 1, -1, Integer.MAX_VALUE, Integer.MIN_VALUE,
+      0L, 5L, (long) Integer.MAX_VALUE + 1, (long) Integer.MIN_VALUE - 1, Long.MAX_VALUE, Long.MIN_VALUE,
+      BigInteger.ZERO, BigInteger.valueOf(Long.MAX_VALUE).add(BigInteger.ONE), new BigInteger("-123456789012345678901234567890"),
+      0f, 1.5f, 0.1f, -2.5e-3f, Float.MAX_VALUE, Float.MIN_VALUE,
+      0d, 1d, 0.1, -1.0e-7, 1.0e21, Double.MAX_VALUE, Double.MIN_VALUE,
+      (short) 7, (byte) -3)) {
+      assertSameAsParsingGson(number);
+    }
+  }
+
+  private static void assertSameAsParsingGson(Object object) throws Exception {
+    final var json = new Gson().toJson(object);
+    final JsonNode expected = MAPPER.readTree(json);
+    final JsonNode actual = GCPUtils.asJsonNode(object);
+
+    // Jackson's node equality includes the node type, e.g. an IntNode never equals a LongNode
+    assertEquals(expected, actual, json);
+    assertEquals(MAPPER.writeValueAsString(expected), MAPPER.writeValueAsString(actual), json);
+  }
+
+  @SuppressWarnings("unused")
+  private static class Numbers {
+    private final int smallInt = 42;
+    private final int negativeInt = Integer.MIN_VALUE;
+    private final long smallLong = 7L;
+    private final long largeLong = 10_000_000_000L;
+    private final Long boxedLong = -1L;
+    private final Long nullLong = null;
+    private final BigInteger bigInteger = new BigInteger("98765432109876543210");
+    private final float fraction = 0.25f;
+    private final float wholeFloat = 3f;
+    private final double wholeDouble = 2d;
+    private final double exponent = 6.02e23;
+    private final double[] doubles = {0.5, -0.0, 1e-10};
+    private final long[] longs = {1L, Long.MIN_VALUE};
+    private final Map<String, Integer> counts = Map.of("objects", 3);
+    private final String name = "numbers";
+    private final boolean enabled = true;
+  }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2021 Open Raven Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.openraven.magpie.plugins.gcp.discovery.services;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.google.api.gax.core.FixedCredentialsProvider;
+import com.google.cloud.NoCredentials;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.openraven.magpie.api.EnrichmentLevel;
+import io.openraven.magpie.api.MagpieEnvelope;
+import io.openraven.magpie.api.Session;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Rediscovers single buckets against an in-process stand-in for the Cloud Storage JSON API.
+ */
+public class StorageDiscoveryTest {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(StorageDiscoveryTest.class);
+  private static final ObjectMapper MAPPER = new ObjectMapper()
+    .configure(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS, false)
+    .findAndRegisterModules();
+  private static final String PROJECT = "project";
+
+  private final List<String> requests = new ArrayList<>();
+  private final List<MagpieEnvelope> emitted = new ArrayList<>();
+  private HttpServer server;
+
+  @BeforeEach
+  public void startStorage() throws IOException {
+    server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    server.createContext("/", this::handle);
+    server.start();
+  }
+
+  @AfterEach
+  public void stopStorage() {
+    server.stop(0);
+  }
+
+  @Test
+  public void testBucketByAssetId() {
+    assertTrue(discoverResource("//storage.googleapis.com/projects/_/buckets/bucket"));
+
+    assertEquals(1, emitted.size());
+    final var bucket = emitted.get(0);
+    assertEquals(List.of("magpie.gcp.discovery:storage:bucket"), bucket.getPluginPath());
+    assertEquals("//storage.googleapis.com/projects/" + PROJECT + "/buckets/bucket", bucket.getContents().get("assetId").asText());
+    assertEquals("bucket", bucket.getContents().get("resourceId").asText());
+    assertEquals("GCP::Storage::Bucket", bucket.getContents().get("resourceType").asText());
+    assertEquals("2021-01-01T00:00:00Z", bucket.getContents().get("createdIso").asText());
+    assertEquals("data", bucket.getContents().at("/supplementaryConfiguration/labels/team").asText());
+    assertTrue(bucket.getContents().at("/supplementaryConfiguration/publicHosting").asBoolean());
+  }
+
+  @Test
+  public void testBucketByAuditLogName() {
+    assertTrue(discoverResource("projects/_/buckets/bucket"));
+
+    assertEquals(1, emitted.size());
+    assertTrue(requests.get(0).startsWith("GET /storage/v1/b/bucket"));
+  }
+
+  @Test
+  public void testBucketNoLongerExists() {
+    assertTrue(discoverResource("projects/_/buckets/deleted"));
+
+    assertTrue(emitted.isEmpty());
+  }
+
+  @Test
+  public void testObjectIsNotABucket() {
+    assertFalse(discoverResource("//storage.googleapis.com/projects/_/buckets/bucket/objects/key"));
+    assertFalse(discoverResource("//compute.googleapis.com/projects/project/zones/us-east1-b/instances/vm"));
+
+    assertTrue(requests.isEmpty());
+  }
+
+  private boolean discoverResource(String assetId) {
+    final var discovery = new StorageDiscovery("http://localhost:" + server.getAddress().getPort());
+    return discovery.discoverResource(MAPPER, PROJECT, new Session(), assetId, emitted::add, LOGGER,
+      Optional.of(FixedCredentialsProvider.create(NoCredentials.getInstance())), EnrichmentLevel.LITE);
+  }
+
+  private void handle(HttpExchange exchange) throws IOException {
+    final var uri = exchange.getRequestURI();
+    requests.add(exchange.getRequestMethod() + " " + uri.getPath());
+
+    if (uri.getPath().equals("/storage/v1/b/bucket")) {
+      respond(exchange, 200, "{\"kind\": \"storage#bucket\", \"id\": \"bucket\", \"name\": \"bucket\", \"projectNumber\": \"1\"," +
+        "\"location\": \"US\", \"storageClass\": \"STANDARD\", \"timeCreated\": \"2021-01-01T00:00:00.000Z\"," +
+        "\"labels\": {\"team\": \"data\"}, \"iamConfiguration\": {\"uniformBucketLevelAccess\": {\"enabled\": true}, \"publicAccessPrevention\": \"inherited\"}}");
+    } else if (uri.getPath().equals("/storage/v1/b/bucket/iam")) {
+      // Policies without conditions are returned as version 1, whichever version was requested
+      respond(exchange, 200, "{\"kind\": \"storage#policy\", \"resourceId\": \"projects/_/buckets/bucket\", \"version\": 1," +
+        "\"etag\": \"CAE=\", \"bindings\": [{\"role\": \"roles/storage.objectViewer\", \"members\": [\"allUsers\"]}]}");
+    } else {
+      respond(exchange, 404, "{\"error\": {\"code\": 404, \"message\": \"The specified bucket does not exist.\"}}");
+    }
+  }
+
+  private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+    final var bytes = body.getBytes(StandardCharsets.UTF_8);
+    exchange.getResponseHeaders().add("Content-Type", "application/json");
+    exchange.sendResponseHeaders(status, bytes.length);
+    exchange.getResponseBody().write(bytes);
+    exchange.close();
+  }
+}
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2021 Open Raven Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.openraven.magpie.plugins.persist;
+
+import java.time.Instant;
+import java.util.Objects;
+
+/**
+ * Row count and latest {@code updatediso} of one resource type. Discovery stamps every upserted asset, so two equal
+ * watermarks mean no asset of that type was added, removed or rediscovered in between.
+ */
+public class AssetWatermark {
+  private final long count;
+  private final Instant latestUpdate;
+
+  public AssetWatermark(long count, Instant latestUpdate) {
+    this.count = count;
+    this.latestUpdate = latestUpdate;
+  }
+
+  public long getCount() {
+    return count;
+  }
+
+  public Instant getLatestUpdate() {
+    return latestUpdate;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    AssetWatermark that = (AssetWatermark) o;
+    return count == that.count && Objects.equals(latestUpdate, that.latestUpdate);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(count, latestUpdate);
+  }
+
+  @Override
+  public String toString() {
+    return "AssetWatermark{" +
+      "count=" + count +
+      ", latestUpdate=" + latestUpdate +
+      '}';
+  }
+}
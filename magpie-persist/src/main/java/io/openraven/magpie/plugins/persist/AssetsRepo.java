@@ -19,8 +19,11 @@ package io.openraven.magpie.plugins.persist;
 import io.openraven.magpie.data.Resource;
 
 import java.io.Closeable;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 public interface AssetsRepo extends Closeable {
 
@@ -32,5 +35,34 @@ public interface AssetsRepo extends Closeable {
 
   List<Map<String, Object>> queryNative(String query);
 
+  /**
+   * Runs the query through a server-side cursor and hands each row to {@code rowConsumer} as it is fetched, so memory
+   * use doesn't grow with the size of the result set.
+   */
+  void queryNative(String query, Consumer<Map<String, Object>> rowConsumer);
+
+  /**
+   * Cursor-backed equivalent of {@link #queryNative(String)}. The returned stream holds a database cursor and
+   * must be closed, e.g. with try-with-resources.
+   */
+  Stream<Map<String, Object>> streamNative(String query);
+
+  /**
+   * Streams every stored asset of the given resource types through a read-only cursor, without keeping loaded
+   * entities in a persistence context. The returned stream holds a database cursor and must be closed.
+   */
+  Stream<Resource> streamAssets(Collection<String> resourceTypes);
+
   Long getAssetCount(String resourceType);
+
+  /**
+   * Number of stored assets per resource type across every provider table, read in a single grouped query.
+   */
+  Map<String, Long> getAssetCounts();
+
+  /**
+   * Row count and latest {@code updatediso} per resource type across every provider table, read in a single grouped
+   * query. Used to tell whether the assets of a type changed since an earlier read.
+   */
+  Map<String, AssetWatermark> getAssetWatermarks();
 }
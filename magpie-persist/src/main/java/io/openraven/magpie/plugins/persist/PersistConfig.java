@@ -25,6 +25,10 @@ public class PersistConfig {
   private String user;
   private String password;
   private boolean migrateDB = true;
+  private boolean historyEnabled = false;
+  private int historySnapshotInterval = 10;
+  private int queryFetchSize = 1000;
+  private int connectionPoolSize = 20;
 
 
   public String getSchema() {
@@ -67,4 +71,36 @@ public class PersistConfig {
     public void setMigrateDB(boolean migrateDB) {
         this.migrateDB = migrateDB;
     }
+
+  public boolean isHistoryEnabled() {
+    return historyEnabled;
+  }
+
+  public void setHistoryEnabled(boolean historyEnabled) {
+    this.historyEnabled = historyEnabled;
+  }
+
+  public int getHistorySnapshotInterval() {
+    return historySnapshotInterval;
+  }
+
+  public void setHistorySnapshotInterval(int historySnapshotInterval) {
+    this.historySnapshotInterval = Math.max(1, historySnapshotInterval);
+  }
+
+  public int getQueryFetchSize() {
+    return queryFetchSize;
+  }
+
+  public void setQueryFetchSize(int queryFetchSize) {
+    this.queryFetchSize = Math.max(1, queryFetchSize);
+  }
+
+  public int getConnectionPoolSize() {
+    return connectionPoolSize;
+  }
+
+  public void setConnectionPoolSize(int connectionPoolSize) {
+    this.connectionPoolSize = Math.max(1, connectionPoolSize);
+  }
 }
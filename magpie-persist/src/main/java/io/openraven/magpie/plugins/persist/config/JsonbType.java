@@ -0,0 +1,172 @@
+/*
+ * Copyright 2021 Open Raven Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.openraven.magpie.plugins.persist.config;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.openraven.magpie.data.utils.JacksonMapper;
+import org.hibernate.HibernateException;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.usertype.UserType;
+import org.postgresql.util.PGobject;
+
+import java.io.Serializable;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.Comparator;
+
+/**
+ * Binds {@link JsonNode} attributes as typed jsonb parameters. Unlike an AttributeConverter, snapshots and dirty
+ * checks work on the Jackson tree directly, so a merged entity is serialized once, when it is actually written.
+ */
+public class JsonbType implements UserType {
+
+  private static final ObjectMapper MAPPER = JacksonMapper.getJacksonMapper();
+
+  /**
+   * Orders value nodes for {@link JsonNode#equals(Comparator, JsonNode)}, which walks objects and arrays itself.
+   * Numbers are compared by value: discovery builds a Long field as a LongNode while reading the same document back
+   * yields an IntNode, and jsonb itself does not keep the difference.
+   */
+  private static final Comparator<JsonNode> BY_VALUE = (x, y) -> {
+    if (x.isNumber() && y.isNumber()) {
+      return compareNumbers(x, y);
+    }
+    return x.equals(y) ? 0 : 1;
+  };
+
+  @Override
+  public int[] sqlTypes() {
+    return new int[]{Types.OTHER};
+  }
+
+  @Override
+  public Class<JsonNode> returnedClass() {
+    return JsonNode.class;
+  }
+
+  @Override
+  public boolean equals(Object x, Object y) throws HibernateException {
+    if (x == y) {
+      return true;
+    }
+    if (x == null || y == null) {
+      return false;
+    }
+    return ((JsonNode) x).equals(BY_VALUE, (JsonNode) y);
+  }
+
+  @Override
+  public int hashCode(Object x) throws HibernateException {
+    return x == null ? 0 : hash((JsonNode) x);
+  }
+
+  @Override
+  public Object nullSafeGet(ResultSet rs, String[] names, SharedSessionContractImplementor session, Object owner) throws HibernateException, SQLException {
+    final var json = rs.getString(names[0]);
+    if (json == null || json.isEmpty()) {
+      return null;
+    }
+    try {
+      return MAPPER.readTree(json);
+    } catch (JsonProcessingException e) {
+      throw new HibernateException("Unable to read jsonb column " + names[0], e);
+    }
+  }
+
+  @Override
+  public void nullSafeSet(PreparedStatement st, Object value, int index, SharedSessionContractImplementor session) throws HibernateException, SQLException {
+    if (value == null) {
+      st.setNull(index, Types.OTHER);
+      return;
+    }
+    final var jsonb = new PGobject();
+    jsonb.setType("jsonb");
+    try {
+      jsonb.setValue(MAPPER.writeValueAsString(value));
+    } catch (JsonProcessingException e) {
+      throw new HibernateException("Unable to serialize JsonNode", e);
+    }
+    st.setObject(index, jsonb);
+  }
+
+  @Override
+  public Object deepCopy(Object value) throws HibernateException {
+    return value == null ? null : ((JsonNode) value).deepCopy();
+  }
+
+  @Override
+  public boolean isMutable() {
+    return true;
+  }
+
+  @Override
+  public Serializable disassemble(Object value) throws HibernateException {
+    return value == null ? null : value.toString();
+  }
+
+  @Override
+  public Object assemble(Serializable cached, Object owner) throws HibernateException {
+    try {
+      return cached == null ? null : MAPPER.readTree((String) cached);
+    } catch (JsonProcessingException e) {
+      throw new HibernateException("Unable to read cached JsonNode", e);
+    }
+  }
+
+  @Override
+  public Object replace(Object original, Object target, Object owner) throws HibernateException {
+    return deepCopy(original);
+  }
+
+  private static int compareNumbers(JsonNode x, JsonNode y) {
+    if (isFinite(x) && isFinite(y)) {
+      return x.decimalValue().compareTo(y.decimalValue());
+    }
+    return Double.compare(x.doubleValue(), y.doubleValue());
+  }
+
+  private static boolean isFinite(JsonNode number) {
+    return !number.isFloatingPointNumber() || number.isBigDecimal() || Double.isFinite(number.doubleValue());
+  }
+
+  // Consistent with BY_VALUE: numbers that compare equal hash alike whatever their node type
+  private static int hash(JsonNode node) {
+    if (node.isNumber()) {
+      return isFinite(node) ? node.decimalValue().stripTrailingZeros().hashCode() : Double.hashCode(node.doubleValue());
+    }
+    if (node.isObject()) {
+      var hash = 0;
+      for (var fields = node.fields(); fields.hasNext(); ) {
+        final var field = fields.next();
+        hash += field.getKey().hashCode() ^ hash(field.getValue());
+      }
+      return hash;
+    }
+    if (node.isArray()) {
+      var hash = 1;
+      for (var element : node) {
+        hash = 31 * hash + hash(element);
+      }
+      return hash;
+    }
+    return node.hashCode();
+  }
+}
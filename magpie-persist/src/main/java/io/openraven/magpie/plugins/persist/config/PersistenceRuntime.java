@@ -0,0 +1,124 @@
+/*
+ * Copyright 2021 Open Raven Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.openraven.magpie.plugins.persist.config;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import io.openraven.magpie.data.Resource;
+import io.openraven.magpie.plugins.persist.PersistConfig;
+import io.openraven.magpie.plugins.persist.migration.FlywayMigrationService;
+import org.hibernate.SessionFactory;
+import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
+import org.hibernate.cfg.Configuration;
+import org.hibernate.cfg.Environment;
+import org.hibernate.service.ServiceRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static io.openraven.magpie.data.utils.EntityTypeResolver.getSubClasses;
+import static java.lang.String.format;
+
+/**
+ * Process-wide Hibernate runtime. The SessionFactory (and with it the connection pool and entity metadata for every
+ * Resource subclass) is built lazily on first use, then shared by every consumer in the JVM that points at the same
+ * database and schema, e.g. the persist plugin and the policy analyzer. The schema is migrated once, on the first
+ * request with migrateDB set, even if the runtime was already built for a consumer that didn't ask for it.
+ */
+public final class PersistenceRuntime {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(PersistenceRuntime.class);
+
+  private static final Map<String, SessionFactory> SESSION_FACTORIES = new ConcurrentHashMap<>();
+  // Databases migrated by this process; migrateDB isn't part of the key, so a cached runtime can still need it
+  private static final Map<String, Boolean> MIGRATED = new ConcurrentHashMap<>();
+
+  static {
+    Runtime.getRuntime().addShutdownHook(new Thread(PersistenceRuntime::close, "magpie-persistence-shutdown"));
+  }
+
+  private PersistenceRuntime() {
+  }
+
+  public static SessionFactory getSessionFactory(PersistConfig config) {
+    final var key = key(config);
+    if (config.shouldMigrateDB()) {
+      // Migrating before the SessionFactory is built lets it validate the migrated schema
+      MIGRATED.computeIfAbsent(key, k -> {
+        FlywayMigrationService.initiateDBMigration(config);
+        return Boolean.TRUE;
+      });
+    }
+    return SESSION_FACTORIES.computeIfAbsent(key, k -> build(config));
+  }
+
+  public static void close() {
+    SESSION_FACTORIES.values().forEach(sessionFactory -> {
+      if (sessionFactory.isOpen()) {
+        sessionFactory.close();
+      }
+    });
+    SESSION_FACTORIES.clear();
+    MIGRATED.clear();
+  }
+
+  /**
+   * Closes the SessionFactory of a single database, e.g. one that is about to be shut down.
+   */
+  public static void close(PersistConfig config) {
+    MIGRATED.remove(key(config));
+    final var sessionFactory = SESSION_FACTORIES.remove(key(config));
+    if (sessionFactory != null && sessionFactory.isOpen()) {
+      sessionFactory.close();
+    }
+  }
+
+  private static SessionFactory build(PersistConfig config) {
+    LOGGER.debug("Building persistence runtime for {}", key(config));
+
+    Properties settings = new Properties();
+    settings.put(Environment.DRIVER, "org.postgresql.Driver");
+    settings.put(Environment.URL, format("jdbc:postgresql://%s:%s/%s?stringtype=unspecified",
+      config.getHostname(), config.getPort(), config.getDatabaseName()));
+    settings.put(Environment.USER, config.getUser());
+    settings.put(Environment.PASS, config.getPassword());
+    settings.put(Environment.POOL_SIZE, String.valueOf(config.getConnectionPoolSize()));
+    settings.put(Environment.DIALECT, "io.openraven.magpie.plugins.persist.config.PostgreSQL10StringDialect");
+    settings.put(Environment.SHOW_SQL, "false");
+    settings.put(Environment.HBM2DDL_AUTO, "validate");
+    settings.put(Environment.DEFAULT_SCHEMA, config.getSchema());
+
+    Configuration configuration = new Configuration();
+    configuration.setProperties(settings);
+    configuration.registerTypeOverride(new JsonbType(), new String[]{JsonNode.class.getName()});
+    // Turns off the resources' JsonConverter so their JsonNode attributes are bound by JsonbType instead
+    configuration.addResource("META-INF/jsonb-orm.xml");
+
+    getSubClasses(Resource.class).forEach(configuration::addAnnotatedClass);
+
+    ServiceRegistry serviceRegistry = new StandardServiceRegistryBuilder()
+      .applySettings(configuration.getProperties()).build();
+
+    return configuration.buildSessionFactory(serviceRegistry);
+  }
+
+  private static String key(PersistConfig config) {
+    return format("%s@%s:%s/%s/%s", config.getUser(), config.getHostname(), config.getPort(), config.getDatabaseName(), config.getSchema());
+  }
+}
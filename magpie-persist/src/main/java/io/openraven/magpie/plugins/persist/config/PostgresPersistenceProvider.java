@@ -16,52 +16,17 @@
 
 package io.openraven.magpie.plugins.persist.config;
 
-import io.openraven.magpie.data.Resource;
 import io.openraven.magpie.plugins.persist.PersistConfig;
-import io.openraven.magpie.plugins.persist.migration.FlywayMigrationService;
-import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
-import org.hibernate.cfg.Configuration;
-import org.hibernate.cfg.Environment;
-import org.hibernate.service.ServiceRegistry;
-import org.slf4j.LoggerFactory;
 
 import javax.persistence.EntityManager;
-import java.util.Properties;
-
-import static io.openraven.magpie.data.utils.EntityTypeResolver.getSubClasses;
-import static java.lang.String.format;
 
 public class PostgresPersistenceProvider {
 
+  /**
+   * @return a new EntityManager backed by the process-wide {@link PersistenceRuntime} for this database and schema.
+   * Callers own the EntityManager and must close it; the underlying SessionFactory is shared.
+   */
   public static EntityManager getEntityManager(PersistConfig config) {
-
-    Properties settings = new Properties();
-    settings.put(Environment.DRIVER, "org.postgresql.Driver");
-    settings.put(Environment.URL, format("jdbc:postgresql://%s:%s/%s?stringtype=unspecified",
-      config.getHostname(), config.getPort(), config.getDatabaseName()));
-    settings.put(Environment.USER, config.getUser());
-    settings.put(Environment.PASS, config.getPassword());
-    settings.put(Environment.DIALECT, "io.openraven.magpie.plugins.persist.config.PostgreSQL10StringDialect");
-    settings.put(Environment.SHOW_SQL, "false");
-    settings.put(Environment.HBM2DDL_AUTO, "validate");
-    settings.put(Environment.DEFAULT_SCHEMA, config.getSchema());
-
-    Configuration configuration = new Configuration();
-    configuration.setProperties(settings);
-
-    getSubClasses(Resource.class).forEach(configuration::addAnnotatedClass);
-
-    ServiceRegistry serviceRegistry = new StandardServiceRegistryBuilder()
-      .applySettings(configuration.getProperties()).build();
-    if(config.shouldMigrateDB()) {
-        migratePostgreDB(config); // migrating DB before EM creation to validate schema further
-    }
-
-    return configuration.buildSessionFactory(serviceRegistry).createEntityManager();
-  }
-
-  private static void migratePostgreDB(PersistConfig config) {
-    FlywayMigrationService.initiateDBMigration(config);
+    return PersistenceRuntime.getSessionFactory(config).createEntityManager();
   }
-
 }
@@ -0,0 +1,142 @@
+/*
+ * Copyright 2021 Open Raven Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.openraven.magpie.plugins.persist.embedded;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.openraven.magpie.data.Resource;
+import io.openraven.magpie.plugins.persist.PersistConfig;
+import io.openraven.magpie.plugins.persist.config.PersistenceRuntime;
+import io.openraven.magpie.plugins.persist.impl.HibernateAssetsRepoImpl;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A throwaway Postgres instance, started from binaries bundled on the classpath, holding assets loaded from
+ * discovery output files. Policies can then be analyzed without an external database: the schema is created by the
+ * usual migrations and rule SQL runs unchanged, since it is still Postgres executing it.
+ *
+ * embedded-postgres and its binaries are not part of the plugin jar; the embedded-postgres profile of magpie-cli
+ * bundles them for one platform. The data directory lives in a temporary folder and is removed again by
+ * {@link #close()}.
+ */
+public class EmbeddedAssetStore implements Closeable {
+  private static final Logger LOGGER = LoggerFactory.getLogger(EmbeddedAssetStore.class);
+  private static final int BATCH_SIZE = 500;
+
+  private final ObjectMapper objectMapper = new ObjectMapper()
+    .registerModule(new JavaTimeModule());
+
+  private final EmbeddedPostgres postgres;
+  private final PersistConfig persistConfig;
+
+  private EmbeddedAssetStore(EmbeddedPostgres postgres, PersistConfig persistConfig) {
+    this.postgres = postgres;
+    this.persistConfig = persistConfig;
+  }
+
+  /**
+   * @return whether embedded-postgres is on the classpath
+   */
+  public static boolean isAvailable() {
+    try {
+      Class.forName("io.zonky.test.db.postgres.embedded.EmbeddedPostgres", false, EmbeddedAssetStore.class.getClassLoader());
+      return true;
+    } catch (ClassNotFoundException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Starts a new instance. Connection settings of {@code config} are replaced with those of the embedded database;
+   * everything else (schema, fetch size, pool size, ...) is kept.
+   *
+   * @throws IOException if run as root, which Postgres refuses, or if the instance fails to start
+   */
+  public static EmbeddedAssetStore start(PersistConfig config) throws IOException {
+    if ("root".equals(System.getProperty("user.name"))) {
+      throw new IOException("Postgres refuses to run as root, analyze discovery output as an unprivileged user");
+    }
+    final var postgres = EmbeddedPostgres.builder().start();
+    config.setHostname("localhost");
+    config.setPort(String.valueOf(postgres.getPort()));
+    config.setDatabaseName("postgres");
+    config.setUser("postgres");
+    config.setPassword("");
+    config.setMigrateDB(true);
+    LOGGER.info("Started embedded Postgres on port {}", postgres.getPort());
+    return new EmbeddedAssetStore(postgres, config);
+  }
+
+  public PersistConfig getPersistConfig() {
+    return persistConfig;
+  }
+
+  /**
+   * Loads every asset of a discovery output file. Both newline-delimited JSON and the single JSON array written by
+   * magpie.json are accepted; documents that aren't assets of a known resource type are skipped.
+   *
+   * @return the number of assets loaded
+   */
+  public long load(Path file) throws IOException {
+    long loaded = 0;
+    long skipped = 0;
+    try (var repo = new HibernateAssetsRepoImpl(persistConfig);
+         var documents = objectMapper.readerFor(JsonNode.class).<JsonNode>readValues(Files.newInputStream(file))) {
+      final List<Resource> batch = new ArrayList<>(BATCH_SIZE);
+      while (documents.hasNextValue()) {
+        final var document = documents.nextValue();
+        try {
+          batch.add(objectMapper.treeToValue(document, Resource.class));
+        } catch (JsonProcessingException | IllegalArgumentException e) {
+          LOGGER.debug("Skipping document that isn't a known asset: {}", e.getMessage());
+          skipped++;
+          continue;
+        }
+        if (batch.size() == BATCH_SIZE) {
+          repo.upsert(batch);
+          loaded += batch.size();
+          batch.clear();
+        }
+      }
+      repo.upsert(batch);
+      loaded += batch.size();
+    }
+
+    if (skipped > 0) {
+      LOGGER.warn("Skipped {} document(s) in {} that aren't assets of a known resource type", skipped, file);
+    }
+    LOGGER.info("Loaded {} asset(s) from {}", loaded, file);
+    return loaded;
+  }
+
+  @Override
+  public void close() throws IOException {
+    PersistenceRuntime.close(persistConfig);
+    postgres.close();
+  }
+}
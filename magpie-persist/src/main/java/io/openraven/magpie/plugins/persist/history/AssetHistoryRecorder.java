@@ -0,0 +1,212 @@
+/*
+ * Copyright 2021 Open Raven Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.openraven.magpie.plugins.persist.history;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.openraven.magpie.data.Resource;
+import io.openraven.magpie.data.utils.JacksonMapper;
+import io.openraven.magpie.plugins.persist.PersistConfig;
+import org.hibernate.Session;
+
+import javax.persistence.EntityManager;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Appends RFC 6902 deltas (and a full snapshot every N versions) to the assethistory table whenever an asset changes.
+ * Prior state is read with one query per entity type in the batch, so enabling history adds no per-row round-trips.
+ */
+public class AssetHistoryRecorder {
+
+  // Fields that change on every scan or are never persisted; diffing them would produce a version per scan.
+  private static final Set<String> VOLATILE_FIELDS = Set.of("updatedIso", "discoverySessionId", "maxSizeInBytes", "sizeInBytes");
+
+  private static final ObjectMapper MAPPER = JacksonMapper.getJacksonMapper();
+
+  private final String schema;
+  private final int snapshotInterval;
+
+  public AssetHistoryRecorder(PersistConfig config) {
+    this.schema = config.getSchema();
+    this.snapshotInterval = config.getHistorySnapshotInterval();
+  }
+
+  /**
+   * Computes history entries for the given resources against their currently stored versions. Must be called
+   * inside the write transaction and before the resources are merged.
+   */
+  public List<HistoryEntry> prepare(EntityManager entityManager, List<Resource> resources) {
+    final var idUtil = entityManager.getEntityManagerFactory().getPersistenceUnitUtil();
+    final var documentIds = resources.stream()
+      .map(resource -> String.valueOf(idUtil.getIdentifier(resource)))
+      .collect(Collectors.toSet());
+
+    final var previousDocuments = loadStoredDocuments(entityManager, resources, idUtil::getIdentifier);
+    final var previousVersions = loadLatestVersions(entityManager, documentIds);
+    return diff(resources, idUtil::getIdentifier, previousDocuments, previousVersions);
+  }
+
+  /**
+   * Computes history entries for the given resources against the given stored documents and latest history versions,
+   * both keyed by document id. Unchanged resources produce no entry.
+   */
+  List<HistoryEntry> diff(List<Resource> resources,
+                          Function<Object, Object> identifier,
+                          Map<String, JsonNode> previousDocuments,
+                          Map<String, Integer> previousVersions) {
+    final var entries = new ArrayList<HistoryEntry>();
+    resources.forEach(resource -> {
+      final var documentId = String.valueOf(identifier.apply(resource));
+      final ObjectNode document = MAPPER.valueToTree(resource);
+      final var sessionId = document.path("discoverySessionId").textValue();
+      final var updatedIso = document.path("updatedIso").textValue();
+      document.remove(VOLATILE_FIELDS);
+
+      final var previous = previousDocuments.get(documentId);
+      if (document.equals(previous)) {
+        return;
+      }
+
+      // An asset without history rows is at version 1 and therefore always snapshotted
+      final int version = previousVersions.getOrDefault(documentId, 0) + 1;
+      if (previous == null || (version - 1) % snapshotInterval == 0) {
+        entries.add(new HistoryEntry(documentId, version, sessionId, resource.getResourceType(), updatedIso, true, document));
+      } else {
+        entries.add(new HistoryEntry(documentId, version, sessionId, resource.getResourceType(), updatedIso, false,
+          JsonPatch.diff(previous, document)));
+      }
+
+      // Later duplicates within the same batch diff against this one rather than the stored row
+      previousDocuments.put(documentId, document);
+      previousVersions.put(documentId, version);
+    });
+    return entries;
+  }
+
+  public void write(EntityManager entityManager, List<HistoryEntry> entries) {
+    if (entries.isEmpty()) {
+      return;
+    }
+
+    final var sql = "INSERT INTO " + schema + ".assethistory " +
+      "(documentid, version, discoverysessionid, resourcetype, updatediso, snapshot, document) VALUES (?, ?, ?, ?, ?, ?, ?)";
+    entityManager.unwrap(Session.class).doWork(connection -> {
+      try (PreparedStatement statement = connection.prepareStatement(sql)) {
+        for (HistoryEntry entry : entries) {
+          statement.setString(1, entry.getDocumentId());
+          statement.setInt(2, entry.getVersion());
+          statement.setString(3, entry.getDiscoverySessionId());
+          statement.setString(4, entry.getResourceType());
+          statement.setString(5, entry.getUpdatedIso());
+          statement.setBoolean(6, entry.isSnapshot());
+          statement.setString(7, entry.getDocument().toString());
+          statement.addBatch();
+        }
+        statement.executeBatch();
+      }
+    });
+  }
+
+  private Map<String, JsonNode> loadStoredDocuments(EntityManager entityManager,
+                                                    List<Resource> resources,
+                                                    Function<Object, Object> identifier) {
+    final var documents = new HashMap<String, JsonNode>();
+    final var byType = resources.stream().collect(Collectors.groupingBy(Object::getClass,
+      Collectors.mapping(r -> String.valueOf(identifier.apply(r)), Collectors.toSet())));
+
+    byType.forEach((type, ids) -> {
+      final var entityName = entityManager.getMetamodel().entity(type).getName();
+      entityManager.createQuery("SELECT r FROM " + entityName + " r WHERE r.documentId IN :ids", type)
+        .setParameter("ids", ids)
+        .getResultList()
+        .forEach(stored -> {
+          final ObjectNode document = MAPPER.valueToTree(stored);
+          document.remove(VOLATILE_FIELDS);
+          documents.put(String.valueOf(identifier.apply(stored)), document);
+        });
+    });
+    return documents;
+  }
+
+  @SuppressWarnings("unchecked")
+  private Map<String, Integer> loadLatestVersions(EntityManager entityManager, Set<String> documentIds) {
+    final var versions = new HashMap<String, Integer>();
+    final List<Object[]> rows = entityManager.createNativeQuery(
+        "SELECT documentid, max(version) FROM " + schema + ".assethistory WHERE documentid IN (:ids) GROUP BY documentid")
+      .setParameter("ids", documentIds)
+      .getResultList();
+    rows.forEach(row -> versions.put((String) row[0], ((Number) row[1]).intValue()));
+    return versions;
+  }
+
+  public static class HistoryEntry {
+    private final String documentId;
+    private final int version;
+    private final String discoverySessionId;
+    private final String resourceType;
+    private final String updatedIso;
+    private final boolean snapshot;
+    private final JsonNode document;
+
+    public HistoryEntry(String documentId, int version, String discoverySessionId, String resourceType,
+                        String updatedIso, boolean snapshot, JsonNode document) {
+      this.documentId = documentId;
+      this.version = version;
+      this.discoverySessionId = discoverySessionId;
+      this.resourceType = resourceType;
+      this.updatedIso = updatedIso;
+      this.snapshot = snapshot;
+      this.document = document;
+    }
+
+    public String getDocumentId() {
+      return documentId;
+    }
+
+    public int getVersion() {
+      return version;
+    }
+
+    public String getDiscoverySessionId() {
+      return discoverySessionId;
+    }
+
+    public String getResourceType() {
+      return resourceType;
+    }
+
+    public String getUpdatedIso() {
+      return updatedIso;
+    }
+
+    public boolean isSnapshot() {
+      return snapshot;
+    }
+
+    public JsonNode getDocument() {
+      return document;
+    }
+  }
+}
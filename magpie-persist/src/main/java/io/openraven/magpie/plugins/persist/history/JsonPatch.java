@@ -0,0 +1,138 @@
+/*
+ * Copyright 2021 Open Raven Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.openraven.magpie.plugins.persist.history;
+
+import com.fasterxml.jackson.core.JsonPointer;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * Minimal RFC 6902 support: computes add/remove/replace patches between two JSON documents and applies them back.
+ * Arrays are compared positionally, which keeps the diff linear and is sufficient for discovery documents whose
+ * arrays rarely reorder between scans.
+ */
+public final class JsonPatch {
+
+  private static final JsonNodeFactory FACTORY = JsonNodeFactory.instance;
+
+  private JsonPatch() {
+  }
+
+  public static ArrayNode diff(JsonNode source, JsonNode target) {
+    final var patch = FACTORY.arrayNode();
+    diff(source == null ? FACTORY.nullNode() : source, target == null ? FACTORY.nullNode() : target, "", patch);
+    return patch;
+  }
+
+  private static void diff(JsonNode source, JsonNode target, String path, ArrayNode patch) {
+    if (source.equals(target)) {
+      return;
+    }
+
+    if (source.isObject() && target.isObject()) {
+      source.fieldNames().forEachRemaining(name -> {
+        final var childPath = path + "/" + escape(name);
+        if (target.has(name)) {
+          diff(source.get(name), target.get(name), childPath, patch);
+        } else {
+          patch.add(operation("remove", childPath));
+        }
+      });
+      target.fields().forEachRemaining(field -> {
+        if (!source.has(field.getKey())) {
+          patch.add(operation("add", path + "/" + escape(field.getKey())).set("value", field.getValue()));
+        }
+      });
+    } else if (source.isArray() && target.isArray()) {
+      final int common = Math.min(source.size(), target.size());
+      for (int i = 0; i < common; i++) {
+        diff(source.get(i), target.get(i), path + "/" + i, patch);
+      }
+      for (int i = common; i < target.size(); i++) {
+        patch.add(operation("add", path + "/" + i).set("value", target.get(i)));
+      }
+      // Remove from the tail so earlier indices stay valid while the patch is applied
+      for (int i = source.size() - 1; i >= common; i--) {
+        patch.add(operation("remove", path + "/" + i));
+      }
+    } else {
+      patch.add(operation("replace", path).set("value", target));
+    }
+  }
+
+  public static JsonNode apply(JsonNode document, ArrayNode patch) {
+    JsonNode result = document == null ? FACTORY.nullNode() : document.deepCopy();
+    for (JsonNode op : patch) {
+      final var path = op.get("path").asText();
+      final var opName = op.get("op").asText();
+      if (path.isEmpty()) {
+        if (!"replace".equals(opName) && !"add".equals(opName)) {
+          throw new IllegalArgumentException("Unsupported root operation: " + opName);
+        }
+        result = op.get("value").deepCopy();
+        continue;
+      }
+
+      final var pointer = JsonPointer.compile(path);
+      final var parent = result.at(pointer.head());
+      final var key = pointer.last().getMatchingProperty();
+      switch (opName) {
+        case "add":
+        case "replace":
+          if (parent.isObject()) {
+            ((ObjectNode) parent).set(key, op.get("value").deepCopy());
+          } else if (parent.isArray()) {
+            final var array = (ArrayNode) parent;
+            final int index = "-".equals(key) ? array.size() : Integer.parseInt(key);
+            if ("add".equals(opName)) {
+              array.insert(index, op.get("value").deepCopy());
+            } else {
+              array.set(index, op.get("value").deepCopy());
+            }
+          } else {
+            throw new IllegalArgumentException("Cannot apply " + opName + " at " + path);
+          }
+          break;
+        case "remove":
+          if (parent.isObject()) {
+            ((ObjectNode) parent).remove(key);
+          } else if (parent.isArray()) {
+            ((ArrayNode) parent).remove(Integer.parseInt(key));
+          } else {
+            throw new IllegalArgumentException("Cannot apply remove at " + path);
+          }
+          break;
+        default:
+          throw new IllegalArgumentException("Unsupported patch operation: " + opName);
+      }
+    }
+    return result;
+  }
+
+  private static ObjectNode operation(String op, String path) {
+    final var node = FACTORY.objectNode();
+    node.put("op", op);
+    node.put("path", path);
+    return node;
+  }
+
+  private static String escape(String name) {
+    return name.replace("~", "~0").replace("/", "~1");
+  }
+}
@@ -17,9 +17,14 @@
 package io.openraven.magpie.plugins.persist.impl;
 
 import io.openraven.magpie.data.Resource;
+import io.openraven.magpie.data.utils.ResourceTypeRegistry;
+import io.openraven.magpie.plugins.persist.AssetWatermark;
 import io.openraven.magpie.plugins.persist.AssetsRepo;
 import io.openraven.magpie.plugins.persist.PersistConfig;
+import io.openraven.magpie.plugins.persist.config.PersistenceRuntime;
 import io.openraven.magpie.plugins.persist.config.PostgresPersistenceProvider;
+import io.openraven.magpie.plugins.persist.history.AssetHistoryRecorder;
+import org.hibernate.Session;
 import org.hibernate.query.internal.NativeQueryImpl;
 import org.hibernate.transform.AliasToEntityMapResultTransformer;
 import org.slf4j.Logger;
@@ -29,42 +34,46 @@ import javax.persistence.EntityManager;
 import java.io.Closeable;
 import java.io.IOException;
 import java.math.BigInteger;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class HibernateAssetsRepoImpl implements AssetsRepo, Closeable {
   private final Logger logger = LoggerFactory.getLogger(HibernateAssetsRepoImpl.class);
 
   private final EntityManager entityManager;
   private final PersistConfig persistConfig;
+  private final AssetHistoryRecorder historyRecorder;
 
   public HibernateAssetsRepoImpl(PersistConfig persistConfig) {
     this.entityManager = PostgresPersistenceProvider.getEntityManager(persistConfig);
     this.persistConfig = persistConfig;
+    this.historyRecorder = persistConfig.isHistoryEnabled() ? new AssetHistoryRecorder(persistConfig) : null;
   }
 
   public void upsert(Resource resource) {
-    try {
-      entityManager.getTransaction().begin();
-
-      entityManager.merge(resource);
-
-      entityManager.flush();
-      entityManager.getTransaction().commit();
-      entityManager.clear();
-    } catch (Exception e) {
-      logger.error("Rolling back transaction failed due to: " + e.getMessage());
-      logger.debug("Details", e);
-      entityManager.getTransaction().rollback();
-    }
+    upsert(List.of(resource));
   }
 
   public void upsert(List<Resource> resources) {
     try {
       entityManager.getTransaction().begin();
 
-      resources.forEach(entityManager::merge);
+      if (historyRecorder == null) {
+        resources.forEach(entityManager::merge);
+      } else {
+        // Stored versions are loaded into the persistence context here, so the merges below don't re-select them
+        final var history = historyRecorder.prepare(entityManager, resources);
+        resources.forEach(entityManager::merge);
+        historyRecorder.write(entityManager, history);
+      }
 
       entityManager.flush();
       entityManager.getTransaction().commit();
@@ -102,6 +111,74 @@ public class HibernateAssetsRepoImpl implements AssetsRepo, Closeable {
       .getResultList();
   }
 
+  @Override
+  public void queryNative(String query, Consumer<Map<String, Object>> rowConsumer) {
+    try (var rows = streamNative(query)) {
+      rows.forEach(rowConsumer);
+    }
+  }
+
+  @Override
+  public Stream<Map<String, Object>> streamNative(String query) {
+    // Postgres only uses a server-side cursor inside a transaction, so open one unless the caller already has
+    final var transaction = entityManager.getTransaction();
+    final boolean ownsTransaction = !transaction.isActive();
+    if (ownsTransaction) {
+      transaction.begin();
+    }
+
+    try {
+      final var cursor = entityManager.unwrap(Session.class)
+        .doReturningWork(connection -> ResultSetCursor.open(connection, query, persistConfig.getQueryFetchSize()));
+      return StreamSupport.stream(cursor, false).onClose(() -> {
+        try {
+          cursor.close();
+        } finally {
+          if (ownsTransaction && transaction.isActive()) {
+            transaction.rollback(); // read-only, nothing to commit
+          }
+        }
+      });
+    } catch (Exception e) {
+      logger.error("Rolling back transaction failed due to: " + e.getMessage());
+      logger.debug("Details", e);
+      if (ownsTransaction) {
+        transaction.rollback();
+      }
+      throw e;
+    }
+  }
+
+  @Override
+  public Stream<Resource> streamAssets(Collection<String> resourceTypes) {
+    final var session = PersistenceRuntime.getSessionFactory(persistConfig).openStatelessSession();
+    final var transaction = session.beginTransaction(); // Postgres only uses a cursor inside a transaction
+
+    return resourceTypes.stream()
+      .distinct()
+      .flatMap(resourceType -> {
+        final var entityClass = ResourceTypeRegistry.resourceTypes().get(resourceType);
+        if (entityClass == null) {
+          logger.warn("No entity registered for resource type {}", resourceType);
+          return Stream.<Resource>empty();
+        }
+        return session.createQuery("SELECT r FROM " + entityClass.getName() + " r", entityClass)
+          .setFetchSize(persistConfig.getQueryFetchSize())
+          .setReadOnly(true)
+          .stream()
+          .map(Resource.class::cast);
+      })
+      .onClose(() -> {
+        try {
+          if (transaction.isActive()) {
+            transaction.rollback(); // read-only, nothing to commit
+          }
+        } finally {
+          session.close();
+        }
+      });
+  }
+
   @Override
   public Long getAssetCount(String resourceType) {
 
@@ -120,6 +197,47 @@ public class HibernateAssetsRepoImpl implements AssetsRepo, Closeable {
     return val.longValue();
   }
 
+  @Override
+  @SuppressWarnings("unchecked")
+  public Map<String, Long> getAssetCounts() {
+    final var query =
+      "SELECT resourcetype, COUNT(*) FROM " + persistConfig.getSchema() + ".aws GROUP BY resourcetype " +
+      "UNION ALL " +
+      "SELECT resourcetype, COUNT(*) FROM " + persistConfig.getSchema() + ".gcp GROUP BY resourcetype";
+
+    final var counts = new HashMap<String, Long>();
+    final List<Object[]> rows = entityManager.createNativeQuery(query).getResultList();
+    rows.stream()
+      .filter(row -> row[0] != null)
+      .forEach(row -> counts.merge((String) row[0], ((Number) row[1]).longValue(), Long::sum));
+    return counts;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public Map<String, AssetWatermark> getAssetWatermarks() {
+    final var query =
+      "SELECT resourcetype, COUNT(*), MAX(updatediso) FROM " + persistConfig.getSchema() + ".aws GROUP BY resourcetype " +
+      "UNION ALL " +
+      "SELECT resourcetype, COUNT(*), MAX(updatediso) FROM " + persistConfig.getSchema() + ".gcp GROUP BY resourcetype";
+
+    final var watermarks = new HashMap<String, AssetWatermark>();
+    final List<Object[]> rows = entityManager.createNativeQuery(query).getResultList();
+    rows.stream()
+      .filter(row -> row[0] != null)
+      .forEach(row -> watermarks.merge((String) row[0],
+        new AssetWatermark(((Number) row[1]).longValue(), row[2] == null ? null : ((Timestamp) row[2]).toInstant()),
+        (a, b) -> new AssetWatermark(a.getCount() + b.getCount(), latest(a.getLatestUpdate(), b.getLatestUpdate()))));
+    return watermarks;
+  }
+
+  private static Instant latest(Instant a, Instant b) {
+    if (a == null || b == null) {
+      return a == null ? b : a;
+    }
+    return a.isAfter(b) ? a : b;
+  }
+
 
   @Override
   public void close() throws IOException {
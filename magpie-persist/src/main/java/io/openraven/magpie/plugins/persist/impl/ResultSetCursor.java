@@ -0,0 +1,99 @@
+/*
+ * Copyright 2021 Open Raven Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.openraven.magpie.plugins.persist.impl;
+
+import org.postgresql.PGStatement;
+import org.postgresql.util.PGobject;
+
+import javax.persistence.PersistenceException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+
+/**
+ * Forward-only cursor over a native query. With auto-commit off and a positive fetch size the Postgres driver keeps
+ * the result set on the server and pulls {@code fetchSize} rows per round-trip, so only one batch is ever on the heap.
+ */
+class ResultSetCursor extends Spliterators.AbstractSpliterator<Map<String, Object>> implements AutoCloseable {
+
+  private final PreparedStatement statement;
+  private final ResultSet resultSet;
+  private final String[] columns;
+
+  private ResultSetCursor(PreparedStatement statement, ResultSet resultSet) throws SQLException {
+    super(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL);
+    this.statement = statement;
+    this.resultSet = resultSet;
+
+    final var metaData = resultSet.getMetaData();
+    this.columns = new String[metaData.getColumnCount()];
+    for (int i = 0; i < columns.length; i++) {
+      columns[i] = metaData.getColumnLabel(i + 1);
+    }
+  }
+
+  static ResultSetCursor open(Connection connection, String query, int fetchSize) throws SQLException {
+    final var statement = connection.prepareStatement(query, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+    try {
+      // Server-prepare on first use; the driver caches the prepared statement per connection keyed by SQL, so rules
+      // that run the same query again skip parsing and planning.
+      statement.unwrap(PGStatement.class).setPrepareThreshold(1);
+      statement.setFetchSize(fetchSize);
+      return new ResultSetCursor(statement, statement.executeQuery());
+    } catch (SQLException e) {
+      statement.close();
+      throw e;
+    }
+  }
+
+  @Override
+  public boolean tryAdvance(Consumer<? super Map<String, Object>> action) {
+    try {
+      if (!resultSet.next()) {
+        return false;
+      }
+      final var row = new LinkedHashMap<String, Object>(columns.length * 2);
+      for (int i = 0; i < columns.length; i++) {
+        var value = resultSet.getObject(i + 1);
+        // JSONB and other non-standard types are surfaced as text, as the PostgreSQL10StringDialect does for queryNative
+        if (value instanceof PGobject) {
+          value = ((PGobject) value).getValue();
+        }
+        row.put(columns[i], value);
+      }
+      action.accept(row);
+      return true;
+    } catch (SQLException e) {
+      throw new PersistenceException("Unable to read next row", e);
+    }
+  }
+
+  @Override
+  public void close() {
+    try (statement) {
+      resultSet.close();
+    } catch (SQLException e) {
+      throw new PersistenceException("Unable to close cursor", e);
+    }
+  }
+}
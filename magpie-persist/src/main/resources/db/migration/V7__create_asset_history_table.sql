@@ -0,0 +1,11 @@
+CREATE TABLE IF NOT EXISTS assethistory(
+    documentid TEXT not null,
+    version INTEGER not null,
+    discoverysessionid TEXT,
+    resourcetype TEXT,
+    updatediso TIMESTAMPTZ,
+    snapshot BOOLEAN not null,
+    document JSONB,
+    primary key (documentid, version)
+);
+CREATE INDEX IF NOT EXISTS assethistory_discovery_session ON assethistory (discoverysessionid);
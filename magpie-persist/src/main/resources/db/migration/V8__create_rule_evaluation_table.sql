@@ -0,0 +1,9 @@
+CREATE TABLE IF NOT EXISTS ruleevaluation(
+    policyid TEXT not null,
+    ruleid TEXT not null,
+    rulehash TEXT not null,
+    watermarks JSONB not null,
+    violations JSONB not null,
+    evaluatedat TIMESTAMPTZ not null,
+    primary key (policyid, ruleid, rulehash)
+);
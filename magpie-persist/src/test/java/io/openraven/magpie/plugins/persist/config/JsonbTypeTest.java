@@ -0,0 +1,130 @@
+/*
+ * Copyright 2021 Open Raven Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.openraven.magpie.plugins.persist.config;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.hibernate.type.CustomType;
+import org.junit.jupiter.api.Test;
+import org.postgresql.util.PGobject;
+
+import java.lang.reflect.Proxy;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Types;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JsonbTypeTest {
+
+  private final ObjectMapper objectMapper = new ObjectMapper();
+  private final JsonbType jsonbType = new JsonbType();
+
+  @Test
+  void whenValueIsBoundItShouldReadBackAsTheSameTree() throws Exception {
+    JsonNode value = objectMapper.readTree(
+      "{\"name\":\"bucket\",\"size\":12345678901,\"ratio\":0.5,\"tags\":{\"env\":\"prod\"},\"rules\":[1,null,true]}");
+
+    Map<Integer, Object> parameters = new HashMap<>();
+    jsonbType.nullSafeSet(statement(parameters), value, 1, null);
+
+    PGobject jsonb = (PGobject) parameters.get(1);
+    assertEquals("jsonb", jsonb.getType());
+
+    JsonNode read = (JsonNode) jsonbType.nullSafeGet(resultSet(jsonb.getValue()), new String[]{"configuration"}, null, null);
+    assertEquals(value, read);
+    assertTrue(jsonbType.equals(value, read));
+  }
+
+  @Test
+  void whenValueIsNullItShouldBindAndReadNull() throws Exception {
+    Map<Integer, Object> parameters = new HashMap<>();
+    jsonbType.nullSafeSet(statement(parameters), null, 1, null);
+
+    assertEquals(Types.OTHER, parameters.get(1));
+    assertNull(jsonbType.nullSafeGet(resultSet(null), new String[]{"configuration"}, null, null));
+  }
+
+  @Test
+  void whenNumbersDifferOnlyInNodeTypeValuesShouldBeEqual() throws Exception {
+    // Discovery builds Long and Double fields as LongNode/DoubleNode, reading the column back yields IntNode
+    JsonNode discovered = objectMapper.valueToTree(Map.of(
+      "size", 5L, "ratio", 1.0, "limits", List.of(10L, 20L), "nested", Map.of("count", 0L)));
+    JsonNode stored = objectMapper.readTree("{\"size\":5,\"ratio\":1,\"limits\":[10,20],\"nested\":{\"count\":0}}");
+
+    assertFalse(discovered.equals(stored));
+    assertTrue(jsonbType.equals(discovered, stored));
+    assertEquals(jsonbType.hashCode(discovered), jsonbType.hashCode(stored));
+  }
+
+  @Test
+  void whenValuesDifferTheyShouldNotBeEqual() throws Exception {
+    JsonNode value = objectMapper.readTree("{\"size\":5,\"name\":\"a\",\"limits\":[10,20]}");
+
+    assertFalse(jsonbType.equals(value, objectMapper.readTree("{\"size\":6,\"name\":\"a\",\"limits\":[10,20]}")));
+    assertFalse(jsonbType.equals(value, objectMapper.readTree("{\"size\":\"5\",\"name\":\"a\",\"limits\":[10,20]}")));
+    assertFalse(jsonbType.equals(value, objectMapper.readTree("{\"size\":5,\"name\":\"a\",\"limits\":[20,10]}")));
+    assertFalse(jsonbType.equals(value, objectMapper.readTree("{\"size\":5,\"name\":\"a\"}")));
+    assertFalse(jsonbType.equals(value, null));
+    assertTrue(jsonbType.equals(null, null));
+  }
+
+  @Test
+  void whenSnapshotIsTakenOnlyChangesShouldBeDirty() throws Exception {
+    CustomType type = new CustomType(jsonbType);
+    ObjectNode loaded = (ObjectNode) objectMapper.readTree("{\"size\":5,\"tags\":{\"env\":\"prod\"}}");
+    Object snapshot = type.deepCopy(loaded, null);
+
+    // Merging the rediscovered, unchanged asset
+    assertFalse(type.isDirty(snapshot, objectMapper.valueToTree(Map.of("size", 5L, "tags", Map.of("env", "prod"))), null));
+
+    // The snapshot is a copy, so changing the loaded tree in place is seen
+    ((ObjectNode) loaded.get("tags")).put("env", "dev");
+    assertTrue(type.isDirty(snapshot, loaded, null));
+  }
+
+  private static PreparedStatement statement(Map<Integer, Object> parameters) {
+    return (PreparedStatement) Proxy.newProxyInstance(JsonbTypeTest.class.getClassLoader(), new Class<?>[]{PreparedStatement.class},
+      (proxy, method, args) -> {
+        switch (method.getName()) {
+          case "setObject":
+          case "setNull":
+            parameters.put((Integer) args[0], args[1]);
+            return null;
+          default:
+            throw new UnsupportedOperationException(method.getName());
+        }
+      });
+  }
+
+  private static ResultSet resultSet(String column) {
+    return (ResultSet) Proxy.newProxyInstance(JsonbTypeTest.class.getClassLoader(), new Class<?>[]{ResultSet.class},
+      (proxy, method, args) -> {
+        if ("getString".equals(method.getName())) {
+          return column;
+        }
+        throw new UnsupportedOperationException(method.getName());
+      });
+  }
+}
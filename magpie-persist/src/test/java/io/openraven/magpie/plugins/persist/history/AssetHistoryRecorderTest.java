@@ -0,0 +1,115 @@
+/*
+ * Copyright 2021 Open Raven Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.openraven.magpie.plugins.persist.history;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import io.openraven.magpie.data.Resource;
+import io.openraven.magpie.data.aws.AWSResource;
+import io.openraven.magpie.data.aws.s3.S3Bucket;
+import io.openraven.magpie.plugins.persist.PersistConfig;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AssetHistoryRecorderTest {
+
+  private final Map<String, JsonNode> storedDocuments = new HashMap<>();
+  private final Map<String, Integer> latestVersions = new HashMap<>();
+
+  @Test
+  void whenAssetIsUnchangedNoEntryShouldBeAdded() {
+    var recorder = recorder(3);
+    var bucket = bucket("first");
+
+    var entries = upsert(recorder, bucket);
+    assertEquals(1, entries.size());
+    assertTrue(entries.get(0).isSnapshot());
+    assertEquals(1, entries.get(0).getVersion());
+
+    // Only volatile fields differ
+    bucket.setUpdatedIso(Instant.now().plusSeconds(60));
+    bucket.setDiscoverySessionId("next-session");
+    assertTrue(upsert(recorder, bucket).isEmpty());
+  }
+
+  @Test
+  void whenAssetChangesPatchesShouldBeAddedBetweenSnapshots() {
+    var recorder = recorder(3);
+    var bucket = bucket("v1");
+    upsert(recorder, bucket);
+
+    bucket.setResourceName("v2");
+    var entries = upsert(recorder, bucket);
+    assertEquals(1, entries.size());
+    assertFalse(entries.get(0).isSnapshot());
+    assertEquals(2, entries.get(0).getVersion());
+    assertEquals("replace", entries.get(0).getDocument().get(0).get("op").asText());
+
+    bucket.setResourceName("v3");
+    assertFalse(upsert(recorder, bucket).get(0).isSnapshot());
+
+    // Version 4 is a snapshot boundary, which an unchanged asset must not reach
+    assertTrue(upsert(recorder, bucket).isEmpty());
+
+    bucket.setResourceName("v4");
+    entries = upsert(recorder, bucket);
+    assertEquals(1, entries.size());
+    assertTrue(entries.get(0).isSnapshot());
+    assertEquals(4, entries.get(0).getVersion());
+    assertEquals("v4", entries.get(0).getDocument().get("resourceName").asText());
+  }
+
+  @Test
+  void whenStoredAssetHasNoHistoryFirstChangeShouldBeSnapshot() {
+    var recorder = recorder(3);
+    var bucket = bucket("before");
+    upsert(recorder, bucket);
+    latestVersions.clear();
+
+    bucket.setResourceName("after");
+    var entries = upsert(recorder, bucket);
+    assertTrue(entries.get(0).isSnapshot());
+    assertEquals(1, entries.get(0).getVersion());
+  }
+
+  private List<AssetHistoryRecorder.HistoryEntry> upsert(AssetHistoryRecorder recorder, Resource resource) {
+    return recorder.diff(List.of(resource), r -> ((AWSResource) r).getDocumentId(), storedDocuments, latestVersions);
+  }
+
+  private static AssetHistoryRecorder recorder(int snapshotInterval) {
+    var config = new PersistConfig();
+    config.setHistorySnapshotInterval(snapshotInterval);
+    return new AssetHistoryRecorder(config);
+  }
+
+  private static S3Bucket bucket(String name) {
+    var bucket = new S3Bucket();
+    bucket.setDocumentId("doc-1");
+    bucket.setArn("arn:aws:s3:::bucket");
+    bucket.setResourceName(name);
+    bucket.setUpdatedIso(Instant.now());
+    bucket.setDiscoverySessionId("session");
+    return bucket;
+  }
+}
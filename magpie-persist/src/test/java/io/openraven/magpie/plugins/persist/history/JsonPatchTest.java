@@ -0,0 +1,62 @@
+/*
+ * Copyright 2021 Open Raven Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.openraven.magpie.plugins.persist.history;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JsonPatchTest {
+
+  private final ObjectMapper objectMapper = new ObjectMapper();
+
+  @Test
+  void whenDocumentsAreEqualPatchShouldBeEmpty() throws Exception {
+    JsonNode source = objectMapper.readTree("{\"a\":1,\"b\":[1,2,{\"c\":\"d\"}]}");
+    JsonNode target = objectMapper.readTree("{\"b\":[1,2,{\"c\":\"d\"}],\"a\":1}");
+
+    assertTrue(JsonPatch.diff(source, target).isEmpty());
+  }
+
+  @Test
+  void whenDocumentsDifferPatchShouldContainMinimalOperations() throws Exception {
+    JsonNode source = objectMapper.readTree("{\"keep\":1,\"change\":\"x\",\"drop\":true}");
+    JsonNode target = objectMapper.readTree("{\"keep\":1,\"change\":\"y\",\"new/key\":{\"n\":1}}");
+
+    assertEquals(
+      objectMapper.readTree("[{\"op\":\"replace\",\"path\":\"/change\",\"value\":\"y\"}," +
+        "{\"op\":\"remove\",\"path\":\"/drop\"}," +
+        "{\"op\":\"add\",\"path\":\"/new~1key\",\"value\":{\"n\":1}}]"),
+      JsonPatch.diff(source, target));
+  }
+
+  @Test
+  void whenPatchIsAppliedTargetShouldBeRebuilt() throws Exception {
+    JsonNode source = objectMapper.readTree(
+      "{\"tags\":{\"env\":\"prod\"},\"rules\":[{\"port\":22},{\"port\":80},{\"port\":443}],\"name\":\"sg\"}");
+    JsonNode target = objectMapper.readTree(
+      "{\"tags\":{\"env\":\"dev\",\"owner\":\"me\"},\"rules\":[{\"port\":8080}],\"name\":null}");
+
+    var patch = JsonPatch.diff(source, target);
+
+    assertEquals(target, JsonPatch.apply(source, patch));
+    assertEquals(source, JsonPatch.apply(target, JsonPatch.diff(target, source)));
+  }
+}
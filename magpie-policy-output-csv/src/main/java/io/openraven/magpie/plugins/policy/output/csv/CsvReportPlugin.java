@@ -16,22 +16,28 @@
 package io.openraven.magpie.plugins.policy.output.csv;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
-import io.openraven.magpie.api.PolicyOutputPlugin;
+import io.openraven.magpie.api.StreamingPolicyOutputPlugin;
 import io.openraven.magpie.plugins.policy.output.csv.analysis.IgnoredRule;
-import io.openraven.magpie.plugins.policy.output.csv.analysis.ScanResults;
 import io.openraven.magpie.plugins.policy.output.csv.analysis.Violation;
 import io.openraven.magpie.plugins.policy.output.csv.exception.CsvOutputException;
+import io.openraven.magpie.plugins.policy.output.csv.model.Policy;
+import io.openraven.magpie.plugins.policy.output.csv.model.Rule;
 import org.apache.commons.csv.CSVFormat;
 import org.apache.commons.csv.CSVPrinter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
-public class CsvReportPlugin implements PolicyOutputPlugin<Void> {
+public class CsvReportPlugin implements StreamingPolicyOutputPlugin<Void> {
   private static final Logger LOGGER = LoggerFactory.getLogger(CsvReportPlugin.class);
 
   private static final String ID = "magpie.policy.output.csv";
@@ -40,12 +46,23 @@ public class CsvReportPlugin implements PolicyOutputPlugin<Void> {
 
   private CSVPrinter printer;
 
+  private final Map<String, Policy> policies = new HashMap<>();
+  private final Map<String, Rule> rules = new HashMap<>();
+  // Ignored rules are listed after every violation, and there are few of them
+  private final List<IgnoredRule> ignoredRules = new ArrayList<>();
+
   @Override
-  public void generateReport(ObjectNode data) {
-    ScanResults results = parseData(data);
+  public void beginReport(ObjectNode header) {
+    policies.clear();
+    rules.clear();
+    ignoredRules.clear();
+    header.path("policies").forEach(policyNode -> {
+      policies.put(StreamingPolicyOutputPlugin.referenceOf(policyNode), parse(policyNode, Policy.class));
+      policyNode.path("rules").forEach(ruleNode ->
+        rules.putIfAbsent(StreamingPolicyOutputPlugin.referenceOf(ruleNode), parse(ruleNode, Rule.class)));
+    });
 
     try {
-
       // Headers
       printer.printRecord(
         "Policy name",
@@ -53,48 +70,86 @@ public class CsvReportPlugin implements PolicyOutputPlugin<Void> {
         "Rule file name",
         "Rule name",
         "Ignored Reason");
+    } catch (IOException e) {
+      throw serializationError(e);
+    }
+  }
 
-      // Records
-      if (!results.getViolations().isEmpty() || !results.getIgnoredRules().isEmpty()) {
-
-        // Violations
-        for (Violation violation : results.getViolations()) {
-          printer.printRecord(
-            violation.getPolicy().getPolicyName(),
-            violation.getAssetId(),
-            violation.getRule().getFileName(),
-            trimLineSeparator(violation.getRule().getRuleName()),
-            null);
-        }
-
-        // Ignored rules
-        for (IgnoredRule ignoredRule : results.getIgnoredRules()) {
-          printer.printRecord(
-            ignoredRule.getPolicy().getPolicyName(),
-            null,
-            ignoredRule.getRule().getFileName(),
-            trimLineSeparator(ignoredRule.getRule().getRuleName()),
-            ignoredRule.getIgnoredReason().getReason());
-        }
-      }
+  @Override
+  public void violation(ObjectNode violationNode) {
+    final var violation = parse(violationNode, Violation.class);
+    final var rule = rule(violation.getRuleId());
+    try {
+      printer.printRecord(
+        policy(violation.getPolicyId()).getName(),
+        violation.getAssetId(),
+        rule.getFileName(),
+        trimLineSeparator(rule.getName()),
+        null);
+    } catch (IOException e) {
+      throw serializationError(e);
+    }
+  }
+
+  @Override
+  public void ignoredRule(ObjectNode ignoredRule) {
+    ignoredRules.add(parse(ignoredRule, IgnoredRule.class));
+  }
 
+  @Override
+  public void endReport() {
+    try {
+      for (IgnoredRule ignoredRule : ignoredRules) {
+        final var rule = rule(ignoredRule.getRuleId());
+        printer.printRecord(
+          policy(ignoredRule.getPolicyId()).getName(),
+          null,
+          rule.getFileName(),
+          trimLineSeparator(rule.getName()),
+          ignoredRule.getIgnoredReason().getReason());
+      }
+      printer.flush();
     } catch (IOException e) {
-      throw new RuntimeException("Unable to serialize policy analysis results to CSV format", e);
+      throw serializationError(e);
+    } finally {
+      policies.clear();
+      rules.clear();
+      ignoredRules.clear();
     }
   }
 
+  private Policy policy(String policyId) {
+    final var policy = policies.get(policyId);
+    if (policy == null) {
+      throw new IllegalArgumentException("Report references unknown policy " + policyId);
+    }
+    return policy;
+  }
+
+  private Rule rule(String ruleId) {
+    final var rule = rules.get(ruleId);
+    if (rule == null) {
+      throw new IllegalArgumentException("Report references unknown rule " + ruleId);
+    }
+    return rule;
+  }
+
   private String trimLineSeparator(String line) {
     return line.replace(System.lineSeparator(), "").replace("\"", "");
   }
 
-  protected ScanResults parseData(ObjectNode data) {
+  protected <V> V parse(JsonNode data, Class<V> type) {
     try {
-      return MAPPER.treeToValue(data, ScanResults.class);
+      return MAPPER.treeToValue(data, type);
     } catch (JsonProcessingException e) {
       throw new RuntimeException("Unable to parse data for plugin: " + id(), e);
     }
   }
 
+  private static RuntimeException serializationError(IOException e) {
+    return new RuntimeException("Unable to serialize policy analysis results to CSV format", e);
+  }
+
   @Override
   public String id() {
     return ID;
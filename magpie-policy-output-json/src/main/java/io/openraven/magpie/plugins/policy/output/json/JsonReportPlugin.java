@@ -17,27 +17,33 @@ package io.openraven.magpie.plugins.policy.output.json;
 
 import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
-import io.openraven.magpie.api.PolicyOutputPlugin;
+import io.openraven.magpie.api.StreamingPolicyOutputPlugin;
 import io.openraven.magpie.plugins.policy.output.json.analysis.IgnoredRule;
-import io.openraven.magpie.plugins.policy.output.json.analysis.ScanResults;
+import io.openraven.magpie.plugins.policy.output.json.analysis.ScanMetadata;
 import io.openraven.magpie.plugins.policy.output.json.analysis.Violation;
-import io.openraven.magpie.plugins.policy.output.json.model.Rule;
 import io.openraven.magpie.plugins.policy.output.json.model.Policy;
+import io.openraven.magpie.plugins.policy.output.json.model.Rule;
 import org.slf4j.Logger;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
 
-import static java.util.stream.Collectors.groupingBy;
-
-public class JsonReportPlugin implements PolicyOutputPlugin<Void> {
+/**
+ * Writes the report to stdout as it streams in: each violation is written as soon as it arrives, so memory use doesn't
+ * depend on the number of violations.
+ */
+public class JsonReportPlugin implements StreamingPolicyOutputPlugin<Void> {
 
   private static final String ID = "magpie.policy.output.json";
 
@@ -47,94 +53,125 @@ public class JsonReportPlugin implements PolicyOutputPlugin<Void> {
     .configure(JsonGenerator.Feature.AUTO_CLOSE_TARGET, false)
     .findAndRegisterModules();
 
-  @Override
-  public void generateReport(ObjectNode data) {
+  private final Map<String, Rule> rules = new HashMap<>();
+  private JsonGenerator generator;
+  private boolean ignoredRulesOpen;
 
-    ScanResults results = parseData(data);
+  @Override
+  public void beginReport(ObjectNode header) {
+    rules.clear();
+    final var policies = new ArrayList<Policy>();
+    header.path("policies").forEach(policyNode -> {
+      policies.add(parse(policyNode, Policy.class));
+      policyNode.path("rules").forEach(ruleNode ->
+        rules.putIfAbsent(StreamingPolicyOutputPlugin.referenceOf(ruleNode), parse(ruleNode, Rule.class)));
+    });
 
     try {
-      ObjectNode parentNode = MAPPER.createObjectNode();
-
-      generateReportMeta(results, parentNode);
-      generateDisabledPolicies(results, parentNode);
-      generatePolicyAnalysis(results, parentNode);
-
-      MAPPER.writeValue(System.out, parentNode);
-
+      generator = MAPPER.getFactory().createGenerator(System.out);
+      generator.useDefaultPrettyPrinter();
+      generator.writeStartObject();
+      generator.writeObjectField("meta", generateReportMeta(parse(header.path("scanMetadata"), ScanMetadata.class)));
+      generator.writeObjectField("disabledPolicies", generateDisabledPolicies(policies));
+      generator.writeArrayFieldStart("policies");
     } catch (IOException e) {
-      throw new RuntimeException("Unable to serialize policy analysis results to JSON format", e);
+      throw serializationError(e);
     }
   }
 
-  private void generatePolicyAnalysis(ScanResults results, ObjectNode parentNode) {
-    ArrayNode policiesArrayNode = MAPPER.createArrayNode();
-    parentNode.set("policies", policiesArrayNode);
-
-    Map<Policy, List<Violation>> violationMap = results.getViolations().stream()
-      .collect(groupingBy(Violation::getPolicy));
-
-    Map<Policy, List<IgnoredRule>> ignoredRulesMap = results.getIgnoredRules().stream()
-      .collect(groupingBy(IgnoredRule::getPolicy));
+  @Override
+  public void beginPolicy(ObjectNode policyNode) {
+    ignoredRulesOpen = false;
+    try {
+      generator.writeStartObject();
+      generator.writeStringField("name", parse(policyNode, Policy.class).getName());
+      generator.writeNumberField("violationsCount", policyNode.path("violationCount").asInt());
+      generator.writeArrayFieldStart("violations");
+    } catch (IOException e) {
+      throw serializationError(e);
+    }
+  }
 
-    results.getPolicies().forEach(policy -> {
+  @Override
+  public void violation(ObjectNode violationNode) {
+    final var policyViolation = parse(violationNode, Violation.class);
+    Rule violatedRule = rule(policyViolation.getRuleId());
 
-      var policyViolations = violationMap.get(policy);
-      var ignoredRules = ignoredRulesMap.get(policy);
+    ObjectNode violatedRuleNode = MAPPER.createObjectNode();
+    violatedRuleNode.put("name", violatedRule.getName());
+    violatedRuleNode.put("file", violatedRule.getFileName());
+    violatedRuleNode.put("severety", violatedRule.getSeverity().getTitle());
 
-      ObjectNode policyNode = MAPPER.createObjectNode();
-      policyNode.put("name", policy.getName());
-      policyNode.put("violationsCount", policyViolations == null ? 0 : policyViolations.size());
+    ObjectNode violationOutputNode = MAPPER.createObjectNode();
+    violationOutputNode.put("resourceID", policyViolation.getAssetId());
+    violationOutputNode.set("violatedRule", violatedRuleNode);
 
-      generateViolation(policy, policyViolations, policyNode);
-      generateIgnoredRule(ignoredRules, policyNode);
+    write(violationOutputNode);
+  }
 
-      policiesArrayNode.add(policyNode);
+  @Override
+  public void ignoredRule(ObjectNode ignoredRuleNode) {
+    try {
+      if (!ignoredRulesOpen) {
+        generator.writeEndArray(); // violations
+        generator.writeArrayFieldStart("ignoredRules");
+        ignoredRulesOpen = true;
+      }
+    } catch (IOException e) {
+      throw serializationError(e);
+    }
 
-    });
+    final var ignoredRule = parse(ignoredRuleNode, IgnoredRule.class);
+    final var rule = rule(ignoredRule.getRuleId());
+    ObjectNode ignoredRuleOutputNode = MAPPER.createObjectNode();
+    ignoredRuleOutputNode.put("name", rule.getName());
+    ignoredRuleOutputNode.put("file", rule.getFileName());
+    ignoredRuleOutputNode.put("reason", ignoredRule.getIgnoredReason().getReason());
+    write(ignoredRuleOutputNode);
   }
 
-  private void generateIgnoredRule(List<IgnoredRule> ignoredRules, ObjectNode policyNode) {
-    if (ignoredRules != null) {
-      ArrayNode ignoredRulesArray = MAPPER.createArrayNode();
-      policyNode.set("ignoredRules", ignoredRulesArray);
-
-      ignoredRules.forEach(rule -> {
-        ObjectNode ignoredRuleNode = MAPPER.createObjectNode();
-        ignoredRuleNode.put("name", rule.getRule().getName());
-        ignoredRuleNode.put("file", rule.getRule().getFileName());
-        ignoredRuleNode.put("reason", rule.getIgnoredReason().getReason());
-        ignoredRulesArray.add(ignoredRuleNode);
-      });
+  @Override
+  public void endPolicy(ObjectNode policy) {
+    try {
+      generator.writeEndArray(); // violations or ignoredRules
+      generator.writeEndObject();
+    } catch (IOException e) {
+      throw serializationError(e);
     }
   }
 
-  private void generateViolation(Policy policy, List<Violation> policyViolations, ObjectNode policyNode) {
-    ArrayNode violationsArray = MAPPER.createArrayNode();
-    policyNode.set("violations", violationsArray);
-
-    if (policyViolations != null) {
-      policyViolations.forEach(policyViolation -> {
-        Rule violatedRule = policyViolation.getRule();
-
-        ObjectNode violatedRuleNode = MAPPER.createObjectNode();
-        violatedRuleNode.put("name", violatedRule.getName());
-        violatedRuleNode.put("file", violatedRule.getFileName());
-        violatedRuleNode.put("severety", violatedRule.getSeverity().getTitle());
-
-        ObjectNode violationNode = MAPPER.createObjectNode();
-        violationNode.put("resourceID", policyViolation.getAssetId());
-        violationNode.set("violatedRule", violatedRuleNode);
+  @Override
+  public void endReport() {
+    try {
+      generator.writeEndArray();
+      generator.writeEndObject();
+      generator.close();
+    } catch (IOException e) {
+      throw serializationError(e);
+    } finally {
+      rules.clear();
+    }
+  }
 
-        violationsArray.add(violationNode);
+  private void write(JsonNode node) {
+    try {
+      generator.writeTree(node);
+    } catch (IOException e) {
+      throw serializationError(e);
+    }
+  }
 
-      });
+  private Rule rule(String ruleId) {
+    final var rule = rules.get(ruleId);
+    if (rule == null) {
+      throw new IllegalArgumentException("Report references unknown rule " + ruleId);
     }
+    return rule;
   }
 
-  private void generateDisabledPolicies(ScanResults results, ObjectNode parentNode) {
+  private ArrayNode generateDisabledPolicies(List<Policy> policies) {
     ArrayNode disabledPoliciesNode = MAPPER.createArrayNode();
-    parentNode.set("disabledPolicies", disabledPoliciesNode);
-    var disabledPolicies = results.getPolicies().stream().filter(policy -> !policy.isEnabled()).collect(Collectors.toList());
+    var disabledPolicies = policies.stream().filter(policy -> !policy.isEnabled()).collect(Collectors.toList());
     if (!disabledPolicies.isEmpty()) {
       disabledPolicies.forEach(policy -> {
         ObjectNode policyNode = MAPPER.createObjectNode();
@@ -143,13 +180,14 @@ public class JsonReportPlugin implements PolicyOutputPlugin<Void> {
         disabledPoliciesNode.add(policyNode);
       });
     }
+    return disabledPoliciesNode;
   }
 
-  private void generateReportMeta(ScanResults results, ObjectNode parentNode) {
+  private ObjectNode generateReportMeta(ScanMetadata scanMetadata) {
     ObjectNode metaNode = MAPPER.createObjectNode();
-    metaNode.put("startTime", results.getScanMetadata().getStartDateTime().toString());
-    metaNode.put("duration", humanReadableFormat(results.getScanMetadata().getDuration()));
-    parentNode.set("meta", metaNode);
+    metaNode.put("startTime", scanMetadata.getStartDateTime().toString());
+    metaNode.put("duration", humanReadableFormat(scanMetadata.getDuration()));
+    return metaNode;
   }
 
   private String humanReadableFormat(Duration duration) {
@@ -159,14 +197,18 @@ public class JsonReportPlugin implements PolicyOutputPlugin<Void> {
       .toLowerCase();
   }
 
-  private ScanResults parseData(ObjectNode data) {
+  private <V> V parse(JsonNode data, Class<V> type) {
     try {
-      return MAPPER.treeToValue(data, ScanResults.class);
+      return MAPPER.treeToValue(data, type);
     } catch (JsonProcessingException e) {
       throw new RuntimeException("Unable to parse data for plugin: " + id(), e);
     }
   }
 
+  private static RuntimeException serializationError(IOException e) {
+    return new UncheckedIOException("Unable to serialize policy analysis results to JSON format", e);
+  }
+
   @Override
   public String id() {
     return ID;
@@ -179,7 +221,7 @@ public class JsonReportPlugin implements PolicyOutputPlugin<Void> {
 
   @Override
   public void shutdown() {
-    PolicyOutputPlugin.super.shutdown();
+    StreamingPolicyOutputPlugin.super.shutdown();
   }
 
   @Override
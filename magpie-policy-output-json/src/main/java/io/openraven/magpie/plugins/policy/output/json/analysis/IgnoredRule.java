@@ -16,33 +16,31 @@
 package io.openraven.magpie.plugins.policy.output.json.analysis;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
-import io.openraven.magpie.plugins.policy.output.json.model.Policy;
-import io.openraven.magpie.plugins.policy.output.json.model.Rule;
 
 @JsonIgnoreProperties(ignoreUnknown = true)
 public class IgnoredRule {
 
-  private Policy policy;
-  private Rule rule;
+  private String policyId;
+  private String ruleId;
   private IgnoredReason ignoredReason;
 
-  public Rule getRule() {
-    return rule;
+  public String getPolicyId() {
+    return policyId;
   }
 
-  public IgnoredReason getIgnoredReason() {
-    return ignoredReason;
+  public String getRuleId() {
+    return ruleId;
   }
 
-  public Policy getPolicy() {
-    return policy;
+  public IgnoredReason getIgnoredReason() {
+    return ignoredReason;
   }
 
   @Override
   public String toString() {
     return "IgnoredRule{" +
-      "policy=" + policy +
-      ", rule=" + rule +
+      "policyId='" + policyId + '\'' +
+      ", ruleId='" + ruleId + '\'' +
       ", ignoredReason=" + ignoredReason +
       '}';
   }
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2021 Open Raven Inc
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.openraven.magpie.plugins.policy.output.json;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.openraven.magpie.api.StreamingPolicyOutputPlugin;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+import java.util.TimeZone;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Compares the report with report.json, both when the results are streamed as the policy analysis delivers them and when
+ * a complete results tree is replayed.
+ */
+public class JsonReportPluginTest {
+
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+
+  private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+  private PrintStream stdout;
+  private TimeZone timeZone;
+
+  @BeforeEach
+  public void captureStdout() {
+    stdout = System.out;
+    timeZone = TimeZone.getDefault();
+    TimeZone.setDefault(TimeZone.getTimeZone("UTC"));
+    System.setOut(new PrintStream(out, true, StandardCharsets.UTF_8));
+  }
+
+  @AfterEach
+  public void restoreStdout() {
+    System.setOut(stdout);
+    TimeZone.setDefault(timeZone);
+  }
+
+  @Test
+  public void testStreamedReport() throws IOException {
+    final var plugin = new JsonReportPlugin();
+    plugin.init(null, null);
+    stream(plugin, results());
+    assertEquals(golden(), out.toString(StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void testReplayedReport() throws IOException {
+    final var plugin = new JsonReportPlugin();
+    plugin.init(null, null);
+    plugin.generateReport(results());
+    assertEquals(golden(), out.toString(StandardCharsets.UTF_8));
+  }
+
+  // Delivers the results one node at a time, in the order and shape the policy analysis uses
+  private static void stream(StreamingPolicyOutputPlugin<?> plugin, ObjectNode results) {
+    final var header = MAPPER.createObjectNode();
+    header.set("scanMetadata", results.get("scanMetadata"));
+    header.set("policies", results.get("policies"));
+    header.put("violationCount", results.get("violations").size());
+    header.put("ignoredRuleCount", results.get("ignoredRules").size());
+    plugin.beginReport(header);
+
+    for (JsonNode policyNode : results.get("policies")) {
+      final var policyId = StreamingPolicyOutputPlugin.referenceOf(policyNode);
+      final ObjectNode policy = policyNode.deepCopy();
+      policy.remove("rules");
+      policy.put("violationCount", count(results.get("violations"), policyId));
+      policy.put("ignoredRuleCount", count(results.get("ignoredRules"), policyId));
+
+      plugin.beginPolicy(policy);
+      results.get("violations").forEach(violation -> {
+        if (violation.get("policyId").asText().equals(policyId)) {
+          plugin.violation((ObjectNode) violation);
+        }
+      });
+      results.get("ignoredRules").forEach(ignoredRule -> {
+        if (ignoredRule.get("policyId").asText().equals(policyId)) {
+          plugin.ignoredRule((ObjectNode) ignoredRule);
+        }
+      });
+      plugin.endPolicy(policy);
+    }
+    plugin.endReport();
+  }
+
+  private static int count(JsonNode entries, String policyId) {
+    int count = 0;
+    for (JsonNode entry : entries) {
+      if (entry.get("policyId").asText().equals(policyId)) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  private static ObjectNode results() throws IOException {
+    return (ObjectNode) MAPPER.readTree(JsonReportPluginTest.class.getResource("/results.json"));
+  }
+
+  private static String golden() throws IOException {
+    try (final var golden = Objects.requireNonNull(JsonReportPluginTest.class.getResourceAsStream("/report.json"))) {
+      return new String(golden.readAllBytes(), StandardCharsets.UTF_8);
+    }
+  }
+}
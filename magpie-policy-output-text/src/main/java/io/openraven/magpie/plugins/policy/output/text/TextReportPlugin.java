@@ -16,28 +16,27 @@
 package io.openraven.magpie.plugins.policy.output.text;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
-import io.openraven.magpie.api.PolicyOutputPlugin;
+import io.openraven.magpie.api.StreamingPolicyOutputPlugin;
 import io.openraven.magpie.plugins.policy.output.text.analysis.IgnoredRule;
-import io.openraven.magpie.plugins.policy.output.text.analysis.ScanResults;
+import io.openraven.magpie.plugins.policy.output.text.analysis.ScanMetadata;
 import io.openraven.magpie.plugins.policy.output.text.analysis.Violation;
 import io.openraven.magpie.plugins.policy.output.text.model.Policy;
 import io.openraven.magpie.plugins.policy.output.text.model.Rule;
 import org.slf4j.Logger;
 
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
 import java.util.function.BiFunction;
 import java.util.stream.Collectors;
 
-import static java.util.stream.Collectors.groupingBy;
-import static java.util.stream.Collectors.toList;
-
-public class TextReportPlugin implements PolicyOutputPlugin<Void> {
+public class TextReportPlugin implements StreamingPolicyOutputPlugin<Void> {
 
   private static final String ID = "magpie.policy.output.text";
 
@@ -56,71 +55,111 @@ public class TextReportPlugin implements PolicyOutputPlugin<Void> {
     return trimmedValue;
   };
 
+  private final Map<String, Rule> rules = new HashMap<>();
+  private boolean printDetails;
+  private boolean violationsOpen;
+  private boolean ignoredRulesOpen;
+
   @Override
-  public void generateReport(ObjectNode data) {
-    ScanResults results = parseData(data);
+  public void beginReport(ObjectNode header) {
+    rules.clear();
+    final var policies = new ArrayList<Policy>();
+    header.path("policies").forEach(policyNode -> {
+      policies.add(parse(policyNode, Policy.class));
+      policyNode.path("rules").forEach(ruleNode ->
+        rules.putIfAbsent(StreamingPolicyOutputPlugin.referenceOf(ruleNode), parse(ruleNode, Rule.class)));
+    });
 
-    processMeta(results);
-    processDisabledPolicies(results);
+    final var violationCount = header.path("violationCount").asLong();
+    processMeta(parse(header.path("scanMetadata"), ScanMetadata.class), violationCount);
+    processDisabledPolicies(policies);
 
-    if (!results.getViolations().isEmpty() || !results.getIgnoredRules().isEmpty()) {
+    printDetails = violationCount > 0 || header.path("ignoredRuleCount").asLong() > 0;
+    if (printDetails) {
       System.out.println(BOLD_SET + "Scan Per-policy Details:" + BOLD_RESET);
+    }
+  }
 
-      Map<Policy, List<Violation>> violationMap = results.getViolations().stream()
-        .collect(groupingBy(Violation::getPolicy, toList()));
+  @Override
+  public void beginPolicy(ObjectNode policyNode) {
+    violationsOpen = false;
+    ignoredRulesOpen = false;
+    if (printDetails && policyNode.path("violationCount").asLong() > 0) {
+      final var policy = parse(policyNode, Policy.class);
+      System.out.printf("%-30s%-40s\n", "Policy name", policy.getName());
+      System.out.printf("%-30s%-40s\n", "No. of violations", policyNode.path("violationCount").asLong());
+
+      System.out.printf("%-30s\n", "Violations");
+      System.out.printf(BOLD_SET + "%-2s%-" + COLUMN_WIDTH + "s%-" + FILE_NAME_COLUMN_WIDTH + "s%-" + COLUMN_WIDTH + "s\n" + BOLD_RESET,
+        "", "Resource ID", "Rule file name", "Rule name");
+      violationsOpen = true;
+    }
+  }
 
-      Map<Policy, List<IgnoredRule>> ignoredRulesMap = results.getIgnoredRules().stream()
-        .collect(groupingBy(IgnoredRule::getPolicy));
+  @Override
+  public void violation(ObjectNode violationNode) {
+    final var policyViolation = parse(violationNode, Violation.class);
+
+    String resourceID = policyViolation.getAssetId().length() >= COLUMN_WIDTH
+      ? "..." + policyViolation.getAssetId().substring(policyViolation.getAssetId().length() - COLUMN_WIDTH + "...".length() + 2)
+      : policyViolation.getAssetId();
+
+    Rule violatedRule = rule(policyViolation.getRuleId());
+    System.out.printf("%-2s%-" + COLUMN_WIDTH + "s%-" + FILE_NAME_COLUMN_WIDTH + "s%-" + COLUMN_WIDTH + "s\n",
+      "", resourceID,
+      TRIM_BY_COLUMN_FUNCTION.apply(violatedRule.getFileName(), FILE_NAME_COLUMN_WIDTH),
+      TRIM_BY_COLUMN_FUNCTION.apply(violatedRule.getName(), COLUMN_WIDTH));
+  }
 
-      results.getPolicies().forEach(policy -> {
+  @Override
+  public void ignoredRule(ObjectNode ignoredRuleNode) {
+    closeViolations();
+    if (!ignoredRulesOpen) {
+      System.out.printf("%-30s\n", "Ignored rules");
+      System.out.printf(BOLD_SET + "%-2s%-" + COLUMN_WIDTH + "s%-" + FILE_NAME_COLUMN_WIDTH + "s%-" + COLUMN_WIDTH + "s\n" + BOLD_RESET,
+        "", "Rule name", "Rule file name", "Reason");
+      ignoredRulesOpen = true;
+    }
 
-        Optional.ofNullable(violationMap.get(policy)).ifPresent(violations -> processViolations(policy, violations));
-        Optional.ofNullable(ignoredRulesMap.get(policy)).ifPresent(this::processIgnoredRules);
+    final var ignoredRule = parse(ignoredRuleNode, IgnoredRule.class);
+    final var rule = rule(ignoredRule.getRuleId());
+    System.out.printf("%-2s%-" + COLUMN_WIDTH + "s%-" + FILE_NAME_COLUMN_WIDTH + "s%-" + COLUMN_WIDTH + "s\n",
+      "", TRIM_BY_COLUMN_FUNCTION.apply(rule.getName(), COLUMN_WIDTH),
+      TRIM_BY_COLUMN_FUNCTION.apply(rule.getFileName(), FILE_NAME_COLUMN_WIDTH),
+      ignoredRule.getIgnoredReason().getReason());
+  }
 
-        System.out.println("");
-      });
+  @Override
+  public void endPolicy(ObjectNode policy) {
+    closeViolations();
+    if (printDetails) {
+      System.out.println("");
     }
   }
 
-  private void processIgnoredRules(List<IgnoredRule> ignoredRules) {
-    System.out.printf("%-30s\n", "Ignored rules");
-    System.out.printf(BOLD_SET + "%-2s%-" + COLUMN_WIDTH + "s%-" + FILE_NAME_COLUMN_WIDTH + "s%-" + COLUMN_WIDTH + "s\n" + BOLD_RESET,
-      "", "Rule name", "Rule file name", "Reason");
-
-    ignoredRules.forEach(ignoredRule -> {
-      System.out.printf("%-2s%-" + COLUMN_WIDTH + "s%-" + FILE_NAME_COLUMN_WIDTH + "s%-" + COLUMN_WIDTH + "s\n",
-        "", TRIM_BY_COLUMN_FUNCTION.apply(ignoredRule.getRule().getName(), COLUMN_WIDTH),
-        TRIM_BY_COLUMN_FUNCTION.apply(ignoredRule.getRule().getFileName(), FILE_NAME_COLUMN_WIDTH),
-        ignoredRule.getIgnoredReason().getReason());
-    });
+  @Override
+  public void endReport() {
+    rules.clear();
   }
 
-  private void processViolations(Policy policy, List<Violation> policyViolations) {
-    System.out.printf("%-30s%-40s\n", "Policy name", policy.getName());
-    System.out.printf("%-30s%-40s\n", "No. of violations", policyViolations.size());
-
-    System.out.printf("%-30s\n", "Violations");
-    System.out.printf(BOLD_SET + "%-2s%-" + COLUMN_WIDTH + "s%-" + FILE_NAME_COLUMN_WIDTH + "s%-" + COLUMN_WIDTH + "s\n" + BOLD_RESET,
-      "", "Resource ID", "Rule file name", "Rule name");
-
-    policyViolations.forEach(policyViolation -> {
-
-      String resourceID = policyViolation.getAssetId().length() >= COLUMN_WIDTH
-        ? "..." + policyViolation.getAssetId().substring(policyViolation.getAssetId().length() - COLUMN_WIDTH + "...".length() + 2)
-        : policyViolation.getAssetId();
+  private void closeViolations() {
+    if (violationsOpen) {
+      System.out.println("");
+      violationsOpen = false;
+    }
+  }
 
-      Rule violatedRule = policyViolation.getRule();
-      System.out.printf("%-2s%-" + COLUMN_WIDTH + "s%-" + FILE_NAME_COLUMN_WIDTH + "s%-" + COLUMN_WIDTH + "s\n",
-        "", resourceID,
-        TRIM_BY_COLUMN_FUNCTION.apply(violatedRule.getFileName(), FILE_NAME_COLUMN_WIDTH),
-        TRIM_BY_COLUMN_FUNCTION.apply(violatedRule.getName(), COLUMN_WIDTH));
-    });
-    System.out.println("");
+  private Rule rule(String ruleId) {
+    final var rule = rules.get(ruleId);
+    if (rule == null) {
+      throw new IllegalArgumentException("Report references unknown rule " + ruleId);
+    }
+    return rule;
   }
 
-  private void processDisabledPolicies(ScanResults results) {
+  private void processDisabledPolicies(List<Policy> policies) {
     // Disabled policies render
-    var disabledPolicies = results.getPolicies().stream().filter(policy -> !policy.isEnabled()).collect(Collectors.toList());
+    var disabledPolicies = policies.stream().filter(policy -> !policy.isEnabled()).collect(Collectors.toList());
     if (!disabledPolicies.isEmpty()) {
       System.out.println(BOLD_SET + "Disabled policies:" + BOLD_RESET);
       System.out.printf(BOLD_SET + "%-2s%-" + GUID_COLUMN_WIDTH + "s%-" + COLUMN_WIDTH + "s\n" + BOLD_RESET,
@@ -133,16 +172,16 @@ public class TextReportPlugin implements PolicyOutputPlugin<Void> {
     }
   }
 
-  private void processMeta(ScanResults results) {
+  private void processMeta(ScanMetadata scanMetadata, long violationCount) {
     System.out.println(BOLD_SET + "Scan Summary:" + BOLD_RESET);
-    System.out.printf("%-30s%-40s\n", "Scan start time", results.getScanMetadata().getStartDateTime().toString());
-    System.out.printf("%-30s%-40s\n", "Scan duration", humanReadableFormat(results.getScanMetadata().getDuration()));
-    System.out.printf("%-30s%-40d\n\n", "Total violations found", results.getViolations().size());
+    System.out.printf("%-30s%-40s\n", "Scan start time", scanMetadata.getStartDateTime().toString());
+    System.out.printf("%-30s%-40s\n", "Scan duration", humanReadableFormat(scanMetadata.getDuration()));
+    System.out.printf("%-30s%-40d\n\n", "Total violations found", violationCount);
   }
 
-  private ScanResults parseData(ObjectNode data) {
+  private <V> V parse(JsonNode data, Class<V> type) {
     try {
-      return MAPPER.treeToValue(data, ScanResults.class);
+      return MAPPER.treeToValue(data, type);
     } catch (JsonProcessingException e) {
       throw new RuntimeException("Unable to parse data for plugin: " + id(), e);
     }
@@ -167,7 +206,7 @@ public class TextReportPlugin implements PolicyOutputPlugin<Void> {
 
   @Override
   public void shutdown() {
-    PolicyOutputPlugin.super.shutdown();
+    StreamingPolicyOutputPlugin.super.shutdown();
   }
 
   @Override
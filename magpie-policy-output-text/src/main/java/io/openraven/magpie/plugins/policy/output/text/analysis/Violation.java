@@ -16,58 +16,47 @@
 package io.openraven.magpie.plugins.policy.output.text.analysis;
 
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
-import io.openraven.magpie.plugins.policy.output.text.model.Policy;
-import io.openraven.magpie.plugins.policy.output.text.model.Rule;
 
 import java.time.LocalDateTime;
 
 @JsonIgnoreProperties(ignoreUnknown = true)
 public class Violation {
-  private Policy policy;
-  private Rule rule;
+  private String policyId;
+  private String ruleId;
   private String assetId;
-  private String info;
   private String error;
   private LocalDateTime evaluatedAt;
 
-  public String getError() {
-    return error;
-  }
-
-  public void setError(String error) {
-    this.error = error;
-  }
-
-  public String getInfo() {
-    return info;
+  public String getPolicyId() {
+    return policyId;
   }
 
-  public void setInfo(String info) {
-    this.info = info;
+  public void setPolicyId(String policyId) {
+    this.policyId = policyId;
   }
 
-  public LocalDateTime getEvaluatedAt() {
-    return evaluatedAt;
+  public String getRuleId() {
+    return ruleId;
   }
 
-  public void setEvaluatedAt(LocalDateTime evaluatedAt) {
-    this.evaluatedAt = evaluatedAt;
+  public void setRuleId(String ruleId) {
+    this.ruleId = ruleId;
   }
 
-  public Policy getPolicy() {
-    return policy;
+  public String getError() {
+    return error;
   }
 
-  public void setPolicy(Policy policy) {
-    this.policy = policy;
+  public void setError(String error) {
+    this.error = error;
   }
 
-  public Rule getRule() {
-    return rule;
+  public LocalDateTime getEvaluatedAt() {
+    return evaluatedAt;
   }
 
-  public void setRule(Rule rule) {
-    this.rule = rule;
+  public void setEvaluatedAt(LocalDateTime evaluatedAt) {
+    this.evaluatedAt = evaluatedAt;
   }
 
   public String getAssetId() {
@@ -81,10 +70,9 @@ public class Violation {
   @Override
   public String toString() {
     return "Violation{" +
-      "policy=" + policy +
-      ", rule=" + rule +
+      "policyId='" + policyId + '\'' +
+      ", ruleId='" + ruleId + '\'' +
       ", assetId='" + assetId + '\'' +
-      ", info='" + info + '\'' +
       ", error='" + error + '\'' +
       ", evaluatedAt=" + evaluatedAt +
       '}';